@@ -155,6 +155,43 @@ export default {
         }
     },
 
+    /**
+     * Abonniert Preis-Updates per Server-Sent Events (eine Verbindung für alle Assets)
+     * @param {Array} assets - Assets mit symbol und type
+     * @param {Function} onPrices - Callback mit Map Symbol → Update (Symbole wie in assets, nicht korrigiert)
+     * @param {Function} onError - Callback bei Verbindungsfehlern (optional)
+     * @returns {EventSource} Offene Verbindung (mit close() beenden)
+     */
+    subscribeToPrices(assets, onPrices, onError = null) {
+        // Der Server antwortet mit den korrigierten Symbolen (z.B. GOOGL für GOOG): Originale merken
+        const originals = {};
+        const symbols = assets
+            .filter(asset => asset.symbol)
+            .map(asset => {
+                const corrected = this.correctSymbol(asset.symbol);
+                (originals[corrected] = originals[corrected] || []).push(asset.symbol);
+                // Symbole mit Typ übergeben, damit der Server nicht raten muss
+                return `${corrected}:${asset.type || this.getAssetType(asset.symbol)}`;
+            })
+            .join(',');
+
+        const source = new EventSource(`${API_URL}/stream?symbols=${encodeURIComponent(symbols)}`);
+        source.addEventListener('prices', event => {
+            const updates = {};
+            Object.entries(JSON.parse(event.data)).forEach(([symbol, update]) => {
+                (originals[symbol] || [symbol]).forEach(original => {
+                    updates[original] = update;
+                });
+            });
+            onPrices(updates);
+        });
+        if (onError) {
+            // EventSource verbindet sich nach Fehlern selbstständig neu
+            source.onerror = onError;
+        }
+        return source;
+    },
+
     // === WATCHLIST MANAGEMENT ===
 
     /**
@@ -0,0 +1,280 @@
+package com.example.financemanager.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Konfiguration des HTTP-Clients für die externen Finanz-APIs.
+ * Bietet:
+ * - JDK-HttpClient mit Keep-Alive-Connection-Pool pro Host und HTTP/2 (Fallback auf HTTP/1.1)
+ * - Connect-, Read- und Gesamt-Timeouts
+ * - gzip-komprimierte Antworten
+ *
+ * Der Verbindungspool des JDK-Clients ist JVM-weit und nur über Startparameter einstellbar,
+ * z.B. {@code -Djdk.httpclient.keepalive.timeout=60 -Djdk.httpclient.connectionPoolSize=20}
+ * (Standard: 30 s Keep-Alive, unbegrenzte Poolgröße).
+ */
+@Configuration
+public class HttpClientConfig {
+
+    // Timeout für den Verbindungsaufbau (inkl. TLS-Handshake)
+    @Value("${http.client.connect-timeout-ms:3000}")
+    private long connectTimeoutMs;
+
+    // Timeout bis zum Eintreffen der Antwort-Header
+    @Value("${http.client.read-timeout-ms:5000}")
+    private long readTimeoutMs;
+
+    // Gesamtdauer einer Anfrage inkl. Lesen des Antwort-Bodys
+    @Value("${http.client.total-timeout-ms:10000}")
+    private long totalTimeoutMs;
+
+    // HTTP/2 bevorzugen (per ALPN ausgehandelt, sonst HTTP/1.1)
+    @Value("${http.client.http2:true}")
+    private boolean http2Enabled;
+
+    /**
+     * Gemeinsamer HttpClient für alle Provider. Der JDK-Client hält pro Host einen
+     * Pool wiederverwendbarer Verbindungen, sodass TLS-Handshakes nicht bei jedem
+     * Aufruf anfallen.
+     */
+    @Bean
+    public HttpClient providerHttpClient() {
+        System.err.println("HTTP-Client-Pool: keepalive=" + System.getProperty("jdk.httpclient.keepalive.timeout", "30")
+                + " s, connectionPoolSize=" + System.getProperty("jdk.httpclient.connectionPoolSize", "0 (unbegrenzt)"));
+        return HttpClient.newBuilder()
+                .version(http2Enabled ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    /**
+     * RestTemplate für die externen APIs auf Basis des gepoolten HttpClients.
+     */
+    @Bean
+    public RestTemplate providerRestTemplate(HttpClient providerHttpClient) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(providerHttpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.getInterceptors().add(new CompressionAndDeadlineInterceptor(totalTimeoutMs));
+        return restTemplate;
+    }
+
+    /**
+     * Fordert gzip-Antworten an, dekomprimiert sie transparent und bricht das Lesen
+     * des Bodys ab, sobald die Gesamt-Deadline der Anfrage überschritten ist.
+     */
+    static class CompressionAndDeadlineInterceptor implements ClientHttpRequestInterceptor {
+
+        private final long totalTimeoutMs;
+
+        CompressionAndDeadlineInterceptor(long totalTimeoutMs) {
+            this.totalTimeoutMs = totalTimeoutMs;
+        }
+
+        @Override
+        public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                            ClientHttpRequestExecution execution) throws IOException {
+            long deadline = System.nanoTime() + Duration.ofMillis(totalTimeoutMs).toNanos();
+            if (!request.getHeaders().containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+                request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+            }
+
+            ClientHttpResponse response = execution.execute(request, body);
+            String encoding = response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+            boolean gzip = encoding != null && encoding.toLowerCase().contains("gzip");
+            return new DecodedResponse(response, gzip, deadline, totalTimeoutMs);
+        }
+    }
+
+    /**
+     * Antwort-Wrapper mit optionaler gzip-Dekodierung und Deadline-Prüfung beim Lesen.
+     */
+    private static class DecodedResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private final boolean gzip;
+        private final long deadline;
+        private final long totalTimeoutMs;
+        private InputStream body;
+
+        DecodedResponse(ClientHttpResponse delegate, boolean gzip, long deadline, long totalTimeoutMs) {
+            this.delegate = delegate;
+            this.gzip = gzip;
+            this.deadline = deadline;
+            this.totalTimeoutMs = totalTimeoutMs;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            if (!gzip) {
+                return delegate.getHeaders();
+            }
+            // Nach der Dekodierung stimmen Encoding und Länge nicht mehr
+            HttpHeaders headers = new HttpHeaders();
+            headers.putAll(delegate.getHeaders());
+            headers.remove(HttpHeaders.CONTENT_ENCODING);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                InputStream deadlineStream = new DeadlineInputStream(delegate.getBody(), deadline, totalTimeoutMs);
+                body = gzip ? new GZIPInputStream(deadlineStream) : deadlineStream;
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            if (body != null) {
+                try {
+                    body.close();
+                } catch (IOException ignored) {
+                    // Die Verbindung wird unten ohnehin freigegeben
+                }
+            }
+            delegate.close();
+        }
+    }
+
+    /**
+     * InputStream, der nach Ablauf der Deadline mit einem Timeout abbricht. Die Prüfung vor
+     * jedem Lesen genügt nicht, wenn ein read() auf einen stockenden Server wartet: deshalb
+     * unterbricht ein Timer zur Deadline den Thread, der gerade liest (nur innerhalb von read()).
+     */
+    private static class DeadlineInputStream extends FilterInputStream {
+
+        private static final ScheduledThreadPoolExecutor TIMER = createTimer();
+
+        private final long deadline;
+        private final long totalTimeoutMs;
+        private final ScheduledFuture<?> expiry;
+        private Thread reader;
+        private boolean expired;
+        private boolean readerInterrupted;
+
+        DeadlineInputStream(InputStream in, long deadline, long totalTimeoutMs) {
+            super(in);
+            this.deadline = deadline;
+            this.totalTimeoutMs = totalTimeoutMs;
+            this.expiry = TIMER.schedule(this::expire, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+
+        private static ScheduledThreadPoolExecutor createTimer() {
+            ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1,
+                    Thread.ofPlatform().name("http-deadline").daemon().factory());
+            timer.setRemoveOnCancelPolicy(true);
+            return timer;
+        }
+
+        private synchronized void expire() {
+            expired = true;
+            if (reader != null) {
+                readerInterrupted = true;
+                reader.interrupt();
+            }
+        }
+
+        private synchronized void beginRead() throws IOException {
+            if (expired || System.nanoTime() - deadline > 0) {
+                throw timeout(null);
+            }
+            reader = Thread.currentThread();
+        }
+
+        /**
+         * Beendet einen Lesevorgang. Liefert true, wenn die Deadline währenddessen abgelaufen ist;
+         * ein vom Timer gesetztes Interrupt-Flag wird dabei wieder entfernt.
+         */
+        private boolean endRead() {
+            boolean clearInterrupt;
+            boolean timedOut;
+            synchronized (this) {
+                reader = null;
+                clearInterrupt = readerInterrupted;
+                readerInterrupted = false;
+                timedOut = expired;
+            }
+            if (clearInterrupt) {
+                Thread.interrupted();
+            }
+            return timedOut;
+        }
+
+        private SocketTimeoutException timeout(IOException cause) {
+            SocketTimeoutException timeout =
+                    new SocketTimeoutException("Total request timeout of " + totalTimeoutMs + " ms exceeded");
+            if (cause != null) {
+                timeout.initCause(cause);
+            }
+            return timeout;
+        }
+
+        @Override
+        public int read() throws IOException {
+            beginRead();
+            try {
+                return super.read();
+            } catch (IOException e) {
+                throw endRead() ? timeout(e) : e;
+            } finally {
+                endRead();
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            beginRead();
+            try {
+                return super.read(b, off, len);
+            } catch (IOException e) {
+                throw endRead() ? timeout(e) : e;
+            } finally {
+                endRead();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            expiry.cancel(false);
+            super.close();
+        }
+    }
+}
@@ -4,11 +4,28 @@ import com.example.financemanager.dto.WatchlistDto;
 import com.example.financemanager.model.CryptoWatchlist;
 import com.example.financemanager.repository.CryptoWatchlistRepository;
 import com.example.financemanager.service.AssetService;
+import com.example.financemanager.service.PriceCache;
+import com.example.financemanager.service.PriceRefresher;
+import com.example.financemanager.service.PriceStreamService;
+import com.example.financemanager.service.CoinGeckoSymbolIndex;
+import com.example.financemanager.service.HedgedPriceFetcher;
+import com.example.financemanager.service.PortfolioNavService;
+import com.example.financemanager.service.PortfolioSimulationService;
+import com.example.financemanager.service.PositionService;
+import com.example.financemanager.service.ProviderGuards;
+import com.example.financemanager.service.RiskAnalyticsService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -21,6 +38,35 @@ public class AssetController {
     private AssetService assetService;
     @Autowired
     private CryptoWatchlistRepository cryptoWatchlistRepository;
+    @Autowired
+    private PriceCache priceCache;
+    @Autowired
+    private PriceRefresher priceRefresher;
+    @Autowired
+    private PriceStreamService priceStreamService;
+    @Autowired
+    private ProviderGuards providerGuards;
+
+    @Autowired
+    private HedgedPriceFetcher hedgedPriceFetcher;
+
+    @Autowired
+    private CoinGeckoSymbolIndex coinGeckoSymbolIndex;
+
+    @Autowired
+    private PositionService positionService;
+
+    @Autowired
+    private PortfolioNavService portfolioNavService;
+
+    @Autowired
+    private RiskAnalyticsService riskAnalyticsService;
+
+    @Autowired
+    private PortfolioSimulationService portfolioSimulationService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
 
     // ========== WATCHLIST MANAGEMENT ==========
 
@@ -138,6 +184,14 @@ public class AssetController {
         try {
             Map<String, Object> result = assetService.getAssetWithCurrentPrice(symbol, type, market);
 
+            // Quote des Providers ausgeschöpft: 429 mit Retry-After statt Mock-Daten
+            if (Boolean.TRUE.equals(result.get("rateLimited"))) {
+                long retryAfterSeconds = Math.max(1, (((Number) result.get("retryAfterMs")).longValue() + 999) / 1000);
+                return ResponseEntity.status(429)
+                        .header("Retry-After", String.valueOf(retryAfterSeconds))
+                        .body(result);
+            }
+
             if (result.containsKey("error")) {
                 return ResponseEntity.status(404).body(result);
             }
@@ -212,18 +266,22 @@ public class AssetController {
     // ========== HISTORICAL DATA ==========
 
     /**
-     * Historische Preisdaten für Krypto oder Aktie holen (Daily)
+     * Historische Preisdaten für Krypto oder Aktie holen (Daily, Standard: letzte 7 Tage)
      * GET /api/assets/history/BTC?type=crypto&market=USD
      * GET /api/assets/history/AAPL?type=stock
+     * GET /api/assets/history/BTC?type=crypto&from=2024-01-01&to=2024-06-30&interval=1day
      */
     @GetMapping("/history/{symbol}")
     public ResponseEntity<Map<String, Object>> getAssetHistory(
             @PathVariable String symbol,
             @RequestParam String type,
-            @RequestParam(required = false) String market) {
+            @RequestParam(required = false) String market,
+            @RequestParam(defaultValue = "1day") String interval,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
 
         try {
-            Map<String, Object> result = assetService.getAssetPriceHistory(symbol, type, market);
+            Map<String, Object> result = assetService.getAssetPriceHistory(symbol, type, market, "daily", interval, from, to);
 
             if (result.containsKey("error")) {
                 return ResponseEntity.status(404).body(result);
@@ -244,19 +302,22 @@ public class AssetController {
     }
 
     /**
-     * Intraday-Daten für detailliertere Analysen
+     * Intraday-Daten für detailliertere Analysen (Standard: letzter Tag)
      * GET /api/assets/intraday/AAPL?type=stock&interval=5min
      * GET /api/assets/intraday/BTC?type=crypto&market=USD&interval=15min
+     * GET /api/assets/intraday/BTC?type=crypto&interval=1h&from=2024-06-01T00:00:00Z
      */
     @GetMapping("/intraday/{symbol}")
     public ResponseEntity<Map<String, Object>> getAssetIntradayData(
             @PathVariable String symbol,
             @RequestParam String type,
             @RequestParam(required = false) String market,
-            @RequestParam(defaultValue = "5min") String interval) {
+            @RequestParam(defaultValue = "5min") String interval,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
 
         try {
-            Map<String, Object> result = assetService.getAssetPriceHistory(symbol, type, market, "intraday", interval);
+            Map<String, Object> result = assetService.getAssetPriceHistory(symbol, type, market, "intraday", interval, from, to);
 
             if (result.containsKey("error")) {
                 return ResponseEntity.status(404).body(result);
@@ -351,6 +412,234 @@ public class AssetController {
         }
     }
 
+    /**
+     * Offene Lots und realisierte/unrealisierte Gewinne eines Assets
+     * GET /api/assets/lots/{watchlistId}?method=fifo&price=65000
+     */
+    @GetMapping("/lots/{watchlistId}")
+    public ResponseEntity<Map<String, Object>> getLots(@PathVariable Long watchlistId,
+                                                       @RequestParam(required = false) String method,
+                                                       @RequestParam(required = false) BigDecimal price) {
+        try {
+            Map<String, Object> result = assetService.getLotReport(watchlistId, method, price);
+
+            if (result.containsKey("error")) {
+                return ResponseEntity.status(404).body(result);
+            }
+
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "error", e.getMessage()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of(
+                    "success", false,
+                    "error", "Fehler beim Berechnen der Lots: " + e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Realisierte Gewinne eines Jahres über alle Assets
+     * GET /api/assets/gains/2025?method=fifo
+     */
+    @GetMapping("/gains/{year}")
+    public ResponseEntity<Map<String, Object>> getRealizedGains(@PathVariable int year,
+                                                                @RequestParam(required = false) String method) {
+        try {
+            return ResponseEntity.ok(assetService.getRealizedGains(year, method));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "error", e.getMessage()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of(
+                    "success", false,
+                    "error", "Fehler beim Berechnen der realisierten Gewinne: " + e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Transaktion löschen (Position des Assets wird neu berechnet)
+     * DELETE /api/assets/transactions/{id}
+     */
+    @DeleteMapping("/transactions/{id}")
+    public ResponseEntity<Map<String, Object>> deleteTransaction(@PathVariable Long id) {
+        try {
+            if (!positionService.deleteTransaction(id)) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "message", "Transaktion erfolgreich gelöscht"
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of(
+                    "success", false,
+                    "error", "Fehler beim Löschen der Transaktion: " + e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Alle Positionen aus der Transaktionstabelle neu aufbauen und Abweichungen korrigieren
+     * POST /api/assets/positions/rebuild
+     */
+    @PostMapping("/positions/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildPositions() {
+        try {
+            return ResponseEntity.ok(positionService.rebuild());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of(
+                    "success", false,
+                    "error", "Fehler beim Neuaufbau der Positionen: " + e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Tägliche NAV-Kurve mit zeitgewichteter Rendite und maximalem Drawdown (nur aus der Datenbank)
+     * GET /api/assets/nav?from=2025-01-01&to=2025-12-31             (Gesamtportfolio)
+     * GET /api/assets/nav?watchlistId=3&from=2025-01-01            (einzelnes Asset)
+     */
+    @GetMapping("/nav")
+    public ResponseEntity<Map<String, Object>> getNav(
+            @RequestParam(required = false) Long watchlistId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            Map<String, Object> result = portfolioNavService.getNav(watchlistId, from, to);
+
+            if (result.containsKey("error")) {
+                return ResponseEntity.status(404).body(result);
+            }
+
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "error", e.getMessage()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of(
+                    "success", false,
+                    "error", "Fehler beim Berechnen der NAV-Historie: " + e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * NAV-Historie veralteter Einträge bis heute fortschreiben (sonst erledigt das der tägliche Job)
+     * POST /api/assets/nav/refresh                 (alle Einträge)
+     * POST /api/assets/nav/refresh?watchlistId=3   (einzelnes Asset)
+     */
+    @PostMapping("/nav/refresh")
+    public ResponseEntity<Map<String, Object>> refreshNav(@RequestParam(required = false) Long watchlistId) {
+        try {
+            int recomputed = portfolioNavService.refreshStale(watchlistId);
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "recomputedAssets", recomputed
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of(
+                    "success", false,
+                    "error", "Fehler beim Fortschreiben der NAV-Historie: " + e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Volatilität, VaR/CVaR, Beta und Korrelationsmatrix der gehaltenen Assets (aus gespeicherten Tageskursen)
+     * GET /api/assets/risk?from=2024-01-01&to=2024-12-31&confidence=0.99&benchmark=BTC
+     */
+    @GetMapping("/risk")
+    public ResponseEntity<Map<String, Object>> getRisk(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "0.95") double confidence,
+            @RequestParam(required = false) String benchmark) {
+        try {
+            Map<String, Object> result = riskAnalyticsService.analyze(from, to, confidence, benchmark);
+
+            if (result.containsKey("error")) {
+                return ResponseEntity.unprocessableEntity().body(result);
+            }
+
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "error", e.getMessage()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of(
+                    "success", false,
+                    "error", "Fehler bei der Risikoanalyse: " + e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Monte-Carlo-Simulation und Schock-Szenarien für die gehaltenen Assets
+     * POST /api/assets/portfolio/simulate
+     * Body: {"model": "gbm", "paths": 100000, "steps": 250, "seed": 42,
+     *        "scenarios": [{"name": "Krypto-Crash", "shocks": {"BTC": -0.3, "stock": -0.15}}]}
+     */
+    @PostMapping(value = "/portfolio/simulate", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> simulatePortfolio(@RequestBody(required = false) Map<String, Object> request) {
+        try {
+            Map<String, Object> result = portfolioSimulationService.simulate(request);
+
+            if (result.containsKey("error")) {
+                return ResponseEntity.unprocessableEntity().body(result);
+            }
+
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "error", e.getMessage()
+            ));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(429).body(Map.of(
+                    "success", false,
+                    "error", e.getMessage()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of(
+                    "success", false,
+                    "error", "Fehler bei der Simulation: " + e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Dieselbe Simulation mit Fortschritt als Server-Sent Events (Accept: text/event-stream)
+     * POST /api/assets/portfolio/simulate
+     * Events: "progress" {"completedPaths", "totalPaths", "percent"}, danach "result" oder "error"
+     * Fehler vor dem Start (ungültige Parameter, zu viele Simulationen) kommen als JSON mit 400 bzw. 429.
+     */
+    @PostMapping(value = "/portfolio/simulate", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPortfolioSimulation(@RequestBody(required = false) Map<String, Object> request,
+                                                HttpServletResponse response) throws IOException {
+        // Fehler direkt als JSON schreiben: ein Map-Body passt nicht zum ausgehandelten text/event-stream
+        try {
+            return portfolioSimulationService.simulateStream(request);
+        } catch (IllegalArgumentException e) {
+            writeJsonError(response, 400, e.getMessage());
+        } catch (IllegalStateException e) {
+            writeJsonError(response, 429, e.getMessage());
+        } catch (Exception e) {
+            writeJsonError(response, 500, "Fehler bei der Simulation: " + e.getMessage());
+        }
+        return null;
+    }
+
     /**
      * Gesamtes Portfolio mit Performance-Daten abrufen
      * GET /api/assets/portfolio/overview
@@ -399,6 +688,89 @@ public class AssetController {
         }
     }
 
+    // ========== PRICE STREAM ==========
+
+    /**
+     * Preis-Updates als Server-Sent Events (ersetzt das Polling pro Asset)
+     * GET /api/assets/stream?symbols=BTC:crypto,AAPL:stock
+     * GET /api/assets/stream?symbols=BTC,ETH&type=crypto
+     * Event "prices": {"BTC": {"symbol": "BTC", "type": "crypto", "success": true, "price": 65000.0, ...}}
+     * Fehler vor dem Start kommen als JSON: 400 bei fehlenden oder zu vielen Symbolen,
+     * 503 wenn die maximale Anzahl an Streams erreicht ist.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPrices(@RequestParam String symbols,
+                                   @RequestParam(required = false) String type,
+                                   HttpServletResponse response) throws IOException {
+        // Wie bei der Simulation: ein Map-Body passt nicht zum ausgehandelten text/event-stream
+        try {
+            return priceStreamService.subscribe(symbols, type);
+        } catch (IllegalArgumentException e) {
+            writeJsonError(response, 400, e.getMessage());
+        } catch (IllegalStateException e) {
+            writeJsonError(response, 503, e.getMessage());
+        } catch (Exception e) {
+            writeJsonError(response, 500, "Fehler beim Öffnen des Preis-Streams: " + e.getMessage());
+        }
+        return null;
+    }
+
+    // ========== MONITORING ==========
+
+    /**
+     * Statistiken des Preis-Caches (Treffer, Fehlzugriffe, Ladezeiten)
+     * GET /api/assets/cache/stats
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getPriceCacheStats() {
+        return ResponseEntity.ok(priceCache.getStats());
+    }
+
+    /**
+     * Status des Hintergrund-Refreshers (letzter Lauf, Aktualität, Backoff)
+     * GET /api/assets/refresher/status
+     */
+    @GetMapping("/refresher/status")
+    public ResponseEntity<Map<String, Object>> getPriceRefresherStatus() {
+        return ResponseEntity.ok(priceRefresher.getStatus());
+    }
+
+    /**
+     * Status des Preis-Streams (Abonnenten, gesendete und zusammengefasste Updates)
+     * GET /api/assets/stream/status
+     */
+    @GetMapping("/stream/status")
+    public ResponseEntity<Map<String, Object>> getPriceStreamStatus() {
+        return ResponseEntity.ok(priceStreamService.getStatus());
+    }
+
+    /**
+     * Zustand der Circuit Breaker und Bulkheads pro Provider (inkl. abgelehnter Aufrufe)
+     * GET /api/assets/providers/status
+     */
+    @GetMapping("/providers/status")
+    public ResponseEntity<Map<String, Object>> getProviderStatus() {
+        return ResponseEntity.ok(providerGuards.getStatus());
+    }
+
+    /**
+     * Latenz-Perzentile der Aktienkurs-Provider und Hedging-Statistiken
+     * GET /api/assets/providers/latency
+     */
+    @GetMapping("/providers/latency")
+    public ResponseEntity<Map<String, Object>> getProviderLatency() {
+        return ResponseEntity.ok(hedgedPriceFetcher.getStatus());
+    }
+
+    /**
+     * Größe, Alter und Herkunft des CoinGecko-Symbolindex
+     * GET /api/assets/symbol-index/status
+     */
+    @GetMapping("/symbol-index/status")
+    public ResponseEntity<Map<String, Object>> getSymbolIndexStatus() {
+        return ResponseEntity.ok(coinGeckoSymbolIndex.getStatus());
+    }
+
     // ========== HEALTH CHECK ==========
 
     /**
@@ -417,6 +789,16 @@ public class AssetController {
 
     // ========== ERROR HANDLING ==========
 
+    private void writeJsonError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getOutputStream(), Map.of(
+                "success", false,
+                "error", String.valueOf(message)
+        ));
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<Map<String, Object>> handleIllegalArgument(IllegalArgumentException e) {
         return ResponseEntity.badRequest().body(Map.of(
@@ -2,13 +2,29 @@ package com.example.financemanager.controller;
 
 import com.example.financemanager.model.Expense;
 import com.example.financemanager.model.Income;
+import com.example.financemanager.model.MonthlyRollup;
+import com.example.financemanager.service.BulkImportService;
 import com.example.financemanager.service.ExternalApiService;
 import com.example.financemanager.service.FinanceService;
+import com.example.financemanager.service.FxRateCache;
+import com.example.financemanager.service.LedgerQueryService;
+import com.example.financemanager.service.MonthlyRollupService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -23,14 +39,46 @@ public class FinanceController {
     @Autowired
     private ExternalApiService externalApiService;
 
+    @Autowired
+    private FxRateCache fxRateCache;
+
+    @Autowired
+    private MonthlyRollupService monthlyRollupService;
+
+    @Autowired
+    private LedgerQueryService ledgerQueryService;
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
     @PostMapping("/expenses")
     public ResponseEntity<Expense> addExpense(@RequestBody Expense expense) {
         return ResponseEntity.ok(financeService.addExpense(expense));
     }
 
+    // Gleiche Antwort wie bisher (Array aller Ausgaben), aber direkt aus dem Datenbank-Cursor gestreamt
     @GetMapping("/expenses")
-    public ResponseEntity<List<Expense>> getAllExpenses() {
-        return ResponseEntity.ok(financeService.getAllExpenses());
+    public ResponseEntity<StreamingResponseBody> getAllExpenses() {
+        return export(LedgerQueryService.Ledger.EXPENSE, new LedgerQueryService.Filter(null, null, null), "json");
+    }
+
+    @GetMapping("/expenses/page")
+    public ResponseEntity<Map<String, Object>> getExpensePage(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        return page(LedgerQueryService.Ledger.EXPENSE, new LedgerQueryService.Filter(from, to, category), after, limit);
+    }
+
+    @GetMapping("/expenses/export")
+    public ResponseEntity<StreamingResponseBody> exportExpenses(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String category) {
+        return export(LedgerQueryService.Ledger.EXPENSE, new LedgerQueryService.Filter(from, to, category), format);
     }
 
     @PostMapping("/incomes")
@@ -39,8 +87,27 @@ public class FinanceController {
     }
 
     @GetMapping("/incomes")
-    public ResponseEntity<List<Income>> getAllIncomes() {
-        return ResponseEntity.ok(financeService.getAllIncomes());
+    public ResponseEntity<StreamingResponseBody> getAllIncomes() {
+        return export(LedgerQueryService.Ledger.INCOME, new LedgerQueryService.Filter(null, null, null), "json");
+    }
+
+    @GetMapping("/incomes/page")
+    public ResponseEntity<Map<String, Object>> getIncomePage(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String source,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        return page(LedgerQueryService.Ledger.INCOME, new LedgerQueryService.Filter(from, to, source), after, limit);
+    }
+
+    @GetMapping("/incomes/export")
+    public ResponseEntity<StreamingResponseBody> exportIncomes(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String source) {
+        return export(LedgerQueryService.Ledger.INCOME, new LedgerQueryService.Filter(from, to, source), format);
     }
 
     @GetMapping("/balance")
@@ -53,10 +120,138 @@ public class FinanceController {
         return ResponseEntity.ok(financeService.getExpensesByCategory());
     }
 
+    // Massenimport: Rohdaten im Body, z.B. curl --data-binary @expenses.csv
+    @PostMapping("/import/{type}")
+    public ResponseEntity<Map<String, Object>> importData(
+            @PathVariable String type,
+            @RequestParam(defaultValue = "csv") String format,
+            InputStream body) {
+        try {
+            return ResponseEntity.ok(bulkImportService.importData(BulkImportService.ImportType.parse(type), format, body));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage(), "success", false));
+        }
+    }
+
+    @GetMapping("/import/jobs")
+    public ResponseEntity<List<Map<String, Object>>> getImportJobs() {
+        return ResponseEntity.ok(bulkImportService.getJobs());
+    }
+
+    @GetMapping("/reports/monthly")
+    public ResponseEntity<Map<String, Object>> getMonthlyTrend(
+            @RequestParam(required = false) YearMonth from,
+            @RequestParam(required = false) YearMonth to) {
+        try {
+            return ResponseEntity.ok(monthlyRollupService.getMonthlyTrend(from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage(), "success", false));
+        }
+    }
+
+    @GetMapping("/reports/categories")
+    public ResponseEntity<Map<String, Object>> getCategoryBreakdown(
+            @RequestParam(defaultValue = "expense") String type,
+            @RequestParam(required = false) YearMonth from,
+            @RequestParam(required = false) YearMonth to) {
+        try {
+            MonthlyRollup.Kind kind = switch (type.toLowerCase()) {
+                case "expense", "expenses" -> MonthlyRollup.Kind.EXPENSE;
+                case "income", "incomes" -> MonthlyRollup.Kind.INCOME;
+                default -> throw new IllegalArgumentException("Unbekannter Typ: " + type + " (expense oder income)");
+            };
+            return ResponseEntity.ok(monthlyRollupService.getCategoryBreakdown(kind, from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage(), "success", false));
+        }
+    }
+
+    @GetMapping("/reports/savings-rate")
+    public ResponseEntity<Map<String, Object>> getSavingsRate(
+            @RequestParam(required = false) YearMonth from,
+            @RequestParam(required = false) YearMonth to) {
+        try {
+            return ResponseEntity.ok(monthlyRollupService.getSavingsRate(from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage(), "success", false));
+        }
+    }
+
+    @PostMapping("/reports/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildRollups() {
+        return ResponseEntity.ok(monthlyRollupService.rebuild());
+    }
+
     @GetMapping("/exchange-rate")
     public ResponseEntity<?> getExchangeRate(
             @RequestParam String fromCurrency,
             @RequestParam String toCurrency) {
         return ResponseEntity.ok(externalApiService.getExchangeRate(fromCurrency, toCurrency));
     }
+
+    @GetMapping("/exchange-rates")
+    public ResponseEntity<Map<String, Object>> getExchangeRates(@RequestParam(defaultValue = "USD") String base) {
+        return ResponseEntity.ok(externalApiService.getExchangeRates(base));
+    }
+
+    @PostMapping("/convert")
+    public ResponseEntity<Map<String, Object>> convertAmounts(@RequestBody Map<String, Object> request) {
+        Object toCurrency = request.get("toCurrency");
+        if (!(toCurrency instanceof String) || !(request.get("amounts") instanceof List<?> amounts)) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "Body benötigt 'toCurrency' und 'amounts' ([{\"currency\": \"USD\", \"amount\": 10}])",
+                    "success", false
+            ));
+        }
+
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (Object entry : amounts) {
+            if (entry instanceof Map<?, ?> map) {
+                Map<String, Object> item = new HashMap<>();
+                map.forEach((key, value) -> item.put(String.valueOf(key), value));
+                entries.add(item);
+            }
+        }
+
+        try {
+            return ResponseEntity.ok(externalApiService.convertAmounts(entries, (String) toCurrency));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage(), "success", false));
+        }
+    }
+
+    @GetMapping("/exchange-rates/stats")
+    public ResponseEntity<Map<String, Object>> getExchangeRateStats() {
+        return ResponseEntity.ok(fxRateCache.getStats());
+    }
+
+    private ResponseEntity<Map<String, Object>> page(LedgerQueryService.Ledger ledger, LedgerQueryService.Filter filter,
+                                                     String after, Integer limit) {
+        try {
+            return ResponseEntity.ok(ledgerQueryService.getPage(ledger, filter, after, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage(), "success", false));
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(LedgerQueryService.Ledger ledger, LedgerQueryService.Filter filter,
+                                                         String format) {
+        LedgerQueryService.Format exportFormat;
+        try {
+            exportFormat = LedgerQueryService.Format.parse(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody body = out -> ledgerQueryService.export(ledger, filter, exportFormat, out);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        switch (exportFormat) {
+            case JSON -> response.contentType(MediaType.APPLICATION_JSON);
+            case NDJSON -> response.contentType(MediaType.APPLICATION_NDJSON);
+            case CSV -> response.contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                            .filename(ledger.name().toLowerCase() + "s.csv").build().toString());
+        }
+        return response.body(body);
+    }
 }
@@ -0,0 +1,11 @@
+package com.example.financemanager.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Eintrag des CoinGecko-Endpunkts /coins/list.
+ * Ein Symbol kann zu mehreren Coins gehören (z.B. viele Tokens mit Symbol "ETH").
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record CoinGeckoCoin(String id, String symbol, String name) {
+}
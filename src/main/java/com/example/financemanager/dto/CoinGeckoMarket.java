@@ -0,0 +1,12 @@
+package com.example.financemanager.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Eintrag des CoinGecko-Endpunkts /coins/markets.
+ * Gelesen wird nur der Rang nach Marktkapitalisierung; Preise und Volumen werden übersprungen.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record CoinGeckoMarket(String id, String symbol, @JsonProperty("market_cap_rank") Integer marketCapRank) {
+}
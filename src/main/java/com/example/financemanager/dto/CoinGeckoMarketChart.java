@@ -0,0 +1,18 @@
+package com.example.financemanager.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * Antwort des CoinGecko-Endpunkts /coins/{id}/market_chart/range.
+ * Gelesen werden nur die Preispunkte [Zeitstempel in ms, Preis];
+ * market_caps und total_volumes werden beim Parsen übersprungen.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record CoinGeckoMarketChart(List<List<Double>> prices) {
+
+    public List<List<Double>> pricesOrEmpty() {
+        return prices != null ? prices : List.of();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.financemanager.dto;
+
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Eintrag der CoinGecko-Antwort von /simple/price für eine Coin-ID, z.B. {"usd": 65000.5, "usd_24h_change": -1.2}.
+ * Die Feldnamen hängen von der angefragten Währung ab. Pro Aufruf wird genau eine Währung angefragt,
+ * daher werden Preis und 24h-Änderung beim Parsen direkt in zwei Felder gelesen.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public final class CoinGeckoPrice {
+
+    private static final String CHANGE_SUFFIX = "_24h_change";
+
+    private String currency;
+    private Double price;
+    private Double change24h;
+
+    @JsonAnySetter
+    void set(String field, Double value) {
+        if (field.endsWith(CHANGE_SUFFIX)) {
+            change24h = value;
+        } else if (field.indexOf('_') < 0) {
+            // Währungscode ohne Zusatz (usd, eur); andere Felder wie last_updated_at ignorieren
+            currency = field;
+            price = value;
+        }
+    }
+
+    public String currency() {
+        return currency;
+    }
+
+    public Double price() {
+        return price;
+    }
+
+    public Double change24h() {
+        return change24h;
+    }
+
+    /**
+     * Wandelt den Eintrag in das einheitliche Preisformat (price, change_percent, currency) um.
+     */
+    public Map<String, Object> toPriceMap() {
+        Map<String, Object> priceMap = new HashMap<>();
+        priceMap.put("price", price);
+        if (change24h != null) {
+            priceMap.put("change_percent", change24h);
+        }
+        if (currency != null) {
+            priceMap.put("currency", currency);
+        }
+        return priceMap;
+    }
+}
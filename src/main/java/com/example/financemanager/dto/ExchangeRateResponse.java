@@ -0,0 +1,13 @@
+package com.example.financemanager.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.Map;
+
+/**
+ * Antwort der Wechselkurs-APIs (exchangerate-api.com /latest und exchangerate.host /latest).
+ * success wird nur von exchangerate.host geliefert.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ExchangeRateResponse(String base, Boolean success, Map<String, Double> rates) {
+}
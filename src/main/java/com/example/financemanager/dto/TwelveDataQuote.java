@@ -0,0 +1,53 @@
+package com.example.financemanager.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Antwort des TwelveData-Endpunkts /quote für ein Symbol.
+ * Nur die benötigten Felder werden gelesen, alle anderen beim Parsen übersprungen.
+ * TwelveData liefert Zahlen als Strings; Jackson wandelt sie direkt in Double um.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record TwelveDataQuote(
+        String symbol,
+        Double close,
+        Double change,
+        @JsonProperty("percent_change") Double percentChange,
+        @JsonProperty("previous_close") Double previousClose,
+        String status,
+        Integer code,
+        String message) {
+
+    /**
+     * TwelveData meldet Fehler über ein code-Feld oder status "error".
+     */
+    public boolean isError() {
+        return code != null || "error".equals(status);
+    }
+
+    public String errorMessage() {
+        return message != null ? message : "Unknown error";
+    }
+
+    /**
+     * Wandelt das Quote in das einheitliche Preisformat (close, change, percent_change, previous_close) um.
+     */
+    public Map<String, Object> toPriceMap() {
+        Map<String, Object> priceMap = new HashMap<>();
+        priceMap.put("close", close);
+        if (change != null) {
+            priceMap.put("change", change);
+        }
+        if (percentChange != null) {
+            priceMap.put("percent_change", percentChange);
+        }
+        if (previousClose != null) {
+            priceMap.put("previous_close", previousClose);
+        }
+        return priceMap;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.financemanager.dto;
+
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Antwort des TwelveData-Endpunkts /quote für mehrere kommagetrennte Symbole.
+ * Die Antwort ist ein Objekt Symbol → Quote; bei einem Fehler für den gesamten
+ * Request enthält sie stattdessen code, message und status.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TwelveDataQuoteBatch {
+
+    private Integer code;
+    private String message;
+    private String status;
+    private final Map<String, TwelveDataQuote> quotes = new HashMap<>();
+
+    public Integer getCode() { return code; }
+    public void setCode(Integer code) { this.code = code; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Map<String, TwelveDataQuote> getQuotes() { return quotes; }
+
+    // Alle übrigen Felder sind Symbole mit ihrem Quote
+    @JsonAnySetter
+    public void putQuote(String symbol, TwelveDataQuote quote) {
+        quotes.put(symbol, quote);
+    }
+
+    public boolean isError() {
+        return code != null || "error".equals(status);
+    }
+}
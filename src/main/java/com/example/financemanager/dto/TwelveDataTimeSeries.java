@@ -0,0 +1,38 @@
+package com.example.financemanager.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * Antwort des TwelveData-Endpunkts /time_series.
+ * Die Werte kommen neueste zuerst; datetime ist "yyyy-MM-dd" (Tageskerzen)
+ * oder "yyyy-MM-dd HH:mm:ss" (Intraday) in der angefragten Zeitzone.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record TwelveDataTimeSeries(List<Value> values, String status, Integer code, String message) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Value(String datetime, Double open, Double high, Double low, Double close) {
+    }
+
+    /**
+     * TwelveData meldet Fehler über ein code-Feld oder status "error".
+     * "No data is available on the specified dates" gilt dabei nicht als Fehler.
+     */
+    public boolean isError() {
+        return (code != null || "error".equals(status)) && !isEmptyRange();
+    }
+
+    public boolean isEmptyRange() {
+        return message != null && message.toLowerCase().contains("no data is available");
+    }
+
+    public String errorMessage() {
+        return message != null ? message : "Unknown error";
+    }
+
+    public List<Value> valuesOrEmpty() {
+        return values != null ? values : List.of();
+    }
+}
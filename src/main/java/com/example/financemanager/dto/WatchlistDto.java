@@ -13,6 +13,7 @@ public class WatchlistDto {
     private BigDecimal totalAmount;
     private Integer transactionCount;
     private BigDecimal averagePrice;
+    private BigDecimal realizedPnl;
 
     private LocalDateTime createdAt;
 
@@ -21,6 +22,7 @@ public class WatchlistDto {
         this.investedAmount = BigDecimal.ZERO;
         this.totalAmount = BigDecimal.ZERO;
         this.transactionCount = 0;
+        this.realizedPnl = BigDecimal.ZERO;
     }
 
     // Alle Getters und Setters...
@@ -57,6 +59,11 @@ public class WatchlistDto {
         this.averagePrice = averagePrice != null ? averagePrice : BigDecimal.ZERO;
     }
 
+    public BigDecimal getRealizedPnl() { return realizedPnl; }
+    public void setRealizedPnl(BigDecimal realizedPnl) {
+        this.realizedPnl = realizedPnl != null ? realizedPnl : BigDecimal.ZERO;
+    }
+
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
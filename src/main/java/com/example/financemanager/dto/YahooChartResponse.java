@@ -0,0 +1,36 @@
+package com.example.financemanager.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * Antwort des Yahoo-Finance-Endpunkts /v8/finance/chart/{symbol}.
+ * Gelesen wird nur chart.result[].meta; die großen Zeitreihen (timestamp, indicators)
+ * werden beim Parsen übersprungen und nie als Objekte angelegt.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record YahooChartResponse(Chart chart) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Chart(List<Result> result) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Result(Meta meta) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Meta(Double regularMarketPrice, Double previousClose, Double chartPreviousClose) {
+    }
+
+    /**
+     * Liefert die Metadaten des ersten Ergebnisses oder null.
+     */
+    public Meta firstMeta() {
+        if (chart == null || chart.result() == null || chart.result().isEmpty()) {
+            return null;
+        }
+        return chart.result().get(0).meta();
+    }
+}
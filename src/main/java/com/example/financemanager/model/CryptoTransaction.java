@@ -2,12 +2,15 @@ package com.example.financemanager.model;
 
 import jakarta.persistence.*;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 // Diese Klasse stellt eine Krypto-Transaktion dar, z. B. einen Kauf oder Verkauf
 @Entity
+// Index für das Laden der Transaktionen eines Eintrags in Buchungsreihenfolge (Positionen, Lots)
+@Table(indexes = @Index(name = "idx_crypto_transaction_watchlist_date", columnList = "watchlist_id, transaction_date, id"))
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"}) // Ignoriert technische Details bei der JSON-Ausgabe
 public class CryptoTransaction {
 
@@ -26,12 +29,12 @@ public class CryptoTransaction {
     @Enumerated(EnumType.STRING)
     private TransactionType transactionType;
 
-    // Anzahl der gekauften oder verkauften Einheiten
-    @Column(precision = 38, scale = 2)
+    // Anzahl der gekauften oder verkauften Einheiten (Bruchteile, z. B. 0.00012345 BTC)
+    @Column(precision = 38, scale = 8)
     private BigDecimal amount;
 
     // Preis pro Einheit bei der Transaktion
-    @Column(precision = 38, scale = 2)
+    @Column(precision = 38, scale = 8)
     private BigDecimal pricePerUnit;
 
     // Gesamtwert der Transaktion (amount * pricePerUnit)
@@ -67,7 +70,8 @@ public class CryptoTransaction {
         this.transactionType = transactionType;
         this.amount = amount;
         this.pricePerUnit = pricePerUnit;
-        this.totalValue = amount.multiply(pricePerUnit);
+        // Auf die Spaltengenauigkeit gerundet, damit die Position mit den gespeicherten Werten rechnet
+        this.totalValue = amount.multiply(pricePerUnit).setScale(2, RoundingMode.HALF_UP);
     }
 
     // Getter und Setter für alle Felder
@@ -85,6 +89,8 @@ public class CryptoTransaction {
 
     public BigDecimal getTotalValue() { return totalValue; }
 
+    public LocalDateTime getTransactionDate() { return transactionDate; }
+
     public Expense getExpense() { return expense; }
     public void setExpense(Expense expense) { this.expense = expense; }
 
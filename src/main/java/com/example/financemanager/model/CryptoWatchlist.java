@@ -1,7 +1,9 @@
 package com.example.financemanager.model;
 
+import com.example.financemanager.service.FixedPoint;
 import jakarta.persistence.*;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
@@ -15,6 +17,9 @@ import java.util.List;
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"}) // Ignoriere technische Hibernate-Felder bei der JSON-Ausgabe
 public class CryptoWatchlist {
 
+    // Kleinster Einstandswert, der auf Cent gerundet nicht 0 ist
+    private static final BigDecimal HALF_CENT = new BigDecimal("0.005");
+
     // Eindeutige ID (automatisch generiert)
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -41,6 +46,11 @@ public class CryptoWatchlist {
     @JsonManagedReference // Ermöglicht JSON-Ausgabe (Gegenstück zu @JsonBackReference)
     private List<CryptoTransaction> transactions;
 
+    // Fortgeschriebener Bestand aus allen Transaktionen (siehe PositionService)
+    @OneToOne(mappedBy = "watchlist", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    @JsonIgnore
+    private Position position;
+
     // === KONSTRUKTOREN ===
 
     // Leerer Konstruktor, setzt Erstellungszeitpunkt auf jetzt
@@ -57,19 +67,15 @@ public class CryptoWatchlist {
     }
 
     // === BERECHNETE FELDER ===
+    // Gelesen aus der Position, nicht aus der Transaktionsliste
 
     /**
-     * Gibt den insgesamt investierten Betrag aus allen BUY-Transaktionen zurück
+     * Gibt den Einstandswert des aktuellen Bestands zurück
      */
     @JsonProperty("investedAmount")
     public BigDecimal getInvestedAmount() {
-        if (transactions == null || transactions.isEmpty()) return BigDecimal.ZERO;
-
-        return transactions.stream()
-                .filter(t -> t.getTransactionType() == CryptoTransaction.TransactionType.BUY)
-                .map(t -> t.getAmount().multiply(t.getPricePerUnit()))
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .setScale(2, RoundingMode.HALF_UP);
+        if (position == null) return BigDecimal.ZERO;
+        return position.getCostBasis().setScale(FixedPoint.MONEY_SCALE, RoundingMode.HALF_UP);
     }
 
     /**
@@ -77,45 +83,23 @@ public class CryptoWatchlist {
      */
     @JsonProperty("totalHoldings")
     public BigDecimal getTotalHoldings() {
-        if (transactions == null || transactions.isEmpty()) return BigDecimal.ZERO;
-
-        BigDecimal buyAmount = transactions.stream()
-                .filter(t -> t.getTransactionType() == CryptoTransaction.TransactionType.BUY)
-                .map(CryptoTransaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal sellAmount = transactions.stream()
-                .filter(t -> t.getTransactionType() == CryptoTransaction.TransactionType.SELL)
-                .map(CryptoTransaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        return buyAmount.subtract(sellAmount).setScale(8, RoundingMode.HALF_UP);
+        if (position == null) return BigDecimal.ZERO;
+        return position.getQuantity().setScale(FixedPoint.QUANTITY_SCALE, RoundingMode.HALF_UP);
     }
 
     /**
-     * Durchschnittlicher Kaufpreis über alle BUY-Transaktionen
+     * Durchschnittlicher Einstandspreis des aktuellen Bestands
      */
     @JsonProperty("averageBuyPrice")
     public BigDecimal getAverageBuyPrice() {
-        if (transactions == null || transactions.isEmpty()) return BigDecimal.ZERO;
-
-        List<CryptoTransaction> buyTransactions = transactions.stream()
-                .filter(t -> t.getTransactionType() == CryptoTransaction.TransactionType.BUY)
-                .toList();
-
-        if (buyTransactions.isEmpty()) return BigDecimal.ZERO;
-
-        BigDecimal totalValue = buyTransactions.stream()
-                .map(t -> t.getAmount().multiply(t.getPricePerUnit()))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal totalAmount = buyTransactions.stream()
-                .map(CryptoTransaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        if (totalAmount.compareTo(BigDecimal.ZERO) == 0) return BigDecimal.ZERO;
-
-        return totalValue.divide(totalAmount, 8, RoundingMode.HALF_UP);
+        if (position == null) return BigDecimal.ZERO;
+        // Division in Festkomma statt BigDecimal.divide (einzige echte Rechnung unter den Gettern)
+        long quantity = FixedPoint.round(position.getQuantity(), FixedPoint.QUANTITY_SCALE);
+        if (quantity <= 0) return BigDecimal.ZERO;
+        long costBasis = FixedPoint.round(position.getCostBasis(), FixedPoint.QUANTITY_SCALE);
+        long averagePrice = FixedPoint.divide(costBasis, FixedPoint.QUANTITY_SCALE,
+                quantity, FixedPoint.QUANTITY_SCALE, FixedPoint.QUANTITY_SCALE);
+        return FixedPoint.toBigDecimal(averagePrice, FixedPoint.QUANTITY_SCALE);
     }
 
     /**
@@ -123,7 +107,8 @@ public class CryptoWatchlist {
      */
     @JsonProperty("hasInvestment")
     public boolean getHasInvestment() {
-        return getInvestedAmount().compareTo(BigDecimal.ZERO) > 0;
+        // Gleichbedeutend mit getInvestedAmount() > 0, ohne den auf Cent gerundeten Wert zu erzeugen
+        return position != null && position.getCostBasis().compareTo(HALF_CENT) >= 0;
     }
 
     // === STANDARD GETTER UND SETTER ===
@@ -147,6 +132,9 @@ public class CryptoWatchlist {
 
     public List<CryptoTransaction> getTransactions() { return transactions; }
 
+    public Position getPosition() { return position; }
+    public void setPosition(Position position) { this.position = position; }
+
     // === LIFECYCLE-METHODE ===
 
     // Wird aufgerufen, bevor das Objekt gespeichert wird
@@ -168,8 +156,6 @@ public class CryptoWatchlist {
                 ", type='" + type + '\'' +
                 ", notes='" + notes + '\'' +
                 ", createdAt=" + createdAt +
-                ", investedAmount=" + getInvestedAmount() +
-                ", totalHoldings=" + getTotalHoldings() +
                 '}';
     }
 
@@ -0,0 +1,65 @@
+package com.example.financemanager.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Tagesendwert (Net Asset Value) eines Watchlist-Eintrags: Bestand zum Tagesschlusskurs und Zu-/Abflüsse des Tages
+// Die Portfolio-Kurve ist die Summe über alle Einträge pro Tag
+@Entity
+@Table(name = "daily_nav", uniqueConstraints = @UniqueConstraint(
+        name = "uk_daily_nav", columnNames = {"watchlist_id", "nav_date"}))
+public class DailyNav {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Zugehöriger Watchlist-Eintrag
+    @Column(name = "watchlist_id", nullable = false)
+    private Long watchlistId;
+
+    // Kalendertag
+    @Column(name = "nav_date", nullable = false)
+    private LocalDate date;
+
+    // Bestand am Tagesende
+    @Column(precision = 38, scale = 8, nullable = false)
+    private BigDecimal quantity = BigDecimal.ZERO;
+
+    // Verwendeter Kurs (Tagesschlusskurs, sonst letzter Transaktions- oder Vortageskurs)
+    @Column(precision = 38, scale = 8)
+    private BigDecimal price;
+
+    // Bestand * Kurs
+    @Column(precision = 38, scale = 8, nullable = false)
+    private BigDecimal marketValue = BigDecimal.ZERO;
+
+    // Käufe minus Verkaufserlöse des Tages
+    @Column(precision = 38, scale = 8, nullable = false)
+    private BigDecimal netFlow = BigDecimal.ZERO;
+
+    // Verkaufserlöse des Tages; zählen für die zeitgewichtete Rendite erst zum Tagesende
+    @Column(precision = 38, scale = 8, nullable = false)
+    private BigDecimal outflow = BigDecimal.ZERO;
+
+    public DailyNav() {
+    }
+
+    public Long getId() { return id; }
+
+    public Long getWatchlistId() { return watchlistId; }
+
+    public LocalDate getDate() { return date; }
+
+    public BigDecimal getQuantity() { return quantity; }
+
+    public BigDecimal getPrice() { return price; }
+
+    public BigDecimal getMarketValue() { return marketValue; }
+
+    public BigDecimal getNetFlow() { return netFlow; }
+
+    public BigDecimal getOutflow() { return outflow; }
+}
@@ -4,10 +4,14 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Entity
+// Index für die Keyset-Pagination nach (Datum, ID)
+@Table(indexes = @Index(name = "idx_expense_date_id", columnList = "date, id"))
 public class Expense {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
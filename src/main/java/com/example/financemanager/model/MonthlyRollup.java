@@ -0,0 +1,66 @@
+package com.example.financemanager.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Vorberechnete Monatssumme der Ausgaben einer Kategorie bzw. der Einnahmen einer Quelle
+// Wird bei jeder neuen Ausgabe/Einnahme fortgeschrieben, damit Auswertungen nur Monate statt Buchungen lesen
+@Entity
+@Table(name = "monthly_rollup", uniqueConstraints = @UniqueConstraint(
+        name = "uk_monthly_rollup", columnNames = {"kind", "rollup_month", "category"}))
+public class MonthlyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Ausgabe oder Einnahme
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Kind kind;
+
+    // Erster Tag des Monats ("month" ist in H2 ein reserviertes Wort)
+    @Column(name = "rollup_month", nullable = false)
+    private LocalDate month;
+
+    // Kategorie (Ausgaben) bzw. Quelle (Einnahmen)
+    @Column(nullable = false)
+    private String category;
+
+    // Summe der Beträge im Monat
+    @Column(precision = 38, scale = 2, nullable = false)
+    private BigDecimal total = BigDecimal.ZERO;
+
+    // Anzahl der Buchungen im Monat
+    private long entryCount;
+
+    public MonthlyRollup() {
+    }
+
+    public MonthlyRollup(Kind kind, LocalDate month, String category, BigDecimal total, long entryCount) {
+        this.kind = kind;
+        this.month = month;
+        this.category = category;
+        this.total = total;
+        this.entryCount = entryCount;
+    }
+
+    public Long getId() { return id; }
+
+    public Kind getKind() { return kind; }
+
+    public LocalDate getMonth() { return month; }
+
+    public String getCategory() { return category; }
+
+    public BigDecimal getTotal() { return total; }
+
+    public long getEntryCount() { return entryCount; }
+
+    // Art der aufsummierten Buchungen
+    public enum Kind {
+        EXPENSE, INCOME
+    }
+}
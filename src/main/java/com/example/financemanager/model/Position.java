@@ -0,0 +1,147 @@
+package com.example.financemanager.model;
+
+import jakarta.persistence.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Laufend fortgeschriebener Bestand eines Watchlist-Eintrags (Menge, Einstandswert, realisierter Gewinn)
+// Wird bei jeder gespeicherten oder gelöschten Transaktion aktualisiert, statt bei jedem Lesen neu berechnet
+@Entity
+@Table(name = "watchlist_position")
+public class Position {
+
+    // Rechengenauigkeit für Mengen und Beträge
+    private static final int SCALE = 8;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Zugehöriger Watchlist-Eintrag (genau eine Position pro Eintrag)
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "watchlist_id", nullable = false, unique = true)
+    @JsonIgnore
+    private CryptoWatchlist watchlist;
+
+    // Gehaltene Menge (Käufe - Verkäufe)
+    @Column(precision = 38, scale = SCALE)
+    private BigDecimal quantity = BigDecimal.ZERO;
+
+    // Einstandswert der gehaltenen Menge (Durchschnittskostenmethode)
+    @Column(precision = 38, scale = SCALE)
+    private BigDecimal costBasis = BigDecimal.ZERO;
+
+    // Realisierter Gewinn/Verlust aus allen Verkäufen
+    @Column(precision = 38, scale = SCALE)
+    private BigDecimal realizedPnl = BigDecimal.ZERO;
+
+    // Anzahl der eingerechneten Transaktionen
+    private long transactionCount;
+
+    // Zeitpunkt der letzten Änderung
+    private LocalDateTime updatedAt;
+
+    // Frühester Tag, ab dem die NAV-Historie neu berechnet werden muss (null = aktuell)
+    private LocalDate navDirtyFrom;
+
+    public Position() {
+    }
+
+    public Position(CryptoWatchlist watchlist) {
+        this.watchlist = watchlist;
+    }
+
+    // === FORTSCHREIBUNG ===
+
+    /**
+     * Rechnet eine Transaktion in den Bestand ein.
+     * Ein Kauf erhöht Menge und Einstandswert; ein Verkauf verringert den Einstandswert
+     * anteilig zum Durchschnittspreis und verbucht die Differenz zum Erlös als realisierten Gewinn.
+     */
+    public void apply(CryptoTransaction transaction) {
+        BigDecimal amount = transaction.getAmount() != null ? transaction.getAmount() : BigDecimal.ZERO;
+        BigDecimal value = transaction.getTotalValue() != null ? transaction.getTotalValue() : BigDecimal.ZERO;
+
+        if (transaction.getTransactionType() == CryptoTransaction.TransactionType.BUY) {
+            quantity = quantity.add(amount);
+            costBasis = costBasis.add(value);
+        } else if (transaction.getTransactionType() == CryptoTransaction.TransactionType.SELL) {
+            BigDecimal releasedCost = BigDecimal.ZERO;
+            if (quantity.signum() > 0) {
+                // Verkauf des gesamten Bestands gibt den vollen Einstandswert frei (keine Rundungsreste)
+                releasedCost = amount.compareTo(quantity) >= 0
+                        ? costBasis
+                        : costBasis.multiply(amount).divide(quantity, SCALE, RoundingMode.HALF_UP);
+            }
+            quantity = quantity.subtract(amount);
+            costBasis = costBasis.subtract(releasedCost);
+            realizedPnl = realizedPnl.add(value.subtract(releasedCost));
+        }
+        transactionCount++;
+        updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Übernimmt den Bestand einer (neu berechneten) Position.
+     */
+    public void copyHoldingsFrom(Position other) {
+        quantity = other.quantity;
+        costBasis = other.costBasis;
+        realizedPnl = other.realizedPnl;
+        transactionCount = other.transactionCount;
+        updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Prüft, ob zwei Positionen denselben Bestand beschreiben (unabhängig von der Skalierung).
+     */
+    public boolean sameHoldings(Position other) {
+        return quantity.compareTo(other.quantity) == 0
+                && costBasis.compareTo(other.costBasis) == 0
+                && realizedPnl.compareTo(other.realizedPnl) == 0
+                && transactionCount == other.transactionCount;
+    }
+
+    /**
+     * Merkt vor, dass sich die Transaktionen ab einem Tag geändert haben (frühester Tag gewinnt).
+     */
+    public void markNavDirty(LocalDate date) {
+        if (date != null && (navDirtyFrom == null || date.isBefore(navDirtyFrom))) {
+            navDirtyFrom = date;
+        }
+    }
+
+    public void clearNavDirty() {
+        navDirtyFrom = null;
+    }
+
+    /**
+     * Durchschnittlicher Einstandspreis der gehaltenen Menge (0 ohne Bestand).
+     */
+    public BigDecimal getAveragePrice() {
+        if (quantity.signum() <= 0) return BigDecimal.ZERO;
+        return costBasis.divide(quantity, SCALE, RoundingMode.HALF_UP);
+    }
+
+    // === GETTER ===
+
+    public Long getId() { return id; }
+
+    public CryptoWatchlist getWatchlist() { return watchlist; }
+
+    public BigDecimal getQuantity() { return quantity; }
+
+    public BigDecimal getCostBasis() { return costBasis; }
+
+    public BigDecimal getRealizedPnl() { return realizedPnl; }
+
+    public long getTransactionCount() { return transactionCount; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+
+    public LocalDate getNavDirtyFrom() { return navDirtyFrom; }
+}
@@ -0,0 +1,95 @@
+package com.example.financemanager.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+// Eine OHLC-Kerze einer Kurs-Zeitreihe (Chart-Daten, daher als double gespeichert)
+@Entity
+@Table(name = "price_candle", uniqueConstraints = @UniqueConstraint(
+        name = "uk_price_candle", columnNames = {"series_id", "openTime"}))
+public class PriceCandle {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Zugehörige Zeitreihe
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "series_id", nullable = false)
+    private PriceSeries series;
+
+    // Beginn des Kerzen-Intervalls (UTC)
+    private Instant openTime;
+
+    private double open;
+    private double high;
+    private double low;
+    private double close;
+
+    public PriceCandle() {
+    }
+
+    public PriceCandle(Instant openTime, double open, double high, double low, double close) {
+        this.openTime = openTime;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public PriceSeries getSeries() {
+        return series;
+    }
+
+    public void setSeries(PriceSeries series) {
+        this.series = series;
+    }
+
+    public Instant getOpenTime() {
+        return openTime;
+    }
+
+    public void setOpenTime(Instant openTime) {
+        this.openTime = openTime;
+    }
+
+    public double getOpen() {
+        return open;
+    }
+
+    public void setOpen(double open) {
+        this.open = open;
+    }
+
+    public double getHigh() {
+        return high;
+    }
+
+    public void setHigh(double high) {
+        this.high = high;
+    }
+
+    public double getLow() {
+        return low;
+    }
+
+    public void setLow(double low) {
+        this.low = low;
+    }
+
+    public double getClose() {
+        return close;
+    }
+
+    public void setClose(double close) {
+        this.close = close;
+    }
+}
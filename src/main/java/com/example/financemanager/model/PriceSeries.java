@@ -0,0 +1,106 @@
+package com.example.financemanager.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+// Eine lokal gespeicherte Kurs-Zeitreihe (Symbol, Typ, Währung, Intervall) mit dem bereits geladenen Zeitraum
+@Entity
+@Table(name = "price_series", uniqueConstraints = @UniqueConstraint(
+        name = "uk_price_series", columnNames = {"symbol", "assetType", "vsCurrency", "candleInterval"}))
+public class PriceSeries {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String symbol;
+
+    // "crypto" oder "stock"
+    private String assetType;
+
+    private String vsCurrency;
+
+    // Kerzen-Intervall im TwelveData-Format (z.B. "5min", "1h", "1day")
+    private String candleInterval;
+
+    // Zeitraum, für den alle Kerzen beim Provider abgefragt wurden (auch wenn es z.B. am Wochenende keine gibt)
+    private Instant coveredFrom;
+    private Instant coveredTo;
+
+    // Zeitpunkt des letzten Provider-Abrufs (für die Aktualisierung der noch offenen Kerze)
+    private Instant lastFetchedAt;
+
+    public PriceSeries() {
+    }
+
+    public PriceSeries(String symbol, String assetType, String vsCurrency, String candleInterval) {
+        this.symbol = symbol;
+        this.assetType = assetType;
+        this.vsCurrency = vsCurrency;
+        this.candleInterval = candleInterval;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String getAssetType() {
+        return assetType;
+    }
+
+    public void setAssetType(String assetType) {
+        this.assetType = assetType;
+    }
+
+    public String getVsCurrency() {
+        return vsCurrency;
+    }
+
+    public void setVsCurrency(String vsCurrency) {
+        this.vsCurrency = vsCurrency;
+    }
+
+    public String getCandleInterval() {
+        return candleInterval;
+    }
+
+    public void setCandleInterval(String candleInterval) {
+        this.candleInterval = candleInterval;
+    }
+
+    public Instant getCoveredFrom() {
+        return coveredFrom;
+    }
+
+    public void setCoveredFrom(Instant coveredFrom) {
+        this.coveredFrom = coveredFrom;
+    }
+
+    public Instant getCoveredTo() {
+        return coveredTo;
+    }
+
+    public void setCoveredTo(Instant coveredTo) {
+        this.coveredTo = coveredTo;
+    }
+
+    public Instant getLastFetchedAt() {
+        return lastFetchedAt;
+    }
+
+    public void setLastFetchedAt(Instant lastFetchedAt) {
+        this.lastFetchedAt = lastFetchedAt;
+    }
+}
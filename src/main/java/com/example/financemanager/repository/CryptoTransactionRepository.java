@@ -3,12 +3,22 @@ package com.example.financemanager.repository;
 import com.example.financemanager.model.CryptoTransaction;
 import com.example.financemanager.model.CryptoWatchlist;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @Repository
 public interface CryptoTransactionRepository extends JpaRepository<CryptoTransaction, Long> {
     List<CryptoTransaction> findByWatchlist(CryptoWatchlist watchlist);
     List<CryptoTransaction> findByWatchlistId(Long watchlistId);
+
+    // In Buchungsreihenfolge, z.B. zum Neuaufbau einer Position
+    List<CryptoTransaction> findByWatchlistIdOrderByTransactionDateAscIdAsc(Long watchlistId);
+
+    // Summe der Transaktionswerte eines Typs, in der Datenbank berechnet (0 ohne Einträge)
+    @Query("SELECT COALESCE(SUM(t.totalValue), 0) FROM CryptoTransaction t WHERE t.transactionType = :type")
+    BigDecimal sumTotalValueByType(@Param("type") CryptoTransaction.TransactionType type);
 }
\ No newline at end of file
@@ -1,12 +1,19 @@
 package com.example.financemanager.repository;
 
 import com.example.financemanager.model.CryptoWatchlist;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface CryptoWatchlistRepository extends JpaRepository<CryptoWatchlist, Long> {
@@ -17,4 +24,54 @@ public interface CryptoWatchlistRepository extends JpaRepository<CryptoWatchlist
 
     @Query("SELECT c FROM CryptoWatchlist c WHERE UPPER(c.symbol) = UPPER(:symbol)")
     Optional<CryptoWatchlist> findBySymbolIgnoreCaseCustom(@Param("symbol") String symbol);
+
+    // Welche der Symbole bereits in der Watchlist stehen (eine Abfrage statt einer pro Symbol)
+    @Query("SELECT UPPER(c.symbol) FROM CryptoWatchlist c WHERE UPPER(c.symbol) IN :symbols")
+    Set<String> findSymbolsIn(@Param("symbols") Collection<String> symbols);
+
+    /**
+     * Watchlist-Einträge mit den Kennzahlen ihrer Position in einer Abfrage.
+     * Einträge ohne Position (noch keine Transaktionen) liefern null-Werte.
+     */
+    @Query("SELECT w.id AS id, w.symbol AS symbol, w.name AS name, w.type AS type, w.notes AS notes, " +
+            "w.createdAt AS createdAt, p.costBasis AS investedAmount, p.quantity AS totalAmount, " +
+            "p.realizedPnl AS realizedPnl, p.transactionCount AS transactionCount " +
+            "FROM CryptoWatchlist w LEFT JOIN w.position p " +
+            "WHERE (:id IS NULL OR w.id = :id) " +
+            "ORDER BY w.id")
+    List<WatchlistSummary> findSummaries(@Param("id") Long id);
+
+    interface WatchlistSummary {
+        Long getId();
+        String getSymbol();
+        String getName();
+        String getType();
+        String getNotes();
+        LocalDateTime getCreatedAt();
+        BigDecimal getInvestedAmount();
+        BigDecimal getTotalAmount();
+        BigDecimal getRealizedPnl();
+        Long getTransactionCount();
+    }
+
+    // Sperrt den Eintrag bis zum Ende der Transaktion (serialisiert Änderungen an seiner Position)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM CryptoWatchlist c WHERE c.id = :id")
+    Optional<CryptoWatchlist> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("SELECT c.id FROM CryptoWatchlist c ORDER BY c.id")
+    List<Long> findAllIds();
+
+    // Einträge mit Transaktionen, aber ohne Position (z.B. Daten aus der Zeit vor den Positionen)
+    @Query("SELECT c.id FROM CryptoWatchlist c LEFT JOIN c.position p WHERE p.id IS NULL " +
+            "AND EXISTS (SELECT t.id FROM CryptoTransaction t WHERE t.watchlist = c) ORDER BY c.id")
+    List<Long> findIdsWithoutPosition();
+
+    // Nur Symbol und Typ laden (ohne Transaktionen), z.B. für den Preis-Refresher
+    List<SymbolView> findAllProjectedBy();
+
+    interface SymbolView {
+        String getSymbol();
+        String getType();
+    }
 }
@@ -2,8 +2,10 @@ package com.example.financemanager.repository;
 
 import com.example.financemanager.model.Expense;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -11,4 +13,17 @@ import java.util.List;
 public interface ExpenseRepository extends JpaRepository<Expense, Long> {
     List<Expense> findByDateBetween(LocalDate start, LocalDate end);
     List<Expense> findByCategory(String category);
+
+    // Summe aller Ausgaben, in der Datenbank berechnet (0 ohne Einträge)
+    @Query("SELECT COALESCE(SUM(e.amount), 0) FROM Expense e")
+    BigDecimal sumAmount();
+
+    // Summe der Ausgaben pro Kategorie, in der Datenbank gruppiert
+    @Query("SELECT e.category AS category, SUM(e.amount) AS total FROM Expense e GROUP BY e.category")
+    List<CategoryTotal> sumAmountByCategory();
+
+    interface CategoryTotal {
+        String getCategory();
+        BigDecimal getTotal();
+    }
 }
@@ -2,12 +2,18 @@ package com.example.financemanager.repository;
 
 import com.example.financemanager.model.Income;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 
 @Repository
 public interface IncomeRepository extends JpaRepository<Income, Long> {
     List<Income> findByDateBetween(LocalDate start, LocalDate end);
+
+    // Summe aller Einnahmen, in der Datenbank berechnet (0 ohne Einträge)
+    @Query("SELECT COALESCE(SUM(i.amount), 0) FROM Income i")
+    BigDecimal sumAmount();
 }
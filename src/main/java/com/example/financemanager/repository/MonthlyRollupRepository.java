@@ -0,0 +1,51 @@
+package com.example.financemanager.repository;
+
+import com.example.financemanager.model.MonthlyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface MonthlyRollupRepository extends JpaRepository<MonthlyRollup, Long> {
+
+    boolean existsByKindAndMonthAndCategory(MonthlyRollup.Kind kind, LocalDate month, String category);
+
+    List<MonthlyRollup> findByMonthBetweenOrderByMonthAsc(LocalDate from, LocalDate to);
+
+    List<MonthlyRollup> findByKindAndMonthBetweenOrderByMonthAsc(MonthlyRollup.Kind kind, LocalDate from, LocalDate to);
+
+    // Atomares Hochzählen in der Datenbank (kein Lesen-Ändern-Schreiben, sicher bei parallelen Buchungen)
+    @Modifying
+    @Query("UPDATE MonthlyRollup r SET r.total = r.total + :amount, r.entryCount = r.entryCount + :count " +
+            "WHERE r.kind = :kind AND r.month = :month AND r.category = :category")
+    int increment(@Param("kind") MonthlyRollup.Kind kind, @Param("month") LocalDate month,
+                  @Param("category") String category, @Param("amount") BigDecimal amount, @Param("count") long count);
+
+    // Monatssummen aus der Ausgabentabelle (nur zum Neuaufbau der Rollups)
+    @Query("SELECT YEAR(e.date) AS year, MONTH(e.date) AS month, e.category AS category, " +
+            "SUM(e.amount) AS total, COUNT(e) AS entryCount FROM Expense e " +
+            "WHERE e.date IS NOT NULL AND e.amount IS NOT NULL " +
+            "GROUP BY YEAR(e.date), MONTH(e.date), e.category")
+    List<MonthlyTotal> sumExpensesByMonth();
+
+    // Monatssummen aus der Einnahmentabelle (nur zum Neuaufbau der Rollups)
+    @Query("SELECT YEAR(i.date) AS year, MONTH(i.date) AS month, i.source AS category, " +
+            "SUM(i.amount) AS total, COUNT(i) AS entryCount FROM Income i " +
+            "WHERE i.date IS NOT NULL AND i.amount IS NOT NULL " +
+            "GROUP BY YEAR(i.date), MONTH(i.date), i.source")
+    List<MonthlyTotal> sumIncomesByMonth();
+
+    interface MonthlyTotal {
+        Integer getYear();
+        Integer getMonth();
+        String getCategory();
+        BigDecimal getTotal();
+        Long getEntryCount();
+    }
+}
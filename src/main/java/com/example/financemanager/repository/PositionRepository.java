@@ -0,0 +1,12 @@
+package com.example.financemanager.repository;
+
+import com.example.financemanager.model.Position;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface PositionRepository extends JpaRepository<Position, Long> {
+    Optional<Position> findByWatchlistId(Long watchlistId);
+}
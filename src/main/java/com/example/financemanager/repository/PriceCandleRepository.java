@@ -0,0 +1,14 @@
+package com.example.financemanager.repository;
+
+import com.example.financemanager.model.PriceCandle;
+import com.example.financemanager.model.PriceSeries;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface PriceCandleRepository extends JpaRepository<PriceCandle, Long> {
+    List<PriceCandle> findBySeriesAndOpenTimeBetweenOrderByOpenTimeAsc(PriceSeries series, Instant from, Instant to);
+}
@@ -0,0 +1,13 @@
+package com.example.financemanager.repository;
+
+import com.example.financemanager.model.PriceSeries;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface PriceSeriesRepository extends JpaRepository<PriceSeries, Long> {
+    Optional<PriceSeries> findBySymbolAndAssetTypeAndVsCurrencyAndCandleInterval(
+            String symbol, String assetType, String vsCurrency, String candleInterval);
+}
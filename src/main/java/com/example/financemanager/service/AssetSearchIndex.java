@@ -0,0 +1,441 @@
+package com.example.financemanager.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntPredicate;
+
+/**
+ * In-Memory-Suchindex über alle bekannten Assets (Coins aus dem CoinGecko-Symbolindex,
+ * Aktien aus dem mitgelieferten Universum).
+ * Bietet:
+ * - Präfix-Tries über Symbole und die Wörter der Namen (bei mehreren Suchwörtern müssen alle passen)
+ * - Trigramm-Index über die Namen für Treffer mitten im Wort und Tippfehler
+ * - Ranking: exaktes Symbol, Symbol-Präfix, Namens-Präfix, dann Trigramm-Ähnlichkeit;
+ *   innerhalb einer Stufe nach Quelle und Rang (siehe {@link #tier(Asset)})
+ * - Das Limit wird schon beim Durchlaufen angewendet, nicht erst auf der Trefferliste
+ */
+@Component
+public class AssetSearchIndex {
+
+    private static final String STOCK_UNIVERSE_RESOURCE = "/stock-universe.csv";
+
+    // Trigramm-Treffer brauchen mindestens diesen Anteil gemeinsamer Trigramme
+    private static final double MIN_TRIGRAM_SIMILARITY = 0.5;
+
+    @Autowired
+    private CoinGeckoSymbolIndex coinGeckoSymbolIndex;
+
+    // Kryptowährungen bis zu diesem Marktkapitalisierungs-Rang stehen vor den Aktien, alle übrigen dahinter
+    @Value("${search.crypto-leading-rank:20}")
+    private int cryptoLeadingRank;
+
+    private List<Asset> stockUniverse = List.of();
+    private volatile Index index;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    /**
+     * Ein suchbares Asset; rank ist der Rang innerhalb seiner Quelle (kleiner = bedeutender):
+     * bei Coins der Marktkapitalisierungs-Rang von CoinGecko, bei Aktien die Zeile im Universum.
+     */
+    public record Asset(String symbol, String name, String type, int rank) {
+    }
+
+    /**
+     * Knoten eines Präfix-Tries. minId ist die kleinste (= am besten gerankte) Asset-ID im Teilbaum,
+     * damit die Suche die Teilbäume in Rang-Reihenfolge besuchen und beim Limit abbrechen kann.
+     */
+    private static final class Node {
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        int[] ids = new int[0];
+        int minId = Integer.MAX_VALUE;
+
+        Node child(char key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node addChild(char key) {
+            Node existing = child(key);
+            if (existing != null) {
+                return existing;
+            }
+            Node created = new Node();
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            keys[keys.length - 1] = key;
+            children[children.length - 1] = created;
+            return created;
+        }
+    }
+
+    /**
+     * Unveränderlicher Stand des Index. Die Asset-IDs sind Positionen in assets,
+     * das nach Stufe und Rang sortiert ist; kleinere IDs sind damit bessere Treffer.
+     * nameWords enthält pro ID die normalisierten Wörter des Namens.
+     */
+    private record Index(Asset[] assets, String[][] nameWords, Node symbolTrie, Node nameTrie,
+                         Map<String, int[]> trigrams, CoinGeckoSymbolIndex.Snapshot source) {
+    }
+
+    /**
+     * Eintrag der Best-First-Suche: ein noch nicht geöffneter Teilbaum (position = -1, Schlüssel = minId)
+     * oder die nächste Asset-ID eines Knotens (Schlüssel = node.ids[position]).
+     * filter prüft die IDs aus diesem Teilbaum zusätzlich (null = alle übernehmen).
+     */
+    private record Candidate(int key, Node node, int position, IntPredicate filter) {
+    }
+
+    @PostConstruct
+    void init() {
+        stockUniverse = readStockUniverse();
+        index = build(coinGeckoSymbolIndex.getSnapshot());
+    }
+
+    /**
+     * Sucht Assets nach Symbol oder Name.
+     *
+     * @param query Suchbegriff (Symbol, Namensanfang oder Teil des Namens)
+     * @param type "crypto", "stock" oder null für beide
+     * @param limit Maximale Anzahl Treffer
+     * @return Treffer in Ranking-Reihenfolge
+     */
+    public List<Asset> search(String query, String type, int limit) {
+        Index current = currentIndex();
+        String normalized = normalize(query);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Set<Integer> hits = new LinkedHashSet<>();
+        String compact = normalized.replace(" ", "");
+
+        // 1. Exaktes Symbol
+        Node symbolNode = find(current.symbolTrie(), compact);
+        if (symbolNode != null) {
+            for (int id : symbolNode.ids) {
+                addHit(current, hits, id, type, limit);
+            }
+        }
+
+        // 2. Präfix des Symbols oder der Wörter im Namen, gemeinsam nach Rang.
+        // Bei mehreren Suchwörtern führt das längste durch den Trie, die übrigen müssen ebenfalls
+        // Präfix eines Namenswortes sein ("bitcoin cash" findet nicht jedes Asset mit "cash")
+        String[] words = normalized.split(" ");
+        String longest = words[0];
+        for (String word : words) {
+            if (word.length() > longest.length()) {
+                longest = word;
+            }
+        }
+        Node nameNode = find(current.nameTrie(), longest);
+        IntPredicate allWords = words.length > 1 ? id -> matchesAllWords(current.nameWords()[id], words) : null;
+        collectByRank(current, symbolNode, nameNode, allWords, hits, type, limit);
+
+        // 3. Ähnlichkeit über gemeinsame Trigramme
+        if (hits.size() < limit && compact.length() >= 3) {
+            collectByTrigrams(current, compact, hits, type, limit);
+        }
+
+        List<Asset> results = new ArrayList<>(hits.size());
+        for (int id : hits) {
+            results.add(current.assets()[id]);
+        }
+        return results;
+    }
+
+    /**
+     * Liefert Größe und Herkunft des Index.
+     *
+     * @return Map mit Statusinformationen
+     */
+    public Map<String, Object> getStatus() {
+        Index current = index;
+        Map<String, Object> status = new HashMap<>();
+        status.put("assetCount", current.assets().length);
+        status.put("stockCount", stockUniverse.size());
+        status.put("trigramCount", current.trigrams().size());
+        status.put("sourceGeneratedAt", current.source().generatedAt().toString());
+        return status;
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    /**
+     * Liefert den aktuellen Index. Hat sich der Symbolindex geändert, wird im Hintergrund
+     * neu aufgebaut; bis dahin beantwortet der bisherige Stand die Anfragen.
+     */
+    private Index currentIndex() {
+        Index current = index;
+        CoinGeckoSymbolIndex.Snapshot source = coinGeckoSymbolIndex.getSnapshot();
+        if (current.source() != source && rebuilding.compareAndSet(false, true)) {
+            Thread.ofVirtual().start(() -> {
+                try {
+                    index = build(source);
+                } finally {
+                    rebuilding.set(false);
+                }
+            });
+        }
+        return current;
+    }
+
+    /**
+     * Besucht die Teilbäume best-first nach minId und sammelt die Asset-IDs in Rang-Reihenfolge,
+     * bis das Limit erreicht ist. Es werden nur so viele Knoten geöffnet und nur so viele
+     * IDs eines Knotens gelesen wie nötig.
+     */
+    private void collectByRank(Index current, Node symbolRoot, Node nameRoot, IntPredicate nameFilter,
+                               Set<Integer> hits, String type, int limit) {
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(Comparator.comparingInt(Candidate::key));
+        if (symbolRoot != null) {
+            queue.add(new Candidate(symbolRoot.minId, symbolRoot, -1, null));
+        }
+        if (nameRoot != null) {
+            queue.add(new Candidate(nameRoot.minId, nameRoot, -1, nameFilter));
+        }
+
+        while (!queue.isEmpty() && hits.size() < limit) {
+            Candidate candidate = queue.poll();
+            Node node = candidate.node();
+            if (candidate.position() >= 0) {
+                if (candidate.filter() == null || candidate.filter().test(candidate.key())) {
+                    addHit(current, hits, candidate.key(), type, limit);
+                }
+                int next = candidate.position() + 1;
+                if (next < node.ids.length) {
+                    queue.add(new Candidate(node.ids[next], node, next, candidate.filter()));
+                }
+                continue;
+            }
+            if (node.ids.length > 0) {
+                queue.add(new Candidate(node.ids[0], node, 0, candidate.filter()));
+            }
+            for (Node child : node.children) {
+                queue.add(new Candidate(child.minId, child, -1, candidate.filter()));
+            }
+        }
+    }
+
+    /**
+     * Übernimmt die Assets mit den meisten gemeinsamen Trigrammen (mindestens {@link #MIN_TRIGRAM_SIMILARITY}),
+     * bei Gleichstand nach Rang. Die Postings sind aufsteigend nach ID sortiert und werden gemeinsam
+     * durchlaufen, sodass jede ID einmal mit ihrer Trefferzahl erscheint. Pro Trefferzahl werden nur so viele
+     * IDs behalten wie noch Plätze frei sind; ist die Stufe mit allen Trigrammen voll, kann keine spätere
+     * ID mehr besser sein und der Durchlauf endet.
+     */
+    private void collectByTrigrams(Index current, String query, Set<Integer> hits, String type, int limit) {
+        Set<String> queryTrigrams = trigrams(query);
+        int[][] postings = new int[queryTrigrams.size()][];
+        int lists = 0;
+        for (String trigram : queryTrigrams) {
+            int[] ids = current.trigrams().get(trigram);
+            if (ids != null) {
+                postings[lists++] = ids;
+            }
+        }
+        int required = (int) Math.ceil(queryTrigrams.size() * MIN_TRIGRAM_SIMILARITY);
+        int remaining = limit - hits.size();
+        if (lists < required || remaining <= 0) {
+            return;
+        }
+
+        int[][] buckets = new int[lists + 1][];
+        int[] filled = new int[lists + 1];
+        int[] cursors = new int[lists];
+        while (filled[lists] < remaining) {
+            int id = Integer.MAX_VALUE;
+            for (int i = 0; i < lists; i++) {
+                if (cursors[i] < postings[i].length) {
+                    id = Math.min(id, postings[i][cursors[i]]);
+                }
+            }
+            if (id == Integer.MAX_VALUE) {
+                break;
+            }
+            int count = 0;
+            for (int i = 0; i < lists; i++) {
+                if (cursors[i] < postings[i].length && postings[i][cursors[i]] == id) {
+                    count++;
+                    cursors[i]++;
+                }
+            }
+            if (count < required || filled[count] >= remaining || !matchesType(current, id, type) || hits.contains(id)) {
+                continue;
+            }
+            if (buckets[count] == null || filled[count] == buckets[count].length) {
+                int capacity = buckets[count] == null ? Math.min(remaining, 16) : Math.min(remaining, filled[count] * 2);
+                buckets[count] = buckets[count] == null ? new int[capacity] : Arrays.copyOf(buckets[count], capacity);
+            }
+            buckets[count][filled[count]++] = id;
+        }
+
+        for (int count = lists; count >= required && hits.size() < limit; count--) {
+            for (int i = 0; i < filled[count]; i++) {
+                addHit(current, hits, buckets[count][i], type, limit);
+            }
+        }
+    }
+
+    private void addHit(Index current, Set<Integer> hits, int id, String type, int limit) {
+        if (hits.size() < limit && matchesType(current, id, type)) {
+            hits.add(id);
+        }
+    }
+
+    private static boolean matchesType(Index current, int id, String type) {
+        return type == null || type.equalsIgnoreCase(current.assets()[id].type());
+    }
+
+    private static boolean matchesAllWords(String[] nameWords, String[] queryWords) {
+        for (String queryWord : queryWords) {
+            boolean found = false;
+            for (String nameWord : nameWords) {
+                if (nameWord.startsWith(queryWord)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Node find(Node root, String key) {
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        return node;
+    }
+
+    /**
+     * Baut Tries und Trigramm-Index aus Coins und Aktien.
+     */
+    private Index build(CoinGeckoSymbolIndex.Snapshot source) {
+        List<Asset> assets = new ArrayList<>(source.size() + stockUniverse.size());
+        for (int i = 0; i < source.size(); i++) {
+            assets.add(new Asset(source.symbol(i), source.name(i), "crypto", source.rank(i)));
+        }
+        assets.addAll(stockUniverse);
+        assets.sort(Comparator.comparingInt(this::tier).thenComparingInt(Asset::rank).thenComparing(Asset::symbol));
+
+        Node symbolTrie = new Node();
+        Node nameTrie = new Node();
+        String[][] nameWords = new String[assets.size()][];
+        Map<String, List<Integer>> trigramLists = new HashMap<>();
+        for (int id = 0; id < assets.size(); id++) {
+            Asset asset = assets.get(id);
+            insert(symbolTrie, normalize(asset.symbol()), id);
+            String name = normalize(asset.name());
+            nameWords[id] = name.isEmpty() ? new String[0] : name.split(" ");
+            for (String word : nameWords[id]) {
+                insert(nameTrie, word, id);
+            }
+            for (String trigram : trigrams(name.replace(" ", ""))) {
+                trigramLists.computeIfAbsent(trigram, key -> new ArrayList<>()).add(id);
+            }
+        }
+
+        // Postings als int-Arrays ablegen (aufsteigend, da die IDs in Rang-Reihenfolge vergeben werden)
+        Map<String, int[]> trigrams = new HashMap<>(trigramLists.size() * 2);
+        trigramLists.forEach((trigram, ids) -> trigrams.put(trigram, ids.stream().mapToInt(Integer::intValue).toArray()));
+
+        return new Index(assets.toArray(new Asset[0]), nameWords, symbolTrie, nameTrie, trigrams, source);
+    }
+
+    /**
+     * Stufe eines Assets für die gemeinsame Reihenfolge beider Quellen. Die Ränge von Coins
+     * (Marktkapitalisierung) und Aktien (Zeile im Universum) liegen nicht auf einer Skala und werden
+     * daher nur innerhalb einer Stufe verglichen: 0 = führende Coins bis cryptoLeadingRank,
+     * 1 = Aktien, 2 = übrige gerankte Coins, 3 = ungerankte Coins.
+     */
+    private int tier(Asset asset) {
+        if ("stock".equals(asset.type())) {
+            return 1;
+        }
+        if (asset.rank() <= cryptoLeadingRank) {
+            return 0;
+        }
+        return asset.rank() != CoinGeckoSymbolIndex.UNRANKED ? 2 : 3;
+    }
+
+    private void insert(Node root, String key, int id) {
+        Node node = root;
+        node.minId = Math.min(node.minId, id);
+        for (int i = 0; i < key.length(); i++) {
+            node = node.addChild(key.charAt(i));
+            node.minId = Math.min(node.minId, id);
+        }
+        if (node.ids.length == 0 || node.ids[node.ids.length - 1] != id) {
+            node.ids = Arrays.copyOf(node.ids, node.ids.length + 1);
+            node.ids[node.ids.length - 1] = id;
+        }
+    }
+
+    private static Set<String> trigrams(String text) {
+        Set<String> result = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            result.add(text.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    /**
+     * Kleinbuchstaben, Sonderzeichen werden zu Wort-Trennern.
+     */
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", " ").trim();
+    }
+
+    /**
+     * Liest das Aktien-Universum; der Rang ergibt sich aus der Zeilenreihenfolge.
+     */
+    private List<Asset> readStockUniverse() {
+        List<Asset> stocks = new ArrayList<>();
+        try (InputStream in = AssetSearchIndex.class.getResourceAsStream(STOCK_UNIVERSE_RESOURCE)) {
+            if (in == null) {
+                return stocks;
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",", 2);
+                if (fields.length == 2) {
+                    stocks.add(new Asset(fields[0].trim(), fields[1].trim(), "stock", stocks.size() + 1));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read stock universe: " + e.getMessage());
+        }
+        return stocks;
+    }
+}
@@ -4,17 +4,22 @@ import com.example.financemanager.dto.WatchlistDto;
 import com.example.financemanager.model.CryptoTransaction;
 import com.example.financemanager.model.CryptoWatchlist;
 import com.example.financemanager.model.Expense;
+import com.example.financemanager.model.Position;
 import com.example.financemanager.repository.CryptoTransactionRepository;
 import com.example.financemanager.repository.CryptoWatchlistRepository;
-import com.example.financemanager.repository.ExpenseRepository;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 /**
@@ -42,7 +47,52 @@ public class AssetService {
     private CryptoTransactionRepository cryptoTransactionRepository;
 
     @Autowired
-    private ExpenseRepository expenseRepository;
+    private PriceHistoryService priceHistoryService;
+
+    @Autowired
+    private AssetSearchIndex assetSearchIndex;
+
+    @Autowired
+    private PositionService positionService;
+
+    @Autowired
+    private FinanceService financeService;
+
+    @Autowired
+    private TaxLotService taxLotService;
+
+    @Autowired
+    private PortfolioNavService portfolioNavService;
+
+    // ========== CONFIGURATION ==========
+
+    // Provider-Batch-APIs für Mehrfachabfragen nutzen (ein Aufruf pro Chunk statt pro Symbol)
+    @Value("${assets.prices.batch:true}")
+    private boolean batchPriceLookup;
+
+    // Einzelabfragen (ohne Provider-Batch-APIs) parallel statt sequenziell ausführen
+    @Value("${assets.prices.concurrent:true}")
+    private boolean concurrentPriceLookup;
+
+    // Maximale Anzahl gleichzeitiger Provider-Anfragen pro Batch-Request
+    @Value("${assets.prices.max-concurrency:8}")
+    private int maxPriceConcurrency;
+
+    // Deadline für einen kompletten Batch-Request in Millisekunden (auch für die Provider-Batch-APIs)
+    @Value("${assets.prices.timeout-ms:10000}")
+    private long priceRequestTimeoutMs;
+
+    // Zuordnungsmethode für Verkäufe, wenn keine angegeben ist (fifo, lifo oder average)
+    @Value("${assets.lots.default-method:FIFO}")
+    private String defaultLotMethod;
+
+    // Virtual Threads für blockierende Provider-Aufrufe (ein Thread pro Symbol)
+    private final ExecutorService priceLookupExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @PreDestroy
+    void shutdownPriceLookupExecutor() {
+        priceLookupExecutor.shutdownNow();
+    }
 
     // ========== PRICE DATA METHODS ==========
 
@@ -56,54 +106,135 @@ public class AssetService {
      * @return Map mit Preisdaten oder Fehlermeldung
      */
     public Map<String, Object> getAssetWithCurrentPrice(String symbol, String type, String market) {
-        Map<String, Object> result = new HashMap<>();
-
         try {
             // Validiere das Asset-Symbol basierend auf dem Typ
             if (!isValidSymbol(symbol, type)) {
                 throw new IllegalArgumentException("Invalid symbol '" + symbol + "' for type '" + type + "'");
             }
 
-            Map<String, Object> priceData;
+            Map<String, Object> apiResponse;
             String targetMarket = market != null ? market : "usd";
 
             // Behandle verschiedene Asset-Typen unterschiedlich
             if ("crypto".equalsIgnoreCase(type)) {
-                Map<String, Object> apiResponse = externalApiService.getCryptoCurrentPrice(symbol, targetMarket);
-                priceData = externalApiService.extractCurrentPrice(apiResponse, "crypto", symbol);
-
-                // Normalisiere die Preisdaten (verschiedene APIs verwenden unterschiedliche Feldnamen)
-                if (priceData.containsKey("close") && !priceData.containsKey("price")) {
-                    priceData.put("price", priceData.get("close"));
-                }
+                apiResponse = externalApiService.getCryptoCurrentPrice(symbol, targetMarket);
             } else if ("stock".equalsIgnoreCase(type)) {
-                Map<String, Object> apiResponse = externalApiService.getStockCurrentPrice(symbol);
-                priceData = externalApiService.extractCurrentPrice(apiResponse, "stock", symbol);
+                apiResponse = externalApiService.getStockCurrentPrice(symbol);
             } else {
                 throw new IllegalArgumentException("Unbekannter Asset-Typ: '" + type + "'");
             }
 
-            // Prüfe ob Preisdaten verfügbar sind
-            if (priceData == null || priceData.isEmpty()) {
-                throw new RuntimeException("Keine Preisdaten verfügbar für " + symbol);
+            return createPriceResult(symbol, type, apiResponse);
+        } catch (Exception e) {
+            return createPriceErrorResult(symbol, type, e);
+        }
+    }
+
+    /**
+     * Ruft aktuelle Preise für mehrere Assets desselben Typs über die Batch-APIs ab.
+     * Statt eines Provider-Aufrufs pro Symbol fallen nur so viele Aufrufe an,
+     * wie Chunks benötigt werden.
+     *
+     * @param symbols Die Asset-Symbole
+     * @param type Der Asset-Typ ("crypto" oder "stock")
+     * @param market Der Zielmarkt (Standard: "usd")
+     * @return Map Symbol → Ergebnis im Format von {@link #getAssetWithCurrentPrice}
+     */
+    public Map<String, Map<String, Object>> getAssetsWithCurrentPrices(Collection<String> symbols, String type, String market) {
+        Map<String, Map<String, Object>> results = new HashMap<>();
+        String targetMarket = market != null ? market : "usd";
+
+        // Ungültige Symbole gar nicht erst an die Provider schicken
+        List<String> validSymbols = new ArrayList<>();
+        for (String symbol : symbols) {
+            if (isValidSymbol(symbol, type)) {
+                validSymbols.add(symbol);
+            } else {
+                results.put(symbol, createPriceErrorResult(symbol, type,
+                        new IllegalArgumentException("Invalid symbol '" + symbol + "' for type '" + type + "'")));
             }
+        }
 
-            result.put("success", true);
-            result.put("priceData", priceData);
+        if (validSymbols.isEmpty()) {
+            return results;
+        }
 
+        Map<String, Map<String, Object>> apiResponses;
+        try {
+            if ("crypto".equalsIgnoreCase(type)) {
+                apiResponses = externalApiService.getCryptoCurrentPrices(validSymbols, targetMarket);
+            } else if ("stock".equalsIgnoreCase(type)) {
+                apiResponses = externalApiService.getStockQuotes(validSymbols);
+            } else {
+                throw new IllegalArgumentException("Unbekannter Asset-Typ: '" + type + "'");
+            }
         } catch (Exception e) {
-            // Erstelle detaillierte Fehler-Response
-            result.put("success", false);
-            result.put("error", "Failed to fetch price for " + symbol + " (" + type + "): " + e.getMessage());
-            result.put("errorDetails", getErrorDetails(e));
+            for (String symbol : validSymbols) {
+                results.put(symbol, createPriceErrorResult(symbol, type, e));
+            }
+            return results;
         }
 
+        for (String symbol : validSymbols) {
+            try {
+                Map<String, Object> apiResponse = apiResponses.get(symbol);
+                if (apiResponse == null) {
+                    throw new RuntimeException("Keine Preisdaten verfügbar für " + symbol);
+                }
+                results.put(symbol, createPriceResult(symbol, type, apiResponse));
+            } catch (Exception e) {
+                results.put(symbol, createPriceErrorResult(symbol, type, e));
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Normalisiert eine Provider-Antwort zum Erfolgs-Ergebnis einer Preisabfrage.
+     */
+    private Map<String, Object> createPriceResult(String symbol, String type, Map<String, Object> apiResponse) {
+        Map<String, Object> priceData = externalApiService.extractCurrentPrice(apiResponse, type, symbol);
+
+        // Normalisiere die Preisdaten (verschiedene APIs verwenden unterschiedliche Feldnamen)
+        if (priceData.containsKey("close") && !priceData.containsKey("price")) {
+            priceData.put("price", priceData.get("close"));
+        }
+
+        // Prüfe ob Preisdaten verfügbar sind
+        if (priceData.isEmpty()) {
+            throw new RuntimeException("Keine Preisdaten verfügbar für " + symbol);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("priceData", priceData);
+        return result;
+    }
+
+    /**
+     * Erstellt detaillierte Fehler-Response für eine Preisabfrage.
+     */
+    private Map<String, Object> createPriceErrorResult(String symbol, String type, Exception e) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", false);
+        result.put("error", "Failed to fetch price for " + symbol + " (" + type + "): " + e.getMessage());
+        result.put("errorDetails", getErrorDetails(e));
+        if (e instanceof RateLimitExceededException rateLimited) {
+            result.put("rateLimited", true);
+            result.put("retryAfterMs", rateLimited.getRetryAfterMs());
+        }
         return result;
     }
 
     /**
      * Ruft Preisdaten für multiple Assets gleichzeitig ab.
      * Nützlich für Batch-Operationen und Dashboard-Updates.
+     * Doppelte Symbole werden nur einmal abgefragt und gezählt.
+     * Bei bekanntem Typ werden die Batch-APIs der Provider genutzt (assets.prices.batch); der Aufruf
+     * läuft auf einem Virtual Thread und wird nach assets.prices.timeout-ms abgebrochen.
+     * Ohne Batch-APIs laufen die Einzelabfragen im Concurrent-Modus parallel auf Virtual Threads,
+     * begrenzt durch assets.prices.max-concurrency und dieselbe Deadline.
      *
      * @param symbols Liste der Asset-Symbole
      * @param type Asset-Typ für alle Symbole
@@ -111,72 +242,178 @@ public class AssetService {
      * @return Map mit Preisdaten für alle Assets und Statistiken
      */
     public Map<String, Object> getMultipleAssetsWithPrices(List<String> symbols, String type, String market) {
-        Map<String, Object> assetsData = new HashMap<>();
-        int successCount = 0;
-
-        // Verarbeite jedes Symbol einzeln (parallelisierbar in Zukunft)
-        for (String symbol : symbols) {
-            try {
-                Map<String, Object> assetData = getAssetWithCurrentPrice(symbol, type, market);
-                assetsData.put(symbol, assetData);
+        List<String> distinctSymbols = new ArrayList<>(new LinkedHashSet<>(symbols));
+        Map<String, Object> assetsData;
+        if (batchPriceLookup && ("crypto".equalsIgnoreCase(type) || "stock".equalsIgnoreCase(type))) {
+            assetsData = fetchPricesInBatch(distinctSymbols, type, market);
+        } else if (concurrentPriceLookup) {
+            assetsData = fetchPricesConcurrently(distinctSymbols, type, market);
+        } else {
+            assetsData = fetchPricesSequentially(distinctSymbols, type, market);
+        }
 
-                // Zähle erfolgreiche Abfragen für Statistiken
-                if ((Boolean) assetData.get("success")) {
-                    successCount++;
-                }
-            } catch (Exception e) {
-                // Fehlerbehandlung pro Asset (ein Fehler stoppt nicht die anderen)
-                Map<String, Object> errorData = new HashMap<>();
-                errorData.put("error", e.getMessage());
-                errorData.put("success", false);
-                assetsData.put(symbol, errorData);
+        // Zähle erfolgreiche Abfragen für Statistiken
+        int successCount = 0;
+        for (Object assetData : assetsData.values()) {
+            if (Boolean.TRUE.equals(((Map<?, ?>) assetData).get("success"))) {
+                successCount++;
             }
         }
 
         // Erstelle zusammenfassende Statistiken
         Map<String, Object> result = new HashMap<>();
         result.put("assets", assetsData);
-        result.put("totalCount", symbols.size());
+        result.put("totalCount", distinctSymbols.size());
         result.put("successCount", successCount);
-        result.put("failedCount", symbols.size() - successCount);
+        result.put("failedCount", distinctSymbols.size() - successCount);
         result.put("success", true);
         return result;
     }
 
+    /**
+     * Verarbeitet jedes Symbol einzeln nacheinander.
+     */
+    private Map<String, Object> fetchPricesSequentially(List<String> symbols, String type, String market) {
+        Map<String, Object> assetsData = new HashMap<>();
+
+        for (String symbol : symbols) {
+            try {
+                assetsData.put(symbol, getAssetWithCurrentPrice(symbol, type, market));
+            } catch (Exception e) {
+                // Fehlerbehandlung pro Asset (ein Fehler stoppt nicht die anderen)
+                assetsData.put(symbol, createAssetErrorData(e.getMessage()));
+            }
+        }
+
+        return assetsData;
+    }
+
+    /**
+     * Ruft die Batch-APIs der Provider auf einem Virtual Thread ab. Liegt bis zur Deadline keine
+     * Antwort vor, wird der Aufruf abgebrochen und alle Symbole werden als "timedOut" markiert.
+     */
+    private Map<String, Object> fetchPricesInBatch(List<String> symbols, String type, String market) {
+        Future<Map<String, Map<String, Object>>> future =
+                priceLookupExecutor.submit(() -> getAssetsWithCurrentPrices(symbols, type, market));
+
+        Map<String, Object> assetsData = new HashMap<>();
+        try {
+            assetsData.putAll(future.get(priceRequestTimeoutMs, TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            for (String symbol : symbols) {
+                assetsData.put(symbol, createTimeoutData(symbol));
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            for (String symbol : symbols) {
+                assetsData.put(symbol, createAssetErrorData(cause.getMessage()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            for (String symbol : symbols) {
+                assetsData.put(symbol, createAssetErrorData("Abfrage unterbrochen für " + symbol));
+            }
+        }
+        return assetsData;
+    }
+
+    /**
+     * Startet alle Abfragen parallel auf Virtual Threads. Ein Semaphore begrenzt die
+     * gleichzeitigen Provider-Anfragen; Symbole, die bis zur Deadline keine Antwort
+     * haben, werden abgebrochen und als "timedOut" markiert.
+     */
+    private Map<String, Object> fetchPricesConcurrently(List<String> symbols, String type, String market) {
+        Semaphore permits = new Semaphore(Math.max(1, maxPriceConcurrency));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(priceRequestTimeoutMs);
+
+        Map<String, Future<Map<String, Object>>> pending = new LinkedHashMap<>();
+        for (String symbol : symbols) {
+            pending.put(symbol, priceLookupExecutor.submit(() -> {
+                permits.acquire();
+                try {
+                    return getAssetWithCurrentPrice(symbol, type, market);
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+
+        Map<String, Object> assetsData = new HashMap<>();
+        for (Map.Entry<String, Future<Map<String, Object>>> entry : pending.entrySet()) {
+            String symbol = entry.getKey();
+            Future<Map<String, Object>> future = entry.getValue();
+
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                assetsData.put(symbol, future.get(remaining, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                assetsData.put(symbol, createTimeoutData(symbol));
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                assetsData.put(symbol, createAssetErrorData(cause.getMessage()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                assetsData.put(symbol, createAssetErrorData("Abfrage unterbrochen für " + symbol));
+            }
+        }
+
+        return assetsData;
+    }
+
+    /**
+     * Erstellt den Fehlereintrag für ein Asset, dessen Abfrage die Deadline überschritten hat.
+     */
+    private Map<String, Object> createTimeoutData(String symbol) {
+        Map<String, Object> errorData = createAssetErrorData("Timeout nach " + priceRequestTimeoutMs + " ms für " + symbol);
+        errorData.put("timedOut", true);
+        return errorData;
+    }
+
+    /**
+     * Erstellt den Fehlereintrag für ein einzelnes Asset in Batch-Antworten.
+     */
+    private Map<String, Object> createAssetErrorData(String message) {
+        Map<String, Object> errorData = new HashMap<>();
+        errorData.put("error", message);
+        errorData.put("success", false);
+        return errorData;
+    }
+
     /**
      * Ruft historische Preisdaten für ein Asset ab.
-     * Unterstützt sowohl Intraday- als auch Daily-Daten.
+     * Die Kerzen kommen aus dem lokalen Kursspeicher; nur fehlende Zeiträume werden beim Provider geladen.
      *
      * @param symbol Asset-Symbol
      * @param type Asset-Typ
      * @param market Zielmarkt
-     * @param period Zeitraum ("intraday" oder "daily")
-     * @param interval Intervall für Intraday-Daten (z.B. "5min")
+     * @param period Zeitraum ("intraday" oder "daily"), bestimmt Standard-Intervall und -Zeitraum
+     * @param interval Kerzen-Intervall (z.B. "5min", "1h", "1day"); Standard: "5min" bzw. "1day"
+     * @param from Beginn des Zeitraums (ISO-Datum/-Zeit, optional; Standard: 1 bzw. 7 Tage zurück)
+     * @param to Ende des Zeitraums (ISO-Datum/-Zeit, optional; Standard: jetzt)
      * @return Map mit historischen Preisdaten
      */
-    public Map<String, Object> getAssetPriceHistory(String symbol, String type, String market, String period, String interval) {
+    public Map<String, Object> getAssetPriceHistory(String symbol, String type, String market, String period,
+                                                    String interval, String from, String to) {
         Map<String, Object> result = new HashMap<>();
 
         try {
-            Map<String, Object> apiResponse;
-            String targetMarket = market != null ? market : "usd";
+            boolean intraday = "intraday".equalsIgnoreCase(period);
+            String candleInterval = interval != null && !interval.isBlank() ? interval : intraday ? "5min" : "1day";
+            Instant end = PriceHistoryService.parseTime(to, Instant.now());
+            Instant start = PriceHistoryService.parseTime(from, end.minus(Duration.ofDays(intraday ? 1 : 7)));
 
-            // Wähle entsprechende API-Methode basierend auf Asset-Typ und Zeitraum
-            if ("crypto".equalsIgnoreCase(type)) {
-                apiResponse = "intraday".equalsIgnoreCase(period)
-                        ? externalApiService.getCryptoIntradayData(symbol, targetMarket)
-                        : externalApiService.getCryptoDailyData(symbol, targetMarket);
-            } else if ("stock".equalsIgnoreCase(type)) {
-                apiResponse = "intraday".equalsIgnoreCase(period)
-                        ? externalApiService.getStockIntradayData(symbol, interval != null ? interval : "5min")
-                        : externalApiService.getStockDailyData(symbol);
-            } else {
-                throw new IllegalArgumentException("Unbekannter Asset-Typ: " + type);
-            }
+            Map<String, Object> historyData = priceHistoryService.getHistory(
+                    symbol, type, market != null ? market : "usd", candleInterval, start, end);
 
-            result.put("historyData", apiResponse);
+            result.put("historyData", historyData);
             result.put("success", true);
 
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
             result.put("error", e.getMessage());
             result.put("success", false);
@@ -185,6 +422,13 @@ public class AssetService {
         return result;
     }
 
+    /**
+     * Historische Preisdaten für den Standard-Zeitraum des jeweiligen Intervalls.
+     */
+    public Map<String, Object> getAssetPriceHistory(String symbol, String type, String market, String period, String interval) {
+        return getAssetPriceHistory(symbol, type, market, period, interval, null, null);
+    }
+
     /**
      * Überladene Methode für historische Preisdaten mit Standardparametern.
      * Verwendet "daily" als Standard-Zeitraum.
@@ -243,14 +487,8 @@ public class AssetService {
      * @return Liste von WatchlistDto-Objekten
      */
     public List<WatchlistDto> getWatchlistDtos() {
-        List<CryptoWatchlist> entities = cryptoWatchlistRepository.findAll();
-
-        // Debug-Ausgabe (sollte in Production entfernt werden)
-        System.out.println("------------------------------------------------------------------------------------------------------------------------------------------------------------------------------");
-        System.out.println("Watchlist Entities: ");
-        System.out.println(entities);
-
-        return entities.stream()
+        // Eine Abfrage über Watchlist und Positionen, unabhängig von der Anzahl der Transaktionen
+        return cryptoWatchlistRepository.findSummaries(null).stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
     }
@@ -262,8 +500,10 @@ public class AssetService {
      * @return WatchlistDto oder null falls nicht gefunden
      */
     public WatchlistDto getWatchlistItemDto(Long id) {
-        Optional<CryptoWatchlist> entity = cryptoWatchlistRepository.findById(id);
-        return entity.map(this::convertToDto).orElse(null);
+        return cryptoWatchlistRepository.findSummaries(id).stream()
+                .findFirst()
+                .map(this::convertToDto)
+                .orElse(null);
     }
 
     /**
@@ -295,8 +535,8 @@ public class AssetService {
 
     /**
      * Konvertiert eine CryptoWatchlist-Entity zu einem DTO.
-     * Berechnet dabei investierte Beträge, Durchschnittspreise und weitere Metriken
-     * basierend auf zugehörigen Transaktionen.
+     * Investierte Beträge, Mengen und Durchschnittspreise stammen aus der Position
+     * des Eintrags, die bei jeder Transaktion fortgeschrieben wird.
      *
      * @param entity Die zu konvertierende Entity
      * @return WatchlistDto mit berechneten Feldern
@@ -312,47 +552,69 @@ public class AssetService {
         dto.setNotes(entity.getNotes());
         dto.setCreatedAt(entity.getCreatedAt());
 
-        // Berechne investierte Beträge und Mengen aus allen Transaktionen
-        if (entity.getTransactions() != null && !entity.getTransactions().isEmpty()) {
-            BigDecimal totalInvested = BigDecimal.ZERO;
-            BigDecimal totalAmount = BigDecimal.ZERO;
-            int transactionCount = 0;
-
-            // Verarbeite alle Transaktionen (BUY addiert, SELL subtrahiert)
-            for (CryptoTransaction transaction : entity.getTransactions()) {
-                if (transaction.getTransactionType() == CryptoTransaction.TransactionType.BUY) {
-                    totalInvested = totalInvested.add(transaction.getTotalValue() != null ?
-                            transaction.getTotalValue() : BigDecimal.ZERO);
-                    totalAmount = totalAmount.add(transaction.getAmount() != null ?
-                            transaction.getAmount() : BigDecimal.ZERO);
-                } else if (transaction.getTransactionType() == CryptoTransaction.TransactionType.SELL) {
-                    totalInvested = totalInvested.subtract(transaction.getTotalValue() != null ?
-                            transaction.getTotalValue() : BigDecimal.ZERO);
-                    totalAmount = totalAmount.subtract(transaction.getAmount() != null ?
-                            transaction.getAmount() : BigDecimal.ZERO);
-                }
-                transactionCount++;
+        // Assets ohne Transaktionen haben noch keine Position (Standardwerte des DTOs)
+        Position position = entity.getPosition();
+        if (position != null) {
+            dto.setInvestedAmount(position.getCostBasis());
+            dto.setTotalAmount(position.getQuantity());
+            dto.setRealizedPnl(position.getRealizedPnl());
+            dto.setTransactionCount((int) position.getTransactionCount());
+            if (position.getQuantity().compareTo(BigDecimal.ZERO) > 0) {
+                dto.setAveragePrice(position.getAveragePrice());
             }
+        }
 
-            dto.setInvestedAmount(totalInvested);
-            dto.setTotalAmount(totalAmount);
-            dto.setTransactionCount(transactionCount);
+        return dto;
+    }
 
-            // Berechne Durchschnittspreis (nur wenn Menge > 0)
-            if (totalAmount.compareTo(BigDecimal.ZERO) > 0) {
-                BigDecimal avgPrice = totalInvested.divide(totalAmount, 8, RoundingMode.HALF_UP);
-                dto.setAveragePrice(avgPrice);
-            }
-        } else {
-            // Standardwerte für Assets ohne Transaktionen
-            dto.setInvestedAmount(BigDecimal.ZERO);
-            dto.setTotalAmount(BigDecimal.ZERO);
-            dto.setTransactionCount(0);
+    /**
+     * Erstellt ein DTO aus einem Watchlist-Eintrag mit den Kennzahlen seiner Position.
+     * Rechnet wie {@link #convertToDto(CryptoWatchlist)}, ohne die Entity zu laden.
+     *
+     * @param summary Aggregierte Zeile aus {@link CryptoWatchlistRepository#findSummaries}
+     * @return WatchlistDto mit berechneten Feldern
+     */
+    private WatchlistDto convertToDto(CryptoWatchlistRepository.WatchlistSummary summary) {
+        WatchlistDto dto = new WatchlistDto();
+        dto.setId(summary.getId());
+        dto.setSymbol(summary.getSymbol());
+        dto.setName(summary.getName());
+        dto.setType(summary.getType());
+        dto.setNotes(summary.getNotes());
+        dto.setCreatedAt(summary.getCreatedAt());
+
+        BigDecimal totalInvested = summary.getInvestedAmount() != null ? summary.getInvestedAmount() : BigDecimal.ZERO;
+        BigDecimal totalAmount = summary.getTotalAmount() != null ? summary.getTotalAmount() : BigDecimal.ZERO;
+        dto.setInvestedAmount(totalInvested);
+        dto.setTotalAmount(totalAmount);
+        dto.setRealizedPnl(summary.getRealizedPnl());
+        dto.setTransactionCount(summary.getTransactionCount() != null ? summary.getTransactionCount().intValue() : 0);
+
+        // Durchschnittspreis nur bei positiver Menge
+        if (totalAmount.signum() > 0) {
+            long averagePrice = FixedPoint.divide(FixedPoint.of(totalInvested, FixedPoint.QUANTITY_SCALE), FixedPoint.QUANTITY_SCALE,
+                    FixedPoint.of(totalAmount, FixedPoint.QUANTITY_SCALE), FixedPoint.QUANTITY_SCALE, FixedPoint.QUANTITY_SCALE);
+            dto.setAveragePrice(FixedPoint.toBigDecimal(averagePrice, FixedPoint.QUANTITY_SCALE));
         }
-
         return dto;
     }
 
+    /**
+     * Marktwert einer Menge zum Preis (beides 8 Nachkommastellen), als Festkommawert.
+     */
+    private static long marketValue(BigDecimal quantity, long price) {
+        return FixedPoint.multiply(FixedPoint.of(quantity, FixedPoint.QUANTITY_SCALE), FixedPoint.QUANTITY_SCALE,
+                price, FixedPoint.QUANTITY_SCALE, FixedPoint.QUANTITY_SCALE);
+    }
+
+    /**
+     * Anteil in Prozent mit 4 Nachkommastellen (Quote auf 4 Stellen gerundet, dann * 100).
+     */
+    private static BigDecimal percentage(long part, long whole) {
+        long ratio = FixedPoint.divide(part, FixedPoint.QUANTITY_SCALE, whole, FixedPoint.QUANTITY_SCALE, 4);
+        return FixedPoint.toBigDecimal(Math.multiplyExact(ratio, 100), 4);
+    }
+
     /**
      * Entfernt ein Asset aus der Watchlist.
      *
@@ -373,6 +635,8 @@ public class AssetService {
             */
 
             cryptoWatchlistRepository.deleteById(id);
+            taxLotService.invalidate(id);
+            portfolioNavService.deleteHistory(id);
             return true;
         }
         return false;
@@ -391,6 +655,9 @@ public class AssetService {
             List<WatchlistDto> watchlistDtos = getWatchlistDtos();
             List<Map<String, Object>> enrichedWatchlist = new ArrayList<>();
 
+            // Alle Preise vorab gebündelt laden (ein Provider-Aufruf pro Chunk)
+            Map<String, Map<String, Object>> prices = fetchCurrentPrices(watchlistDtos);
+
             // Bearbeite jedes Watchlist-Item
             for (WatchlistDto dto : watchlistDtos) {
                 Map<String, Object> enrichedItem = new HashMap<>();
@@ -398,8 +665,7 @@ public class AssetService {
 
                 try {
                     // Hole aktuellen Preis für das Asset
-                    Map<String, Object> priceResponse = getAssetWithCurrentPrice(
-                            dto.getSymbol(), dto.getType(), "usd");
+                    Map<String, Object> priceResponse = prices.get(dto.getSymbol());
 
                     if ((Boolean) priceResponse.get("success")) {
                         @SuppressWarnings("unchecked")
@@ -410,15 +676,14 @@ public class AssetService {
                         if (dto.getInvestedAmount() != null && dto.getTotalAmount() != null &&
                                 dto.getTotalAmount().compareTo(BigDecimal.ZERO) > 0) {
 
-                            BigDecimal currentPrice = new BigDecimal(priceData.get("price").toString());
-                            BigDecimal currentValue = dto.getTotalAmount().multiply(currentPrice);
-                            BigDecimal profit = currentValue.subtract(dto.getInvestedAmount());
-                            BigDecimal profitPercentage = profit.divide(dto.getInvestedAmount(), 4, RoundingMode.HALF_UP)
-                                    .multiply(new BigDecimal("100"));
+                            long currentPrice = FixedPoint.parse(priceData.get("price").toString(), FixedPoint.QUANTITY_SCALE);
+                            long currentValue = marketValue(dto.getTotalAmount(), currentPrice);
+                            long invested = FixedPoint.of(dto.getInvestedAmount(), FixedPoint.QUANTITY_SCALE);
+                            long profit = FixedPoint.subtract(currentValue, invested);
 
-                            enrichedItem.put("currentValue", currentValue);
-                            enrichedItem.put("profit", profit);
-                            enrichedItem.put("profitPercentage", profitPercentage);
+                            enrichedItem.put("currentValue", FixedPoint.toBigDecimal(currentValue, FixedPoint.QUANTITY_SCALE));
+                            enrichedItem.put("profit", FixedPoint.toBigDecimal(profit, FixedPoint.QUANTITY_SCALE));
+                            enrichedItem.put("profitPercentage", percentage(profit, invested));
                         }
                     } else {
                         // Speichere Preisfehler für einzelne Assets
@@ -443,6 +708,26 @@ public class AssetService {
         return result;
     }
 
+    /**
+     * Lädt die aktuellen Preise für alle übergebenen Watchlist-Items gebündelt,
+     * gruppiert nach Asset-Typ.
+     *
+     * @param dtos Watchlist-Items
+     * @return Map Symbol → Ergebnis im Format von {@link #getAssetWithCurrentPrice}
+     */
+    private Map<String, Map<String, Object>> fetchCurrentPrices(List<WatchlistDto> dtos) {
+        Map<String, List<String>> symbolsByType = new HashMap<>();
+        for (WatchlistDto dto : dtos) {
+            String type = dto.getType() != null ? dto.getType().toLowerCase() : "";
+            symbolsByType.computeIfAbsent(type, t -> new ArrayList<>()).add(dto.getSymbol());
+        }
+
+        Map<String, Map<String, Object>> prices = new HashMap<>();
+        symbolsByType.forEach((type, symbols) ->
+                prices.putAll(getAssetsWithCurrentPrices(symbols, type, "usd")));
+        return prices;
+    }
+
     // ========== PORTFOLIO MANAGEMENT ==========
 
     /**
@@ -464,20 +749,11 @@ public class AssetService {
                 return result;
             }
 
-            // Berechne investierte Summen basierend auf Transaktionen
-            List<CryptoTransaction> transactions = cryptoTransactionRepository.findByWatchlistId(watchlistId);
-            BigDecimal totalInvested = BigDecimal.ZERO;
-            BigDecimal totalAmount = BigDecimal.ZERO;
-
-            for (CryptoTransaction tx : transactions) {
-                if (tx.getTransactionType() == CryptoTransaction.TransactionType.BUY) {
-                    totalInvested = totalInvested.add(tx.getTotalValue());
-                    totalAmount = totalAmount.add(tx.getAmount());
-                } else {
-                    totalInvested = totalInvested.subtract(tx.getTotalValue());
-                    totalAmount = totalAmount.subtract(tx.getAmount());
-                }
-            }
+            // Investierte Summe und Menge aus der fortgeschriebenen Position
+            Optional<Position> positionOpt = positionService.getPosition(watchlistId);
+            BigDecimal totalInvested = positionOpt.map(Position::getCostBasis).orElse(BigDecimal.ZERO);
+            BigDecimal totalAmount = positionOpt.map(Position::getQuantity).orElse(BigDecimal.ZERO);
+            long transactionCount = positionOpt.map(Position::getTransactionCount).orElse(0L);
 
             // Berechne Portfolio-Prozentsatz im Verhältnis zum Gesamtportfolio
             BigDecimal totalPortfolioValue = getTotalPortfolioValue();
@@ -491,7 +767,8 @@ public class AssetService {
             result.put("success", true);
             result.put("totalInvested", totalInvested);
             result.put("totalAmount", totalAmount);
-            result.put("transactionCount", transactions.size());
+            result.put("transactionCount", transactionCount);
+            result.put("realizedPnl", positionOpt.map(Position::getRealizedPnl).orElse(BigDecimal.ZERO));
             result.put("portfolioPercentage", portfolioPercentage);
             result.put("totalPortfolioValue", totalPortfolioValue);
 
@@ -502,6 +779,53 @@ public class AssetService {
         return result;
     }
 
+    /**
+     * Ordnet die Verkäufe eines Watchlist-Items den Kauf-Lots zu und bewertet den offenen Bestand.
+     * Ohne Preis wird der aktuelle Marktpreis abgefragt; ist er nicht verfügbar,
+     * fehlt nur die Bewertung (unrealisierter Gewinn).
+     *
+     * @param watchlistId ID des Watchlist-Items
+     * @param method fifo, lifo oder average (null = Standardmethode)
+     * @param price Preis pro Einheit für die Bewertung (null = aktueller Preis)
+     * @return Map mit offenen Lots, realisierten Gewinnen pro Jahr und unrealisiertem Gewinn
+     */
+    public Map<String, Object> getLotReport(Long watchlistId, String method, BigDecimal price) {
+        Optional<CryptoWatchlist> watchlistOpt = cryptoWatchlistRepository.findById(watchlistId);
+        if (watchlistOpt.isEmpty()) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("error", "Watchlist-Item nicht gefunden");
+            result.put("success", false);
+            return result;
+        }
+
+        TaxLotService.Method lotMethod = TaxLotService.Method.parse(method != null ? method : defaultLotMethod);
+        BigDecimal valuationPrice = price;
+        if (valuationPrice == null) {
+            CryptoWatchlist watchlist = watchlistOpt.get();
+            Map<String, Object> priceResponse = getAssetWithCurrentPrice(watchlist.getSymbol(), watchlist.getType(), "usd");
+            if (Boolean.TRUE.equals(priceResponse.get("success"))) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> priceData = (Map<String, Object>) priceResponse.get("priceData");
+                valuationPrice = new BigDecimal(priceData.get("price").toString());
+            }
+        }
+
+        Map<String, Object> result = taxLotService.getLotReport(watchlistId, lotMethod, valuationPrice);
+        result.put("symbol", watchlistOpt.get().getSymbol());
+        return result;
+    }
+
+    /**
+     * Realisierte Gewinne eines Jahres über alle Watchlist-Items.
+     *
+     * @param year Jahr der Verkäufe
+     * @param method fifo, lifo oder average (null = Standardmethode)
+     * @return Map mit Summen und einer Zeile pro Asset
+     */
+    public Map<String, Object> getRealizedGains(int year, String method) {
+        return taxLotService.getGainReport(year, TaxLotService.Method.parse(method != null ? method : defaultLotMethod));
+    }
+
     /**
      * Erstellt eine umfassende Portfolio-Übersicht mit allen Assets,
      * aktuellen Bewertungen und Performance-Metriken.
@@ -514,79 +838,79 @@ public class AssetService {
 
         try {
             List<WatchlistDto> watchlistDtos = getWatchlistDtos();
-            BigDecimal totalInvested = BigDecimal.ZERO;
-            BigDecimal totalCurrentValue = BigDecimal.ZERO;
+            List<WatchlistDto> investedDtos = watchlistDtos.stream()
+                    .filter(dto -> dto.getInvestedAmount() != null && dto.getInvestedAmount().compareTo(BigDecimal.ZERO) > 0)
+                    .toList();
+            Map<String, Map<String, Object>> prices = fetchCurrentPrices(investedDtos);
+
+            // Summen als Festkommawerte (8 Stellen wie die Position), BigDecimal erst in der Antwort
+            long totalInvested = 0;
+            long totalCurrentValue = 0;
+            long[] investedByItem = new long[investedDtos.size()];
             List<Map<String, Object>> portfolioItems = new ArrayList<>();
 
             // Verarbeite nur Assets mit tatsächlichen Investitionen
-            for (WatchlistDto dto : watchlistDtos) {
-                if (dto.getInvestedAmount() != null && dto.getInvestedAmount().compareTo(BigDecimal.ZERO) > 0) {
-                    Map<String, Object> portfolioItem = new HashMap<>();
+            for (WatchlistDto dto : investedDtos) {
+                Map<String, Object> portfolioItem = new HashMap<>();
 
-                    // Basis-Informationen
-                    portfolioItem.put("symbol", dto.getSymbol());
-                    portfolioItem.put("name", dto.getName());
-                    portfolioItem.put("type", dto.getType());
-                    portfolioItem.put("investedAmount", dto.getInvestedAmount());
-                    portfolioItem.put("totalAmount", dto.getTotalAmount());
+                // Basis-Informationen
+                portfolioItem.put("symbol", dto.getSymbol());
+                portfolioItem.put("name", dto.getName());
+                portfolioItem.put("type", dto.getType());
+                portfolioItem.put("investedAmount", dto.getInvestedAmount());
+                portfolioItem.put("totalAmount", dto.getTotalAmount());
 
-                    totalInvested = totalInvested.add(dto.getInvestedAmount());
+                long invested = FixedPoint.of(dto.getInvestedAmount(), FixedPoint.QUANTITY_SCALE);
+                investedByItem[portfolioItems.size()] = invested;
+                totalInvested = FixedPoint.add(totalInvested, invested);
 
-                    try {
-                        // Hole aktuellen Preis für Bewertung
-                        Map<String, Object> priceResponse = getAssetWithCurrentPrice(
-                                dto.getSymbol(), dto.getType(), "usd");
+                try {
+                    // Hole aktuellen Preis für Bewertung
+                    Map<String, Object> priceResponse = prices.get(dto.getSymbol());
 
-                        if ((Boolean) priceResponse.get("success")) {
-                            @SuppressWarnings("unchecked")
-                            Map<String, Object> priceData = (Map<String, Object>) priceResponse.get("priceData");
-                            BigDecimal currentPrice = new BigDecimal(priceData.get("price").toString());
-                            BigDecimal currentValue = dto.getTotalAmount().multiply(currentPrice);
+                    if ((Boolean) priceResponse.get("success")) {
+                        @SuppressWarnings("unchecked")
+                        Map<String, Object> priceData = (Map<String, Object>) priceResponse.get("priceData");
+                        long currentPrice = FixedPoint.parse(priceData.get("price").toString(), FixedPoint.QUANTITY_SCALE);
+                        long currentValue = marketValue(dto.getTotalAmount(), currentPrice);
 
-                            portfolioItem.put("currentPrice", currentPrice);
-                            portfolioItem.put("currentValue", currentValue);
+                        portfolioItem.put("currentPrice", FixedPoint.toBigDecimal(currentPrice, FixedPoint.QUANTITY_SCALE));
+                        portfolioItem.put("currentValue", FixedPoint.toBigDecimal(currentValue, FixedPoint.QUANTITY_SCALE));
 
-                            // Berechne Gewinn/Verlust
-                            BigDecimal profit = currentValue.subtract(dto.getInvestedAmount());
-                            BigDecimal profitPercentage = profit.divide(dto.getInvestedAmount(), 4, RoundingMode.HALF_UP)
-                                    .multiply(new BigDecimal("100"));
+                        // Berechne Gewinn/Verlust
+                        long profit = FixedPoint.subtract(currentValue, invested);
 
-                            portfolioItem.put("profit", profit);
-                            portfolioItem.put("profitPercentage", profitPercentage);
+                        portfolioItem.put("profit", FixedPoint.toBigDecimal(profit, FixedPoint.QUANTITY_SCALE));
+                        portfolioItem.put("profitPercentage", percentage(profit, invested));
 
-                            totalCurrentValue = totalCurrentValue.add(currentValue);
-                        }
-                    } catch (Exception e) {
-                        // Einzelne Preisfehler sollen das Gesamtergebnis nicht beeinträchtigen
-                        portfolioItem.put("priceError", e.getMessage());
+                        totalCurrentValue = FixedPoint.add(totalCurrentValue, currentValue);
                     }
-
-                    portfolioItems.add(portfolioItem);
+                } catch (Exception e) {
+                    // Einzelne Preisfehler sollen das Gesamtergebnis nicht beeinträchtigen
+                    portfolioItem.put("priceError", e.getMessage());
                 }
+
+                portfolioItems.add(portfolioItem);
             }
 
             // Berechne Portfolio-Verteilung (Prozentsätze)
-            for (Map<String, Object> item : portfolioItems) {
-                BigDecimal invested = (BigDecimal) item.get("investedAmount");
-                if (totalInvested.compareTo(BigDecimal.ZERO) > 0) {
-                    BigDecimal percentage = invested.divide(totalInvested, 4, RoundingMode.HALF_UP)
-                            .multiply(new BigDecimal("100"));
-                    item.put("portfolioPercentage", percentage);
+            if (totalInvested > 0) {
+                for (int i = 0; i < portfolioItems.size(); i++) {
+                    portfolioItems.get(i).put("portfolioPercentage", percentage(investedByItem[i], totalInvested));
                 }
             }
 
             // Berechne Gesamtperformance
-            BigDecimal totalProfit = totalCurrentValue.subtract(totalInvested);
+            long totalProfit = FixedPoint.subtract(totalCurrentValue, totalInvested);
             BigDecimal totalProfitPercentage = BigDecimal.ZERO;
-            if (totalInvested.compareTo(BigDecimal.ZERO) > 0) {
-                totalProfitPercentage = totalProfit.divide(totalInvested, 4, RoundingMode.HALF_UP)
-                        .multiply(new BigDecimal("100"));
+            if (totalInvested > 0) {
+                totalProfitPercentage = percentage(totalProfit, totalInvested);
             }
 
             result.put("portfolioItems", portfolioItems);
-            result.put("totalInvested", totalInvested);
-            result.put("totalCurrentValue", totalCurrentValue);
-            result.put("totalProfit", totalProfit);
+            result.put("totalInvested", FixedPoint.toBigDecimal(totalInvested, FixedPoint.QUANTITY_SCALE));
+            result.put("totalCurrentValue", FixedPoint.toBigDecimal(totalCurrentValue, FixedPoint.QUANTITY_SCALE));
+            result.put("totalProfit", FixedPoint.toBigDecimal(totalProfit, FixedPoint.QUANTITY_SCALE));
             result.put("totalProfitPercentage", totalProfitPercentage);
             result.put("itemCount", portfolioItems.size());
             result.put("success", true);
@@ -605,11 +929,7 @@ public class AssetService {
      * @return Gesamter investierter Betrag
      */
     private BigDecimal getTotalPortfolioValue() {
-        List<CryptoTransaction> allTransactions = cryptoTransactionRepository.findAll();
-        return allTransactions.stream()
-                .filter(tx -> tx.getTransactionType() == CryptoTransaction.TransactionType.BUY)
-                .map(CryptoTransaction::getTotalValue)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return cryptoTransactionRepository.sumTotalValueByType(CryptoTransaction.TransactionType.BUY);
     }
 
     // ========== INVESTMENT MANAGEMENT ==========
@@ -665,15 +985,15 @@ public class AssetService {
             // Berechne gekaufte Menge
             BigDecimal amount = investmentAmount.divide(currentPrice, 8, RoundingMode.HALF_UP);
 
-            // Erstelle Expense-Eintrag
+            // Erstelle Expense-Eintrag (inkl. Monats-Rollup)
             Expense expense = new Expense();
             expense.setAmount(investmentAmount);
             expense.setCategory("Investment");
             expense.setDate(LocalDate.now());
             expense.setDescription("Kauf von " + amount + " " + symbol);
-            expense = expenseRepository.save(expense);
+            expense = financeService.addExpense(expense);
 
-            // Erstelle Transaction
+            // Erstelle Transaction (Position wird in derselben Datenbank-Transaktion fortgeschrieben)
             CryptoTransaction transaction = new CryptoTransaction(
                     watchlistItem,
                     CryptoTransaction.TransactionType.BUY,
@@ -681,12 +1001,12 @@ public class AssetService {
                     currentPrice
             );
             transaction.setExpense(expense);
-            transaction = cryptoTransactionRepository.save(transaction);
+            transaction = positionService.recordTransaction(transaction);
 
             result.put("success", true);
             result.put("transaction", transaction);
             result.put("expense", expense);
-            result.put("watchlistItem", convertToDto(watchlistItem));
+            result.put("watchlistItem", getWatchlistItemDto(watchlistItem.getId()));
             result.put("currentPrice", currentPrice);
             result.put("amount", amount);
             result.put("message", "Investment erfolgreich erstellt");
@@ -701,71 +1021,29 @@ public class AssetService {
     // ========== SEARCH & DISCOVERY ==========
 
     /**
-     * Asset-Suche für Watchlist-Hinzufügung
+     * Asset-Suche für Watchlist-Hinzufügung.
+     * Die Treffer kommen aus dem In-Memory-Suchindex; ob sie bereits in der Watchlist
+     * stehen, wird mit einer einzigen Abfrage für alle Treffer bestimmt.
      */
     public Map<String, Object> searchAssets(String query, String type, int limit) {
         Map<String, Object> result = new HashMap<>();
 
         try {
-            List<Map<String, Object>> searchResults = new ArrayList<>();
+            List<AssetSearchIndex.Asset> hits = assetSearchIndex.search(query, type, limit);
 
-            // Einfache Symbol-basierte Suche (kann später erweitert werden)
-            String queryUpper = query.toUpperCase();
-
-            // Vordefinierte Asset-Listen für Demo
-            List<Map<String, String>> cryptoAssets = Arrays.asList(
-                    Map.of("symbol", "BTC", "name", "Bitcoin", "type", "crypto"),
-                    Map.of("symbol", "ETH", "name", "Ethereum", "type", "crypto"),
-                    Map.of("symbol", "ADA", "name", "Cardano", "type", "crypto"),
-                    Map.of("symbol", "DOT", "name", "Polkadot", "type", "crypto"),
-                    Map.of("symbol", "SOL", "name", "Solana", "type", "crypto"),
-                    Map.of("symbol", "MATIC", "name", "Polygon", "type", "crypto"),
-                    Map.of("symbol", "LINK", "name", "Chainlink", "type", "crypto"),
-                    Map.of("symbol", "UNI", "name", "Uniswap", "type", "crypto"),
-                    Map.of("symbol", "AVAX", "name", "Avalanche", "type", "crypto"),
-                    Map.of("symbol", "ATOM", "name", "Cosmos", "type", "crypto")
-            );
-
-            List<Map<String, String>> stockAssets = Arrays.asList(
-                    Map.of("symbol", "AAPL", "name", "Apple Inc.", "type", "stock"),
-                    Map.of("symbol", "GOOGL", "name", "Alphabet Inc.", "type", "stock"),
-                    Map.of("symbol", "MSFT", "name", "Microsoft Corporation", "type", "stock"),
-                    Map.of("symbol", "AMZN", "name", "Amazon.com Inc.", "type", "stock"),
-                    Map.of("symbol", "TSLA", "name", "Tesla Inc.", "type", "stock"),
-                    Map.of("symbol", "META", "name", "Meta Platforms Inc.", "type", "stock"),
-                    Map.of("symbol", "NVDA", "name", "NVIDIA Corporation", "type", "stock"),
-                    Map.of("symbol", "NFLX", "name", "Netflix Inc.", "type", "stock"),
-                    Map.of("symbol", "DIS", "name", "The Walt Disney Company", "type", "stock"),
-                    Map.of("symbol", "V", "name", "Visa Inc.", "type", "stock")
-            );
+            Set<String> watchlistSymbols = hits.isEmpty() ? Set.of() : cryptoWatchlistRepository.findSymbolsIn(
+                    hits.stream().map(asset -> asset.symbol().toUpperCase()).collect(Collectors.toSet()));
 
-            List<Map<String, String>> assetsToSearch = new ArrayList<>();
-
-            if (type == null || "crypto".equalsIgnoreCase(type)) {
-                assetsToSearch.addAll(cryptoAssets);
-            }
-            if (type == null || "stock".equalsIgnoreCase(type)) {
-                assetsToSearch.addAll(stockAssets);
+            List<Map<String, Object>> searchResults = new ArrayList<>();
+            for (AssetSearchIndex.Asset asset : hits) {
+                Map<String, Object> searchResult = new HashMap<>();
+                searchResult.put("symbol", asset.symbol());
+                searchResult.put("name", asset.name());
+                searchResult.put("type", asset.type());
+                searchResult.put("inWatchlist", watchlistSymbols.contains(asset.symbol().toUpperCase()));
+                searchResults.add(searchResult);
             }
 
-            // Filter basierend auf Query
-            searchResults = assetsToSearch.stream()
-                    .filter(asset ->
-                            asset.get("symbol").contains(queryUpper) ||
-                                    asset.get("name").toUpperCase().contains(queryUpper))
-                    .limit(limit)
-                    .map(asset -> {
-                        Map<String, Object> searchResult = new HashMap<>(asset);
-
-                        // Prüfe ob bereits in Watchlist
-                        boolean inWatchlist = cryptoWatchlistRepository
-                                .findBySymbolIgnoreCase(asset.get("symbol")).isPresent();
-                        searchResult.put("inWatchlist", inWatchlist);
-
-                        return searchResult;
-                    })
-                    .collect(Collectors.toList());
-
             result.put("results", searchResults);
             result.put("query", query);
             result.put("type", type);
@@ -807,7 +1085,7 @@ public class AssetService {
     /**
      * Automatische Asset-Typ-Erkennung basierend auf Symbol
      */
-    private String detectAssetType(String symbol) {
+    String detectAssetType(String symbol) {
         if (symbol == null || symbol.trim().isEmpty()) {
             return "crypto"; // Default
         }
@@ -828,7 +1106,7 @@ public class AssetService {
 
         if (knownStocks.contains(cleanSymbol)) {
             return "stock";
-        } else if (knownCryptos.contains(cleanSymbol)) {
+        } else if (knownCryptos.contains(cleanSymbol) || externalApiService.isCryptoSymbol(cleanSymbol)) {
             return "crypto";
         } else {
             // Heuristik: Kurze Symbole (1-4 Zeichen) = wahrscheinlich Stock
@@ -0,0 +1,538 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.model.CryptoWatchlist;
+import com.example.financemanager.model.MonthlyRollup;
+import com.example.financemanager.repository.CryptoWatchlistRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Massenimport von Ausgaben, Einnahmen und Krypto-Transaktionen aus CSV oder NDJSON.
+ * Bietet:
+ * - Streaming-Parser: es wird immer nur ein Chunk von Zeilen im Speicher gehalten
+ * - Validierung pro Zeile; fehlerhafte Zeilen (auch ungültiges JSON) werden mit ihrer Zeilennummer
+ *   in der Datei gemeldet und übersprungen
+ * - Einfügen per JDBC-Batch (unabhängig von der ID-Strategie der Entities) und Commit pro Chunk
+ * - Fortschreibung der Monats-Rollups pro Chunk und Neuaufbau der betroffenen Positionen
+ * - Fortschritt laufender und zuletzt beendeter Importe (getJobs)
+ */
+@Service
+public class BulkImportService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MonthlyRollupService monthlyRollupService;
+
+    @Autowired
+    private PositionService positionService;
+
+    @Autowired
+    private CryptoWatchlistRepository cryptoWatchlistRepository;
+
+    // Anzahl Zeilen pro JDBC-Batch
+    @Value("${finance.import.batch-size:1000}")
+    private int batchSize;
+
+    // Anzahl Zeilen pro Datenbank-Transaktion
+    @Value("${finance.import.chunk-size:10000}")
+    private int chunkSize;
+
+    // Maximale Anzahl gemeldeter Zeilenfehler pro Import (gezählt werden alle)
+    @Value("${finance.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    // Anzahl beendeter Importe, deren Ergebnis abrufbar bleibt
+    @Value("${finance.import.history-size:20}")
+    private int historySize;
+
+    private static final Set<String> SUPPORTED_FORMATS = Set.of("csv", "ndjson", "jsonl");
+
+    private static final TypeReference<Map<String, Object>> JSON_OBJECT = new TypeReference<>() {
+    };
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    private final Deque<String> finishedJobIds = new ArrayDeque<>();
+
+    /**
+     * Importierbare Datenarten mit ihrem INSERT und der Umwandlung einer Zeile in dessen Parameter.
+     */
+    public enum ImportType {
+        EXPENSES("INSERT INTO expense (description, amount, category, date) VALUES (?, ?, ?, ?)"),
+        INCOMES("INSERT INTO income (source, amount, date) VALUES (?, ?, ?)"),
+        TRANSACTIONS("INSERT INTO crypto_transaction (watchlist_id, transaction_type, amount, price_per_unit, " +
+                "total_value, transaction_date, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)");
+
+        private final String insertSql;
+
+        ImportType(String insertSql) {
+            this.insertSql = insertSql;
+        }
+
+        public static ImportType parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unbekannter Import-Typ: " + value + " (expenses, incomes oder transactions)");
+            }
+        }
+    }
+
+    /**
+     * Ein gelesener Datensatz mit seiner Zeile in der Datei: Felder (Namen in Kleinbuchstaben)
+     * oder der Grund, warum die Zeile nicht gelesen werden konnte.
+     */
+    private record SourceRecord(long line, Map<String, Object> fields, String error) {
+    }
+
+    /**
+     * Eine validierte Zeile: Parameter für das INSERT plus die Werte für Rollups bzw. Positionen.
+     * Bei Transaktionen wird die Watchlist-ID (erster Parameter) erst beim Schreiben des Chunks aufgelöst.
+     */
+    private record ParsedRow(Object[] params, LocalDate date, String label, BigDecimal amount,
+                             String symbol, String assetType) {
+    }
+
+    /**
+     * Fortschritt und Ergebnis eines Imports.
+     */
+    private static class ImportJob {
+        final String id = UUID.randomUUID().toString();
+        final ImportType type;
+        final Instant startedAt = Instant.now();
+        final AtomicLong rowsRead = new AtomicLong();
+        final AtomicLong rowsImported = new AtomicLong();
+        final AtomicLong rowsFailed = new AtomicLong();
+        final List<Map<String, Object>> errors = Collections.synchronizedList(new ArrayList<>());
+        volatile String state = "running";
+        volatile Instant finishedAt;
+
+        ImportJob(ImportType type) {
+            this.type = type;
+        }
+
+        Map<String, Object> toMap() {
+            Instant end = finishedAt != null ? finishedAt : Instant.now();
+            long durationMs = Math.max(1, Duration.between(startedAt, end).toMillis());
+
+            Map<String, Object> status = new HashMap<>();
+            status.put("jobId", id);
+            status.put("type", type.name().toLowerCase());
+            status.put("state", state);
+            status.put("startedAt", startedAt);
+            status.put("finishedAt", finishedAt);
+            status.put("durationMs", durationMs);
+            status.put("rowsRead", rowsRead.get());
+            status.put("rowsImported", rowsImported.get());
+            status.put("rowsFailed", rowsFailed.get());
+            status.put("rowsPerSecond", rowsImported.get() * 1000 / durationMs);
+            synchronized (errors) {
+                status.put("errors", new ArrayList<>(errors));
+            }
+            return status;
+        }
+    }
+
+    /**
+     * Importiert alle Zeilen aus dem Stream. Gültige Zeilen werden chunkweise committet;
+     * ein fehlgeschlagener Chunk wird als Fehler gemeldet, bereits committete Chunks bleiben bestehen.
+     *
+     * @param type Datenart
+     * @param format "csv" (mit Kopfzeile, ',' oder ';') oder "ndjson" (ein JSON-Objekt pro Zeile)
+     * @param input Rohdaten (UTF-8)
+     * @return Ergebnis des Imports inkl. Zeilenfehlern
+     */
+    public Map<String, Object> importData(ImportType type, String format, InputStream input) {
+        if (!SUPPORTED_FORMATS.contains(format.trim().toLowerCase())) {
+            throw new IllegalArgumentException("Unbekanntes Format: " + format + " (csv oder ndjson)");
+        }
+        ImportJob job = new ImportJob(type);
+        jobs.put(job.id, job);
+
+        Map<String, Long> watchlistIds = new HashMap<>();
+        // Watchlist-ID -> frühester Tag der importierten Transaktionen
+        Map<Long, LocalDate> touchedWatchlists = new HashMap<>();
+        List<ParsedRow> chunk = new ArrayList<>(chunkSize);
+
+        try {
+            Iterator<SourceRecord> records = openRecords(format, input);
+            long line = 0;
+            while (records.hasNext()) {
+                SourceRecord record = records.next();
+                line = record.line();
+                job.rowsRead.incrementAndGet();
+                if (record.error() != null) {
+                    rejectRow(job, line, record.error());
+                    continue;
+                }
+                try {
+                    chunk.add(parse(type, record.fields()));
+                } catch (IllegalArgumentException e) {
+                    rejectRow(job, line, e.getMessage());
+                }
+
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(job, type, chunk, line, watchlistIds, touchedWatchlists);
+                    chunk.clear();
+                }
+            }
+            writeChunk(job, type, chunk, line, watchlistIds, touchedWatchlists);
+            job.state = "completed";
+        } catch (IOException | RuntimeException e) {
+            job.state = "failed";
+            reportError(job, null, "Import abgebrochen: " + e.getMessage());
+        } finally {
+            // Importierte Transaktionen können vor bestehenden liegen: betroffene Positionen neu aufbauen
+            touchedWatchlists.forEach(positionService::rebuild);
+            job.finishedAt = Instant.now();
+            remember(job);
+        }
+
+        Map<String, Object> result = job.toMap();
+        result.put("success", !"failed".equals(job.state));
+        return result;
+    }
+
+    /**
+     * Liefert Fortschritt bzw. Ergebnis der laufenden und zuletzt beendeten Importe.
+     *
+     * @return Liste der Importe, neueste zuerst
+     */
+    public List<Map<String, Object>> getJobs() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing((ImportJob job) -> job.startedAt).reversed())
+                .map(ImportJob::toMap)
+                .toList();
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    private Iterator<SourceRecord> openRecords(String format, InputStream input) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+        return switch (format.trim().toLowerCase()) {
+            case "ndjson", "jsonl" -> ndjsonRecords(reader);
+            case "csv" -> csvRecords(reader);
+            default -> throw new IllegalArgumentException("Unbekanntes Format: " + format + " (csv oder ndjson)");
+        };
+    }
+
+    /**
+     * Ein JSON-Objekt pro Zeile; jede Zeile wird einzeln gelesen, damit eine ungültige Zeile
+     * nur als Zeilenfehler zählt. Leere Zeilen werden übersprungen.
+     */
+    private Iterator<SourceRecord> ndjsonRecords(BufferedReader reader) {
+        return new Iterator<>() {
+            private long line;
+            private SourceRecord next = readNext();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public SourceRecord next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                SourceRecord record = next;
+                next = readNext();
+                return record;
+            }
+
+            private SourceRecord readNext() {
+                try {
+                    String text;
+                    while ((text = reader.readLine()) != null) {
+                        line++;
+                        if (!text.isBlank()) {
+                            return parseJsonLine(line, text);
+                        }
+                    }
+                    return null;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    private SourceRecord parseJsonLine(long line, String text) {
+        try {
+            Map<String, Object> parsed = objectMapper.readValue(text.replace("\uFEFF", ""), JSON_OBJECT);
+            if (parsed == null) {
+                return new SourceRecord(line, null, "Kein JSON-Objekt");
+            }
+            Map<String, Object> record = new HashMap<>();
+            parsed.forEach((key, value) -> record.put(normalizeField(key), value));
+            return new SourceRecord(line, record, null);
+        } catch (MismatchedInputException e) {
+            return new SourceRecord(line, null, "Kein JSON-Objekt");
+        } catch (JsonProcessingException e) {
+            return new SourceRecord(line, null, "Ungültiges JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private Iterator<SourceRecord> csvRecords(BufferedReader reader) throws IOException {
+        // Trennzeichen aus der Kopfzeile bestimmen (Bank-Exporte nutzen oft ';')
+        reader.mark(1 << 14);
+        String headerLine = reader.readLine();
+        reader.reset();
+        if (headerLine == null) {
+            return Collections.emptyIterator();
+        }
+        char delimiter = headerLine.chars().filter(c -> c == ';').count() > headerLine.chars().filter(c -> c == ',').count() ? ';' : ',';
+
+        CsvRecordReader csv = new CsvRecordReader(reader, delimiter);
+        List<String> header = csv.next().stream()
+                .map(BulkImportService::normalizeField)
+                .toList();
+
+        return new Iterator<>() {
+            private List<String> next = readNext();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public SourceRecord next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Map<String, Object> record = new HashMap<>();
+                for (int i = 0; i < header.size() && i < next.size(); i++) {
+                    record.put(header.get(i), next.get(i));
+                }
+                long line = csv.recordLine();
+                next = readNext();
+                return new SourceRecord(line, record, null);
+            }
+
+            private List<String> readNext() {
+                try {
+                    return csv.next();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    // Feldnamen unabhängig von Schreibweise ("transactionType", "TransactionType") und BOM
+    private static String normalizeField(String name) {
+        return name.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT);
+    }
+
+    private ParsedRow parse(ImportType type, Map<String, Object> record) {
+        return switch (type) {
+            case EXPENSES -> {
+                BigDecimal amount = requireDecimal(record, "amount");
+                LocalDate date = requireDate(record, "date");
+                String category = text(record, "category");
+                yield new ParsedRow(new Object[]{text(record, "description"), amount, category, Date.valueOf(date)},
+                        date, category, amount, null, null);
+            }
+            case INCOMES -> {
+                BigDecimal amount = requireDecimal(record, "amount");
+                LocalDate date = requireDate(record, "date");
+                String source = text(record, "source");
+                yield new ParsedRow(new Object[]{source, amount, Date.valueOf(date)}, date, source, amount, null, null);
+            }
+            case TRANSACTIONS -> {
+                String symbol = text(record, "symbol");
+                if (symbol == null) {
+                    throw new IllegalArgumentException("symbol fehlt");
+                }
+                String transactionType = Optional.ofNullable(text(record, "transactiontype"))
+                        .orElse(text(record, "type"));
+                if (transactionType == null || !(transactionType.equalsIgnoreCase("BUY") || transactionType.equalsIgnoreCase("SELL"))) {
+                    throw new IllegalArgumentException("type muss BUY oder SELL sein");
+                }
+                BigDecimal amount = requireDecimal(record, "amount");
+                BigDecimal price = requireDecimal(record, "price");
+                if (amount.signum() <= 0 || price.signum() <= 0) {
+                    throw new IllegalArgumentException("amount und price müssen größer als 0 sein");
+                }
+                LocalDateTime date = requireDateTime(record, "date");
+
+                // Gleiche Rundung wie CryptoTransaction, damit importierte und erfasste Werte übereinstimmen
+                BigDecimal totalValue = amount.multiply(price).setScale(2, RoundingMode.HALF_UP);
+                Timestamp timestamp = Timestamp.valueOf(date);
+                yield new ParsedRow(new Object[]{null, transactionType.toUpperCase(), amount, price, totalValue,
+                        timestamp, Timestamp.valueOf(LocalDateTime.now())}, PortfolioNavService.utcDay(date), null, null,
+                        symbol.toUpperCase(), text(record, "assettype"));
+            }
+        };
+    }
+
+    /**
+     * Schreibt einen Chunk in einer Datenbank-Transaktion. Neue Watchlist-Einträge werden in derselben
+     * Transaktion angelegt und erst nach dem Commit in den Cache übernommen.
+     */
+    private void writeChunk(ImportJob job, ImportType type, List<ParsedRow> chunk, long lastLine,
+                            Map<String, Long> watchlistIds, Map<Long, LocalDate> touchedWatchlists) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Map<String, Long> created = new HashMap<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Object[]> params = new ArrayList<>(chunk.size());
+                for (ParsedRow row : chunk) {
+                    if (row.symbol() != null) {
+                        row.params()[0] = resolveWatchlist(row.symbol(), row.assetType(), watchlistIds, created);
+                    }
+                    params.add(row.params());
+                }
+                for (int from = 0; from < params.size(); from += batchSize) {
+                    jdbcTemplate.batchUpdate(type.insertSql, params.subList(from, Math.min(from + batchSize, params.size())));
+                }
+                if (type != ImportType.TRANSACTIONS) {
+                    updateRollups(type == ImportType.EXPENSES ? MonthlyRollup.Kind.EXPENSE : MonthlyRollup.Kind.INCOME, chunk);
+                }
+            });
+            job.rowsImported.addAndGet(chunk.size());
+            watchlistIds.putAll(created);
+            for (ParsedRow row : chunk) {
+                if (row.symbol() != null) {
+                    touchedWatchlists.merge((Long) row.params()[0], row.date(),
+                            (first, next) -> next.isBefore(first) ? next : first);
+                }
+            }
+        } catch (RuntimeException e) {
+            job.rowsFailed.addAndGet(chunk.size());
+            reportError(job, lastLine, "Chunk mit " + chunk.size() + " Zeilen (bis Zeile " + lastLine +
+                    ") nicht gespeichert: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Fasst die Zeilen eines Chunks pro Monat und Kategorie zusammen (ein UPDATE pro Gruppe statt pro Zeile).
+     */
+    private void updateRollups(MonthlyRollup.Kind kind, List<ParsedRow> chunk) {
+        Map<LocalDate, Map<String, BigDecimal>> totals = new HashMap<>();
+        Map<LocalDate, Map<String, Long>> counts = new HashMap<>();
+        for (ParsedRow row : chunk) {
+            LocalDate month = row.date().withDayOfMonth(1);
+            String label = row.label() != null ? row.label() : MonthlyRollupService.UNCATEGORIZED;
+            totals.computeIfAbsent(month, m -> new HashMap<>()).merge(label, row.amount(), BigDecimal::add);
+            counts.computeIfAbsent(month, m -> new HashMap<>()).merge(label, 1L, Long::sum);
+        }
+        totals.forEach((month, byLabel) -> byLabel.forEach((label, total) ->
+                monthlyRollupService.recordMonth(kind, month, label, total, counts.get(month).get(label))));
+    }
+
+    private Long resolveWatchlist(String symbol, String assetType, Map<String, Long> watchlistIds,
+                                  Map<String, Long> created) {
+        Long id = watchlistIds.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        return created.computeIfAbsent(symbol, key -> cryptoWatchlistRepository.findBySymbolIgnoreCase(key)
+                .orElseGet(() -> cryptoWatchlistRepository.save(
+                        new CryptoWatchlist(key, key, assetType != null ? assetType.toLowerCase() : "crypto")))
+                .getId());
+    }
+
+    // Fehler einer einzelnen Zeile (die Zeilen eines fehlgeschlagenen Chunks zählt writeChunk)
+    private void rejectRow(ImportJob job, long line, String message) {
+        job.rowsFailed.incrementAndGet();
+        reportError(job, line, message);
+    }
+
+    private void reportError(ImportJob job, Long line, String message) {
+        synchronized (job.errors) {
+            if (job.errors.size() < maxReportedErrors) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("line", line);
+                error.put("error", message);
+                job.errors.add(error);
+            }
+        }
+    }
+
+    private void remember(ImportJob job) {
+        synchronized (finishedJobIds) {
+            finishedJobIds.addLast(job.id);
+            while (finishedJobIds.size() > historySize) {
+                jobs.remove(finishedJobIds.removeFirst());
+            }
+        }
+    }
+
+    private static String text(Map<String, Object> record, String field) {
+        Object value = record.get(field);
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private static BigDecimal requireDecimal(Map<String, Object> record, String field) {
+        String value = text(record, field);
+        if (value == null) {
+            throw new IllegalArgumentException(field + " fehlt");
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " ist keine Zahl: " + value);
+        }
+    }
+
+    private static LocalDate requireDate(Map<String, Object> record, String field) {
+        String value = text(record, field);
+        if (value == null) {
+            throw new IllegalArgumentException(field + " fehlt");
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(field + " ist kein Datum (yyyy-MM-dd): " + value);
+        }
+    }
+
+    private static LocalDateTime requireDateTime(Map<String, Object> record, String field) {
+        String value = text(record, field);
+        if (value == null) {
+            throw new IllegalArgumentException(field + " fehlt");
+        }
+        try {
+            return value.length() <= 10 ? LocalDate.parse(value).atStartOfDay() : LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(field + " ist kein Datum (yyyy-MM-dd oder yyyy-MM-ddTHH:mm:ss): " + value);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.financemanager.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Begrenzt die gleichzeitigen Aufrufe an einen externen Provider.
+ * Ein langsamer Provider belegt so höchstens seine eigenen Plätze und nicht alle Request-Threads.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final long maxWaitMs;
+    private final Semaphore permits;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger peakActive = new AtomicInteger();
+    private final LongAdder acceptedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * @param name Name des Providers
+     * @param maxConcurrent Maximale Anzahl gleichzeitiger Aufrufe
+     * @param maxWaitMs Maximale Wartezeit auf einen freien Platz, danach wird der Aufruf abgelehnt
+     */
+    public Bulkhead(String name, int maxConcurrent, long maxWaitMs) {
+        this.name = name;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxWaitMs = Math.max(0, maxWaitMs);
+        this.permits = new Semaphore(this.maxConcurrent, true);
+    }
+
+    /**
+     * Versucht, einen Platz zu belegen.
+     *
+     * @return true, wenn der Aufruf ausgeführt werden darf (danach {@link #release()} aufrufen)
+     * @throws InterruptedException wenn der Thread während des Wartens unterbrochen wird
+     */
+    public boolean tryAcquire() throws InterruptedException {
+        if (!permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS)) {
+            rejectedCount.increment();
+            return false;
+        }
+        acceptedCount.increment();
+        peakActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+        return true;
+    }
+
+    public void release() {
+        active.decrementAndGet();
+        permits.release();
+    }
+
+    /**
+     * Liefert Auslastung und Zähler des Bulkheads.
+     *
+     * @return Map mit Statusinformationen
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("name", name);
+        status.put("maxConcurrent", maxConcurrent);
+        status.put("maxWaitMs", maxWaitMs);
+        status.put("active", active.get());
+        status.put("peakActive", peakActive.get());
+        status.put("acceptedCount", acceptedCount.sum());
+        status.put("rejectedCount", rejectedCount.sum());
+        return status;
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.financemanager.service;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Circuit Breaker für einen externen Provider.
+ * Zustände:
+ * - CLOSED: Aufrufe laufen durch; die Ergebnisse der letzten Aufrufe werden in einem Fenster gezählt
+ * - OPEN: Fehlerquote im Fenster über dem Schwellwert, Aufrufe werden sofort abgelehnt
+ * - HALF_OPEN: nach Ablauf der Wartezeit werden einige Probeaufrufe zugelassen;
+ *   sind alle erfolgreich, schließt der Breaker, sonst öffnet er erneut
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationMs;
+    private final int halfOpenCalls;
+
+    // Ringpuffer der letzten Ergebnisse (true = Fehler)
+    private final boolean[] window;
+    private int windowPosition;
+    private int windowCount;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long openedAtMillis;
+    private int halfOpenPermitsIssued;
+    private int halfOpenSuccesses;
+
+    private long successCount;
+    private long failureCount;
+    private long rejectedCount;
+    private long openCount;
+    private Instant lastStateChange = Instant.now();
+
+    /**
+     * @param name Name des Providers
+     * @param windowSize Anzahl der letzten Aufrufe, über die die Fehlerquote berechnet wird
+     * @param minimumCalls Mindestanzahl Aufrufe im Fenster, bevor der Breaker öffnen kann
+     * @param failureRateThreshold Fehlerquote in Prozent, ab der der Breaker öffnet
+     * @param openDurationMs Wartezeit im Zustand OPEN bis zu den ersten Probeaufrufen
+     * @param halfOpenCalls Anzahl der Probeaufrufe im Zustand HALF_OPEN
+     */
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                          long openDurationMs, int halfOpenCalls) {
+        this.name = name;
+        this.windowSize = Math.max(1, windowSize);
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.windowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMs = openDurationMs;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.window = new boolean[this.windowSize];
+    }
+
+    /**
+     * Prüft, ob ein Aufruf zugelassen wird. Im Zustand OPEN wird nach Ablauf
+     * der Wartezeit in HALF_OPEN gewechselt.
+     *
+     * @return true, wenn der Aufruf ausgeführt werden darf
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAtMillis >= openDurationMs) {
+            transitionTo(State.HALF_OPEN);
+        }
+
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (halfOpenPermitsIssued < halfOpenCalls) {
+                    halfOpenPermitsIssued++;
+                    return true;
+                }
+                rejectedCount++;
+                return false;
+            default:
+                rejectedCount++;
+                return false;
+        }
+    }
+
+    /**
+     * Meldet einen erfolgreichen Aufruf.
+     */
+    public synchronized void onSuccess() {
+        successCount++;
+        if (state == State.HALF_OPEN) {
+            halfOpenSuccesses++;
+            if (halfOpenSuccesses >= halfOpenCalls) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        record(false);
+    }
+
+    /**
+     * Meldet einen fehlgeschlagenen Aufruf (Timeout, Verbindungsfehler, 5xx, 429).
+     */
+    public synchronized void onFailure() {
+        failureCount++;
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && windowCount >= minimumCalls && getFailureRate() >= failureRateThreshold) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    /**
+     * Gibt eine Erlaubnis zurück, deren Aufruf nie ausgeführt wurde (z.B. Bulkhead voll).
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenPermitsIssued > 0) {
+            halfOpenPermitsIssued--;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Liefert den Zustand und die Zähler des Breakers.
+     *
+     * @return Map mit Statusinformationen
+     */
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("name", name);
+        status.put("state", state.name());
+        status.put("failureRate", getFailureRate());
+        status.put("windowCalls", windowCount);
+        status.put("successCount", successCount);
+        status.put("failureCount", failureCount);
+        status.put("rejectedCount", rejectedCount);
+        status.put("openCount", openCount);
+        status.put("lastStateChange", lastStateChange.toString());
+        if (state == State.OPEN) {
+            status.put("retryInMs", Math.max(0, openDurationMs - (System.currentTimeMillis() - openedAtMillis)));
+        }
+        return status;
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    private double getFailureRate() {
+        return windowCount == 0 ? 0.0 : windowFailures * 100.0 / windowCount;
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == windowSize) {
+            if (window[windowPosition]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowPosition] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowPosition = (windowPosition + 1) % windowSize;
+    }
+
+    private void transitionTo(State newState) {
+        if (state == newState) {
+            return;
+        }
+        state = newState;
+        lastStateChange = Instant.now();
+        halfOpenPermitsIssued = 0;
+        halfOpenSuccesses = 0;
+
+        if (newState == State.OPEN) {
+            openedAtMillis = System.currentTimeMillis();
+            openCount++;
+            System.err.println("Circuit breaker '" + name + "' opened");
+        } else if (newState == State.CLOSED) {
+            // Neues Fenster, damit alte Fehler den Breaker nicht sofort wieder öffnen
+            windowPosition = 0;
+            windowCount = 0;
+            windowFailures = 0;
+        }
+    }
+}
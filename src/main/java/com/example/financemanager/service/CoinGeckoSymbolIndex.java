@@ -0,0 +1,387 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.dto.CoinGeckoCoin;
+import com.example.financemanager.dto.CoinGeckoMarket;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Index Symbol → CoinGecko-ID für alle bei CoinGecko gelisteten Coins.
+ * Bietet:
+ * - Kompakte Ablage als sortierte, parallele Arrays (Suche per Binärsuche, ein Eintrag pro Symbol)
+ * - Auflösung mehrdeutiger Symbole über den Rang nach Marktkapitalisierung
+ * - Laden beim Start aus einem lokalen Snapshot (CSV) bzw. dem mitgelieferten Startbestand, ohne Netzwerk
+ * - Periodische Aktualisierung im Hintergrund aus /coins/list und /coins/markets
+ */
+@Component
+public class CoinGeckoSymbolIndex {
+
+    /**
+     * Rang für Coins ohne bekannte Marktkapitalisierung.
+     */
+    static final int UNRANKED = Integer.MAX_VALUE;
+
+    private static final String SEED_RESOURCE = "/coingecko-index-seed.csv";
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private ProviderGuards providerGuards;
+
+    // Index im Hintergrund aus der CoinGecko-API aktualisieren
+    @Value("${coingecko.index.refresh.enabled:true}")
+    private boolean refreshEnabled;
+
+    // Alter, ab dem der Index neu geladen wird
+    @Value("${coingecko.index.max-age-ms:86400000}")
+    private long maxAgeMs;
+
+    // Anzahl der /coins/markets-Seiten (je 250 Coins) für die Ränge nach Marktkapitalisierung
+    @Value("${coingecko.index.rank-pages:4}")
+    private int rankPages;
+
+    // Lokaler Snapshot des Index, damit der Start kein Netzwerk braucht
+    @Value("${coingecko.index.snapshot-path:data/coingecko-index.csv}")
+    private String snapshotPath;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile String lastError;
+
+    /**
+     * Unveränderlicher Stand des Index. Die Arrays sind nach Symbol sortiert;
+     * an Position i stehen Symbol, gewählte Coin-ID, Name und Rang desselben Eintrags.
+     */
+    public static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(new String[0], new String[0], new String[0], new int[0],
+                Instant.EPOCH, false);
+
+        private final String[] symbols;
+        private final String[] ids;
+        private final String[] names;
+        private final int[] ranks;
+        private final Instant generatedAt;
+        private final boolean complete;
+
+        Snapshot(String[] symbols, String[] ids, String[] names, int[] ranks, Instant generatedAt, boolean complete) {
+            this.symbols = symbols;
+            this.ids = ids;
+            this.names = names;
+            this.ranks = ranks;
+            this.generatedAt = generatedAt;
+            this.complete = complete;
+        }
+
+        /**
+         * @return Position des Symbols oder ein negativer Wert, wenn es fehlt
+         */
+        public int indexOf(String symbol) {
+            return Arrays.binarySearch(symbols, normalize(symbol));
+        }
+
+        public int size() {
+            return symbols.length;
+        }
+
+        public String symbol(int index) {
+            return symbols[index];
+        }
+
+        public String id(int index) {
+            return ids[index];
+        }
+
+        public String name(int index) {
+            return names[index];
+        }
+
+        public int rank(int index) {
+            return ranks[index];
+        }
+
+        public Instant generatedAt() {
+            return generatedAt;
+        }
+
+        /**
+         * Ob der Stand aus der vollständigen Coin-Liste stammt (und nicht nur aus dem Startbestand).
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+
+    /**
+     * Lädt den Index beim Start aus dem lokalen Snapshot, sonst aus dem mitgelieferten Startbestand.
+     */
+    @PostConstruct
+    void loadLocal() {
+        Path path = Paths.get(snapshotPath);
+        if (Files.isReadable(path)) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                snapshot = readCsv(reader);
+                return;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Could not read CoinGecko index snapshot " + path + ": " + e.getMessage());
+            }
+        }
+
+        try (InputStream in = CoinGeckoSymbolIndex.class.getResourceAsStream(SEED_RESOURCE)) {
+            if (in != null) {
+                snapshot = readCsv(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read CoinGecko index seed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Lädt den Index neu, wenn er nur aus dem Startbestand besteht oder älter als max-age ist.
+     */
+    @Scheduled(initialDelayString = "${coingecko.index.refresh.initial-delay-ms:15000}",
+            fixedDelayString = "${coingecko.index.refresh.interval-ms:3600000}")
+    public void refreshIfStale() {
+        Snapshot current = snapshot;
+        boolean stale = !current.isComplete() ||
+                Duration.between(current.generatedAt(), Instant.now()).toMillis() > maxAgeMs;
+        if (refreshEnabled && stale) {
+            refresh();
+        }
+    }
+
+    /**
+     * Lädt die Coin-Liste und die Ränge von CoinGecko, tauscht den Index aus und schreibt den Snapshot.
+     * Bei Fehlern bleibt der bisherige Index bestehen.
+     *
+     * @return true, wenn der Index ausgetauscht wurde
+     */
+    public boolean refresh() {
+        try {
+            CoinGeckoCoin[] coins = providerGuards.call(ProviderGuards.COINGECKO,
+                    () -> restTemplate.getForObject("https://api.coingecko.com/api/v3/coins/list", CoinGeckoCoin[].class));
+            if (coins == null || coins.length == 0) {
+                throw new RuntimeException("Empty coin list from CoinGecko");
+            }
+
+            Snapshot loaded = build(Arrays.asList(coins), loadRanks(), Instant.now());
+            snapshot = loaded;
+            lastError = null;
+            writeSnapshot(loaded);
+            return true;
+        } catch (RuntimeException e) {
+            lastError = e.getMessage();
+            System.err.println("CoinGecko index refresh failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Liefert die CoinGecko-ID eines Symbols.
+     *
+     * @param symbol Das Krypto-Symbol (z.B. "BTC")
+     * @return Die CoinGecko-ID (z.B. "bitcoin") oder null, wenn das Symbol unbekannt ist
+     */
+    public String findCoinId(String symbol) {
+        Snapshot current = snapshot;
+        int index = current.indexOf(symbol);
+        return index >= 0 ? current.id(index) : null;
+    }
+
+    /**
+     * Prüft, ob ein Symbol zu einem Coin mit bekannter Marktkapitalisierung gehört.
+     * Nicht gerankte Tokens zählen nicht, da ihre Symbole oft mit Aktien-Tickern kollidieren.
+     *
+     * @param symbol Das zu prüfende Symbol
+     * @return true für gerankte Kryptowährungen
+     */
+    public boolean isRankedCoin(String symbol) {
+        Snapshot current = snapshot;
+        int index = current.indexOf(symbol);
+        return index >= 0 && current.rank(index) != UNRANKED;
+    }
+
+    /**
+     * Ob der Index die vollständige Coin-Liste enthält. Nur dann gilt ein fehlendes Symbol als unbekannt.
+     */
+    public boolean isComplete() {
+        return snapshot.isComplete();
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Liefert Größe, Alter und Herkunft des Index.
+     *
+     * @return Map mit Statusinformationen
+     */
+    public Map<String, Object> getStatus() {
+        Snapshot current = snapshot;
+        Map<String, Object> status = new HashMap<>();
+        status.put("size", current.size());
+        status.put("complete", current.isComplete());
+        status.put("generatedAt", current.generatedAt().toString());
+        status.put("snapshotPath", snapshotPath);
+        status.put("lastError", lastError);
+        return status;
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    /**
+     * Lädt die Ränge nach Marktkapitalisierung seitenweise; fehlende Seiten werden übersprungen.
+     */
+    private Map<String, Integer> loadRanks() {
+        Map<String, Integer> ranks = new HashMap<>();
+        for (int page = 1; page <= rankPages; page++) {
+            String url = "https://api.coingecko.com/api/v3/coins/markets?vs_currency=usd" +
+                    "&order=market_cap_desc&per_page=250&page=" + page;
+            try {
+                CoinGeckoMarket[] markets = providerGuards.call(ProviderGuards.COINGECKO,
+                        () -> restTemplate.getForObject(url, CoinGeckoMarket[].class));
+                if (markets == null || markets.length == 0) {
+                    break;
+                }
+                for (CoinGeckoMarket market : markets) {
+                    if (market.id() != null && market.marketCapRank() != null) {
+                        ranks.put(market.id(), market.marketCapRank());
+                    }
+                }
+            } catch (RuntimeException e) {
+                System.err.println("CoinGecko market ranks page " + page + " failed: " + e.getMessage());
+                break;
+            }
+        }
+        return ranks;
+    }
+
+    /**
+     * Baut den Index: pro Symbol gewinnt der Coin mit dem besten Rang,
+     * bei gleichem Rang (meist ungerankt) die kürzeste ID.
+     */
+    static Snapshot build(List<CoinGeckoCoin> coins, Map<String, Integer> ranks, Instant generatedAt) {
+        Map<String, CoinGeckoCoin> best = new TreeMap<>();
+        Map<String, Integer> bestRank = new HashMap<>();
+        for (CoinGeckoCoin coin : coins) {
+            if (coin.id() == null || coin.symbol() == null || coin.symbol().isBlank() || coin.symbol().contains(",")) {
+                continue;
+            }
+            String symbol = normalize(coin.symbol());
+            int rank = ranks.getOrDefault(coin.id(), UNRANKED);
+            CoinGeckoCoin current = best.get(symbol);
+            if (current == null || rank < bestRank.get(symbol) ||
+                    (rank == bestRank.get(symbol) && coin.id().length() < current.id().length())) {
+                best.put(symbol, coin);
+                bestRank.put(symbol, rank);
+            }
+        }
+
+        int size = best.size();
+        String[] symbols = new String[size];
+        String[] ids = new String[size];
+        String[] names = new String[size];
+        int[] rankArray = new int[size];
+        int i = 0;
+        for (Map.Entry<String, CoinGeckoCoin> entry : best.entrySet()) {
+            symbols[i] = entry.getKey();
+            ids[i] = entry.getValue().id();
+            names[i] = entry.getValue().name() != null ? entry.getValue().name() : entry.getValue().id();
+            rankArray[i] = bestRank.get(entry.getKey());
+            i++;
+        }
+        return new Snapshot(symbols, ids, names, rankArray, generatedAt, true);
+    }
+
+    /**
+     * Liest einen Snapshot im Format "symbol,id,rank,name" (Rang 0 = ungerankt).
+     * Kommentarzeilen beginnen mit "#"; "# generatedAt=..." kennzeichnet einen vollständigen Snapshot.
+     */
+    private static Snapshot readCsv(BufferedReader reader) throws IOException {
+        Instant generatedAt = Instant.EPOCH;
+        boolean complete = false;
+        List<CoinGeckoCoin> coins = new ArrayList<>();
+        Map<String, Integer> ranks = new HashMap<>();
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("# generatedAt=")) {
+                generatedAt = Instant.parse(line.substring("# generatedAt=".length()).trim());
+                complete = true;
+                continue;
+            }
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            // Der Name steht zuletzt und darf Kommas enthalten
+            String[] fields = line.split(",", 4);
+            if (fields.length < 4) {
+                continue;
+            }
+            int rank = Integer.parseInt(fields[2].trim());
+            coins.add(new CoinGeckoCoin(fields[1].trim(), fields[0].trim(), fields[3].trim()));
+            if (rank > 0) {
+                ranks.put(fields[1].trim(), rank);
+            }
+        }
+
+        Snapshot loaded = build(coins, ranks, generatedAt);
+        return new Snapshot(loaded.symbols, loaded.ids, loaded.names, loaded.ranks, generatedAt, complete);
+    }
+
+    /**
+     * Schreibt den Snapshot zuerst in eine temporäre Datei und ersetzt dann den alten,
+     * damit ein Abbruch nie eine halbe Datei hinterlässt.
+     */
+    private void writeSnapshot(Snapshot data) {
+        Path path = Paths.get(snapshotPath).toAbsolutePath();
+        try {
+            Files.createDirectories(path.getParent());
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writer.write("# generatedAt=" + data.generatedAt());
+                writer.newLine();
+                writer.write("# symbol,id,rank,name");
+                writer.newLine();
+                for (int i = 0; i < data.size(); i++) {
+                    int rank = data.rank(i) == UNRANKED ? 0 : data.rank(i);
+                    String name = data.name(i).replace('\n', ' ').replace('\r', ' ');
+                    writer.write(data.symbol(i) + "," + data.id(i) + "," + rank + "," + name);
+                    writer.newLine();
+                }
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not write CoinGecko index snapshot " + path + ": " + e.getMessage());
+        }
+    }
+
+    static String normalize(String symbol) {
+        return symbol.trim().toUpperCase(Locale.ROOT);
+    }
+}
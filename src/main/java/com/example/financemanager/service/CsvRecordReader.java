@@ -0,0 +1,118 @@
+package com.example.financemanager.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Liest CSV-Datensätze zeichenweise aus einem Reader (RFC 4180: Trennzeichen ',' oder ';',
+ * Felder in Anführungszeichen dürfen Trennzeichen, Zeilenumbrüche und "" enthalten).
+ * Es wird immer nur ein Datensatz im Speicher gehalten.
+ */
+class CsvRecordReader {
+
+    private final Reader reader;
+    private final char delimiter;
+    private int pushedBack = -2;
+    private long lineBreaks;
+    private boolean afterCarriageReturn;
+    private long recordLine;
+
+    CsvRecordReader(Reader reader, char delimiter) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Liest den nächsten Datensatz; leere Zeilen werden übersprungen.
+     *
+     * @return Felder des Datensatzes oder null am Ende der Eingabe
+     */
+    List<String> next() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            if (c == '\r' || c == '\n') {
+                continue;
+            }
+            unread(c);
+            recordLine = lineBreaks + 1;
+            return readRecord();
+        }
+    }
+
+    /**
+     * Zeile der Eingabe (ab 1), in der der zuletzt gelesene Datensatz beginnt.
+     */
+    long recordLine() {
+        return recordLine;
+    }
+
+    private List<String> readRecord() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        while (true) {
+            int c = read();
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Unerwartetes Dateiende in einem Feld mit Anführungszeichen");
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        unread(next);
+                    }
+                } else {
+                    field.append((char) c);
+                }
+                continue;
+            }
+
+            if (c == -1 || c == '\n' || c == '\r') {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        unread(next);
+                    }
+                }
+                fields.add(field.toString());
+                return fields;
+            }
+            if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else {
+                field.append((char) c);
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != -2) {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        int c = reader.read();
+        // Physische Zeilen zählen ("\r\n" ist ein Umbruch)
+        if (c == '\r' || (c == '\n' && !afterCarriageReturn)) {
+            lineBreaks++;
+        }
+        afterCarriageReturn = c == '\r';
+        return c;
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+}
@@ -1,15 +1,34 @@
 package com.example.financemanager.service;
 
+import com.example.financemanager.dto.CoinGeckoMarketChart;
+import com.example.financemanager.dto.CoinGeckoPrice;
+import com.example.financemanager.dto.ExchangeRateResponse;
+import com.example.financemanager.dto.TwelveDataTimeSeries;
 import com.example.financemanager.model.CurrencyRate;
+import com.example.financemanager.service.PriceCache.PriceKey;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.client.RestClientException;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Service-Klasse für die Kommunikation mit externen Finanz-APIs.
@@ -21,8 +40,33 @@ import java.util.Map;
 @Service
 public class ExternalApiService {
 
-    // RestTemplate für HTTP-Anfragen an externe APIs
-    private final RestTemplate restTemplate = new RestTemplate();
+    // RestTemplate für HTTP-Anfragen an externe APIs (gepoolt, mit Timeouts - siehe HttpClientConfig)
+    @Autowired
+    private RestTemplate restTemplate;
+
+    // Cache für aktuelle Preise (TTL, Single-Flight)
+    @Autowired
+    private PriceCache priceCache;
+
+    // Circuit Breaker und Bulkheads pro Provider
+    @Autowired
+    private ProviderGuards providerGuards;
+
+    // Aktienkurs-Provider mit Hedging (TwelveData, Yahoo)
+    @Autowired
+    private HedgedPriceFetcher hedgedPriceFetcher;
+
+    // TwelveData-Provider, zusätzlich für Batch-Quotes
+    @Autowired
+    private TwelveDataPriceProvider twelveDataPriceProvider;
+
+    // Index Symbol → CoinGecko-ID (aus /coins/list, aufgelöst über die Marktkapitalisierung)
+    @Autowired
+    private CoinGeckoSymbolIndex coinGeckoSymbolIndex;
+
+    // Matrix der Wechselkurse (eine Tabelle pro Basiswährung, Kreuzkurse über USD)
+    @Autowired
+    private FxRateCache fxRateCache;
 
     // API-Schlüssel für TwelveData (Aktien-API) - aus application.properties
     @Value("${twelvedata.api.key:}")
@@ -32,22 +76,37 @@ public class ExternalApiService {
     @Value("${exchangerate.api.key:}")
     private String exchangeRateApiKey;
 
+    // Wechselkurs-Tabellen im Hintergrund aktualisieren
+    @Value("${fx.refresh.enabled:true}")
+    private boolean fxRefreshEnabled;
+
+    // Basiswährungen, deren Tabellen zusätzlich zur Pivot-Währung vorgehalten werden
+    @Value("${fx.refresh.bases:USD}")
+    private Set<String> fxRefreshBases;
+
+    // Maximale Anzahl CoinGecko-IDs pro simple/price-Aufruf
+    @Value("${coingecko.batch.size:100}")
+    private int coinGeckoBatchSize;
+
+    // Maximale Anzahl Symbole pro TwelveData-Quote-Aufruf (jedes Symbol kostet einen API-Credit)
+    @Value("${twelvedata.batch.size:8}")
+    private int twelveDataBatchSize;
+
+    // Obergrenze für die Länge der kommagetrennten Symbol-Liste in einer URL
+    @Value("${providers.batch.max-url-param-length:1500}")
+    private int maxBatchParamLength;
+
     /**
-     * Mapping von Kryptowährungs-Symbolen zu CoinGecko-IDs.
-     * CoinGecko verwendet spezifische IDs anstelle der üblichen Ticker-Symbole.
+     * Typ der CoinGecko-Antwort von simple/price: Coin-ID → Preis, z.B. bitcoin → {usd, usd_24h_change}.
      */
-    private static final Map<String, String> CRYPTO_SYMBOL_TO_ID = Map.of(
-            "BTC", "bitcoin",
-            "ETH", "ethereum",
-            "ADA", "cardano",
-            "DOT", "polkadot",
-            "XRP", "ripple",
-            "LTC", "litecoin",
-            "USDT", "tether",
-            "SOL", "solana",
-            "USDC", "usd-coin",
-            "BNB", "binancecoin"
-    );
+    private static final ParameterizedTypeReference<Map<String, CoinGeckoPrice>> COINGECKO_SIMPLE_PRICE =
+            new ParameterizedTypeReference<>() {};
+
+    /**
+     * Datumsformat für start_date/end_date der TwelveData-Zeitreihen (UTC).
+     */
+    private static final DateTimeFormatter TWELVEDATA_DATE_TIME =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneOffset.UTC);
 
     /**
      * Prüft, ob ein Symbol eine bekannte Kryptowährung repräsentiert.
@@ -56,7 +115,7 @@ public class ExternalApiService {
      * @return true wenn es sich um eine Kryptowährung handelt, false sonst
      */
     public boolean isCryptoSymbol(String symbol) {
-        return CRYPTO_SYMBOL_TO_ID.containsKey(symbol.toUpperCase());
+        return coinGeckoSymbolIndex.isRankedCoin(symbol);
     }
 
     /**
@@ -71,13 +130,22 @@ public class ExternalApiService {
 
     /**
      * Konvertiert ein Krypto-Symbol zu seiner entsprechenden CoinGecko-ID.
+     * Solange nur der Startbestand des Index geladen ist, wird für unbekannte Symbole
+     * das kleingeschriebene Symbol versucht.
      *
      * @param symbol Das Krypto-Symbol (z.B. "BTC")
      * @return Die entsprechende CoinGecko-ID (z.B. "bitcoin")
+     * @throws IllegalArgumentException wenn das Symbol in der vollständigen Coin-Liste fehlt
      */
     private String getCoinGeckoId(String symbol) {
-        String upperSymbol = symbol.toUpperCase();
-        return CRYPTO_SYMBOL_TO_ID.getOrDefault(upperSymbol, symbol.toLowerCase());
+        String coinId = coinGeckoSymbolIndex.findCoinId(symbol);
+        if (coinId != null) {
+            return coinId;
+        }
+        if (coinGeckoSymbolIndex.isComplete()) {
+            throw new IllegalArgumentException("Unknown crypto symbol: " + symbol);
+        }
+        return symbol.toLowerCase();
     }
 
     /**
@@ -107,7 +175,7 @@ public class ExternalApiService {
     }
 
     /**
-     * Ruft aktuelle Kryptowährungsdaten von der CoinGecko-API ab.
+     * Ruft aktuelle Kryptowährungsdaten ab, bevorzugt aus dem Preis-Cache.
      *
      * @param symbol Das Kryptowährungs-Symbol
      * @param vsCurrency Die Zielwährung (z.B. "usd", "eur")
@@ -115,165 +183,282 @@ public class ExternalApiService {
      * @throws RuntimeException bei API-Fehlern oder leeren Antworten
      */
     public Map<String, Object> getCryptoCurrentPrice(String symbol, String vsCurrency) {
+        return priceCache.get(PriceKey.of(symbol, "crypto", vsCurrency),
+                () -> fetchCryptoCurrentPrice(symbol, vsCurrency));
+    }
+
+    /**
+     * Ruft aktuelle Kryptowährungsdaten von der CoinGecko-API ab.
+     *
+     * @param symbol Das Kryptowährungs-Symbol
+     * @param vsCurrency Die Zielwährung (z.B. "usd", "eur")
+     * @return Map mit Preis (price), 24h-Änderung (change_percent) und Währung (currency)
+     * @throws RuntimeException bei API-Fehlern oder leeren Antworten
+     */
+    private Map<String, Object> fetchCryptoCurrentPrice(String symbol, String vsCurrency) {
         String coinId = getCoinGeckoId(symbol);
         String url = "https://api.coingecko.com/api/v3/simple/price?ids=" + coinId +
                 "&vs_currencies=" + vsCurrency.toLowerCase() +
                 "&include_24hr_change=true";
 
         try {
-            // Sendet die HTTP-GET-Anfrage und erwartet eine Antwort als Map
-            Map<String, Object> response = restTemplate.getForObject(url, Map.class);
+            // Sendet die HTTP-GET-Anfrage; die Antwort wird direkt typisiert gelesen
+            Map<String, CoinGeckoPrice> response = getCoinGeckoSimplePrice(url);
 
             if (response == null || response.isEmpty()) {
                 throw new RuntimeException("Empty response from CoinGecko for symbol: " + symbol);
             }
 
             // Behandlung von Fällen, wo die API einen anderen Schlüssel als erwartet zurückgibt
-            if (!response.containsKey(coinId) && response.size() == 1) {
-                String actualKey = response.keySet().iterator().next();
-                Map<String, Object> altResponse = new HashMap<>();
-                altResponse.put(coinId, response.get(actualKey));
-                return altResponse;
+            CoinGeckoPrice coinPrice = response.get(coinId);
+            if (coinPrice == null && response.size() == 1) {
+                coinPrice = response.values().iterator().next();
             }
-
-            return response;
+            if (coinPrice == null || coinPrice.price() == null) {
+                throw new RuntimeException("No valid price found for " + symbol);
+            }
+            return coinPrice.toPriceMap();
         } catch (RestClientException e) {
             throw new RuntimeException("CoinGecko API error for " + symbol + ": " + e.getMessage());
         }
     }
 
     /**
-     * Ruft aktuelle Aktiendaten ab mit Fallback-Mechanismus.
-     * Versucht zuerst TwelveData, dann alternative APIs.
+     * Ruft aktuelle Kryptowährungsdaten für mehrere Symbole mit möglichst wenigen
+     * CoinGecko-Aufrufen ab. Gecachte Preise werden direkt verwendet; die übrigen IDs werden
+     * in Chunks (coingecko.batch.size, URL-Länge) aufgeteilt, die Antworten pro Symbol zerlegt
+     * und im Preis-Cache abgelegt.
      *
-     * @param symbol Das Aktien-Symbol (z.B. "AAPL", "TSLA")
-     * @return Map mit aktuellen Aktiendaten
+     * @param symbols Die Kryptowährungs-Symbole
+     * @param vsCurrency Die Zielwährung (z.B. "usd", "eur")
+     * @return Map Symbol → Antwort im Format von {@link #getCryptoCurrentPrice}; Symbole ohne Daten fehlen
      */
-    public Map<String, Object> getStockCurrentPrice(String symbol) {
-        // Priorität: TwelveData API wenn verfügbar, sonst Fallback-Alternativen
-        if (twelveDataApiKey != null && !twelveDataApiKey.trim().isEmpty()) {
-            try {
-                return getTwelveDataStockPrice(symbol);
-            } catch (Exception e) {
-                System.err.println("TwelveData failed for " + symbol + ": " + e.getMessage());
-                // Fall through to alternative
-            }
-        }
-
-        // wenn TwelveData nicht verfügbar oder fehlschlägt
-        return getAlternativeStockPrice(symbol);
+    public Map<String, Map<String, Object>> getCryptoCurrentPrices(Collection<String> symbols, String vsCurrency) {
+        return loadCryptoCurrentPrices(symbols, vsCurrency, true);
     }
 
     /**
-     * Ruft Aktiendaten von der TwelveData-API ab.
+     * Lädt die Krypto-Preise ohne Cache-Abfrage neu und legt sie im Preis-Cache ab.
+     * Wird vom Hintergrund-Refresher verwendet.
      *
-     * @param symbol Das Aktien-Symbol
-     * @return Map mit Aktiendaten von TwelveData
-     * @throws RuntimeException bei API-Fehlern
+     * @param symbols Die Kryptowährungs-Symbole
+     * @param vsCurrency Die Zielwährung
+     * @return Map Symbol → Antwort; Symbole ohne Daten fehlen
      */
-    private Map<String, Object> getTwelveDataStockPrice(String symbol) {
-        String url = "https://api.twelvedata.com/quote?symbol=" + symbol.toUpperCase() +
-                "&apikey=" + twelveDataApiKey;
-
-        try {
-            Map<String, Object> response = restTemplate.getForObject(url, Map.class);
+    public Map<String, Map<String, Object>> refreshCryptoCurrentPrices(Collection<String> symbols, String vsCurrency) {
+        return loadCryptoCurrentPrices(symbols, vsCurrency, false);
+    }
 
-            if (response == null) {
-                throw new RuntimeException("Empty response from Twelve Data for symbol: " + symbol);
+    private Map<String, Map<String, Object>> loadCryptoCurrentPrices(Collection<String> symbols, String vsCurrency,
+                                                                      boolean useCache) {
+        Map<String, Map<String, Object>> result = new HashMap<>();
+
+        // Mehrere Symbole können auf dieselbe CoinGecko-ID zeigen
+        Map<String, List<String>> symbolsByCoinId = new LinkedHashMap<>();
+        for (String symbol : symbols) {
+            Map<String, Object> cached = useCache
+                    ? priceCache.getIfPresent(PriceKey.of(symbol, "crypto", vsCurrency)) : null;
+            if (cached != null) {
+                result.put(symbol, cached);
+            } else {
+                try {
+                    symbolsByCoinId.computeIfAbsent(getCoinGeckoId(symbol), id -> new ArrayList<>()).add(symbol);
+                } catch (IllegalArgumentException e) {
+                    // Unbekannte Symbole kosten keinen Provider-Aufruf
+                    System.err.println(e.getMessage());
+                }
             }
+        }
+        if (useCache) {
+            priceCache.recordMisses(symbols.size() - result.size());
+        }
 
-            // Prüfung auf API-Fehler-Antworten (code-Feld)
-            if (response.containsKey("code")) {
-                String code = response.get("code").toString();
-                String message = response.getOrDefault("message", "Unknown error").toString();
-                throw new RuntimeException("Twelve Data API Error: " + message);
-            }
+        RateLimitExceededException rateLimited = null;
+        for (List<String> coinIds : chunk(symbolsByCoinId.keySet(), coinGeckoBatchSize)) {
+            String url = "https://api.coingecko.com/api/v3/simple/price?ids=" + String.join(",", coinIds) +
+                    "&vs_currencies=" + vsCurrency.toLowerCase() +
+                    "&include_24hr_change=true";
 
-            // Prüfung auf Status-Feld (alternative Fehlerbehandlung)
-            if ("error".equals(response.get("status"))) {
-                String message = response.getOrDefault("message", "Unknown error").toString();
-                throw new RuntimeException("Twelve Data API Error: " + message);
+            try {
+                Map<String, CoinGeckoPrice> response = getCoinGeckoSimplePrice(url);
+                if (response == null) {
+                    continue;
+                }
+
+                // De-Multiplexing: jede Coin-ID bekommt eine eigene Antwort wie beim Einzelabruf
+                for (String coinId : coinIds) {
+                    CoinGeckoPrice coinPrice = response.get(coinId);
+                    if (coinPrice == null || coinPrice.price() == null) {
+                        continue;
+                    }
+                    Map<String, Object> singleResponse = coinPrice.toPriceMap();
+                    for (String symbol : symbolsByCoinId.get(coinId)) {
+                        priceCache.put(PriceKey.of(symbol, "crypto", vsCurrency), singleResponse);
+                        result.put(symbol, singleResponse);
+                    }
+                }
+            } catch (RestClientException e) {
+                System.err.println("CoinGecko batch request failed for " + coinIds + ": " + e.getMessage());
+            } catch (RateLimitExceededException e) {
+                System.err.println("CoinGecko batch request shed for " + coinIds + ": " + e.getMessage());
+                rateLimited = e;
             }
+        }
 
-            return response;
-        } catch (RestClientException e) {
-            throw new RuntimeException("Twelve Data network error for " + symbol + ": " + e.getMessage());
+        // Quote-Fehler nur weitergeben, wenn gar nichts geliefert werden konnte
+        if (rateLimited != null && result.isEmpty()) {
+            throw rateLimited;
         }
+        return result;
     }
 
     /**
-     * Fallback-Methode für Aktiendaten wenn TwelveData nicht verfügbar ist.
-     * Versucht zuerst Yahoo Finance, dann Mock-Daten.
+     * Führt einen CoinGecko simple/price-Aufruf aus und liest die Antwort typisiert.
+     */
+    private Map<String, CoinGeckoPrice> getCoinGeckoSimplePrice(String url) {
+        return providerGuards.call(ProviderGuards.COINGECKO,
+                () -> restTemplate.exchange(url, HttpMethod.GET, null, COINGECKO_SIMPLE_PRICE).getBody());
+    }
+
+    /**
+     * Ruft aktuelle Aktiendaten ab, bevorzugt aus dem Preis-Cache, sonst über die Provider
+     * (TwelveData, Yahoo; mit Hedging). Liefert kein Provider ein gültiges Ergebnis, werden
+     * Mock-Daten verwendet, aber nicht gecacht; war ein Provider nur wegen seiner Quote nicht
+     * erreichbar, wird stattdessen der Fehler weitergegeben.
      *
-     * @param symbol Das Aktien-Symbol
-     * @return Map mit Aktiendaten aus alternativen Quellen
+     * @param symbol Das Aktien-Symbol (z.B. "AAPL", "TSLA")
+     * @return Map mit aktuellen Aktiendaten
      */
-    private Map<String, Object> getAlternativeStockPrice(String symbol) {
+    public Map<String, Object> getStockCurrentPrice(String symbol) {
         try {
-            return getYahooFinancePrice(symbol);
-        } catch (Exception e) {
-            System.err.println("Yahoo Finance failed for " + symbol + ": " + e.getMessage());
-            // Letzter Fallback: Mock-Daten für Demonstrationszwecke
+            return priceCache.get(PriceKey.of(symbol, "stock", "usd"), () -> hedgedPriceFetcher.fetchQuote(symbol, Set.of()));
+        } catch (RateLimitExceededException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            System.err.println("Stock price providers failed for " + symbol + ": " + e.getMessage());
             return getMockStockPrice(symbol);
         }
     }
 
     /**
-     * Ruft Aktiendaten von Yahoo Finance ab (kostenlose API).
+     * Ruft aktuelle Aktiendaten für mehrere Symbole ab. Gecachte Preise werden direkt
+     * verwendet, neu geladene im Preis-Cache abgelegt. Mit TwelveData-Key werden die
+     * Symbole in Chunks (twelvedata.batch.size) per kommagetrennter Quote-Abfrage geladen;
+     * Symbole ohne gültige Antwort laufen einzeln über den Fallback (Yahoo, zuletzt Mock-Daten,
+     * die nicht gecacht werden).
      *
-     * @param symbol Das Aktien-Symbol
-     * @return Map mit formatierten Aktiendaten
-     * @throws RuntimeException bei API-Fehlern oder ungültiger Antwortstruktur
+     * @param symbols Die Aktien-Symbole
+     * @return Map Symbol → Antwort im Format von {@link #getStockCurrentPrice}
      */
-    private Map<String, Object> getYahooFinancePrice(String symbol) {
-        String url = "https://query1.finance.yahoo.com/v8/finance/chart/" + symbol.toUpperCase();
+    public Map<String, Map<String, Object>> getStockQuotes(Collection<String> symbols) {
+        return loadStockQuotes(symbols, true);
+    }
 
-        try {
-            Map<String, Object> response = restTemplate.getForObject(url, Map.class);
-
-            // Navigation durch die komplexe Yahoo Finance API-Struktur
-            if (response != null && response.containsKey("chart")) {
-                Map<String, Object> chart = (Map<String, Object>) response.get("chart");
-                List<Map<String, Object>> result = (List<Map<String, Object>>) chart.get("result");
-
-                if (result != null && !result.isEmpty()) {
-                    Map<String, Object> stockData = result.get(0);
-                    Map<String, Object> meta = (Map<String, Object>) stockData.get("meta");
-
-                    if (meta != null) {
-                        Map<String, Object> formattedResponse = new HashMap<>();
-                        Object regularMarketPrice = meta.get("regularMarketPrice");
-                        Object previousClose = meta.get("previousClose");
-
-                        if (regularMarketPrice != null) {
-                            double currentPrice = ((Number) regularMarketPrice).doubleValue();
-                            double prevClose = previousClose != null ?
-                                    ((Number) previousClose).doubleValue() : currentPrice;
-
-                            // Formatierung der Daten in einheitliches Format
-                            formattedResponse.put("close", currentPrice);
-                            formattedResponse.put("previous_close", prevClose);
-                            formattedResponse.put("change", currentPrice - prevClose);
-                            formattedResponse.put("change_percent",
-                                    prevClose != 0 ? ((currentPrice - prevClose) / prevClose) * 100 : 0);
-
-                            return formattedResponse;
-                        }
+    /**
+     * Lädt die Aktien-Quotes ohne Cache-Abfrage neu und legt sie im Preis-Cache ab.
+     * Wird vom Hintergrund-Refresher verwendet; Symbole ohne echte Quote fehlen im Ergebnis
+     * (keine Mock-Daten), damit der Refresher sie als Fehler zählt.
+     *
+     * @param symbols Die Aktien-Symbole
+     * @return Map Symbol → Antwort; Symbole ohne Daten fehlen
+     */
+    public Map<String, Map<String, Object>> refreshStockQuotes(Collection<String> symbols) {
+        return loadStockQuotes(symbols, false);
+    }
+
+    private Map<String, Map<String, Object>> loadStockQuotes(Collection<String> symbols, boolean useCache) {
+        Map<String, Map<String, Object>> result = new HashMap<>();
+        Set<String> distinctSymbols = new LinkedHashSet<>();
+        for (String symbol : symbols) {
+            Map<String, Object> cached = useCache ? priceCache.getIfPresent(PriceKey.of(symbol, "stock", "usd")) : null;
+            if (cached != null) {
+                result.put(symbol, cached);
+            } else {
+                distinctSymbols.add(symbol);
+            }
+        }
+        if (useCache) {
+            priceCache.recordMisses(distinctSymbols.size());
+        }
+
+        boolean batchTried = twelveDataPriceProvider.isAvailable();
+        if (batchTried) {
+            for (List<String> batch : chunk(distinctSymbols, twelveDataBatchSize)) {
+                try {
+                    result.putAll(twelveDataPriceProvider.fetchQuotes(batch));
+                } catch (Exception e) {
+                    System.err.println("TwelveData batch failed for " + batch + ": " + e.getMessage());
+                }
+            }
+        }
+
+        // Fallback pro Symbol, wenn TwelveData nicht verfügbar ist oder das Symbol nicht liefern konnte
+        RateLimitExceededException rateLimited = null;
+        for (String symbol : distinctSymbols) {
+            if (!result.containsKey(symbol)) {
+                try {
+                    result.put(symbol, hedgedPriceFetcher.fetchQuote(symbol,
+                            batchTried ? Set.of(twelveDataPriceProvider.getName()) : Set.of()));
+                } catch (RateLimitExceededException e) {
+                    rateLimited = e;
+                    continue;
+                } catch (RuntimeException e) {
+                    System.err.println("Stock price providers failed for " + symbol + ": " + e.getMessage());
+                    // Mock-Daten nur für direkte Anfragen, nie im Cache
+                    if (useCache) {
+                        result.put(symbol, getMockStockPrice(symbol));
                     }
+                    continue;
                 }
             }
-            throw new RuntimeException("Invalid Yahoo Finance response structure");
-        } catch (Exception e) {
-            throw new RuntimeException("Yahoo Finance API error: " + e.getMessage());
+            priceCache.put(PriceKey.of(symbol, "stock", "usd"), result.get(symbol));
+        }
+
+        // Quote-Fehler nur weitergeben, wenn gar nichts geliefert werden konnte
+        if (rateLimited != null && result.isEmpty()) {
+            throw rateLimited;
         }
+        return result;
+    }
+
+    /**
+     * Teilt Symbole bzw. IDs in Chunks, die sowohl die maximale Anzahl pro Aufruf als auch
+     * die maximale Länge des kommagetrennten URL-Parameters einhalten.
+     *
+     * @param values Die aufzuteilenden Werte
+     * @param maxSize Maximale Anzahl Werte pro Chunk
+     * @return Liste der Chunks in Eingabereihenfolge
+     */
+    private List<List<String>> chunk(Collection<String> values, int maxSize) {
+        List<List<String>> chunks = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int currentLength = 0;
+
+        for (String value : values) {
+            int addedLength = value.length() + (current.isEmpty() ? 0 : 1);
+            if (!current.isEmpty() &&
+                    (current.size() >= Math.max(1, maxSize) || currentLength + addedLength > maxBatchParamLength)) {
+                chunks.add(current);
+                current = new ArrayList<>();
+                currentLength = 0;
+                addedLength = value.length();
+            }
+            current.add(value);
+            currentLength += addedLength;
+        }
+
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
     }
 
     /**
      * Generiert Mock-Aktiendaten für Demonstrationszwecke.
-     * Wird als letzter Fallback verwendet wenn alle APIs fehlschlagen.
+     * Wird als letzter Fallback verwendet wenn alle APIs fehlschlagen und nie gecacht.
      *
      * @param symbol Das Aktien-Symbol
-     * @return Map mit simulierten Aktiendaten
+     * @return Map mit simulierten Aktiendaten (mock = true)
      */
     private Map<String, Object> getMockStockPrice(String symbol) {
         Map<String, Object> mockResponse = new HashMap<>();
@@ -286,8 +471,9 @@ public class ExternalApiService {
         mockResponse.put("previous_close", basePrice);
         mockResponse.put("change", change);
         mockResponse.put("change_percent", (change / basePrice) * 100);
+        mockResponse.put("mock", true);
 
-        System.out.println("Using mock data for stock: " + symbol + " (Price: " + currentPrice + ")");
+        System.err.println("Using mock data for stock: " + symbol + " (Price: " + currentPrice + ")");
         return mockResponse;
     }
 
@@ -311,41 +497,29 @@ public class ExternalApiService {
     }
 
     /**
-     * Extrahiert Kryptowährungs-Preisdaten aus CoinGecko-API-Antworten.
+     * Extrahiert Kryptowährungs-Preisdaten aus dem Preisformat von {@link CoinGeckoPrice#toPriceMap()}.
+     * Der Preis gilt in der angefragten Währung (currency).
      *
-     * @param apiResponse Die CoinGecko-API-Antwort
+     * @param apiResponse Die CoinGecko-Preisdaten
      * @param symbol Das Krypto-Symbol
      * @return Map mit normalisierten Krypto-Preisdaten
      */
     private Map<String, Object> extractCryptoPrice(Map<String, Object> apiResponse, String symbol) {
         Map<String, Object> priceData = new HashMap<>();
-        String coinId = getCoinGeckoId(symbol);
-
-        // Suche nach den Coin-Daten in der API-Antwort
-        Map<String, Object> coinData = (Map<String, Object>) apiResponse.get(coinId);
-        if (coinData == null && apiResponse.size() == 1) {
-            // Fallback: Verwende den ersten verfügbaren Schlüssel
-            coinData = (Map<String, Object>) apiResponse.get(apiResponse.keySet().iterator().next());
-        }
-
-        if (coinData == null) {
-            throw new RuntimeException("Coin data not found for " + symbol);
-        }
 
-        // Extraktion des USD-Preises
-        Double price = convertToDouble(coinData.get("usd"));
+        Double price = convertToDouble(apiResponse.get("price"));
         if (price == null) {
             throw new RuntimeException("No valid price found for " + symbol);
         }
-
         priceData.put("price", price);
 
         // Hinzufügen der 24h-Änderung falls verfügbar
-        if (coinData.containsKey("usd_24h_change")) {
-            Double change24h = convertToDouble(coinData.get("usd_24h_change"));
-            if (change24h != null) {
-                priceData.put("change_percent", change24h);
-            }
+        Double change24h = convertToDouble(apiResponse.get("change_percent"));
+        if (change24h != null) {
+            priceData.put("change_percent", change24h);
+        }
+        if (apiResponse.get("currency") != null) {
+            priceData.put("currency", apiResponse.get("currency"));
         }
 
         return priceData;
@@ -398,6 +572,11 @@ public class ExternalApiService {
             }
         }
 
+        // Simulierte Preise für den Client kenntlich machen
+        if (Boolean.TRUE.equals(apiResponse.get("mock"))) {
+            priceData.put("mock", true);
+        }
+
         return priceData;
     }
 
@@ -424,110 +603,69 @@ public class ExternalApiService {
     // ========== HISTORICAL DATA METHODS ==========
 
     /**
-     * Ruft tägliche historische Daten für Kryptowährungen ab (7 Tage).
+     * Ruft die Preispunkte einer Kryptowährung für einen Zeitraum ab.
+     * CoinGecko wählt die Auflösung selbst: bis 1 Tag 5 Minuten, bis 90 Tage stündlich, darüber täglich.
      *
      * @param symbol Das Kryptowährungs-Symbol
      * @param vsCurrency Die Zielwährung
-     * @return Map mit historischen Preisdaten
+     * @param from Beginn des Zeitraums
+     * @param to Ende des Zeitraums
+     * @return Preispunkte [Zeitstempel in ms, Preis], aufsteigend sortiert
      */
-    public Map<String, Object> getCryptoDailyData(String symbol, String vsCurrency) {
+    public List<List<Double>> getCryptoPriceRange(String symbol, String vsCurrency, Instant from, Instant to) {
         String coinId = getCoinGeckoId(symbol);
         String url = "https://api.coingecko.com/api/v3/coins/" + coinId +
-                "/market_chart?vs_currency=" + vsCurrency.toLowerCase() +
-                "&days=7&interval=daily";
+                "/market_chart/range?vs_currency=" + vsCurrency.toLowerCase() +
+                "&from=" + from.getEpochSecond() +
+                "&to=" + to.getEpochSecond();
 
         try {
-            return restTemplate.getForObject(url, Map.class);
+            CoinGeckoMarketChart response = providerGuards.call(ProviderGuards.COINGECKO,
+                    () -> restTemplate.getForObject(url, CoinGeckoMarketChart.class));
+            if (response == null) {
+                throw new RuntimeException("Empty response from CoinGecko history for " + symbol);
+            }
+            return response.pricesOrEmpty();
         } catch (RestClientException e) {
             throw new RuntimeException("CoinGecko history API error for " + symbol + ": " + e.getMessage());
         }
     }
 
     /**
-     * Ruft stündliche Intraday-Daten für Kryptowährungen ab (1 Tag).
-     *
-     * @param symbol Das Kryptowährungs-Symbol
-     * @param vsCurrency Die Zielwährung
-     * @return Map mit stündlichen Preisdaten
-     */
-    public Map<String, Object> getCryptoIntradayData(String symbol, String vsCurrency) {
-        String coinId = getCoinGeckoId(symbol);
-        String url = "https://api.coingecko.com/api/v3/coins/" + coinId +
-                "/market_chart?vs_currency=" + vsCurrency.toLowerCase() +
-                "&days=1&interval=hourly";
-
-        try {
-            return restTemplate.getForObject(url, Map.class);
-        } catch (RestClientException e) {
-            throw new RuntimeException("CoinGecko intraday API error for " + symbol + ": " + e.getMessage());
-        }
-    }
-
-    /**
-     * Ruft tägliche historische Daten für Aktien ab.
-     * Verwendet TwelveData wenn verfügbar, sonst Mock-Daten.
+     * Ruft historische Kerzen einer Aktie für einen Zeitraum von der TwelveData-API ab.
+     * Zeitangaben werden in UTC angefragt und geliefert.
      *
      * @param symbol Das Aktien-Symbol
-     * @return Map mit historischen Aktiendaten
+     * @param interval Das Zeitintervall (z.B. "5min", "1h", "1day")
+     * @param from Beginn des Zeitraums
+     * @param to Ende des Zeitraums
+     * @return Zeitreihe von TwelveData (neueste Werte zuerst)
+     * @throws RuntimeException wenn kein API-Schlüssel konfiguriert ist oder TwelveData einen Fehler meldet
      */
-    public Map<String, Object> getStockDailyData(String symbol) {
-        if (twelveDataApiKey != null && !twelveDataApiKey.trim().isEmpty()) {
-            try {
-                return getTwelveDataStockHistory(symbol, "1day", "7");
-            } catch (Exception e) {
-                System.err.println("TwelveData history failed for " + symbol + ": " + e.getMessage());
-            }
+    public TwelveDataTimeSeries getStockTimeSeries(String symbol, String interval, Instant from, Instant to) {
+        if (twelveDataApiKey == null || twelveDataApiKey.trim().isEmpty()) {
+            throw new RuntimeException("Kein TwelveData API-Schlüssel für historische Aktiendaten konfiguriert");
         }
 
-        // Fallback zu Mock-Daten für Demonstrationszwecke
-        return getMockStockHistory(symbol);
-    }
-
-    /**
-     * Ruft Intraday-Daten für Aktien ab.
-     *
-     * @param symbol Das Aktien-Symbol
-     * @param interval Das Zeitintervall (z.B. "5min", "15min", "1h")
-     * @return Map mit Intraday-Aktiendaten
-     */
-    public Map<String, Object> getStockIntradayData(String symbol, String interval) {
-        if (twelveDataApiKey != null && !twelveDataApiKey.trim().isEmpty()) {
-            try {
-                return getTwelveDataStockHistory(symbol, interval, "1");
-            } catch (Exception e) {
-                System.err.println("TwelveData intraday failed for " + symbol + ": " + e.getMessage());
-            }
-        }
-
-        // Fallback zu Mock-Daten
-        return getMockStockHistory(symbol);
-    }
-
-    /**
-     * Ruft historische Daten von der TwelveData-API ab.
-     *
-     * @param symbol Das Aktien-Symbol
-     * @param interval Das Zeitintervall
-     * @param outputsize Die Anzahl der gewünschten Datenpunkte
-     * @return Map mit historischen Daten von TwelveData
-     */
-    private Map<String, Object> getTwelveDataStockHistory(String symbol, String interval, String outputsize) {
         String url = "https://api.twelvedata.com/time_series?symbol=" + symbol.toUpperCase() +
                 "&interval=" + interval +
-                "&outputsize=" + outputsize +
+                "&start_date=" + TWELVEDATA_DATE_TIME.format(from) +
+                "&end_date=" + TWELVEDATA_DATE_TIME.format(to) +
+                "&timezone=UTC" +
+                "&outputsize=5000" +
                 "&apikey=" + twelveDataApiKey;
 
         try {
-            Map<String, Object> response = restTemplate.getForObject(url, Map.class);
+            TwelveDataTimeSeries response = providerGuards.call(ProviderGuards.TWELVEDATA,
+                    () -> restTemplate.getForObject(url, TwelveDataTimeSeries.class));
 
             if (response == null) {
                 throw new RuntimeException("Empty response from Twelve Data history");
             }
 
             // Prüfung auf API-Fehler
-            if (response.containsKey("code")) {
-                String message = response.getOrDefault("message", "Unknown error").toString();
-                throw new RuntimeException("Twelve Data History API Error: " + message);
+            if (response.isError()) {
+                throw new RuntimeException("Twelve Data History API Error: " + response.errorMessage());
             }
 
             return response;
@@ -543,7 +681,7 @@ public class ExternalApiService {
      * @param symbol Das Aktien-Symbol
      * @return Map mit simulierten historischen Daten
      */
-    private Map<String, Object> getMockStockHistory(String symbol) {
+    public Map<String, Object> getMockStockHistory(String symbol) {
         Map<String, Object> mockHistory = new HashMap<>();
         List<Map<String, Object>> values = new java.util.ArrayList<>();
 
@@ -568,27 +706,108 @@ public class ExternalApiService {
         mockHistory.put("values", values);
         mockHistory.put("status", "ok");
 
-        System.out.println("⚠️ Using mock history data for stock: " + symbol);
+        System.err.println("⚠️ Using mock history data for stock: " + symbol);
         return mockHistory;
     }
 
     // ========== EXCHANGE RATE METHODS ==========
 
     /**
-     * Hauptmethode für Wechselkurs-Abfragen mit Fallback-Mechanismus.
-     * Versucht zuerst die primäre API, dann alternative Quellen.
+     * Hauptmethode für Wechselkurs-Abfragen.
+     * Der Kurs wird aus der gecachten Kursmatrix abgeleitet (ggf. als Kreuzkurs über USD);
+     * nur wenn die benötigte Tabelle fehlt oder abgelaufen ist, wird sie neu geladen.
      *
      * @param fromCurrency Die Ausgangswährung (z.B. "USD")
      * @param toCurrency Die Zielwährung (z.B. "EUR")
      * @return CurrencyRate-Objekt mit aktuellem Wechselkurs
      */
     public CurrencyRate getExchangeRate(String fromCurrency, String toCurrency) {
+        FxRateCache.Rate rate = fxRateCache.getRate(fromCurrency, toCurrency, this::getExchangeRateTable);
+        return createCurrencyRate(rate.from(), rate.to(), rate.rate(), rate.fetchedAt());
+    }
+
+    /**
+     * Liefert alle Wechselkurse einer Basiswährung aus der Kursmatrix.
+     *
+     * @param baseCurrency Die Basiswährung
+     * @return Map mit base, rates (Währung → Kurs) und timestamp
+     */
+    public Map<String, Object> getExchangeRates(String baseCurrency) {
+        FxRateCache.RateTable table = fxRateCache.getRates(baseCurrency, this::getExchangeRateTable);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("base", table.base());
+        result.put("rates", table.rates());
+        result.put("timestamp", LocalDateTime.ofInstant(table.fetchedAt(), ZoneId.systemDefault()));
+        return result;
+    }
+
+    /**
+     * Rechnet mehrere Beträge in verschiedenen Währungen in eine Zielwährung um.
+     * Alle Kurse stammen aus der Kursmatrix, sodass auch große Listen keine zusätzlichen Abrufe auslösen.
+     *
+     * @param amounts Liste von Einträgen mit "currency" und "amount"
+     * @param toCurrency Die Zielwährung
+     * @return Map mit umgerechneten Einträgen und Gesamtsumme
+     * @throws IllegalArgumentException bei fehlender Währung oder fehlendem Betrag
+     */
+    public Map<String, Object> convertAmounts(List<Map<String, Object>> amounts, String toCurrency) {
+        List<Map<String, Object>> converted = new ArrayList<>(amounts.size());
+        BigDecimal total = BigDecimal.ZERO;
+
+        for (Map<String, Object> entry : amounts) {
+            Object currency = entry.get("currency");
+            Object amount = entry.get("amount");
+            if (currency == null || amount == null) {
+                throw new IllegalArgumentException("Jeder Eintrag benötigt 'currency' und 'amount'");
+            }
+
+            FxRateCache.Rate rate = fxRateCache.getRate(currency.toString(), toCurrency, this::getExchangeRateTable);
+            BigDecimal convertedAmount = new BigDecimal(amount.toString())
+                    .multiply(BigDecimal.valueOf(rate.rate()))
+                    .setScale(2, RoundingMode.HALF_UP);
+            total = total.add(convertedAmount);
+
+            Map<String, Object> item = new HashMap<>();
+            item.put("currency", rate.from());
+            item.put("amount", amount);
+            item.put("rate", rate.rate());
+            item.put("convertedAmount", convertedAmount);
+            converted.add(item);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("toCurrency", toCurrency.toUpperCase());
+        result.put("items", converted);
+        result.put("total", total);
+        return result;
+    }
+
+    /**
+     * Lädt die Kurstabellen der konfigurierten und bereits genutzten Basiswährungen im Hintergrund neu,
+     * damit Anfragen innerhalb der TTL nie auf einen Abruf warten.
+     */
+    @Scheduled(initialDelayString = "${fx.refresh.initial-delay-ms:5000}", fixedDelayString = "${fx.refresh.interval-ms:3000000}")
+    public void refreshExchangeRates() {
+        if (fxRefreshEnabled) {
+            fxRateCache.refresh(fxRefreshBases, this::getExchangeRateTable);
+        }
+    }
+
+    /**
+     * Lädt die vollständige Kurstabelle einer Basiswährung mit Fallback-Mechanismus.
+     * Versucht zuerst die primäre API, dann die alternative Quelle.
+     *
+     * @param baseCurrency Die Basiswährung
+     * @return Map Währung → Kurs (1 Basis = Kurs)
+     */
+    private Map<String, Double> getExchangeRateTable(String baseCurrency) {
         try {
-            return getExchangeRateFromApi(fromCurrency, toCurrency);
+            return getExchangeRatesFromApi(baseCurrency);
         } catch (Exception e) {
             try {
                 // Fallback zur alternativen API
-                return getExchangeRateFromHost(fromCurrency, toCurrency);
+                return getExchangeRatesFromHost(baseCurrency);
             } catch (Exception e2) {
                 throw new RuntimeException("All exchange rate APIs failed: " + e2.getMessage());
             }
@@ -596,56 +815,42 @@ public class ExternalApiService {
     }
 
     /**
-     * Ruft Wechselkurse von der ExchangeRate-API ab (primäre Quelle).
+     * Ruft die Kurstabelle von der ExchangeRate-API ab (primäre Quelle).
      *
-     * @param fromCurrency Die Ausgangswährung
-     * @param toCurrency Die Zielwährung
-     * @return CurrencyRate mit aktuellem Wechselkurs
+     * @param baseCurrency Die Basiswährung
+     * @return Alle Kurse der Basiswährung
      */
-    private CurrencyRate getExchangeRateFromApi(String fromCurrency, String toCurrency) {
+    private Map<String, Double> getExchangeRatesFromApi(String baseCurrency) {
         if (exchangeRateApiKey == null || exchangeRateApiKey.trim().isEmpty()) {
             throw new RuntimeException("ExchangeRate API Key not configured");
         }
 
-        String url = "https://api.exchangerate-api.com/v4/latest/" + fromCurrency.toUpperCase() +
+        String url = "https://api.exchangerate-api.com/v4/latest/" + baseCurrency.toUpperCase() +
                 "?apikey=" + exchangeRateApiKey;
 
-        Map<String, Object> response = restTemplate.getForObject(url, Map.class);
-        if (response == null) {
+        ExchangeRateResponse response = providerGuards.call(ProviderGuards.EXCHANGERATE_API,
+                () -> restTemplate.getForObject(url, ExchangeRateResponse.class));
+        if (response == null || response.rates() == null) {
             throw new RuntimeException("No response from exchangerate-api.com");
         }
-
-        // Extraktion der Wechselkurse aus der API-Antwort
-        Map<String, Double> rates = (Map<String, Double>) response.get("rates");
-        if (rates == null || !rates.containsKey(toCurrency.toUpperCase())) {
-            throw new RuntimeException("Exchange rate for " + toCurrency + " not found");
-        }
-
-        return createCurrencyRate(fromCurrency, toCurrency, rates.get(toCurrency.toUpperCase()));
+        return response.rates();
     }
 
     /**
-     * Ruft Wechselkurse von der exchangerate.host-API ab (Fallback-Quelle).
+     * Ruft die Kurstabelle von der exchangerate.host-API ab (Fallback-Quelle).
      *
-     * @param fromCurrency Die Ausgangswährung
-     * @param toCurrency Die Zielwährung
-     * @return CurrencyRate mit aktuellem Wechselkurs
+     * @param baseCurrency Die Basiswährung
+     * @return Alle Kurse der Basiswährung
      */
-    private CurrencyRate getExchangeRateFromHost(String fromCurrency, String toCurrency) {
-        String url = "https://api.exchangerate.host/latest?base=" + fromCurrency.toUpperCase() +
-                "&symbols=" + toCurrency.toUpperCase();
+    private Map<String, Double> getExchangeRatesFromHost(String baseCurrency) {
+        String url = "https://api.exchangerate.host/latest?base=" + baseCurrency.toUpperCase();
 
-        Map<String, Object> response = restTemplate.getForObject(url, Map.class);
-        if (response == null || !(Boolean)response.get("success")) {
+        ExchangeRateResponse response = providerGuards.call(ProviderGuards.EXCHANGERATE_HOST,
+                () -> restTemplate.getForObject(url, ExchangeRateResponse.class));
+        if (response == null || !Boolean.TRUE.equals(response.success()) || response.rates() == null) {
             throw new RuntimeException("exchangerate.host API error");
         }
-
-        Map<String, Double> rates = (Map<String, Double>) response.get("rates");
-        if (rates == null || !rates.containsKey(toCurrency.toUpperCase())) {
-            throw new RuntimeException("Exchange rate for " + toCurrency + " not found");
-        }
-
-        return createCurrencyRate(fromCurrency, toCurrency, rates.get(toCurrency.toUpperCase()));
+        return response.rates();
     }
 
     /**
@@ -654,14 +859,15 @@ public class ExternalApiService {
      * @param fromCurrency Die Ausgangswährung
      * @param toCurrency Die Zielwährung
      * @param rate Der Wechselkurs als Double-Wert
+     * @param fetchedAt Zeitpunkt, zu dem der Kurs geladen wurde
      * @return Vollständig konfiguriertes CurrencyRate-Objekt
      */
-    private CurrencyRate createCurrencyRate(String fromCurrency, String toCurrency, Double rate) {
+    private CurrencyRate createCurrencyRate(String fromCurrency, String toCurrency, double rate, Instant fetchedAt) {
         CurrencyRate currencyRate = new CurrencyRate();
         currencyRate.setFromCurrency(fromCurrency.toUpperCase());
         currencyRate.setToCurrency(toCurrency.toUpperCase());
         currencyRate.setRate(BigDecimal.valueOf(rate));
-        currencyRate.setTimestamp(LocalDateTime.now());
+        currencyRate.setTimestamp(LocalDateTime.ofInstant(fetchedAt, ZoneId.systemDefault()));
         return currencyRate;
     }
-}
\ No newline at end of file
+}
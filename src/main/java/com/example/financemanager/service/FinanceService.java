@@ -2,10 +2,12 @@ package com.example.financemanager.service;
 
 import com.example.financemanager.model.Expense;
 import com.example.financemanager.model.Income;
+import com.example.financemanager.model.MonthlyRollup;
 import com.example.financemanager.repository.ExpenseRepository;
 import com.example.financemanager.repository.IncomeRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -25,12 +27,27 @@ public class FinanceService {
     @Autowired
     private ExternalApiService externalApiService;
 
+    @Autowired
+    private MonthlyRollupService monthlyRollupService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Buchung und Monats-Rollup werden gemeinsam gespeichert
     public Expense addExpense(Expense expense) {
-        return expenseRepository.save(expense);
+        return transactionTemplate.execute(status -> {
+            Expense saved = expenseRepository.save(expense);
+            monthlyRollupService.record(MonthlyRollup.Kind.EXPENSE, saved.getDate(), saved.getCategory(), saved.getAmount());
+            return saved;
+        });
     }
 
     public Income addIncome(Income income) {
-        return incomeRepository.save(income);
+        return transactionTemplate.execute(status -> {
+            Income saved = incomeRepository.save(income);
+            monthlyRollupService.record(MonthlyRollup.Kind.INCOME, saved.getDate(), saved.getSource(), saved.getAmount());
+            return saved;
+        });
     }
 
     public List<Expense> getAllExpenses() {
@@ -41,28 +58,16 @@ public class FinanceService {
         return incomeRepository.findAll();
     }
 
+    // Summen per Datenbank-Aggregat statt alle Einträge zu laden
     public BigDecimal calculateBalance() {
-        BigDecimal totalIncome = incomeRepository.findAll().stream()
-                .map(Income::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal totalExpense = expenseRepository.findAll().stream()
-                .map(Expense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        return totalIncome.subtract(totalExpense);
+        return incomeRepository.sumAmount().subtract(expenseRepository.sumAmount());
     }
 
     public Map<String, BigDecimal> getExpensesByCategory() {
-        List<Expense> expenses = expenseRepository.findAll();
         Map<String, BigDecimal> categoryTotals = new HashMap<>();
-
-        for (Expense expense : expenses) {
-            String category = expense.getCategory();
-            BigDecimal currentTotal = categoryTotals.getOrDefault(category, BigDecimal.ZERO);
-            categoryTotals.put(category, currentTotal.add(expense.getAmount()));
+        for (ExpenseRepository.CategoryTotal total : expenseRepository.sumAmountByCategory()) {
+            categoryTotals.put(total.getCategory(), total.getTotal() != null ? total.getTotal() : BigDecimal.ZERO);
         }
-
         return categoryTotals;
     }
 }
@@ -0,0 +1,228 @@
+package com.example.financemanager.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Festkomma-Arithmetik auf long für Beträge und Mengen in Aggregationen.
+ * Ein Wert ist ein long mit fester Anzahl Nachkommastellen (Skala), z.B. 12.34 bei Skala 2 = 1234.
+ * Die Rechenmethoden erzeugen keine Objekte (anders als jede BigDecimal-Operation), prüfen auf Überlauf
+ * ({@link ArithmeticException}) und runden kaufmännisch (HALF_UP) wie die übrigen Berechnungen.
+ * BigDecimal bleibt das Format an den Grenzen (Datenbank, JSON); die Umrechnung ist verlustfrei,
+ * solange der Wert nicht mehr Nachkommastellen als die Skala hat.
+ */
+public final class FixedPoint {
+
+    // Nachkommastellen für Fiat-Beträge
+    public static final int MONEY_SCALE = 2;
+
+    // Nachkommastellen für Krypto-Mengen und Positionsbeträge (wie die Spalten der Position)
+    public static final int QUANTITY_SCALE = 8;
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private FixedPoint() {
+    }
+
+    // ========== UMRECHNUNG ==========
+
+    /**
+     * Verlustfreie Umrechnung eines BigDecimal (null = 0).
+     *
+     * @throws ArithmeticException wenn der Wert mehr Nachkommastellen als die Skala hat oder nicht in ein long passt
+     */
+    public static long of(BigDecimal value, int scale) {
+        if (value == null || value.signum() == 0) {
+            return 0;
+        }
+        return value.scaleByPowerOfTen(scale).longValueExact();
+    }
+
+    /**
+     * Umrechnung eines BigDecimal mit Rundung auf die Skala (null = 0).
+     *
+     * @throws ArithmeticException wenn der Wert nicht in ein long passt
+     */
+    public static long round(BigDecimal value, int scale) {
+        if (value == null || value.signum() == 0) {
+            return 0;
+        }
+        return value.setScale(scale, RoundingMode.HALF_UP).scaleByPowerOfTen(scale).longValueExact();
+    }
+
+    /**
+     * Liest eine Dezimalzahl ("65000.5", "-1.25", "1.0E-5") und rundet sie auf die Skala.
+     * Übliche Zahlen werden ohne Zwischenobjekte gelesen, alles andere über BigDecimal.
+     *
+     * @throws NumberFormatException bei ungültigem Text
+     * @throws ArithmeticException wenn der Wert nicht in ein long passt
+     */
+    public static long parse(String text, int scale) {
+        int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        boolean anyDigit = false;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean dot = false;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (digits == 18) {
+                    return round(new BigDecimal(text), scale);
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                anyDigit = true;
+                if (mantissa > 0) {
+                    digits++;
+                }
+                if (dot) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+
+        if (!anyDigit) {
+            // Kein Ziffernteil: BigDecimal meldet ungültigen Text
+            return round(new BigDecimal(text), scale);
+        }
+
+        int exponent = 0;
+        if (i < length) {
+            char c = text.charAt(i);
+            if ((c != 'e' && c != 'E') || i + 1 >= length || length - i > 5) {
+                return round(new BigDecimal(text), scale);
+            }
+            try {
+                exponent = Integer.parseInt(text, i + 1, length, 10);
+            } catch (NumberFormatException e) {
+                return round(new BigDecimal(text), scale);
+            }
+        }
+        long value = rescale(mantissa, fractionDigits - exponent, scale);
+        return negative ? -value : value;
+    }
+
+    /**
+     * Verlustfreie Umrechnung in ein BigDecimal mit der Skala.
+     */
+    public static BigDecimal toBigDecimal(long value, int scale) {
+        return BigDecimal.valueOf(value, scale);
+    }
+
+    // ========== RECHNEN ==========
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    /**
+     * Produkt zweier Werte, gerundet auf die Ergebnisskala.
+     *
+     * @throws ArithmeticException wenn das Ergebnis nicht in ein long passt
+     */
+    public static long multiply(long a, int scaleA, long b, int scaleB, int resultScale) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        if (high == (low >> 63)) {
+            return rescale(low, scaleA + scaleB, resultScale);
+        }
+        // Produkt braucht mehr als 64 Bit (z.B. Menge * Preis mit je 8 Stellen): den größeren Faktor teilen,
+        // large = q * 10^shift + r, dann small * large / 10^shift = small * q + small * r / 10^shift
+        int shift = scaleA + scaleB - resultScale;
+        if (shift > 0 && shift < POWERS_OF_TEN.length) {
+            boolean aSmaller = Math.abs(a) <= Math.abs(b);
+            long small = aSmaller ? a : b;
+            long large = aSmaller ? b : a;
+            long power = POWERS_OF_TEN[shift];
+            long remainderHigh = Math.multiplyHigh(small, large % power);
+            long remainderLow = small * (large % power);
+            if (remainderHigh == (remainderLow >> 63)) {
+                // Beide Teile haben das Vorzeichen des Produkts, die Rundung des zweiten ist damit die des Ganzen
+                return Math.addExact(Math.multiplyExact(small, large / power), divideRounded(remainderLow, power));
+            }
+        }
+        // Auch der Rest passt nicht in 64 Bit (Ergebnis kann trotzdem passen)
+        return round(BigDecimal.valueOf(a, scaleA).multiply(BigDecimal.valueOf(b, scaleB)), resultScale);
+    }
+
+    /**
+     * Quotient zweier Werte, gerundet auf die Ergebnisskala.
+     *
+     * @throws ArithmeticException bei Division durch 0 oder wenn das Ergebnis nicht in ein long passt
+     */
+    public static long divide(long a, int scaleA, long b, int scaleB, int resultScale) {
+        if (b == 0) {
+            throw new ArithmeticException("Division durch 0");
+        }
+        int shift = resultScale + scaleB - scaleA;
+        if (shift >= 0 && shift < POWERS_OF_TEN.length && b != Long.MIN_VALUE) {
+            long high = Math.multiplyHigh(a, POWERS_OF_TEN[shift]);
+            long numerator = a * POWERS_OF_TEN[shift];
+            if (high == (numerator >> 63)) {
+                return divideRounded(numerator, b);
+            }
+        }
+        return round(BigDecimal.valueOf(a, scaleA).divide(BigDecimal.valueOf(b, scaleB), resultScale, RoundingMode.HALF_UP),
+                resultScale);
+    }
+
+    /**
+     * Wechselt die Skala eines Werts (mehr Stellen exakt, weniger Stellen gerundet).
+     *
+     * @throws ArithmeticException wenn das Ergebnis nicht in ein long passt
+     */
+    public static long rescale(long value, int fromScale, int toScale) {
+        if (value == 0 || fromScale == toScale) {
+            return value;
+        }
+        if (toScale > fromScale) {
+            int shift = toScale - fromScale;
+            if (shift >= POWERS_OF_TEN.length) {
+                throw new ArithmeticException("Überlauf beim Skalieren");
+            }
+            return Math.multiplyExact(value, POWERS_OF_TEN[shift]);
+        }
+        int shift = fromScale - toScale;
+        if (shift >= POWERS_OF_TEN.length) {
+            // |value| < 10^19: nur bei genau 19 Stellen und |value| >= 5 * 10^18 wird auf 1 gerundet
+            boolean half = value >= 5_000_000_000_000_000_000L || value <= -5_000_000_000_000_000_000L;
+            return shift == POWERS_OF_TEN.length && half ? Long.signum(value) : 0;
+        }
+        return divideRounded(value, POWERS_OF_TEN[shift]);
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    // Ganzzahlige Division mit HALF_UP-Rundung (divisor != 0, kein Long.MIN_VALUE)
+    private static long divideRounded(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = Math.abs(dividend % divisor);
+        // remainder >= |divisor| / 2, ohne 2 * remainder zu bilden
+        if (remainder >= Math.abs(divisor) - remainder) {
+            quotient += (dividend < 0) == (divisor < 0) ? 1 : -1;
+        }
+        return quotient;
+    }
+}
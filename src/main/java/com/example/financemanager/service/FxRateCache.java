@@ -0,0 +1,254 @@
+package com.example.financemanager.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * In-Memory-Matrix der Wechselkurse.
+ * Bietet:
+ * - Eine Kurstabelle pro Basiswährung, die immer als Ganzes geladen und ausgetauscht wird
+ * - Ableitung beliebiger Währungspaare über die Pivot-Währung (Kreuzkurse, Standard: USD)
+ * - TTL mit Weiterverwendung veralteter Tabellen, falls alle Quellen ausfallen (bis max-stale)
+ * - Single-Flight-Laden: gleichzeitige Misses für dieselbe Basis lösen genau einen Abruf aus
+ */
+@Component
+public class FxRateCache {
+
+    // Gültigkeit einer Kurstabelle in Millisekunden
+    @Value("${fx.cache.ttl-ms:3600000}")
+    private long ttlMs;
+
+    // Wie lange eine veraltete Tabelle bei Ausfall der Quellen noch verwendet wird
+    @Value("${fx.cache.max-stale-ms:86400000}")
+    private long maxStaleMs;
+
+    // Währung, über die Kreuzkurse berechnet werden
+    @Value("${fx.pivot-currency:USD}")
+    private String pivotCurrency;
+
+    private final Map<String, RateTable> tables = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<RateTable>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder staleServed = new LongAdder();
+
+    /**
+     * Unveränderliche Kurstabelle einer Basiswährung: 1 Basis = rates[Währung].
+     */
+    public record RateTable(String base, Map<String, Double> rates, Instant fetchedAt) {
+
+        Double rate(String currency) {
+            return base.equals(currency) ? Double.valueOf(1.0) : rates.get(currency);
+        }
+
+        long ageMs() {
+            return Duration.between(fetchedAt, Instant.now()).toMillis();
+        }
+    }
+
+    /**
+     * Ein Kurs mit dem Zeitpunkt, zu dem die zugrunde liegende Tabelle geladen wurde.
+     */
+    public record Rate(String from, String to, double rate, Instant fetchedAt) {
+    }
+
+    /**
+     * Liefert den Kurs für ein Währungspaar. Direkte Kurse werden aus einer vorhandenen Tabelle
+     * der Ausgangswährung gelesen, sonst über die Pivot-Währung abgeleitet.
+     *
+     * @param from Ausgangswährung
+     * @param to Zielwährung
+     * @param loader Lädt die vollständige Kurstabelle einer Basiswährung
+     * @return Der Kurs (1 from = rate to)
+     * @throws RuntimeException wenn keine Tabelle geladen werden kann oder die Währung unbekannt ist
+     */
+    public Rate getRate(String from, String to, Function<String, Map<String, Double>> loader) {
+        String source = normalize(from);
+        String target = normalize(to);
+        if (source.equals(target)) {
+            return new Rate(source, target, 1.0, Instant.now());
+        }
+
+        // Direkter Kurs, falls die Ausgangswährung selbst als Basis geladen ist
+        RateTable direct = tables.get(source);
+        if (direct != null && !isExpired(direct) && direct.rate(target) != null) {
+            hits.increment();
+            return new Rate(source, target, direct.rate(target), direct.fetchedAt());
+        }
+
+        RateTable pivot = getTable(pivotCurrency, loader);
+        Double pivotToSource = pivot.rate(source);
+        Double pivotToTarget = pivot.rate(target);
+        if (pivotToSource != null && pivotToTarget != null && pivotToSource > 0) {
+            return new Rate(source, target, pivotToTarget / pivotToSource, pivot.fetchedAt());
+        }
+
+        // Währung fehlt in der Pivot-Tabelle: Tabelle der Ausgangswährung laden
+        RateTable own = getTable(source, loader);
+        Double rate = own.rate(target);
+        if (rate == null) {
+            throw new RuntimeException("Exchange rate for " + target + " not found");
+        }
+        return new Rate(source, target, rate, own.fetchedAt());
+    }
+
+    /**
+     * Liefert alle Kurse einer Basiswährung (abgeleitet aus der Pivot-Tabelle, falls nötig).
+     *
+     * @param base Die Basiswährung
+     * @param loader Lädt die vollständige Kurstabelle einer Basiswährung
+     * @return Kurstabelle der Basiswährung
+     */
+    public RateTable getRates(String base, Function<String, Map<String, Double>> loader) {
+        String normalizedBase = normalize(base);
+        RateTable direct = tables.get(normalizedBase);
+        if (direct != null && !isExpired(direct)) {
+            hits.increment();
+            return direct;
+        }
+
+        RateTable pivot = getTable(pivotCurrency, loader);
+        Double pivotToBase = pivot.rate(normalizedBase);
+        if (pivotToBase == null || pivotToBase <= 0) {
+            return getTable(normalizedBase, loader);
+        }
+
+        Map<String, Double> derived = new HashMap<>();
+        derived.put(pivot.base(), 1.0 / pivotToBase);
+        pivot.rates().forEach((currency, rate) -> derived.put(currency, rate / pivotToBase));
+        derived.remove(normalizedBase);
+        return new RateTable(normalizedBase, Collections.unmodifiableMap(derived), pivot.fetchedAt());
+    }
+
+    /**
+     * Lädt die Tabellen aller angegebenen sowie bereits bekannten Basiswährungen neu.
+     * Jede Tabelle wird erst nach vollständigem Laden ausgetauscht; bei Fehlern bleibt die alte bestehen.
+     *
+     * @param bases Zusätzlich zu ladende Basiswährungen
+     * @param loader Lädt die vollständige Kurstabelle einer Basiswährung
+     * @return Anzahl erfolgreich geladener Tabellen
+     */
+    public int refresh(Set<String> bases, Function<String, Map<String, Double>> loader) {
+        Set<String> toRefresh = new LinkedHashSet<>();
+        toRefresh.add(normalize(pivotCurrency));
+        bases.forEach(base -> toRefresh.add(normalize(base)));
+        toRefresh.addAll(tables.keySet());
+
+        int refreshed = 0;
+        for (String base : toRefresh) {
+            try {
+                load(base, loader).join();
+                refreshed++;
+            } catch (CompletionException e) {
+                System.err.println("Exchange rate refresh failed for " + base + ": " + e.getCause().getMessage());
+            }
+        }
+        return refreshed;
+    }
+
+    /**
+     * Liefert die Cache-Statistiken und das Alter der geladenen Tabellen.
+     *
+     * @return Map mit Statistiken
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Long> ages = new HashMap<>();
+        tables.forEach((base, table) -> ages.put(base, table.ageMs()));
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pivotCurrency", normalize(pivotCurrency));
+        stats.put("tableAgesMs", ages);
+        stats.put("hitCount", hits.sum());
+        stats.put("loadCount", loads.sum());
+        stats.put("loadFailureCount", loadFailures.sum());
+        stats.put("staleServedCount", staleServed.sum());
+        stats.put("ttlMs", ttlMs);
+        return stats;
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    /**
+     * Liefert eine gültige Tabelle oder lädt sie. Schlägt das Laden fehl, wird eine
+     * veraltete Tabelle bis zum Ablauf von max-stale weiterverwendet.
+     */
+    private RateTable getTable(String base, Function<String, Map<String, Double>> loader) {
+        String normalizedBase = normalize(base);
+        RateTable table = tables.get(normalizedBase);
+        if (table != null && !isExpired(table)) {
+            hits.increment();
+            return table;
+        }
+
+        try {
+            return load(normalizedBase, loader).join();
+        } catch (CompletionException e) {
+            if (table != null && table.ageMs() <= maxStaleMs) {
+                staleServed.increment();
+                return table;
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Lädt eine Tabelle; parallele Aufrufe für dieselbe Basis teilen sich den Ladevorgang.
+     */
+    private CompletableFuture<RateTable> load(String base, Function<String, Map<String, Double>> loader) {
+        CompletableFuture<RateTable> created = new CompletableFuture<>();
+        CompletableFuture<RateTable> running = loading.putIfAbsent(base, created);
+        if (running != null) {
+            return running;
+        }
+
+        try {
+            loads.increment();
+            Map<String, Double> rates = loader.apply(base);
+            if (rates == null || rates.isEmpty()) {
+                throw new RuntimeException("Empty exchange rate table for " + base);
+            }
+            Map<String, Double> normalizedRates = new HashMap<>();
+            rates.forEach((currency, rate) -> {
+                if (rate != null) {
+                    normalizedRates.put(normalize(currency), rate);
+                }
+            });
+            RateTable table = new RateTable(base, Collections.unmodifiableMap(normalizedRates), Instant.now());
+            tables.put(base, table);
+            created.complete(table);
+        } catch (RuntimeException e) {
+            loadFailures.increment();
+            created.completeExceptionally(e);
+        } finally {
+            loading.remove(base, created);
+        }
+        return created;
+    }
+
+    private boolean isExpired(RateTable table) {
+        return table.ageMs() > ttlMs;
+    }
+
+    private static String normalize(String currency) {
+        return currency.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.financemanager.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ruft aktuelle Aktienkurse über die registrierten {@link PriceProvider} ab.
+ * Im Hedging-Modus wird zuerst der primäre Provider angefragt; antwortet er nicht innerhalb
+ * des gemessenen Latenz-Perzentils (Standard: p95), startet parallel der nächste Provider.
+ * Das erste gültige Ergebnis gewinnt, der noch laufende Aufruf wird abgebrochen.
+ * Schlägt ein Provider fehl, wird der nächste sofort gestartet, statt auf seinen Timeout zu warten.
+ */
+@Component
+public class HedgedPriceFetcher {
+
+    @Autowired
+    private List<PriceProvider> providers;
+
+    // Hedging aktivieren; sonst werden die Provider nacheinander angefragt
+    @Value("${prices.hedging.enabled:true}")
+    private boolean hedgingEnabled;
+
+    // Latenz-Perzentil des laufenden Providers, nach dem der nächste gestartet wird
+    @Value("${prices.hedging.percentile:95}")
+    private double hedgePercentile;
+
+    // Mindestanzahl Messwerte, bevor das Perzentil statt der Startverzögerung verwendet wird
+    @Value("${prices.hedging.min-samples:10}")
+    private int minSamples;
+
+    // Verzögerung bis zum Hedge, solange zu wenige Messwerte vorliegen
+    @Value("${prices.hedging.initial-delay-ms:1000}")
+    private long initialDelayMs;
+
+    // Untergrenze der Verzögerung, damit schnelle Provider nicht ständig doppelt angefragt werden
+    @Value("${prices.hedging.min-delay-ms:50}")
+    private long minDelayMs;
+
+    // Gesamtdauer, nach der alle laufenden Aufrufe abgebrochen werden
+    @Value("${prices.hedging.timeout-ms:12000}")
+    private long timeoutMs;
+
+    // Anzahl der letzten Aufrufe pro Provider, über die die Latenz gemessen wird
+    @Value("${prices.hedging.latency-window:200}")
+    private int latencyWindow;
+
+    private final Map<String, LatencyStats> latencies = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    /**
+     * Ergebnis eines einzelnen Provider-Aufrufs.
+     */
+    private record Attempt(PriceProvider provider, Map<String, Object> quote, RuntimeException error) {
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Ruft den aktuellen Kurs eines Symbols über die verfügbaren Provider ab.
+     *
+     * @param symbol Das Aktien-Symbol
+     * @param skipProviders Provider, die nicht angefragt werden sollen (z.B. bereits per Batch versucht)
+     * @return Map mit close, previous_close, change und change_percent
+     * @throws RuntimeException wenn kein Provider ein gültiges Ergebnis liefert
+     */
+    public Map<String, Object> fetchQuote(String symbol, Set<String> skipProviders) {
+        List<PriceProvider> candidates = providers.stream()
+                .filter(PriceProvider::isAvailable)
+                .filter(provider -> !skipProviders.contains(provider.getName()))
+                .sorted(Comparator.comparingInt(PriceProvider::getOrder))
+                .toList();
+        if (candidates.isEmpty()) {
+            throw new RuntimeException("No stock price provider available for " + symbol);
+        }
+
+        requests.increment();
+        return hedgingEnabled && candidates.size() > 1
+                ? fetchHedged(symbol, candidates)
+                : fetchSequential(symbol, candidates);
+    }
+
+    /**
+     * Liefert Latenzstatistiken pro Provider sowie die Hedging-Zähler.
+     *
+     * @return Map mit Statistiken
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> providerStatus = new LinkedHashMap<>();
+        providers.stream()
+                .sorted(Comparator.comparingInt(PriceProvider::getOrder))
+                .forEach(provider -> {
+                    Map<String, Object> status = new LinkedHashMap<>(latency(provider).getStatus());
+                    status.put("available", provider.isAvailable());
+                    status.put("hedgeDelayMs", hedgeDelayMs(provider));
+                    providerStatus.put(provider.getName(), status);
+                });
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("hedgingEnabled", hedgingEnabled);
+        status.put("percentile", hedgePercentile);
+        status.put("requestCount", requests.sum());
+        status.put("hedgeCount", hedges.sum());
+        status.put("hedgeWinCount", hedgeWins.sum());
+        status.put("exhaustedCount", exhausted.sum());
+        status.put("providers", providerStatus);
+        return status;
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    private Map<String, Object> fetchSequential(String symbol, List<PriceProvider> candidates) {
+        RateLimitExceededException rateLimited = null;
+        for (PriceProvider provider : candidates) {
+            try {
+                return timedFetch(provider, symbol);
+            } catch (RateLimitExceededException e) {
+                rateLimited = e;
+            } catch (RuntimeException e) {
+                System.err.println(provider.getName() + " failed for " + symbol + ": " + e.getMessage());
+            }
+        }
+        throw exhausted(symbol, rateLimited);
+    }
+
+    private Map<String, Object> fetchHedged(String symbol, List<PriceProvider> candidates) {
+        BlockingQueue<Attempt> completed = new LinkedBlockingQueue<>();
+        Map<PriceProvider, Future<?>> running = new LinkedHashMap<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        int next = 0;
+        long lastStart = 0;
+        boolean hedged = false;
+        RateLimitExceededException rateLimited = null;
+
+        try {
+            while (true) {
+                if (running.isEmpty()) {
+                    if (next >= candidates.size()) {
+                        break;
+                    }
+                    running.put(candidates.get(next), start(candidates.get(next), symbol, completed));
+                    next++;
+                    lastStart = System.nanoTime();
+                }
+
+                long now = System.nanoTime();
+                if (now - deadline >= 0) {
+                    break;
+                }
+
+                // Warten bis zum Hedge-Zeitpunkt des zuletzt gestarteten Providers bzw. bis zur Deadline
+                long waitUntil = deadline;
+                if (next < candidates.size()) {
+                    long hedgeAt = lastStart + TimeUnit.MILLISECONDS.toNanos(hedgeDelayMs(candidates.get(next - 1)));
+                    waitUntil = hedgeAt - deadline < 0 ? hedgeAt : deadline;
+                }
+
+                Attempt attempt = completed.poll(Math.max(0, waitUntil - now), TimeUnit.NANOSECONDS);
+                if (attempt == null) {
+                    if (next < candidates.size() && System.nanoTime() - deadline < 0) {
+                        hedges.increment();
+                        hedged = true;
+                        running.put(candidates.get(next), start(candidates.get(next), symbol, completed));
+                        next++;
+                        lastStart = System.nanoTime();
+                    }
+                    continue;
+                }
+
+                running.remove(attempt.provider());
+                if (attempt.error() == null) {
+                    if (hedged && attempt.provider() != candidates.get(0)) {
+                        hedgeWins.increment();
+                    }
+                    return attempt.quote();
+                }
+
+                // Läuft kein Aufruf mehr, startet der nächste Provider im nächsten Durchlauf sofort
+                if (attempt.error() instanceof RateLimitExceededException e) {
+                    rateLimited = e;
+                    continue;
+                }
+                System.err.println(attempt.provider().getName() + " failed for " + symbol + ": " + attempt.error().getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while fetching stock price for " + symbol);
+        } finally {
+            // Verlierer bzw. nach der Deadline noch laufende Aufrufe abbrechen
+            running.values().forEach(future -> future.cancel(true));
+        }
+
+        throw exhausted(symbol, rateLimited);
+    }
+
+    /**
+     * Fehler, wenn kein Provider geliefert hat. War ein Provider nur wegen seiner Quote
+     * nicht verfügbar, wird dieser Fehler weitergegeben, damit der Aufrufer nicht auf Mock-Daten ausweicht.
+     */
+    private RuntimeException exhausted(String symbol, RateLimitExceededException rateLimited) {
+        exhausted.increment();
+        return rateLimited != null ? rateLimited
+                : new RuntimeException("All stock price providers failed for " + symbol);
+    }
+
+    private Future<?> start(PriceProvider provider, String symbol, BlockingQueue<Attempt> completed) {
+        return executor.submit(() -> {
+            try {
+                completed.add(new Attempt(provider, timedFetch(provider, symbol), null));
+            } catch (RuntimeException e) {
+                completed.add(new Attempt(provider, null, e));
+            }
+        });
+    }
+
+    /**
+     * Fragt einen Provider an und erfasst die Latenz erfolgreicher Aufrufe.
+     */
+    private Map<String, Object> timedFetch(PriceProvider provider, String symbol) {
+        LatencyStats stats = latency(provider);
+        long start = System.nanoTime();
+        try {
+            Map<String, Object> quote = provider.fetchQuote(symbol);
+            if (quote == null || !(quote.get("close") instanceof Number)) {
+                throw new RuntimeException("Invalid quote from " + provider.getName() + " for " + symbol);
+            }
+            stats.recordSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return quote;
+        } catch (RuntimeException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                stats.recordCancellation();
+            } else {
+                stats.recordFailure();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Verzögerung bis zum Hedge: gemessenes Perzentil des Providers, solange zu wenige
+     * Messwerte vorliegen die konfigurierte Startverzögerung.
+     */
+    private long hedgeDelayMs(PriceProvider provider) {
+        LatencyStats stats = latency(provider);
+        long delay = stats.getSampleCount() >= minSamples ? stats.percentile(hedgePercentile) : initialDelayMs;
+        return Math.max(minDelayMs, delay);
+    }
+
+    private LatencyStats latency(PriceProvider provider) {
+        return latencies.computeIfAbsent(provider.getName(), name -> new LatencyStats(latencyWindow));
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.financemanager.service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latenzstatistik eines Providers über die letzten erfolgreichen Aufrufe (Ringpuffer).
+ * Fehlgeschlagene und abgebrochene Aufrufe werden nur gezählt, da ihre Dauer
+ * nichts über die Antwortzeit des Providers aussagt.
+ */
+public class LatencyStats {
+
+    private final long[] samples;
+    private int next;
+    private int size;
+
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder cancellations = new LongAdder();
+
+    public LatencyStats(int windowSize) {
+        this.samples = new long[Math.max(1, windowSize)];
+    }
+
+    public synchronized void recordSuccess(long latencyMs) {
+        samples[next] = latencyMs;
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+        successes.increment();
+    }
+
+    public void recordFailure() {
+        failures.increment();
+    }
+
+    public void recordCancellation() {
+        cancellations.increment();
+    }
+
+    public synchronized int getSampleCount() {
+        return size;
+    }
+
+    /**
+     * Liefert das Perzentil der Latenz im aktuellen Fenster (Nearest-Rank).
+     *
+     * @param percentile Perzentil zwischen 0 und 100
+     * @return Latenz in Millisekunden oder -1 ohne Messwerte
+     */
+    public long percentile(double percentile) {
+        long[] sorted;
+        synchronized (this) {
+            if (size == 0) {
+                return -1;
+            }
+            sorted = Arrays.copyOf(samples, size);
+        }
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("sampleCount", getSampleCount());
+        status.put("p50Ms", percentile(50));
+        status.put("p95Ms", percentile(95));
+        status.put("p99Ms", percentile(99));
+        status.put("successCount", successes.sum());
+        status.put("failureCount", failures.sum());
+        status.put("cancelledCount", cancellations.sum());
+        return status;
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.financemanager.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Listet Ausgaben und Einnahmen, ohne die ganze Tabelle in den Speicher zu laden.
+ * Bietet:
+ * - Keyset-Pagination nach (Datum, ID), neueste zuerst, mit Filtern für Zeitraum und Kategorie/Quelle
+ * - Streaming-Export (JSON-Array, NDJSON, CSV) direkt aus einem JDBC-Cursor in die Response
+ * Der Speicherbedarf hängt nur von der Seitengröße bzw. dem Fetch-Size ab, nicht von der Tabellengröße.
+ */
+@Service
+public class LedgerQueryService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Seitengröße, wenn keine angegeben ist
+    @Value("${finance.pagination.default-limit:50}")
+    private int defaultLimit;
+
+    // Maximale Seitengröße
+    @Value("${finance.pagination.max-limit:500}")
+    private int maxLimit;
+
+    // Zeilen pro Roundtrip beim Export (MySQL streamt zeilenweise, siehe initialize)
+    @Value("${finance.export.fetch-size:500}")
+    private int exportFetchSize;
+
+    // Fetch-Size, die der JDBC-Treiber für einen echten Cursor braucht
+    private int cursorFetchSize;
+
+    /**
+     * Tabellen, die gelistet werden können; label ist die Kategorie (Ausgaben) bzw. die Quelle (Einnahmen).
+     */
+    public enum Ledger {
+        EXPENSE("expense", "category", List.of("id", "description", "amount", "category", "date")),
+        INCOME("income", "source", List.of("id", "source", "amount", "date"));
+
+        private final String table;
+        private final String labelColumn;
+        private final List<String> columns;
+
+        Ledger(String table, String labelColumn, List<String> columns) {
+            this.table = table;
+            this.labelColumn = labelColumn;
+            this.columns = columns;
+        }
+    }
+
+    /**
+     * Ausgabeformat des Exports. JSON entspricht der bisherigen Liste (Array, nach ID sortiert),
+     * NDJSON und CSV sind chronologisch sortiert.
+     */
+    public enum Format {
+        JSON, NDJSON, CSV;
+
+        public static Format parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unbekanntes Format: " + value + " (json, ndjson oder csv)");
+            }
+        }
+    }
+
+    /**
+     * Filter für Listen und Exporte; alle Felder optional.
+     */
+    public record Filter(LocalDate from, LocalDate to, String label) {
+    }
+
+    @PostConstruct
+    void initialize() {
+        // MySQL Connector/J lädt sonst das komplette Resultat in den Speicher
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        cursorFetchSize = product != null && product.toLowerCase().contains("mysql") ? Integer.MIN_VALUE : exportFetchSize;
+    }
+
+    /**
+     * Liefert eine Seite, neueste Buchungen zuerst.
+     *
+     * @param ledger Ausgaben oder Einnahmen
+     * @param filter Zeitraum und Kategorie/Quelle
+     * @param after Cursor der vorherigen Seite (nextCursor) oder null für die erste Seite
+     * @param limit Seitengröße (null = Standard)
+     * @return Map mit items, nextCursor (null auf der letzten Seite) und hasMore
+     */
+    public Map<String, Object> getPage(Ledger ledger, Filter filter, String after, Integer limit) {
+        int pageSize = limit == null ? defaultLimit : limit;
+        if (pageSize < 1 || pageSize > maxLimit) {
+            throw new IllegalArgumentException("limit muss zwischen 1 und " + maxLimit + " liegen");
+        }
+
+        List<Object> params = new ArrayList<>();
+        StringBuilder where = whereClause(ledger, filter, params);
+        if (after != null && !after.isBlank()) {
+            appendSeek(where, parseCursor(after), params);
+        }
+        String sql = "SELECT " + String.join(", ", ledger.columns) + " FROM " + ledger.table + where +
+                " ORDER BY date DESC, id DESC LIMIT " + (pageSize + 1);
+
+        List<Map<String, Object>> items = jdbcTemplate.query(sql, (rs, rowNum) -> toRow(ledger, rs), params.toArray());
+        boolean hasMore = items.size() > pageSize;
+        if (hasMore) {
+            items = items.subList(0, pageSize);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("items", items);
+        result.put("limit", pageSize);
+        result.put("hasMore", hasMore);
+        result.put("nextCursor", hasMore ? cursorOf(items.get(items.size() - 1)) : null);
+        return result;
+    }
+
+    /**
+     * Schreibt alle passenden Buchungen zeilenweise aus dem JDBC-Cursor in den Stream.
+     *
+     * @param ledger Ausgaben oder Einnahmen
+     * @param filter Zeitraum und Kategorie/Quelle
+     * @param format Ausgabeformat
+     * @param out Ziel (z.B. der Response-Stream)
+     */
+    public void export(Ledger ledger, Filter filter, Format format, OutputStream out) throws IOException {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT " + String.join(", ", ledger.columns) + " FROM " + ledger.table +
+                whereClause(ledger, filter, params) +
+                (format == Format.JSON ? " ORDER BY id" : " ORDER BY date, id");
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        JsonGenerator json = objectMapper.getFactory().createGenerator(writer);
+        json.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        // NDJSON: Zeilenumbruch statt des Standard-Leerzeichens zwischen den Objekten
+        json.setRootValueSeparator(null);
+
+        if (format == Format.JSON) {
+            json.writeStartArray();
+        } else if (format == Format.CSV) {
+            writer.write(String.join(",", ledger.columns));
+            writer.write('\n');
+        }
+
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(cursorFetchSize);
+                for (int i = 0; i < params.size(); i++) {
+                    statement.setObject(i + 1, params.get(i));
+                }
+                return statement;
+            }, rs -> {
+                try {
+                    if (format == Format.CSV) {
+                        writeCsvRow(ledger, rs, writer);
+                    } else {
+                        writeJsonRow(ledger, rs, json);
+                        if (format == Format.NDJSON) {
+                            json.writeRaw('\n');
+                        }
+                    }
+                } catch (IOException e) {
+                    // Client hat die Verbindung geschlossen: Cursor sofort freigeben
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        if (format == Format.JSON) {
+            json.writeEndArray();
+        }
+        json.flush();
+        writer.flush();
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    private StringBuilder whereClause(Ledger ledger, Filter filter, List<Object> params) {
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        if (filter.from() != null) {
+            where.append(" AND date >= ?");
+            params.add(Date.valueOf(filter.from()));
+        }
+        if (filter.to() != null) {
+            where.append(" AND date <= ?");
+            params.add(Date.valueOf(filter.to()));
+        }
+        if (filter.label() != null && !filter.label().isBlank()) {
+            where.append(" AND ").append(ledger.labelColumn).append(" = ?");
+            params.add(filter.label().trim());
+        }
+        return where;
+    }
+
+    /**
+     * Setzt nach dem Cursor fort. Buchungen ohne Datum stehen am Ende (nach ID absteigend).
+     */
+    private void appendSeek(StringBuilder where, Cursor cursor, List<Object> params) {
+        if (cursor.date() == null) {
+            where.append(" AND date IS NULL AND id < ?");
+            params.add(cursor.id());
+        } else {
+            where.append(" AND (date < ? OR (date = ? AND id < ?) OR date IS NULL)");
+            params.add(Date.valueOf(cursor.date()));
+            params.add(Date.valueOf(cursor.date()));
+            params.add(cursor.id());
+        }
+    }
+
+    private record Cursor(LocalDate date, long id) {
+    }
+
+    // Format: "2026-10-05_42" bzw. "null_42" für Buchungen ohne Datum
+    private Cursor parseCursor(String value) {
+        int separator = value.lastIndexOf('_');
+        try {
+            String date = value.substring(0, Math.max(separator, 0));
+            return new Cursor("null".equals(date) ? null : LocalDate.parse(date),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (DateTimeParseException | NumberFormatException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Ungültiger Cursor: " + value);
+        }
+    }
+
+    private String cursorOf(Map<String, Object> row) {
+        return row.get("date") + "_" + row.get("id");
+    }
+
+    private Map<String, Object> toRow(Ledger ledger, ResultSet rs) throws SQLException {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String column : ledger.columns) {
+            row.put(column, value(rs, column));
+        }
+        return row;
+    }
+
+    private Object value(ResultSet rs, String column) throws SQLException {
+        return switch (column) {
+            case "id" -> rs.getLong(column);
+            case "amount" -> rs.getBigDecimal(column);
+            case "date" -> {
+                Date date = rs.getDate(column);
+                yield date != null ? date.toLocalDate() : null;
+            }
+            default -> rs.getString(column);
+        };
+    }
+
+    private void writeJsonRow(Ledger ledger, ResultSet rs, JsonGenerator json) throws SQLException, IOException {
+        json.writeStartObject();
+        for (String column : ledger.columns) {
+            Object value = value(rs, column);
+            json.writeFieldName(column);
+            if (value == null) {
+                json.writeNull();
+            } else if (value instanceof Long number) {
+                json.writeNumber(number);
+            } else if (value instanceof BigDecimal number) {
+                json.writeNumber(number);
+            } else {
+                json.writeString(value.toString());
+            }
+        }
+        json.writeEndObject();
+    }
+
+    private void writeCsvRow(Ledger ledger, ResultSet rs, Writer writer) throws SQLException, IOException {
+        for (int i = 0; i < ledger.columns.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = value(rs, ledger.columns.get(i));
+            if (value != null) {
+                writer.write(csvEscape(value.toString()));
+            }
+        }
+        writer.write('\n');
+    }
+
+    private static String csvEscape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.financemanager.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Offene Kauf-Lots eines Watchlist-Eintrags nach einer Zuordnungsmethode (FIFO, LIFO, Durchschnitt).
+ * Die Lots liegen in einer Ringpuffer-Deque aus parallelen Arrays; ein Kauf hängt hinten an,
+ * ein Verkauf verbraucht Lots vorne (FIFO) oder hinten (LIFO). Jede Transaktion kostet damit
+ * amortisiert O(1) pro verbrauchtem Lot. Bei der Durchschnittsmethode gibt es höchstens ein Lot,
+ * das wie {@link com.example.financemanager.model.Position} gerechnet wird.
+ * Realisierte Gewinne werden pro Kalenderjahr des Verkaufs summiert.
+ * Nicht threadsicher; der {@link TaxLotService} synchronisiert auf dem Objekt.
+ */
+final class LotBook {
+
+    // Rechengenauigkeit wie in der Position
+    private static final int SCALE = 8;
+
+    private final TaxLotService.Method method;
+
+    // Ringpuffer: Restmenge, Rest-Einstandswert und Kaufzeitpunkt (Epoch-Sekunden, UTC) je Lot
+    private BigDecimal[] quantities = new BigDecimal[4];
+    private BigDecimal[] costs = new BigDecimal[4];
+    private long[] acquiredAt = new long[4];
+    private int head;
+    private int size;
+
+    private BigDecimal openQuantity = BigDecimal.ZERO;
+    private BigDecimal openCost = BigDecimal.ZERO;
+    // Verkaufte Menge, der kein offenes Lot gegenüberstand (Einstandswert 0)
+    private BigDecimal unmatchedQuantity = BigDecimal.ZERO;
+    private BigDecimal realizedPnl = BigDecimal.ZERO;
+
+    // Jahr des Verkaufs -> [Erlös, Einstandswert, Gewinn]
+    private final TreeMap<Integer, BigDecimal[]> realizedByYear = new TreeMap<>();
+
+    // Sortierschlüssel der zuletzt eingerechneten Transaktion (Datum, ID)
+    private LocalDateTime lastDate;
+    private long lastId;
+    private long transactionCount;
+
+    LotBook(TaxLotService.Method method) {
+        this.method = method;
+    }
+
+    /**
+     * Prüft, ob eine Transaktion hinter der zuletzt eingerechneten liegt (Reihenfolge nach Datum, dann ID;
+     * ohne Datum zuerst, wie in der Datenbank-Sortierung).
+     *
+     * @return 1 wenn danach, 0 wenn es dieselbe Transaktion ist, -1 wenn davor
+     */
+    int compareToLast(LocalDateTime date, long id) {
+        if (transactionCount == 0) {
+            return 1;
+        }
+        int byDate;
+        if (date == null || lastDate == null) {
+            byDate = date == null ? (lastDate == null ? 0 : -1) : 1;
+        } else {
+            byDate = date.compareTo(lastDate);
+        }
+        return byDate != 0 ? byDate : Long.compare(id, lastId);
+    }
+
+    /**
+     * Rechnet eine Transaktion ein. Transaktionen müssen in Buchungsreihenfolge kommen.
+     *
+     * @param id ID der Transaktion
+     * @param buy true für Kauf, false für Verkauf
+     * @param amount Menge
+     * @param totalValue Gesamtwert (Kaufpreis bzw. Erlös)
+     * @param date Buchungsdatum (Reihenfolge und Kaufzeitpunkt, darf null sein)
+     * @param year Jahr, dem ein Verkauf zugerechnet wird (null = keinem Jahr)
+     */
+    void apply(long id, boolean buy, BigDecimal amount, BigDecimal totalValue, LocalDateTime date, Integer year) {
+        BigDecimal quantity = amount != null ? amount : BigDecimal.ZERO;
+        BigDecimal value = totalValue != null ? totalValue : BigDecimal.ZERO;
+
+        if (buy) {
+            addLot(quantity, value, date);
+        } else {
+            BigDecimal releasedCost = method == TaxLotService.Method.AVERAGE ? sellAverage(quantity) : sellLots(quantity);
+            BigDecimal pnl = value.subtract(releasedCost);
+            realizedPnl = realizedPnl.add(pnl);
+            if (year != null) {
+                BigDecimal[] totals = realizedByYear.computeIfAbsent(year,
+                        y -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO});
+                totals[0] = totals[0].add(value);
+                totals[1] = totals[1].add(releasedCost);
+                totals[2] = totals[2].add(pnl);
+            }
+        }
+
+        lastDate = date;
+        lastId = id;
+        transactionCount++;
+    }
+
+    // ========== ABFRAGEN ==========
+
+    long getTransactionCount() { return transactionCount; }
+
+    BigDecimal getOpenQuantity() { return openQuantity; }
+
+    BigDecimal getOpenCost() { return openCost; }
+
+    BigDecimal getUnmatchedQuantity() { return unmatchedQuantity; }
+
+    BigDecimal getRealizedPnl() { return realizedPnl; }
+
+    /**
+     * Realisierter Erlös, Einstandswert und Gewinn eines Jahres (null ohne Verkäufe in dem Jahr).
+     */
+    Map<String, Object> getRealized(int year) {
+        BigDecimal[] totals = realizedByYear.get(year);
+        return totals != null ? yearEntry(year, totals) : null;
+    }
+
+    List<Map<String, Object>> getRealizedByYear() {
+        List<Map<String, Object>> years = new ArrayList<>(realizedByYear.size());
+        realizedByYear.forEach((year, totals) -> years.add(yearEntry(year, totals)));
+        return years;
+    }
+
+    /**
+     * Offene Lots in Verbrauchsreihenfolge der Methode (FIFO: älteste zuerst, LIFO: neueste zuerst).
+     */
+    List<Map<String, Object>> getOpenLots() {
+        List<Map<String, Object>> lots = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int slot = method == TaxLotService.Method.LIFO ? slot(size - 1 - i) : slot(i);
+            Map<String, Object> lot = new LinkedHashMap<>();
+            lot.put("acquiredAt", acquiredAt[slot] == Long.MIN_VALUE ? null
+                    : LocalDateTime.ofEpochSecond(acquiredAt[slot], 0, ZoneOffset.UTC));
+            lot.put("quantity", quantities[slot]);
+            lot.put("costBasis", costs[slot]);
+            lot.put("unitCost", quantities[slot].signum() > 0
+                    ? costs[slot].divide(quantities[slot], SCALE, RoundingMode.HALF_UP) : BigDecimal.ZERO);
+            lots.add(lot);
+        }
+        return lots;
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    private void addLot(BigDecimal quantity, BigDecimal cost, LocalDateTime date) {
+        openQuantity = openQuantity.add(quantity);
+        openCost = openCost.add(cost);
+
+        // Durchschnittsmethode: alle Käufe fließen in ein gemeinsames Lot (Zeitpunkt des ersten Kaufs)
+        if (method == TaxLotService.Method.AVERAGE && size == 1) {
+            quantities[head] = quantities[head].add(quantity);
+            costs[head] = costs[head].add(cost);
+            return;
+        }
+
+        if (size == quantities.length) {
+            grow();
+        }
+        int slot = slot(size);
+        quantities[slot] = quantity;
+        costs[slot] = cost;
+        acquiredAt[slot] = date != null ? date.toEpochSecond(ZoneOffset.UTC) : Long.MIN_VALUE;
+        size++;
+    }
+
+    /**
+     * Durchschnittsmethode: Einstandswert anteilig zum Durchschnittspreis, Verkauf des gesamten
+     * Bestands gibt den vollen Einstandswert frei (gleiche Rundung wie die Position).
+     */
+    private BigDecimal sellAverage(BigDecimal quantity) {
+        if (size == 0) {
+            unmatchedQuantity = unmatchedQuantity.add(quantity);
+            return BigDecimal.ZERO;
+        }
+        if (quantity.compareTo(quantities[head]) >= 0) {
+            BigDecimal released = costs[head];
+            unmatchedQuantity = unmatchedQuantity.add(quantity.subtract(quantities[head]));
+            removeFirst();
+            return released;
+        }
+        BigDecimal released = costs[head].multiply(quantity).divide(quantities[head], SCALE, RoundingMode.HALF_UP);
+        quantities[head] = quantities[head].subtract(quantity);
+        costs[head] = costs[head].subtract(released);
+        openQuantity = openQuantity.subtract(quantity);
+        openCost = openCost.subtract(released);
+        return released;
+    }
+
+    /**
+     * FIFO/LIFO: verbraucht ganze Lots von der jeweiligen Seite, das letzte anteilig.
+     */
+    private BigDecimal sellLots(BigDecimal quantity) {
+        boolean fromFront = method == TaxLotService.Method.FIFO;
+        BigDecimal remaining = quantity;
+        BigDecimal released = BigDecimal.ZERO;
+
+        while (remaining.signum() > 0 && size > 0) {
+            int slot = fromFront ? head : slot(size - 1);
+            if (quantities[slot].compareTo(remaining) <= 0) {
+                remaining = remaining.subtract(quantities[slot]);
+                released = released.add(costs[slot]);
+                if (fromFront) {
+                    removeFirst();
+                } else {
+                    removeLast();
+                }
+            } else {
+                BigDecimal partCost = costs[slot].multiply(remaining).divide(quantities[slot], SCALE, RoundingMode.HALF_UP);
+                quantities[slot] = quantities[slot].subtract(remaining);
+                costs[slot] = costs[slot].subtract(partCost);
+                openQuantity = openQuantity.subtract(remaining);
+                openCost = openCost.subtract(partCost);
+                released = released.add(partCost);
+                remaining = BigDecimal.ZERO;
+            }
+        }
+
+        if (remaining.signum() > 0) {
+            unmatchedQuantity = unmatchedQuantity.add(remaining);
+        }
+        return released;
+    }
+
+    private void removeFirst() {
+        openQuantity = openQuantity.subtract(quantities[head]);
+        openCost = openCost.subtract(costs[head]);
+        quantities[head] = null;
+        costs[head] = null;
+        head = (head + 1) % quantities.length;
+        size--;
+        if (size == 0) {
+            resetOpen();
+        }
+    }
+
+    private void removeLast() {
+        int slot = slot(size - 1);
+        openQuantity = openQuantity.subtract(quantities[slot]);
+        openCost = openCost.subtract(costs[slot]);
+        quantities[slot] = null;
+        costs[slot] = null;
+        size--;
+        if (size == 0) {
+            resetOpen();
+        }
+    }
+
+    // Ohne offene Lots keine Rundungsreste in den Summen stehen lassen
+    private void resetOpen() {
+        head = 0;
+        openQuantity = BigDecimal.ZERO;
+        openCost = BigDecimal.ZERO;
+    }
+
+    private int slot(int index) {
+        return (head + index) % quantities.length;
+    }
+
+    private void grow() {
+        int capacity = quantities.length * 2;
+        BigDecimal[] newQuantities = new BigDecimal[capacity];
+        BigDecimal[] newCosts = new BigDecimal[capacity];
+        long[] newAcquiredAt = new long[capacity];
+        for (int i = 0; i < size; i++) {
+            int slot = slot(i);
+            newQuantities[i] = quantities[slot];
+            newCosts[i] = costs[slot];
+            newAcquiredAt[i] = acquiredAt[slot];
+        }
+        quantities = newQuantities;
+        costs = newCosts;
+        acquiredAt = newAcquiredAt;
+        head = 0;
+    }
+
+    private static Map<String, Object> yearEntry(int year, BigDecimal[] totals) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("year", year);
+        entry.put("proceeds", totals[0]);
+        entry.put("costBasis", totals[1]);
+        entry.put("realizedPnl", totals[2]);
+        return entry;
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.financemanager.service;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+/**
+ * Rechenkern der Monte-Carlo-Simulation eines Portfoliowerts.
+ * Jeder Pfad wird als Summe von Log-Renditen pro Schritt gerechnet, entweder aus einer
+ * geometrischen Brownschen Bewegung (Normalverteilung) oder durch Ziehen mit Zurücklegen aus
+ * historischen Renditen (Bootstrap). Die innere Schleife arbeitet nur auf primitiven Werten.
+ * Die Pfade sind in feste Blöcke geteilt; jeder Block bekommt vorab einen eigenen Zufallsstrom
+ * ({@link SplittableRandom#split()}), das Ergebnis hängt also nur vom Seed ab und nicht davon,
+ * auf wie vielen Kernen die Blöcke im Fork-Join-Pool laufen.
+ */
+final class MonteCarloEngine {
+
+    // Pfade pro Block (Einheit für Zufallsstrom, Fortschritt und Abbruch)
+    static final int PATHS_PER_CHUNK = 4096;
+
+    /**
+     * Modell für die Rendite eines Schritts.
+     */
+    enum Model {
+        GBM, BOOTSTRAP;
+
+        static Model parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unbekanntes Modell: " + value + " (gbm oder bootstrap)");
+            }
+        }
+    }
+
+    private MonteCarloEngine() {
+    }
+
+    /**
+     * Simuliert alle Pfade und schreibt pro Pfad die Log-Rendite am Ende und den maximalen Drawdown.
+     *
+     * @param model Modell für die Schritt-Renditen
+     * @param drift Erwartete Log-Rendite pro Schritt (GBM)
+     * @param volatility Standardabweichung der Log-Rendite pro Schritt (GBM)
+     * @param logReturns Historische Log-Renditen, aus denen gezogen wird (Bootstrap)
+     * @param seed Startwert der Zufallsströme
+     * @param steps Schritte pro Pfad
+     * @param terminalLogReturns Ausgabe: Log-Rendite am Ende jedes Pfads (Länge = Anzahl Pfade)
+     * @param maxDrawdowns Ausgabe: größter Rückgang vom bisherigen Höchststand je Pfad (0..1)
+     * @param progress Erhält nach jedem Block die Anzahl fertiger Pfade (darf null sein)
+     * @param cancelled Wird vor jedem Block geprüft (darf null sein)
+     * @throws CancellationException wenn die Simulation abgebrochen wurde
+     */
+    static void simulate(Model model, double drift, double volatility, double[] logReturns, long seed, int steps,
+                         double[] terminalLogReturns, double[] maxDrawdowns,
+                         LongConsumer progress, BooleanSupplier cancelled) {
+        simulate(ForkJoinPool.commonPool(), model, drift, volatility, logReturns, seed, steps,
+                terminalLogReturns, maxDrawdowns, progress, cancelled);
+    }
+
+    /**
+     * Wie {@link #simulate(Model, double, double, double[], long, int, double[], double[], LongConsumer, BooleanSupplier)},
+     * aber im angegebenen Pool (z.B. mit fester Parallelität).
+     */
+    static void simulate(ForkJoinPool pool, Model model, double drift, double volatility, double[] logReturns,
+                         long seed, int steps, double[] terminalLogReturns, double[] maxDrawdowns,
+                         LongConsumer progress, BooleanSupplier cancelled) {
+        int paths = terminalLogReturns.length;
+        int chunks = (paths + PATHS_PER_CHUNK - 1) / PATHS_PER_CHUNK;
+        if (chunks == 0) {
+            return;
+        }
+
+        // Ströme in fester Reihenfolge abspalten, damit jeder Block unabhängig vom Scheduling denselben bekommt
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[chunks];
+        for (int c = 0; c < chunks; c++) {
+            randoms[c] = root.split();
+        }
+
+        Simulation simulation = new Simulation(model, drift, volatility, logReturns, steps, randoms,
+                terminalLogReturns, maxDrawdowns, progress, cancelled);
+        pool.invoke(new ChunkTask(simulation, 0, chunks));
+        if (simulation.isCancelled()) {
+            throw new CancellationException("Simulation abgebrochen");
+        }
+    }
+
+    /**
+     * Wert eines Perzentils (0..100) aus aufsteigend sortierten Werten, linear interpoliert.
+     */
+    static double percentile(double[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        double position = percentile / 100.0 * (sorted.length - 1);
+        int lower = (int) Math.floor(position);
+        int upper = Math.min(lower + 1, sorted.length - 1);
+        double fraction = position - lower;
+        return sorted[lower] + (sorted[upper] - sorted[lower]) * fraction;
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    /**
+     * Gemeinsamer Zustand aller Blöcke einer Simulation.
+     */
+    private static final class Simulation {
+        final Model model;
+        final double drift;
+        final double volatility;
+        final double[] logReturns;
+        final int steps;
+        final SplittableRandom[] randoms;
+        final double[] terminalLogReturns;
+        final double[] maxDrawdowns;
+        final LongConsumer progress;
+        final BooleanSupplier cancelled;
+        final AtomicLong completed = new AtomicLong();
+        volatile boolean stopped;
+
+        Simulation(Model model, double drift, double volatility, double[] logReturns, int steps,
+                   SplittableRandom[] randoms, double[] terminalLogReturns, double[] maxDrawdowns,
+                   LongConsumer progress, BooleanSupplier cancelled) {
+            this.model = model;
+            this.drift = drift;
+            this.volatility = volatility;
+            this.logReturns = logReturns;
+            this.steps = steps;
+            this.randoms = randoms;
+            this.terminalLogReturns = terminalLogReturns;
+            this.maxDrawdowns = maxDrawdowns;
+            this.progress = progress;
+            this.cancelled = cancelled;
+        }
+
+        boolean isCancelled() {
+            if (!stopped && cancelled != null && cancelled.getAsBoolean()) {
+                stopped = true;
+            }
+            return stopped;
+        }
+
+        void runChunk(int chunk) {
+            if (isCancelled()) {
+                return;
+            }
+            int from = chunk * PATHS_PER_CHUNK;
+            int to = Math.min(from + PATHS_PER_CHUNK, terminalLogReturns.length);
+            SplittableRandom random = randoms[chunk];
+            if (model == Model.GBM) {
+                gbm(random, from, to);
+            } else {
+                bootstrap(random, from, to);
+            }
+            long done = completed.addAndGet(to - from);
+            if (progress != null) {
+                progress.accept(done);
+            }
+        }
+
+        private void gbm(SplittableRandom random, int from, int to) {
+            for (int p = from; p < to; p++) {
+                double level = 0.0;
+                double peak = 0.0;
+                double worst = 0.0;
+                for (int s = 0; s < steps; s++) {
+                    level += drift + volatility * random.nextGaussian();
+                    if (level > peak) {
+                        peak = level;
+                    } else if (level - peak < worst) {
+                        worst = level - peak;
+                    }
+                }
+                terminalLogReturns[p] = level;
+                maxDrawdowns[p] = worst < 0.0 ? -Math.expm1(worst) : 0.0;
+            }
+        }
+
+        private void bootstrap(SplittableRandom random, int from, int to) {
+            double[] history = logReturns;
+            int size = history.length;
+            for (int p = from; p < to; p++) {
+                double level = 0.0;
+                double peak = 0.0;
+                double worst = 0.0;
+                for (int s = 0; s < steps; s++) {
+                    level += history[random.nextInt(size)];
+                    if (level > peak) {
+                        peak = level;
+                    } else if (level - peak < worst) {
+                        worst = level - peak;
+                    }
+                }
+                terminalLogReturns[p] = level;
+                maxDrawdowns[p] = worst < 0.0 ? -Math.expm1(worst) : 0.0;
+            }
+        }
+    }
+
+    /**
+     * Rechnet die Blöcke [from, to) und teilt sie für den Fork-Join-Pool in Hälften.
+     */
+    private static final class ChunkTask extends RecursiveAction {
+
+        private final Simulation simulation;
+        private final int from;
+        private final int to;
+
+        ChunkTask(Simulation simulation, int from, int to) {
+            this.simulation = simulation;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                for (int chunk = from; chunk < to; chunk++) {
+                    simulation.runChunk(chunk);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkTask(simulation, from, middle), new ChunkTask(simulation, middle, to));
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.model.MonthlyRollup;
+import com.example.financemanager.repository.MonthlyRollupRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Monatliche Rollups der Ausgaben (pro Kategorie) und Einnahmen (pro Quelle).
+ * Bietet:
+ * - Fortschreibung bei jeder neuen Buchung per atomarem UPDATE in der Transaktion der Buchung
+ * - Monatstrends, Kategorie-Aufteilungen und Sparquote für beliebige Monatszeiträume,
+ *   gelesen aus den Rollups (Aufwand proportional zur Anzahl der Monate, nicht der Buchungen)
+ * - Neuaufbau aus den Ausgaben-/Einnahmentabellen (automatisch beim Start, wenn noch leer)
+ */
+@Service
+public class MonthlyRollupService {
+
+    // Rollup-Kategorie für Buchungen ohne Kategorie bzw. Quelle
+    public static final String UNCATEGORIZED = "Sonstiges";
+
+    @Autowired
+    private MonthlyRollupRepository monthlyRollupRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Standardzeitraum für Auswertungen ohne Angabe (Monate inkl. aktuellem Monat)
+    @Value("${finance.rollups.default-months:12}")
+    private int defaultMonths;
+
+    // Maximale Länge eines Auswertungszeitraums in Monaten
+    @Value("${finance.rollups.max-months:600}")
+    private int maxMonths;
+
+    // Legt fehlende Rollup-Zeilen in einer eigenen Transaktion an (ein paralleles Anlegen darf scheitern)
+    private TransactionTemplate createRowTemplate;
+
+    @PostConstruct
+    void initialize() {
+        createRowTemplate = new TransactionTemplate(transactionManager);
+        createRowTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        if (monthlyRollupRepository.count() == 0) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rechnet eine Buchung in das Rollup ihres Monats ein.
+     * Muss in der Transaktion laufen, in der die Buchung gespeichert wird.
+     * Buchungen ohne Datum oder Betrag gehören zu keinem Monat und werden übersprungen.
+     *
+     * @param kind Ausgabe oder Einnahme
+     * @param date Buchungsdatum
+     * @param category Kategorie bzw. Quelle
+     * @param amount Betrag
+     */
+    public void record(MonthlyRollup.Kind kind, LocalDate date, String category, BigDecimal amount) {
+        if (date == null || amount == null) {
+            return;
+        }
+        recordMonth(kind, date.withDayOfMonth(1), category, amount, 1);
+    }
+
+    /**
+     * Rechnet mehrere Buchungen eines Monats und einer Kategorie auf einmal ein (z.B. beim Import).
+     * Muss in der Transaktion laufen, in der die Buchungen gespeichert werden.
+     *
+     * @param kind Ausgabe oder Einnahme
+     * @param month Erster Tag des Monats
+     * @param category Kategorie bzw. Quelle
+     * @param amount Summe der Beträge
+     * @param count Anzahl der Buchungen
+     */
+    public void recordMonth(MonthlyRollup.Kind kind, LocalDate month, String category, BigDecimal amount, long count) {
+        String key = normalizeCategory(category);
+
+        // Zeile zuerst anlegen: ein UPDATE ohne Treffer würde (InnoDB) eine Lückensperre halten,
+        // auf die das Anlegen in der eigenen Transaktion warten müsste
+        if (!monthlyRollupRepository.existsByKindAndMonthAndCategory(kind, month, key)) {
+            createRow(kind, month, key);
+        }
+        if (monthlyRollupRepository.increment(kind, month, key, amount, count) == 0) {
+            throw new IllegalStateException("Rollup für " + kind + " " + month + " " + key + " konnte nicht angelegt werden");
+        }
+    }
+
+    /**
+     * Baut alle Rollups aus den Ausgaben- und Einnahmentabellen neu auf.
+     *
+     * @return Map mit Anzahl der erzeugten Rollup-Zeilen
+     */
+    public Map<String, Object> rebuild() {
+        Integer rows = transactionTemplate.execute(status -> {
+            monthlyRollupRepository.deleteAllInBatch();
+            List<MonthlyRollup> rollups = new ArrayList<>();
+            rollups.addAll(toRollups(MonthlyRollup.Kind.EXPENSE, monthlyRollupRepository.sumExpensesByMonth()));
+            rollups.addAll(toRollups(MonthlyRollup.Kind.INCOME, monthlyRollupRepository.sumIncomesByMonth()));
+            monthlyRollupRepository.saveAll(rollups);
+            return rollups.size();
+        });
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("rollupCount", rows);
+        return result;
+    }
+
+    /**
+     * Monatlicher Verlauf von Einnahmen, Ausgaben, Saldo und Sparquote.
+     * Monate ohne Buchungen erscheinen mit 0.
+     *
+     * @param from Erster Monat (optional)
+     * @param to Letzter Monat (optional, Standard: aktueller Monat)
+     * @return Map mit einem Eintrag pro Monat und den Summen des Zeitraums
+     */
+    public Map<String, Object> getMonthlyTrend(YearMonth from, YearMonth to) {
+        YearMonth[] range = resolveRange(from, to);
+
+        Map<YearMonth, BigDecimal> incomes = new HashMap<>();
+        Map<YearMonth, BigDecimal> expenses = new HashMap<>();
+        for (MonthlyRollup rollup : monthlyRollupRepository.findByMonthBetweenOrderByMonthAsc(
+                range[0].atDay(1), range[1].atDay(1))) {
+            Map<YearMonth, BigDecimal> target = rollup.getKind() == MonthlyRollup.Kind.INCOME ? incomes : expenses;
+            target.merge(YearMonth.from(rollup.getMonth()), rollup.getTotal(), BigDecimal::add);
+        }
+
+        List<Map<String, Object>> months = new ArrayList<>();
+        BigDecimal totalIncome = BigDecimal.ZERO;
+        BigDecimal totalExpenses = BigDecimal.ZERO;
+        for (YearMonth month = range[0]; !month.isAfter(range[1]); month = month.plusMonths(1)) {
+            BigDecimal income = incomes.getOrDefault(month, BigDecimal.ZERO);
+            BigDecimal expense = expenses.getOrDefault(month, BigDecimal.ZERO);
+            months.add(summary(month.toString(), income, expense));
+            totalIncome = totalIncome.add(income);
+            totalExpenses = totalExpenses.add(expense);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("from", range[0].toString());
+        result.put("to", range[1].toString());
+        result.put("months", months);
+        result.put("total", summary(null, totalIncome, totalExpenses));
+        return result;
+    }
+
+    /**
+     * Aufteilung der Ausgaben nach Kategorie bzw. der Einnahmen nach Quelle, absteigend nach Betrag.
+     *
+     * @param kind Ausgabe oder Einnahme
+     * @param from Erster Monat (optional)
+     * @param to Letzter Monat (optional, Standard: aktueller Monat)
+     * @return Map mit Summe, Anteil und Anzahl pro Kategorie
+     */
+    public Map<String, Object> getCategoryBreakdown(MonthlyRollup.Kind kind, YearMonth from, YearMonth to) {
+        YearMonth[] range = resolveRange(from, to);
+
+        Map<String, BigDecimal> totals = new HashMap<>();
+        Map<String, Long> counts = new HashMap<>();
+        for (MonthlyRollup rollup : monthlyRollupRepository.findByKindAndMonthBetweenOrderByMonthAsc(
+                kind, range[0].atDay(1), range[1].atDay(1))) {
+            totals.merge(rollup.getCategory(), rollup.getTotal(), BigDecimal::add);
+            counts.merge(rollup.getCategory(), rollup.getEntryCount(), Long::sum);
+        }
+        BigDecimal grandTotal = totals.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        List<Map<String, Object>> categories = new ArrayList<>();
+        totals.entrySet().stream()
+                .sorted(Map.Entry.<String, BigDecimal>comparingByValue().reversed())
+                .forEach(entry -> {
+                    Map<String, Object> category = new HashMap<>();
+                    category.put("category", entry.getKey());
+                    category.put("total", entry.getValue());
+                    category.put("count", counts.get(entry.getKey()));
+                    category.put("percentage", percentage(entry.getValue(), grandTotal));
+                    categories.add(category);
+                });
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("type", kind.name().toLowerCase());
+        result.put("from", range[0].toString());
+        result.put("to", range[1].toString());
+        result.put("categories", categories);
+        result.put("total", grandTotal);
+        return result;
+    }
+
+    /**
+     * Sparquote eines Zeitraums: (Einnahmen - Ausgaben) / Einnahmen in Prozent.
+     *
+     * @param from Erster Monat (optional)
+     * @param to Letzter Monat (optional, Standard: aktueller Monat)
+     * @return Map mit Einnahmen, Ausgaben, Ersparnis und Sparquote (null ohne Einnahmen)
+     */
+    public Map<String, Object> getSavingsRate(YearMonth from, YearMonth to) {
+        Map<String, Object> trend = getMonthlyTrend(from, to);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> result = new HashMap<>((Map<String, Object>) trend.get("total"));
+        result.put("success", true);
+        result.put("from", trend.get("from"));
+        result.put("to", trend.get("to"));
+        return result;
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    private void createRow(MonthlyRollup.Kind kind, LocalDate month, String category) {
+        try {
+            createRowTemplate.executeWithoutResult(status -> {
+                if (!monthlyRollupRepository.existsByKindAndMonthAndCategory(kind, month, category)) {
+                    monthlyRollupRepository.save(new MonthlyRollup(kind, month, category, BigDecimal.ZERO, 0));
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Parallel von einer anderen Buchung angelegt
+        }
+    }
+
+    private List<MonthlyRollup> toRollups(MonthlyRollup.Kind kind, List<MonthlyRollupRepository.MonthlyTotal> totals) {
+        // Buchungen ohne Kategorie und mit Kategorie "Sonstiges" landen im selben Rollup
+        Map<String, MonthlyRollup> rollups = new LinkedHashMap<>();
+        for (MonthlyRollupRepository.MonthlyTotal total : totals) {
+            LocalDate month = LocalDate.of(total.getYear(), total.getMonth(), 1);
+            String category = normalizeCategory(total.getCategory());
+            rollups.merge(month + "|" + category,
+                    new MonthlyRollup(kind, month, category, total.getTotal(), total.getEntryCount()),
+                    (a, b) -> new MonthlyRollup(kind, month, category,
+                            a.getTotal().add(b.getTotal()), a.getEntryCount() + b.getEntryCount()));
+        }
+        return new ArrayList<>(rollups.values());
+    }
+
+    private YearMonth[] resolveRange(YearMonth from, YearMonth to) {
+        YearMonth end = to != null ? to : YearMonth.now();
+        YearMonth start = from != null ? from : end.minusMonths(defaultMonths - 1L);
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("Startmonat " + start + " liegt nach Endmonat " + end);
+        }
+        if (start.plusMonths(maxMonths).isBefore(end)) {
+            throw new IllegalArgumentException("Zeitraum darf höchstens " + maxMonths + " Monate umfassen");
+        }
+        return new YearMonth[]{start, end};
+    }
+
+    private Map<String, Object> summary(String month, BigDecimal income, BigDecimal expenses) {
+        Map<String, Object> summary = new HashMap<>();
+        if (month != null) {
+            summary.put("month", month);
+        }
+        BigDecimal savings = income.subtract(expenses);
+        summary.put("income", income);
+        summary.put("expenses", expenses);
+        summary.put("savings", savings);
+        summary.put("savingsRate", percentage(savings, income));
+        return summary;
+    }
+
+    private static BigDecimal percentage(BigDecimal part, BigDecimal whole) {
+        if (whole.signum() == 0) {
+            return null;
+        }
+        return part.multiply(new BigDecimal("100")).divide(whole, 2, RoundingMode.HALF_UP);
+    }
+
+    private static String normalizeCategory(String category) {
+        return category == null || category.isBlank() ? UNCATEGORIZED : category.trim();
+    }
+}
@@ -0,0 +1,436 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.model.CryptoWatchlist;
+import com.example.financemanager.model.Position;
+import com.example.financemanager.model.PriceCandle;
+import com.example.financemanager.model.PriceSeries;
+import com.example.financemanager.repository.CryptoWatchlistRepository;
+import com.example.financemanager.repository.PositionRepository;
+import com.example.financemanager.repository.PriceCandleRepository;
+import com.example.financemanager.repository.PriceSeriesRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.*;
+import java.util.*;
+
+/**
+ * Tägliche Net-Asset-Value-Historie pro Watchlist-Eintrag und für das Gesamtportfolio.
+ * Der Bestand eines Tages ergibt sich aus den Transaktionen, bewertet mit dem gespeicherten
+ * Tagesschlusskurs (Kerzen "1day" aus {@link PriceHistoryService}); fehlt er, gilt der letzte
+ * Transaktionskurs bzw. der Kurs des Vortags.
+ * Die Tageswerte werden gespeichert und nur fortgeschrieben: neue Tage werden angehängt, und nach
+ * Änderungen an Transaktionen wird ab dem frühesten betroffenen Tag neu berechnet
+ * (vorgemerkt in {@link Position#getNavDirtyFrom()}). Abfragen lesen nur die Datenbank; fortgeschrieben
+ * wird nur vom täglichen Job und über {@link #refreshStale(Long)} (POST-Endpunkt).
+ * Alle Tage sind UTC-Tage, wie die Tageskerzen; Transaktionszeitpunkte sind in der Zeitzone der JVM
+ * gespeichert und werden dafür nach UTC umgerechnet ({@link #utcDay(LocalDateTime)}).
+ */
+@Service
+public class PortfolioNavService {
+
+    // Währung und Intervall der verwendeten Schlusskurse
+    private static final String CLOSE_CURRENCY = "usd";
+    private static final String CLOSE_INTERVAL = "1day";
+
+    private static final String INSERT_SQL = "INSERT INTO daily_nav (watchlist_id, nav_date, quantity, price, " +
+            "market_value, net_flow, outflow) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String STALE_SQL = "FROM watchlist_position p LEFT JOIN " +
+            "(SELECT watchlist_id, MAX(nav_date) AS last_date FROM daily_nav GROUP BY watchlist_id) n " +
+            "ON n.watchlist_id = p.watchlist_id " +
+            "WHERE (p.nav_dirty_from IS NOT NULL OR (p.transaction_count > 0 AND (n.last_date IS NULL OR n.last_date < ?)))";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CryptoWatchlistRepository cryptoWatchlistRepository;
+
+    @Autowired
+    private PositionRepository positionRepository;
+
+    @Autowired
+    private PriceSeriesRepository priceSeriesRepository;
+
+    @Autowired
+    private PriceCandleRepository priceCandleRepository;
+
+    @Autowired
+    private PriceHistoryService priceHistoryService;
+
+    // Tägliche Aktualisierung: vorher fehlende Schlusskurse beim Provider nachladen
+    @Value("${portfolio.nav.fetch-closes:true}")
+    private boolean fetchCloses;
+
+    // Maximale Länge der zurückgelieferten Kurve in Tagen
+    @Value("${portfolio.nav.max-range-days:3660}")
+    private int maxRangeDays;
+
+    /**
+     * Liefert die NAV-Kurve mit zeitgewichteter Rendite und maximalem Drawdown.
+     * Liest nur gespeicherte Tage; wie viele Einträge noch fortgeschrieben werden müssen, steht in "staleAssets".
+     *
+     * @param watchlistId Watchlist-Eintrag oder null für das Gesamtportfolio
+     * @param from Erster Tag (null = erster gespeicherter Tag)
+     * @param to Letzter Tag (null = heute)
+     * @return Map mit Kurve und Kennzahlen
+     */
+    public Map<String, Object> getNav(Long watchlistId, LocalDate from, LocalDate to) {
+        if (watchlistId != null && !cryptoWatchlistRepository.existsById(watchlistId)) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("error", "Watchlist-Item nicht gefunden");
+            result.put("success", false);
+            return result;
+        }
+        LocalDate end = to != null ? to : LocalDate.now(ZoneOffset.UTC);
+        LocalDate start = from;
+        if (start == null) {
+            start = watchlistId == null
+                    ? jdbcTemplate.queryForObject("SELECT MIN(nav_date) FROM daily_nav", LocalDate.class)
+                    : jdbcTemplate.queryForObject("SELECT MIN(nav_date) FROM daily_nav WHERE watchlist_id = ?",
+                    LocalDate.class, watchlistId);
+            if (start == null) {
+                start = end;
+            }
+        }
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("Ungültiger Zeitraum: 'from' muss vor 'to' liegen");
+        }
+        if (start.plusDays(maxRangeDays).isBefore(end)) {
+            throw new IllegalArgumentException("Zeitraum darf höchstens " + maxRangeDays + " Tage umfassen");
+        }
+
+        List<Object[]> rows = watchlistId == null
+                ? jdbcTemplate.query("SELECT nav_date, SUM(market_value), SUM(net_flow), SUM(outflow) " +
+                        "FROM daily_nav WHERE nav_date BETWEEN ? AND ? GROUP BY nav_date ORDER BY nav_date",
+                (rs, rowNum) -> new Object[]{rs.getDate(1).toLocalDate(), rs.getBigDecimal(2), rs.getBigDecimal(3),
+                        rs.getBigDecimal(4)},
+                Date.valueOf(start), Date.valueOf(end))
+                : jdbcTemplate.query("SELECT nav_date, market_value, net_flow, outflow FROM daily_nav " +
+                        "WHERE watchlist_id = ? AND nav_date BETWEEN ? AND ? ORDER BY nav_date",
+                (rs, rowNum) -> new Object[]{rs.getDate(1).toLocalDate(), rs.getBigDecimal(2), rs.getBigDecimal(3),
+                        rs.getBigDecimal(4)},
+                watchlistId, Date.valueOf(start), Date.valueOf(end));
+
+        List<Object> params = new ArrayList<>();
+        params.add(Date.valueOf(LocalDate.now(ZoneOffset.UTC)));
+        String staleSql = "SELECT COUNT(*) " + STALE_SQL;
+        if (watchlistId != null) {
+            staleSql += " AND p.watchlist_id = ?";
+            params.add(watchlistId);
+        }
+        Integer stale = jdbcTemplate.queryForObject(staleSql, Integer.class, params.toArray());
+
+        Map<String, Object> result = analyze(rows);
+        result.put("success", true);
+        result.put("watchlistId", watchlistId);
+        result.put("from", start);
+        result.put("to", end);
+        result.put("staleAssets", stale != null ? stale : 0);
+        return result;
+    }
+
+    /**
+     * Tägliche Fortschreibung: lädt (optional) die Schlusskurse nach und hängt den neuen Tag an.
+     * Der Vortag wird dabei mit dem endgültigen Schlusskurs neu berechnet.
+     */
+    @Scheduled(cron = "${portfolio.nav.cron:0 15 0 * * *}")
+    public void dailyUpdate() {
+        try {
+            if (fetchCloses) {
+                loadCloses();
+            }
+            refreshStale(null);
+        } catch (RuntimeException e) {
+            System.err.println("NAV-Aktualisierung fehlgeschlagen: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Schreibt alle Einträge fort, deren Historie nicht bis heute reicht oder deren Transaktionen sich geändert haben.
+     *
+     * @param watchlistId nur diesen Eintrag prüfen (null = alle)
+     * @return Anzahl neu berechneter Einträge
+     */
+    public int refreshStale(Long watchlistId) {
+        List<Object> params = new ArrayList<>();
+        params.add(Date.valueOf(LocalDate.now(ZoneOffset.UTC)));
+        String sql = "SELECT p.watchlist_id " + STALE_SQL;
+        if (watchlistId != null) {
+            sql += " AND p.watchlist_id = ?";
+            params.add(watchlistId);
+        }
+
+        int recomputed = 0;
+        for (Long staleId : jdbcTemplate.queryForList(sql, Long.class, params.toArray())) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> recompute(staleId));
+                recomputed++;
+            } catch (RuntimeException e) {
+                System.err.println("NAV für Watchlist-Item " + staleId + " nicht berechnet: " + e.getMessage());
+            }
+        }
+        return recomputed;
+    }
+
+    /**
+     * Entfernt die NAV-Historie eines gelöschten Watchlist-Eintrags.
+     */
+    public void deleteHistory(Long watchlistId) {
+        jdbcTemplate.update("DELETE FROM daily_nav WHERE watchlist_id = ?", watchlistId);
+    }
+
+    /**
+     * UTC-Tag eines Transaktionszeitpunkts, der (wie LocalDateTime.now()) in der Zeitzone der JVM gespeichert ist.
+     *
+     * @param transactionDate Zeitpunkt in Systemzeit
+     * @return Tag der NAV-Historie
+     */
+    static LocalDate utcDay(LocalDateTime transactionDate) {
+        return transactionDate.atZone(ZoneId.systemDefault()).withZoneSameInstant(ZoneOffset.UTC).toLocalDate();
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    /**
+     * Berechnet die Tageswerte eines Eintrags ab dem frühesten geänderten Tag (bzw. dem letzten
+     * gespeicherten Tag) bis heute neu. Sperrt den Watchlist-Eintrag wie {@link PositionService},
+     * damit keine Transaktion zwischen Berechnung und Zurücksetzen der Vormerkung verloren geht.
+     */
+    private void recompute(Long watchlistId) {
+        Optional<CryptoWatchlist> watchlistOpt = cryptoWatchlistRepository.findByIdForUpdate(watchlistId);
+        Optional<Position> positionOpt = positionRepository.findByWatchlistId(watchlistId);
+        if (watchlistOpt.isEmpty() || positionOpt.isEmpty()) {
+            return;
+        }
+        CryptoWatchlist watchlist = watchlistOpt.get();
+        Position position = positionOpt.get();
+
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        Timestamp firstTransaction = jdbcTemplate.queryForObject(
+                "SELECT MIN(transaction_date) FROM crypto_transaction WHERE watchlist_id = ?", Timestamp.class, watchlistId);
+        if (firstTransaction == null) {
+            deleteHistory(watchlistId);
+            position.clearNavDirty();
+            positionRepository.save(position);
+            return;
+        }
+        LocalDate firstDay = utcDay(firstTransaction.toLocalDateTime());
+
+        // Ab dem frühesten geänderten Tag, sonst ab dem letzten gespeicherten (vorläufigen) Tag
+        LocalDate lastDay = jdbcTemplate.queryForObject(
+                "SELECT MAX(nav_date) FROM daily_nav WHERE watchlist_id = ?", LocalDate.class, watchlistId);
+        LocalDate from = lastDay != null ? lastDay : firstDay;
+        if (position.getNavDirtyFrom() != null && position.getNavDirtyFrom().isBefore(from)) {
+            from = position.getNavDirtyFrom();
+        }
+        if (from.isBefore(firstDay)) {
+            from = firstDay;
+        }
+        if (from.isAfter(today)) {
+            from = today;
+        }
+        jdbcTemplate.update("DELETE FROM daily_nav WHERE watchlist_id = ? AND (nav_date >= ? OR nav_date < ?)",
+                watchlistId, Date.valueOf(from), Date.valueOf(firstDay));
+
+        // Stand am Vortag aus der gespeicherten Historie
+        BigDecimal quantity = BigDecimal.ZERO;
+        BigDecimal price = null;
+        List<Map<String, Object>> previous = jdbcTemplate.queryForList(
+                "SELECT quantity, price FROM daily_nav WHERE watchlist_id = ? AND nav_date = ?",
+                watchlistId, Date.valueOf(from.minusDays(1)));
+        if (!previous.isEmpty()) {
+            quantity = (BigDecimal) previous.get(0).get("quantity");
+            price = (BigDecimal) previous.get(0).get("price");
+        }
+
+        // Transaktionen pro Tag: Mengenänderung, Käufe, Verkaufserlöse und letzter Kurs
+        TreeMap<LocalDate, BigDecimal[]> days = new TreeMap<>();
+        jdbcTemplate.query("SELECT transaction_type, amount, total_value, price_per_unit, transaction_date " +
+                        "FROM crypto_transaction WHERE watchlist_id = ? AND transaction_date >= ? " +
+                        "ORDER BY transaction_date, id",
+                rs -> {
+                    boolean buy = "BUY".equals(rs.getString("transaction_type"));
+                    BigDecimal amount = Optional.ofNullable(rs.getBigDecimal("amount")).orElse(BigDecimal.ZERO);
+                    BigDecimal value = Optional.ofNullable(rs.getBigDecimal("total_value")).orElse(BigDecimal.ZERO);
+                    BigDecimal[] day = days.computeIfAbsent(utcDay(rs.getTimestamp("transaction_date").toLocalDateTime()),
+                            d -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, null});
+                    if (buy) {
+                        day[0] = day[0].add(amount);
+                        day[1] = day[1].add(value);
+                    } else {
+                        day[0] = day[0].subtract(amount);
+                        day[2] = day[2].add(value);
+                    }
+                    if (rs.getBigDecimal("price_per_unit") != null) {
+                        day[3] = rs.getBigDecimal("price_per_unit");
+                    }
+                },
+                watchlistId, Timestamp.valueOf(LocalDateTime.ofInstant(from.atStartOfDay(ZoneOffset.UTC).toInstant(),
+                        ZoneId.systemDefault())));
+
+        Map<LocalDate, BigDecimal> closes = loadStoredCloses(watchlist, from, today);
+
+        List<Object[]> rows = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(today); day = day.plusDays(1)) {
+            BigDecimal[] flows = days.get(day);
+            BigDecimal netFlow = BigDecimal.ZERO;
+            BigDecimal outflow = BigDecimal.ZERO;
+            if (flows != null) {
+                quantity = quantity.add(flows[0]);
+                netFlow = flows[1].subtract(flows[2]);
+                outflow = flows[2];
+                if (flows[3] != null) {
+                    price = flows[3];
+                }
+            }
+            BigDecimal close = closes.get(day);
+            if (close != null) {
+                price = close;
+            }
+            BigDecimal marketValue = price != null
+                    ? quantity.multiply(price).setScale(8, RoundingMode.HALF_UP) : BigDecimal.ZERO;
+            rows.add(new Object[]{watchlistId, Date.valueOf(day), quantity, price, marketValue, netFlow, outflow});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+
+        position.clearNavDirty();
+        positionRepository.save(position);
+    }
+
+    /**
+     * Gespeicherte Tagesschlusskurse eines Eintrags (UTC-Tag der Kerze -> Schlusskurs).
+     */
+    private Map<LocalDate, BigDecimal> loadStoredCloses(CryptoWatchlist watchlist, LocalDate from, LocalDate to) {
+        if (watchlist.getSymbol() == null || watchlist.getType() == null) {
+            return Map.of();
+        }
+        Optional<PriceSeries> series = priceSeriesRepository.findBySymbolAndAssetTypeAndVsCurrencyAndCandleInterval(
+                watchlist.getSymbol().toUpperCase(Locale.ROOT), watchlist.getType().toLowerCase(Locale.ROOT),
+                CLOSE_CURRENCY, CLOSE_INTERVAL);
+        if (series.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<LocalDate, BigDecimal> closes = new HashMap<>();
+        for (PriceCandle candle : priceCandleRepository.findBySeriesAndOpenTimeBetweenOrderByOpenTimeAsc(series.get(),
+                from.atStartOfDay(ZoneOffset.UTC).toInstant(), to.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant())) {
+            closes.put(LocalDate.ofInstant(candle.getOpenTime(), ZoneOffset.UTC), BigDecimal.valueOf(candle.getClose()));
+        }
+        return closes;
+    }
+
+    /**
+     * Lädt die Schlusskurse seit dem letzten gespeicherten Tag über den Kurs-Speicher nach
+     * (dieser fragt nur fehlende Zeiträume beim Provider an).
+     */
+    private void loadCloses() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        List<Map<String, Object>> assets = jdbcTemplate.queryForList(
+                "SELECT w.symbol, w.type, MAX(n.nav_date) AS last_date FROM crypto_watchlist w " +
+                        "JOIN watchlist_position p ON p.watchlist_id = w.id " +
+                        "LEFT JOIN daily_nav n ON n.watchlist_id = w.id " +
+                        "WHERE p.transaction_count > 0 GROUP BY w.id, w.symbol, w.type");
+        for (Map<String, Object> asset : assets) {
+            String symbol = (String) asset.get("symbol");
+            try {
+                LocalDate from = asset.get("last_date") != null
+                        ? ((Date) asset.get("last_date")).toLocalDate().minusDays(1) : today.minusDays(30);
+                priceHistoryService.getHistory(symbol, (String) asset.get("type"), CLOSE_CURRENCY, CLOSE_INTERVAL,
+                        from.atStartOfDay(ZoneOffset.UTC).toInstant(), Instant.now());
+            } catch (RuntimeException e) {
+                System.err.println("Schlusskurse für " + symbol + " nicht geladen: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Zeitgewichtete Rendite (tägliche Verkettung) und maximaler Drawdown der Renditekurve, damit Ein- und
+     * Auszahlungen die Kennzahlen nicht verfälschen. Käufe zählen zu Tagesbeginn, Verkaufserlöse zum Tagesende:
+     * r = (NAV + Erlöse) / (NAV Vortag + Käufe). Ein vollständiger Verkauf beendet die Kurve also mit der
+     * Rendite bis zum Verkauf statt mit -100 %.
+     *
+     * @param rows Tage aufsteigend als {Datum, NAV, Käufe minus Erlöse, Erlöse}
+     */
+    static Map<String, Object> analyze(List<Object[]> rows) {
+        List<Map<String, Object>> curve = new ArrayList<>(rows.size());
+        double index = 1.0;
+        double peak = 1.0;
+        double maxDrawdown = 0.0;
+        LocalDate peakDate = null;
+        LocalDate drawdownPeak = null;
+        LocalDate drawdownTrough = null;
+        BigDecimal previousNav = null;
+        BigDecimal netFlows = BigDecimal.ZERO;
+
+        for (Object[] row : rows) {
+            LocalDate date = (LocalDate) row[0];
+            BigDecimal nav = (BigDecimal) row[1];
+            BigDecimal flow = (BigDecimal) row[2];
+            BigDecimal outflow = (BigDecimal) row[3];
+
+            if (previousNav == null) {
+                peakDate = date;
+            } else {
+                // Zuflüsse des ersten Tags gehören zum Anfangswert
+                netFlows = netFlows.add(flow);
+                double invested = previousNav.add(flow).add(outflow).doubleValue();
+                if (invested > 0) {
+                    index *= nav.add(outflow).doubleValue() / invested;
+                }
+            }
+            if (index > peak) {
+                peak = index;
+                peakDate = date;
+            }
+            double drawdown = 1.0 - index / peak;
+            if (drawdown > maxDrawdown) {
+                maxDrawdown = drawdown;
+                drawdownPeak = peakDate;
+                drawdownTrough = date;
+            }
+
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("date", date);
+            point.put("nav", nav);
+            point.put("netFlow", flow);
+            point.put("outflow", outflow);
+            point.put("index", index);
+            curve.add(point);
+            previousNav = nav;
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("curve", curve);
+        result.put("days", rows.size());
+        result.put("timeWeightedReturn", index - 1.0);
+        if (rows.size() > 1) {
+            long span = ((LocalDate) rows.get(rows.size() - 1)[0]).toEpochDay() - ((LocalDate) rows.get(0)[0]).toEpochDay();
+            result.put("annualizedReturn", span > 0 ? Math.pow(index, 365.0 / span) - 1.0 : 0.0);
+        }
+        result.put("maxDrawdown", maxDrawdown);
+        result.put("maxDrawdownPeak", drawdownPeak);
+        result.put("maxDrawdownTrough", drawdownTrough);
+        if (!rows.isEmpty()) {
+            BigDecimal startNav = (BigDecimal) rows.get(0)[1];
+            BigDecimal endNav = (BigDecimal) rows.get(rows.size() - 1)[1];
+            result.put("startNav", startNav);
+            result.put("endNav", endNav);
+            result.put("netFlows", netFlows);
+            result.put("gain", endNav.subtract(startNav).subtract(netFlows));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,568 @@
+package com.example.financemanager.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Simulation des Portfoliowerts der gehaltenen Assets:
+ * - Monte-Carlo-Pfade (GBM mit geschätzter oder vorgegebener Rendite/Volatilität, oder Bootstrap
+ *   aus den historischen Tagesrenditen) mit Perzentilen von Endwert, Rendite und maximalem Drawdown
+ * - deterministische Schock-Szenarien pro Symbol oder Asset-Typ (z.B. BTC -30 %, alle Aktien -15 %)
+ * Grundlage sind die gespeicherten Tagesschlusskurse und aktuellen Gewichte aus {@link RiskAnalyticsService};
+ * simuliert wird die gewichtete Portfolio-Rendite, die Korrelationen der Assets stecken damit bereits darin.
+ * Ein Schritt entspricht einer historischen Beobachtung (Aktien ~1 Handelstag, Krypto 1 Kalendertag).
+ */
+@Service
+public class PortfolioSimulationService {
+
+    private static final List<Double> DEFAULT_PERCENTILES = List.of(1.0, 5.0, 10.0, 25.0, 50.0, 75.0, 90.0, 95.0, 99.0);
+
+    @Autowired
+    private RiskAnalyticsService riskAnalyticsService;
+
+    // Pfade, wenn keine Anzahl angegeben ist
+    @Value("${simulation.default-paths:10000}")
+    private int defaultPaths;
+
+    // Maximale Anzahl Pfade (Speicher: 16 Byte pro Pfad)
+    @Value("${simulation.max-paths:1000000}")
+    private int maxPaths;
+
+    // Schritte pro Pfad, wenn keine Anzahl angegeben ist
+    @Value("${simulation.default-steps:250}")
+    private int defaultSteps;
+
+    // Maximale Schritte pro Pfad
+    @Value("${simulation.max-steps:2520}")
+    private int maxSteps;
+
+    // Obergrenze für Pfade * Schritte (Rechenzeit)
+    @Value("${simulation.max-path-steps:500000000}")
+    private long maxPathSteps;
+
+    // Gleichzeitig laufende Simulationen (jede nutzt alle Kerne)
+    @Value("${simulation.max-concurrent:1}")
+    private int maxConcurrent;
+
+    // Abstand der Fortschritts-Events im Stream
+    @Value("${simulation.progress-interval-ms:250}")
+    private long progressIntervalMs;
+
+    // Timeout des SSE-Streams
+    @Value("${simulation.stream-timeout-ms:600000}")
+    private long streamTimeoutMs;
+
+    private Bulkhead bulkhead;
+
+    // Führt gestreamte Simulationen aus und sendet deren Fortschritt
+    private final ExecutorService streamExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @PostConstruct
+    public void init() {
+        bulkhead = new Bulkhead("simulation", maxConcurrent, 0);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        streamExecutor.shutdownNow();
+    }
+
+    /**
+     * Führt eine Simulation aus und liefert das Ergebnis.
+     *
+     * @param request Parameter (siehe {@link Settings})
+     * @return Map mit Perzentilen, Kennzahlen und Szenario-Ergebnissen
+     * @throws IllegalStateException wenn bereits die maximale Anzahl Simulationen läuft
+     */
+    public Map<String, Object> simulate(Map<String, Object> request) {
+        Settings settings = parse(request);
+        acquire();
+        try {
+            return run(settings, new AtomicLong(), null);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Führt eine Simulation im Hintergrund aus und streamt den Fortschritt.
+     * Events: "progress" ({completedPaths, totalPaths, percent}), danach "result" oder "error".
+     * Schließt der Client die Verbindung, wird die Simulation nach dem laufenden Block abgebrochen.
+     *
+     * @param request Parameter (siehe {@link Settings})
+     * @return Der SSE-Emitter für die Verbindung
+     * @throws IllegalStateException wenn bereits die maximale Anzahl Simulationen läuft
+     */
+    public SseEmitter simulateStream(Map<String, Object> request) {
+        Settings settings = parse(request);
+        acquire();
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        AtomicBoolean closed = new AtomicBoolean();
+        emitter.onCompletion(() -> closed.set(true));
+        emitter.onTimeout(() -> {
+            closed.set(true);
+            emitter.complete();
+        });
+        emitter.onError(e -> closed.set(true));
+
+        try {
+            streamExecutor.execute(() -> stream(emitter, settings, closed));
+        } catch (RejectedExecutionException e) {
+            bulkhead.release();
+            throw new IllegalStateException("Simulation konnte nicht gestartet werden");
+        }
+        return emitter;
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    /**
+     * Parameter einer Simulation (alle optional):
+     * model ("gbm" oder "bootstrap"), paths (0 = nur Szenarien), steps, seed, from, to (Historie, ISO-Datum),
+     * confidence (VaR/CVaR am Ende), percentiles, expectedReturn und volatility (jährlich, nur GBM),
+     * scenarios ([{"name": "...", "shocks": {"BTC": -0.3, "stock": -0.15}}], Schock als Anteil).
+     */
+    private static final class Settings {
+        MonteCarloEngine.Model model = MonteCarloEngine.Model.GBM;
+        int paths;
+        int steps;
+        long seed;
+        LocalDate from;
+        LocalDate to;
+        double confidence = 0.95;
+        double[] percentiles;
+        Double expectedReturn;
+        Double volatility;
+        List<Scenario> scenarios = new ArrayList<>();
+    }
+
+    private static final class Scenario {
+        final String name;
+        // Symbol (Großbuchstaben) oder Asset-Typ (Kleinbuchstaben) -> relative Kursänderung
+        final Map<String, Double> shocks;
+
+        Scenario(String name, Map<String, Double> shocks) {
+            this.name = name;
+            this.shocks = shocks;
+        }
+    }
+
+    private Settings parse(Map<String, Object> request) {
+        Map<String, Object> values = request != null ? request : Map.of();
+        Settings settings = new Settings();
+
+        if (values.get("model") != null) {
+            settings.model = MonteCarloEngine.Model.parse(values.get("model").toString());
+        }
+        long paths = longValue(values, "paths", defaultPaths);
+        long steps = longValue(values, "steps", defaultSteps);
+        if (paths < 0 || paths > maxPaths) {
+            throw new IllegalArgumentException("paths muss zwischen 0 und " + maxPaths + " liegen");
+        }
+        if (steps < 1 || steps > maxSteps) {
+            throw new IllegalArgumentException("steps muss zwischen 1 und " + maxSteps + " liegen");
+        }
+        settings.paths = (int) paths;
+        settings.steps = (int) steps;
+        if ((long) settings.paths * settings.steps > maxPathSteps) {
+            throw new IllegalArgumentException("paths * steps darf höchstens " + maxPathSteps + " betragen");
+        }
+        settings.seed = values.get("seed") != null ? longValue(values, "seed", 0)
+                : ThreadLocalRandom.current().nextLong();
+
+        settings.from = dateValue(values, "from");
+        settings.to = dateValue(values, "to");
+        if (values.get("confidence") != null) {
+            settings.confidence = doubleValue(values, "confidence");
+            if (settings.confidence <= 0.5 || settings.confidence >= 1.0) {
+                throw new IllegalArgumentException("confidence muss zwischen 0.5 und 1 liegen");
+            }
+        }
+
+        List<Double> percentiles = DEFAULT_PERCENTILES;
+        if (values.get("percentiles") instanceof List<?> list && !list.isEmpty()) {
+            percentiles = new ArrayList<>();
+            for (Object item : list) {
+                double percentile = number(item, "percentiles");
+                if (percentile < 0.0 || percentile > 100.0) {
+                    throw new IllegalArgumentException("Perzentile müssen zwischen 0 und 100 liegen");
+                }
+                percentiles.add(percentile);
+            }
+        }
+        settings.percentiles = percentiles.stream().mapToDouble(Double::doubleValue).sorted().distinct().toArray();
+
+        if (values.get("expectedReturn") != null) {
+            settings.expectedReturn = doubleValue(values, "expectedReturn");
+        }
+        if (values.get("volatility") != null) {
+            settings.volatility = doubleValue(values, "volatility");
+            if (settings.volatility < 0.0) {
+                throw new IllegalArgumentException("volatility darf nicht negativ sein");
+            }
+        }
+
+        if (values.get("scenarios") != null) {
+            if (!(values.get("scenarios") instanceof List<?> list)) {
+                throw new IllegalArgumentException("scenarios muss eine Liste sein");
+            }
+            for (Object item : list) {
+                settings.scenarios.add(parseScenario(item, settings.scenarios.size() + 1));
+            }
+        }
+        return settings;
+    }
+
+    private static Scenario parseScenario(Object item, int number) {
+        if (!(item instanceof Map<?, ?> scenario) || !(scenario.get("shocks") instanceof Map<?, ?> shocks)) {
+            throw new IllegalArgumentException("Szenario " + number + " braucht ein Objekt 'shocks' (z.B. {\"BTC\": -0.3})");
+        }
+        Map<String, Double> parsed = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> shock : shocks.entrySet()) {
+            String key = String.valueOf(shock.getKey()).trim();
+            double change = number(shock.getValue(), "shocks." + key);
+            if (key.isEmpty() || change < -1.0) {
+                throw new IllegalArgumentException("Ungültiger Schock in Szenario " + number + ": " + key + " = " + change);
+            }
+            parsed.put(key, change);
+        }
+        Object name = scenario.get("name");
+        return new Scenario(name != null ? name.toString() : "Szenario " + number, parsed);
+    }
+
+    private static long longValue(Map<String, Object> values, String key, long defaultValue) {
+        Object value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return value instanceof Number number ? number.longValue() : Long.parseLong(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Ungültiger Wert für " + key + ": " + value);
+        }
+    }
+
+    private static double doubleValue(Map<String, Object> values, String key) {
+        return number(values.get(key), key);
+    }
+
+    private static double number(Object value, String key) {
+        try {
+            double number = value instanceof Number n ? n.doubleValue() : Double.parseDouble(String.valueOf(value).trim());
+            if (!Double.isFinite(number)) {
+                throw new NumberFormatException();
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Ungültiger Wert für " + key + ": " + value);
+        }
+    }
+
+    private static LocalDate dateValue(Map<String, Object> values, String key) {
+        Object value = values.get(key);
+        if (value == null || value.toString().isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value.toString().trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Ungültiges Datum für " + key + ": " + value);
+        }
+    }
+
+    private void acquire() {
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            throw new IllegalStateException("Maximale Anzahl gleichzeitiger Simulationen erreicht (" + maxConcurrent + ")");
+        }
+    }
+
+    private void stream(SseEmitter emitter, Settings settings, AtomicBoolean closed) {
+        AtomicLong completed = new AtomicLong();
+        try {
+            Future<Map<String, Object>> future = streamExecutor.submit(() -> run(settings, completed, closed::get));
+            Map<String, Object> result = null;
+            while (result == null) {
+                try {
+                    result = future.get(progressIntervalMs, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    send(emitter, closed, "progress", progress(completed.get(), settings.paths));
+                }
+            }
+            send(emitter, closed, result.containsKey("error") ? "error" : "result", result);
+            emitter.complete();
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof CancellationException)) {
+                System.err.println("Simulation fehlgeschlagen: " + e.getCause().getMessage());
+                send(emitter, closed, "error", Map.of("success", false, "error",
+                        e.getCause() instanceof IllegalArgumentException ? e.getCause().getMessage()
+                                : "Fehler bei der Simulation: " + e.getCause().getMessage()));
+                emitter.complete();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            emitter.complete();
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private static void send(SseEmitter emitter, AtomicBoolean closed, String name, Object data) {
+        if (closed.get()) {
+            return;
+        }
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+        } catch (IOException | IllegalStateException e) {
+            // Client getrennt: laufende Simulation wird über das Flag abgebrochen
+            closed.set(true);
+        }
+    }
+
+    private static Map<String, Object> progress(long completed, int total) {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("completedPaths", completed);
+        progress.put("totalPaths", total);
+        progress.put("percent", total > 0 ? round(100.0 * completed / total) : 100.0);
+        return progress;
+    }
+
+    private Map<String, Object> run(Settings settings, AtomicLong completed, BooleanSupplier cancelled) {
+        long start = System.nanoTime();
+        RiskAnalyticsService.ReturnWindow window = riskAnalyticsService.loadWindow(settings.from, settings.to, null);
+        if (window.error != null) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", false);
+            result.put("error", window.error);
+            result.put("excluded", window.excluded);
+            return result;
+        }
+
+        double startValue = window.portfolioValue;
+        double periodsPerYear = window.periodsPerYear;
+        double[] logReturns = new double[window.portfolioReturns.length];
+        for (int t = 0; t < logReturns.length; t++) {
+            logReturns[t] = Math.log1p(window.portfolioReturns[t]);
+        }
+
+        // GBM-Parameter pro Schritt: aus den historischen Log-Renditen oder aus den jährlichen Vorgaben
+        double logMean = RiskEngine.mean(logReturns);
+        double logStdDev = RiskEngine.stdDev(logReturns, logMean);
+        double drift = logMean;
+        double volatility = logStdDev;
+        if (settings.expectedReturn != null || settings.volatility != null) {
+            double annualReturn = settings.expectedReturn != null ? settings.expectedReturn
+                    : RiskEngine.mean(window.portfolioReturns) * periodsPerYear;
+            double annualVolatility = settings.volatility != null ? settings.volatility
+                    : logStdDev * Math.sqrt(periodsPerYear);
+            drift = (annualReturn - 0.5 * annualVolatility * annualVolatility) / periodsPerYear;
+            volatility = annualVolatility / Math.sqrt(periodsPerYear);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("success", true);
+        result.put("model", settings.model.name());
+        result.put("paths", settings.paths);
+        result.put("steps", settings.steps);
+        result.put("seed", settings.seed);
+        result.put("from", window.from);
+        result.put("to", window.to);
+        result.put("observations", logReturns.length);
+        result.put("periodsPerYear", round(periodsPerYear));
+        result.put("horizonYears", round(settings.steps / periodsPerYear));
+        result.put("startValue", round(startValue));
+        result.put("assets", window.assets.stream().map(asset -> Map.of(
+                "watchlistId", asset.id, "symbol", asset.symbol, "type", asset.type != null ? asset.type : "",
+                "marketValue", round(asset.marketValue), "weight", round(asset.marketValue / startValue))).toList());
+
+        double[] sortedReturns = null;
+        if (settings.paths > 0) {
+            double[] terminal = new double[settings.paths];
+            double[] drawdowns = new double[settings.paths];
+            long simulationStart = System.nanoTime();
+            MonteCarloEngine.simulate(settings.model, drift, volatility, logReturns, settings.seed, settings.steps,
+                    terminal, drawdowns, done -> completed.accumulateAndGet(done, Math::max), cancelled);
+            long simulationNanos = System.nanoTime() - simulationStart;
+
+            // Log-Renditen -> einfache Renditen, dann sortieren (monoton, Reihenfolge bleibt gleich)
+            for (int p = 0; p < terminal.length; p++) {
+                terminal[p] = Math.expm1(terminal[p]);
+            }
+            Arrays.parallelSort(terminal);
+            Arrays.parallelSort(drawdowns);
+            sortedReturns = terminal;
+
+            Map<String, Object> parameters = new LinkedHashMap<>();
+            parameters.put("driftPerStep", round(drift));
+            parameters.put("volatilityPerStep", round(volatility));
+            parameters.put("expectedReturn", round((drift + 0.5 * volatility * volatility) * periodsPerYear));
+            parameters.put("volatility", round(volatility * Math.sqrt(periodsPerYear)));
+            result.put("parameters", parameters);
+            result.put("outcome", outcome(terminal, drawdowns, startValue, settings.confidence));
+            result.put("percentiles", percentiles(terminal, drawdowns, startValue, settings.percentiles));
+            result.put("simulationMs", simulationNanos / 1_000_000);
+            result.put("pathStepsPerSecond", simulationNanos > 0
+                    ? Math.round((double) settings.paths * settings.steps / (simulationNanos / 1e9)) : 0);
+        }
+
+        List<Map<String, Object>> scenarios = new ArrayList<>();
+        for (Scenario scenario : settings.scenarios) {
+            scenarios.add(applyScenario(scenario, window, sortedReturns));
+        }
+        result.put("scenarios", scenarios);
+        result.put("excluded", window.excluded);
+        result.put("durationMs", (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * Mittelwert, Verlustwahrscheinlichkeit und VaR/CVaR der Endrenditen sowie Kennzahlen des Drawdowns.
+     */
+    private static Map<String, Object> outcome(double[] sortedReturns, double[] sortedDrawdowns, double startValue,
+                                               double confidence) {
+        double mean = RiskEngine.mean(sortedReturns);
+        int losses = lowerBound(sortedReturns, 0.0);
+        double var = RiskEngine.historicalVar(sortedReturns, confidence);
+        double cvar = RiskEngine.historicalCvar(sortedReturns, confidence);
+
+        Map<String, Object> outcome = new LinkedHashMap<>();
+        outcome.put("meanValue", round(startValue * (1.0 + mean)));
+        outcome.put("meanReturn", round(mean));
+        outcome.put("probabilityOfLoss", round((double) losses / sortedReturns.length));
+        outcome.put("confidence", confidence);
+        outcome.put("var", round(var));
+        outcome.put("cvar", round(cvar));
+        outcome.put("varAmount", round(var * startValue));
+        outcome.put("cvarAmount", round(cvar * startValue));
+        outcome.put("meanMaxDrawdown", round(RiskEngine.mean(sortedDrawdowns)));
+        outcome.put("medianMaxDrawdown", round(MonteCarloEngine.percentile(sortedDrawdowns, 50.0)));
+        return outcome;
+    }
+
+    private static List<Map<String, Object>> percentiles(double[] sortedReturns, double[] sortedDrawdowns,
+                                                         double startValue, double[] percentiles) {
+        List<Map<String, Object>> entries = new ArrayList<>(percentiles.length);
+        for (double percentile : percentiles) {
+            double ret = MonteCarloEngine.percentile(sortedReturns, percentile);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("percentile", percentile);
+            entry.put("value", round(startValue * (1.0 + ret)));
+            entry.put("return", round(ret));
+            entry.put("maxDrawdown", round(MonteCarloEngine.percentile(sortedDrawdowns, percentile)));
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Wendet die Schocks eines Szenarios auf die Marktwerte an. Ein Symbol-Schock hat Vorrang vor dem
+     * Schock seines Asset-Typs. Mit Simulation wird zusätzlich der Anteil der Pfade geliefert,
+     * die am Ende mindestens so viel verloren haben.
+     */
+    private static Map<String, Object> applyScenario(Scenario scenario, RiskAnalyticsService.ReturnWindow window,
+                                                     double[] sortedReturns) {
+        Map<String, Double> bySymbol = new HashMap<>();
+        Map<String, Double> byType = new HashMap<>();
+        for (Map.Entry<String, Double> shock : scenario.shocks.entrySet()) {
+            bySymbol.put(shock.getKey().toUpperCase(Locale.ROOT), shock.getValue());
+            byType.put(shock.getKey().toLowerCase(Locale.ROOT), shock.getValue());
+        }
+        Set<String> unmatched = new LinkedHashSet<>(scenario.shocks.keySet());
+
+        double before = 0.0;
+        double after = 0.0;
+        List<Map<String, Object>> assets = new ArrayList<>();
+        for (RiskAnalyticsService.Asset asset : window.assets) {
+            String symbol = asset.symbol.toUpperCase(Locale.ROOT);
+            String type = asset.type != null ? asset.type.toLowerCase(Locale.ROOT) : "";
+            Double shock = bySymbol.containsKey(symbol) ? bySymbol.get(symbol) : byType.get(type);
+            before += asset.marketValue;
+            if (shock == null) {
+                after += asset.marketValue;
+                continue;
+            }
+            unmatched.removeIf(key -> key.equalsIgnoreCase(symbol) || key.equalsIgnoreCase(type));
+            double shocked = asset.marketValue * (1.0 + shock);
+            after += shocked;
+
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("watchlistId", asset.id);
+            entry.put("symbol", asset.symbol);
+            entry.put("type", type);
+            entry.put("shock", shock);
+            entry.put("marketValue", round(asset.marketValue));
+            entry.put("shockedValue", round(shocked));
+            entry.put("change", round(shocked - asset.marketValue));
+            assets.add(entry);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("name", scenario.name);
+        result.put("valueBefore", round(before));
+        result.put("valueAfter", round(after));
+        result.put("change", round(after - before));
+        result.put("changePercent", before > 0 ? round((after - before) / before * 100.0) : 0.0);
+        result.put("assets", assets);
+        result.put("unmatched", unmatched);
+        if (sortedReturns != null && before > 0) {
+            double scenarioReturn = after / before - 1.0;
+            result.put("simulatedProbability", round((double) upperBound(sortedReturns, scenarioReturn) / sortedReturns.length));
+        }
+        return result;
+    }
+
+    // Anzahl Werte < value in einem sortierten Array
+    private static int lowerBound(double[] sorted, double value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Anzahl Werte <= value in einem sortierten Array
+    private static int upperBound(double[] sorted, double value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Auf 6 Nachkommastellen
+    private static double round(double value) {
+        return Math.round(value * 1_000_000.0) / 1_000_000.0;
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.model.CryptoTransaction;
+import com.example.financemanager.model.CryptoWatchlist;
+import com.example.financemanager.model.Position;
+import com.example.financemanager.repository.CryptoTransactionRepository;
+import com.example.financemanager.repository.CryptoWatchlistRepository;
+import com.example.financemanager.repository.PositionRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Pflegt die Positionen (Bestand pro Watchlist-Eintrag).
+ * Jede gespeicherte oder gelöschte Transaktion ändert die Position in derselben Datenbank-Transaktion,
+ * sodass Lesezugriffe nie über die Transaktionshistorie rechnen müssen.
+ * Änderungen an einem Eintrag werden über eine Zeilensperre auf den Watchlist-Eintrag serialisiert.
+ * Beim Start werden fehlende Positionen aus bestehenden Transaktionen aufgebaut.
+ */
+@Service
+public class PositionService {
+
+    @Autowired
+    private CryptoWatchlistRepository cryptoWatchlistRepository;
+
+    @Autowired
+    private CryptoTransactionRepository cryptoTransactionRepository;
+
+    @Autowired
+    private PositionRepository positionRepository;
+
+    @Autowired
+    private TaxLotService taxLotService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void initialize() {
+        List<Long> missing = cryptoWatchlistRepository.findIdsWithoutPosition();
+        if (missing.isEmpty()) {
+            return;
+        }
+        System.err.println("Positionen fehlen für " + missing.size() + " Watchlist-Items, werden aufgebaut");
+        for (Long watchlistId : missing) {
+            try {
+                rebuild(watchlistId);
+            } catch (RuntimeException e) {
+                System.err.println("Position für Watchlist-Item " + watchlistId + " nicht aufgebaut: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Speichert eine Transaktion und rechnet sie in die Position ihres Watchlist-Eintrags ein.
+     *
+     * @param transaction Neue Transaktion (Watchlist-Eintrag muss gespeichert sein)
+     * @return Die gespeicherte Transaktion
+     */
+    public CryptoTransaction recordTransaction(CryptoTransaction transaction) {
+        return transactionTemplate.execute(status -> {
+            CryptoWatchlist watchlist = lockWatchlist(transaction.getWatchlist().getId());
+            CryptoTransaction saved = cryptoTransactionRepository.save(transaction);
+
+            Position position = positionRepository.findByWatchlistId(watchlist.getId()).orElseGet(() -> {
+                Position created = new Position(watchlist);
+                watchlist.setPosition(created);
+                return created;
+            });
+            position.apply(saved);
+            position.markNavDirty(dayOf(saved));
+            positionRepository.save(position);
+            taxLotService.onTransactionRecorded(saved);
+            return saved;
+        });
+    }
+
+    /**
+     * Löscht eine Transaktion und berechnet die Position des Eintrags neu.
+     * Ein Verkauf lässt sich nicht isoliert zurückrechnen (der realisierte Gewinn hängt vom
+     * damaligen Durchschnittspreis ab), daher wird nur dieser eine Eintrag neu aufgebaut.
+     *
+     * @param transactionId ID der Transaktion
+     * @return true wenn gelöscht, false wenn nicht gefunden
+     */
+    public boolean deleteTransaction(Long transactionId) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            Optional<CryptoTransaction> transactionOpt = cryptoTransactionRepository.findById(transactionId);
+            if (transactionOpt.isEmpty()) {
+                return false;
+            }
+
+            CryptoWatchlist watchlist = lockWatchlist(transactionOpt.get().getWatchlist().getId());
+            cryptoTransactionRepository.delete(transactionOpt.get());
+            cryptoTransactionRepository.flush();
+            reconcile(watchlist, dayOf(transactionOpt.get()));
+            return true;
+        }));
+    }
+
+    /**
+     * Liefert die Position eines Watchlist-Eintrags.
+     *
+     * @param watchlistId ID des Watchlist-Eintrags
+     * @return Position oder leer, wenn noch keine Transaktion gebucht wurde
+     */
+    public Optional<Position> getPosition(Long watchlistId) {
+        return positionRepository.findByWatchlistId(watchlistId);
+    }
+
+    /**
+     * Baut alle Positionen aus der Transaktionstabelle neu auf und korrigiert Abweichungen.
+     * Jeder Eintrag wird in einer eigenen Datenbank-Transaktion abgeglichen.
+     *
+     * @return Map mit Anzahl geprüfter und korrigierter Positionen
+     */
+    public Map<String, Object> rebuild() {
+        Instant start = Instant.now();
+        List<Long> corrected = new ArrayList<>();
+        List<Long> watchlistIds = cryptoWatchlistRepository.findAllIds();
+
+        for (Long watchlistId : watchlistIds) {
+            if (rebuild(watchlistId)) {
+                corrected.add(watchlistId);
+            }
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("checkedCount", watchlistIds.size());
+        result.put("correctedCount", corrected.size());
+        result.put("correctedWatchlistIds", corrected);
+        result.put("durationMs", Duration.between(start, Instant.now()).toMillis());
+        return result;
+    }
+
+    /**
+     * Baut die Position eines Watchlist-Eintrags aus seinen Transaktionen neu auf.
+     *
+     * @param watchlistId ID des Watchlist-Eintrags
+     * @return true wenn die gespeicherte Position abwich und korrigiert wurde
+     */
+    public boolean rebuild(Long watchlistId) {
+        return rebuild(watchlistId, null);
+    }
+
+    /**
+     * Baut die Position eines Watchlist-Eintrags neu auf, nachdem Transaktionen außerhalb
+     * dieses Services geschrieben wurden (z.B. Import).
+     *
+     * @param watchlistId ID des Watchlist-Eintrags
+     * @param changedFrom Frühester Tag der geänderten Transaktionen (null = unbekannt)
+     * @return true wenn die gespeicherte Position abwich und korrigiert wurde
+     */
+    public boolean rebuild(Long watchlistId, LocalDate changedFrom) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                reconcile(lockWatchlist(watchlistId), changedFrom)));
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    private CryptoWatchlist lockWatchlist(Long watchlistId) {
+        return cryptoWatchlistRepository.findByIdForUpdate(watchlistId)
+                .orElseThrow(() -> new IllegalArgumentException("Watchlist-Item nicht gefunden: " + watchlistId));
+    }
+
+    // Tag der NAV-Historie (UTC) einer Transaktion
+    private static LocalDate dayOf(CryptoTransaction transaction) {
+        return transaction.getTransactionDate() != null
+                ? PortfolioNavService.utcDay(transaction.getTransactionDate()) : LocalDate.now(ZoneOffset.UTC);
+    }
+
+    /**
+     * Berechnet die Position aus den Transaktionen in Buchungsreihenfolge und speichert sie bei Abweichung.
+     * Die NAV-Historie wird ab changedFrom neu vorgemerkt; bei einer Abweichung ohne bekannten Tag
+     * ab der ersten Transaktion.
+     * Muss innerhalb einer Transaktion mit gesperrtem Watchlist-Eintrag laufen.
+     */
+    private boolean reconcile(CryptoWatchlist watchlist, LocalDate changedFrom) {
+        // Lots nach dem Commit aus der Transaktionstabelle neu aufbauen lassen
+        taxLotService.invalidate(watchlist.getId());
+
+        Position rebuilt = new Position(watchlist);
+        LocalDate firstDay = null;
+        for (CryptoTransaction transaction : cryptoTransactionRepository.findByWatchlistIdOrderByTransactionDateAscIdAsc(watchlist.getId())) {
+            if (firstDay == null) {
+                firstDay = dayOf(transaction);
+            }
+            rebuilt.apply(transaction);
+        }
+        LocalDate dirtyFrom = changedFrom != null ? changedFrom : (firstDay != null ? firstDay : LocalDate.now(ZoneOffset.UTC));
+
+        Optional<Position> existingOpt = positionRepository.findByWatchlistId(watchlist.getId());
+        if (existingOpt.isEmpty()) {
+            if (rebuilt.getTransactionCount() == 0) {
+                return false;
+            }
+            rebuilt.markNavDirty(dirtyFrom);
+            watchlist.setPosition(rebuilt);
+            positionRepository.save(rebuilt);
+            return true;
+        }
+
+        Position existing = existingOpt.get();
+        if (changedFrom != null) {
+            existing.markNavDirty(changedFrom);
+            positionRepository.save(existing);
+        }
+        if (existing.sameHoldings(rebuilt)) {
+            return false;
+        }
+        System.err.println("Position für Watchlist-Item " + watchlist.getId() + " korrigiert (" +
+                existing.getTransactionCount() + " -> " + rebuilt.getTransactionCount() + " Transaktionen)");
+        existing.copyHoldingsFrom(rebuilt);
+        existing.markNavDirty(dirtyFrom);
+        positionRepository.save(existing);
+        return true;
+    }
+}
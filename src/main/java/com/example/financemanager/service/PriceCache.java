@@ -0,0 +1,244 @@
+package com.example.financemanager.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * In-Memory-Cache für aktuelle Preisantworten der externen APIs.
+ * Bietet:
+ * - TTL pro Asset-Typ (crypto/stock)
+ * - Größenbegrenzung mit Verdrängung der ältesten Einträge
+ * - Single-Flight-Laden: gleichzeitige Misses für denselben Schlüssel lösen genau einen Provider-Aufruf aus
+ * - Hit/Miss/Ladezeit-Statistiken
+ */
+@Component
+public class PriceCache {
+
+    // Gültigkeit eines Krypto-Preises in Millisekunden
+    @Value("${prices.cache.ttl.crypto-ms:30000}")
+    private long cryptoTtlMs;
+
+    // Gültigkeit eines Aktien-Preises in Millisekunden (über prices.refresh.stock-interval-ms halten)
+    @Value("${prices.cache.ttl.stock-ms:150000}")
+    private long stockTtlMs;
+
+    // Maximale Anzahl gecachter Preise
+    @Value("${prices.cache.max-size:1000}")
+    private int maxSize;
+
+    private final ConcurrentHashMap<PriceKey, Entry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadSuccesses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder totalLoadNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Cache-Schlüssel aus Symbol, Asset-Typ und Zielwährung (normalisiert).
+     */
+    public record PriceKey(String symbol, String type, String vsCurrency) {
+        public static PriceKey of(String symbol, String type, String vsCurrency) {
+            return new PriceKey(
+                    symbol.trim().toUpperCase(Locale.ROOT),
+                    type.toLowerCase(Locale.ROOT),
+                    vsCurrency != null ? vsCurrency.toLowerCase(Locale.ROOT) : "usd");
+        }
+    }
+
+    /**
+     * Ein Cache-Eintrag; während des Ladens ist {@code value} noch nicht abgeschlossen.
+     */
+    private static final class Entry {
+        private final CompletableFuture<Map<String, Object>> value = new CompletableFuture<>();
+        private volatile long loadedAtNanos;
+    }
+
+    /**
+     * Liefert den gecachten Preis oder lädt ihn über den Loader.
+     * Laufende Ladevorgänge werden von weiteren Aufrufern mitbenutzt.
+     *
+     * @param key Der Cache-Schlüssel
+     * @param loader Lädt die Provider-Antwort bei einem Miss
+     * @return Die (unveränderliche) Provider-Antwort
+     * @throws RuntimeException die Exception des Loaders, falls das Laden fehlschlägt
+     */
+    public Map<String, Object> get(PriceKey key, Supplier<Map<String, Object>> loader) {
+        Entry existing = entries.get(key);
+        if (existing != null && !isExpired(key, existing)) {
+            hits.increment();
+            return await(existing);
+        }
+
+        Entry created = new Entry();
+        Entry winner = entries.compute(key, (k, current) ->
+                current == null || isExpired(k, current) ? created : current);
+
+        if (winner != created) {
+            // Ein anderer Thread lädt bereits denselben Preis
+            hits.increment();
+            return await(winner);
+        }
+
+        misses.increment();
+        load(key, created, loader);
+        evictIfNecessary();
+        return await(created);
+    }
+
+    /**
+     * Liefert einen gültigen, fertig geladenen Preis ohne zu laden.
+     *
+     * @param key Der Cache-Schlüssel
+     * @return Die Provider-Antwort oder null bei Miss
+     */
+    public Map<String, Object> getIfPresent(PriceKey key) {
+        Entry entry = entries.get(key);
+        if (entry == null || !entry.value.isDone() || isExpired(key, entry)) {
+            return null;
+        }
+        hits.increment();
+        return entry.value.join();
+    }
+
+    /**
+     * Legt eine extern geladene Antwort (z.B. aus einem Batch-Aufruf) im Cache ab.
+     *
+     * @param key Der Cache-Schlüssel
+     * @param value Die Provider-Antwort
+     */
+    public void put(PriceKey key, Map<String, Object> value) {
+        Entry entry = new Entry();
+        entry.loadedAtNanos = System.nanoTime();
+        entry.value.complete(Collections.unmodifiableMap(value));
+        entries.put(key, entry);
+        evictIfNecessary();
+    }
+
+    /**
+     * Zählt einen Miss, dessen Ladevorgang der Aufrufer selbst übernimmt (Batch-Abfragen).
+     */
+    public void recordMisses(int count) {
+        misses.add(count);
+    }
+
+    /**
+     * Liefert die Cache-Statistiken.
+     *
+     * @return Map mit Treffern, Fehlzugriffen, Ladezeiten und Größe
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long loadCount = loadSuccesses.sum() + loadFailures.sum();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxSize", maxSize);
+        stats.put("hitCount", hitCount);
+        stats.put("missCount", missCount);
+        stats.put("hitRate", hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0.0);
+        stats.put("loadSuccessCount", loadSuccesses.sum());
+        stats.put("loadFailureCount", loadFailures.sum());
+        stats.put("averageLoadTimeMs", loadCount > 0
+                ? TimeUnit.NANOSECONDS.toMicros(totalLoadNanos.sum() / loadCount) / 1000.0 : 0.0);
+        stats.put("evictionCount", evictions.sum());
+        stats.put("ttlCryptoMs", cryptoTtlMs);
+        stats.put("ttlStockMs", stockTtlMs);
+        return stats;
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    private void load(PriceKey key, Entry entry, Supplier<Map<String, Object>> loader) {
+        long start = System.nanoTime();
+        try {
+            Map<String, Object> value = loader.get();
+            entry.loadedAtNanos = System.nanoTime();
+            totalLoadNanos.add(entry.loadedAtNanos - start);
+            loadSuccesses.increment();
+            entry.value.complete(Collections.unmodifiableMap(value));
+        } catch (RuntimeException e) {
+            totalLoadNanos.add(System.nanoTime() - start);
+            loadFailures.increment();
+            // Fehler werden nicht gecacht: der nächste Aufruf versucht es erneut
+            entries.remove(key, entry);
+            entry.value.completeExceptionally(e);
+        }
+    }
+
+    private Map<String, Object> await(Entry entry) {
+        try {
+            return entry.value.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private boolean isExpired(PriceKey key, Entry entry) {
+        if (!entry.value.isDone()) {
+            return false; // Laufende Ladevorgänge sind nie abgelaufen
+        }
+        if (entry.value.isCompletedExceptionally()) {
+            return true;
+        }
+        long ttlNanos = TimeUnit.MILLISECONDS.toNanos("crypto".equals(key.type()) ? cryptoTtlMs : stockTtlMs);
+        return System.nanoTime() - entry.loadedAtNanos > ttlNanos;
+    }
+
+    /**
+     * Entfernt bei Überschreitung der Maximalgröße zuerst abgelaufene,
+     * dann die ältesten Einträge bis auf 90 % der Maximalgröße.
+     */
+    private void evictIfNecessary() {
+        if (entries.size() <= maxSize) {
+            return;
+        }
+
+        entries.forEach((key, entry) -> {
+            if (isExpired(key, entry) && entries.remove(key, entry)) {
+                evictions.increment();
+            }
+        });
+
+        int target = (int) (maxSize * 0.9);
+        if (entries.size() <= target) {
+            return;
+        }
+
+        List<Map.Entry<PriceKey, Entry>> loaded = new ArrayList<>();
+        for (Map.Entry<PriceKey, Entry> e : entries.entrySet()) {
+            if (e.getValue().value.isDone()) {
+                loaded.add(e);
+            }
+        }
+        loaded.sort(Comparator.comparingLong(e -> e.getValue().loadedAtNanos));
+
+        for (Map.Entry<PriceKey, Entry> e : loaded) {
+            if (entries.size() <= target) {
+                break;
+            }
+            if (entries.remove(e.getKey(), e.getValue())) {
+                evictions.increment();
+            }
+        }
+    }
+}
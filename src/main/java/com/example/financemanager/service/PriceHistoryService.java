@@ -0,0 +1,474 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.dto.TwelveDataTimeSeries;
+import com.example.financemanager.model.PriceCandle;
+import com.example.financemanager.model.PriceSeries;
+import com.example.financemanager.repository.PriceCandleRepository;
+import com.example.financemanager.repository.PriceSeriesRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Lokaler Speicher für historische Kursdaten (OHLC-Kerzen pro Symbol und Intervall).
+ * Bietet:
+ * - Auslieferung von Charts aus der Datenbank
+ * - Nachladen nur der fehlenden Zeiträume an den Rändern des bereits geladenen Bereichs
+ * - Aktualisierung der noch offenen letzten Kerze nach Ablauf einer TTL
+ * - Beliebige Zeiträume statt fester 7 bzw. 1 Tag(e)
+ * Mock-Daten werden nie gespeichert.
+ */
+@Service
+public class PriceHistoryService {
+
+    @Autowired
+    private ExternalApiService externalApiService;
+
+    @Autowired
+    private PriceSeriesRepository priceSeriesRepository;
+
+    @Autowired
+    private PriceCandleRepository priceCandleRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Wie lange die zuletzt geladene (noch offene) Kerze als aktuell gilt
+    @Value("${prices.history.open-candle-ttl-ms:60000}")
+    private long openCandleTtlMs;
+
+    // Maximale Länge eines angefragten Zeitraums
+    @Value("${prices.history.max-range-days:365}")
+    private int maxRangeDays;
+
+    // Maximale Länge für Krypto-Kerzen unter einer Stunde (CoinGecko liefert 5-Minuten-Punkte nur in 1-Tages-Abschnitten)
+    @Value("${prices.history.max-intraday-crypto-days:7}")
+    private int maxIntradayCryptoDays;
+
+    // Maximale Anzahl Werte pro TwelveData-Aufruf
+    private static final int TWELVEDATA_MAX_OUTPUT = 5000;
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter DATE_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneOffset.UTC);
+
+    // Verhindert, dass parallele Anfragen dieselbe Lücke doppelt laden; Einträge leben nur, solange sie benutzt werden
+    private final Map<String, SeriesLock> seriesLocks = new ConcurrentHashMap<>();
+
+    /**
+     * Sperre einer Serie mit Anzahl der Threads, die sie halten oder darauf warten (nur in compute geändert).
+     */
+    private static final class SeriesLock extends ReentrantLock {
+        int users;
+    }
+
+    /**
+     * Liefert die Kerzen eines Assets für einen Zeitraum. Fehlende Bereiche werden
+     * beim Provider nachgeladen und gespeichert, alles andere kommt aus der Datenbank.
+     *
+     * @param symbol Das Asset-Symbol
+     * @param type Der Asset-Typ ("crypto" oder "stock")
+     * @param vsCurrency Die Zielwährung (nur für Krypto relevant)
+     * @param interval Das Kerzen-Intervall (z.B. "5min", "1h", "1day")
+     * @param from Beginn des Zeitraums
+     * @param to Ende des Zeitraums (wird auf jetzt begrenzt)
+     * @return Map mit Kerzen und Metadaten; zusätzlich "prices" (Krypto) bzw. "values" (Aktien) im Provider-Format
+     * @throws IllegalArgumentException bei ungültigem Typ, Intervall oder Zeitraum
+     */
+    public Map<String, Object> getHistory(String symbol, String type, String vsCurrency, String interval,
+                                          Instant from, Instant to) {
+        String normalizedSymbol = symbol.trim().toUpperCase(Locale.ROOT);
+        String normalizedType = type.trim().toLowerCase(Locale.ROOT);
+        if (!"crypto".equals(normalizedType) && !"stock".equals(normalizedType)) {
+            throw new IllegalArgumentException("Unbekannter Asset-Typ: " + type);
+        }
+        // Aktienkurse sind immer in der Börsenwährung
+        String currency = "crypto".equals(normalizedType) && vsCurrency != null
+                ? vsCurrency.toLowerCase(Locale.ROOT) : "usd";
+        Duration step = intervalDuration(interval);
+
+        Instant now = Instant.now();
+        Instant end = to.isAfter(now) ? now : to;
+        Instant start = floor(from, step);
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("Ungültiger Zeitraum: 'from' muss vor 'to' liegen");
+        }
+        if (Duration.between(start, end).toDays() > maxRangeDays) {
+            throw new IllegalArgumentException("Zeitraum darf höchstens " + maxRangeDays + " Tage umfassen");
+        }
+        if ("crypto".equals(normalizedType) && step.compareTo(Duration.ofHours(1)) < 0
+                && Duration.between(start, end).toDays() > maxIntradayCryptoDays) {
+            throw new IllegalArgumentException("Krypto-Intervalle unter 1h sind auf " + maxIntradayCryptoDays +
+                    " Tage begrenzt (ein Provider-Aufruf pro Tag); für längere Zeiträume 1h oder 1day verwenden");
+        }
+
+        String lockKey = normalizedSymbol + "|" + normalizedType + "|" + currency + "|" + interval;
+        SeriesLock lock = seriesLocks.compute(lockKey, (key, current) -> {
+            SeriesLock used = current != null ? current : new SeriesLock();
+            used.users++;
+            return used;
+        });
+        lock.lock();
+        try {
+            PriceSeries series = priceSeriesRepository
+                    .findBySymbolAndAssetTypeAndVsCurrencyAndCandleInterval(normalizedSymbol, normalizedType, currency, interval)
+                    .orElseGet(() -> new PriceSeries(normalizedSymbol, normalizedType, currency, interval));
+
+            List<String> errors = new ArrayList<>();
+            int networkCalls = fillGaps(series, step, start, end, now, errors);
+
+            List<PriceCandle> candles = series.getId() != null
+                    ? priceCandleRepository.findBySeriesAndOpenTimeBetweenOrderByOpenTimeAsc(series, start, end)
+                    : List.of();
+
+            if (candles.isEmpty() && !errors.isEmpty()) {
+                if ("stock".equals(normalizedType)) {
+                    // Fallback zu Mock-Daten für Demonstrationszwecke (nicht gespeichert)
+                    Map<String, Object> mockHistory = new HashMap<>(externalApiService.getMockStockHistory(normalizedSymbol));
+                    mockHistory.put("mock", true);
+                    mockHistory.put("warning", errors.get(0));
+                    return mockHistory;
+                }
+                throw new RuntimeException(errors.get(0));
+            }
+
+            Map<String, Object> history = createHistoryResponse(series, candles, start, end);
+            history.put("providerCalls", networkCalls);
+            history.put("source", networkCalls > 0 ? "provider" : "store");
+            if (!errors.isEmpty()) {
+                history.put("warning", "Teilweise veraltete Daten: " + errors.get(0));
+            }
+            return history;
+        } finally {
+            lock.unlock();
+            seriesLocks.compute(lockKey, (key, current) -> --current.users == 0 ? null : current);
+        }
+    }
+
+    /**
+     * Wandelt eine Zeitangabe aus einem Request-Parameter um.
+     * Unterstützt ISO-Instant ("2024-01-01T12:00:00Z"), Datum mit Uhrzeit und reines Datum (UTC).
+     *
+     * @param value Die Zeitangabe oder null
+     * @param fallback Wert, falls keine Zeitangabe übergeben wurde
+     * @return Der Zeitpunkt
+     * @throws IllegalArgumentException bei ungültigem Format
+     */
+    public static Instant parseTime(String value, Instant fallback) {
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+        String trimmed = value.trim();
+        try {
+            if (trimmed.endsWith("Z") || trimmed.matches(".*[+-]\\d{2}:\\d{2}$")) {
+                return Instant.parse(trimmed);
+            }
+            if (trimmed.contains("T")) {
+                return LocalDateTime.parse(trimmed).toInstant(ZoneOffset.UTC);
+            }
+            return LocalDate.parse(trimmed).atStartOfDay().toInstant(ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Ungültige Zeitangabe: '" + value + "'");
+        }
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    /**
+     * Lädt die fehlenden Ränder des Zeitraums beim Provider nach und erweitert den geladenen Bereich.
+     * Der geladene Bereich bleibt dabei zusammenhängend und wird nach jedem gespeicherten Abschnitt
+     * fortgeschrieben, sodass ein späterer Fehler bereits geladene Abschnitte nicht verwirft.
+     *
+     * @return Anzahl der Provider-Aufrufe
+     */
+    private int fillGaps(PriceSeries series, Duration step, Instant start, Instant end, Instant now, List<String> errors) {
+        Instant coveredFrom = series.getCoveredFrom();
+        Instant coveredTo = series.getCoveredTo();
+        Duration maxRange = Duration.ofDays(maxRangeDays);
+
+        // Weit entfernt vom bisherigen Bereich: neu beginnen statt die Lücke dazwischen zu laden
+        if (coveredFrom != null && (end.isBefore(coveredFrom.minus(maxRange)) || start.isAfter(coveredTo.plus(maxRange)))) {
+            coveredFrom = null;
+            coveredTo = null;
+        }
+
+        if (coveredFrom == null) {
+            // Vorwärts ab start: jeder Abschnitt verlängert den Bereich nach rechts
+            return fetchAndStore(series, step, start, end, true, errors,
+                    windowEnd -> updateCoverage(series, start, windowEnd, now));
+        }
+
+        int networkCalls = 0;
+        Instant rightEdge = coveredTo;
+
+        // Linker Rand: ältere Daten als bisher geladen, rückwärts ab dem bisherigen Beginn
+        if (start.isBefore(coveredFrom)) {
+            networkCalls += fetchAndStore(series, step, start, coveredFrom, false, errors,
+                    windowStart -> updateCoverage(series, windowStart, rightEdge, series.getLastFetchedAt()));
+        }
+
+        // Rechter Rand: neuere Daten bzw. die noch offene letzte Kerze
+        if (end.isAfter(coveredTo)) {
+            boolean missingCandles = Duration.between(coveredTo, end).compareTo(step) >= 0;
+            boolean openCandleStale = series.getLastFetchedAt() == null
+                    || Duration.between(series.getLastFetchedAt(), now).toMillis() >= openCandleTtlMs;
+            if (missingCandles || openCandleStale) {
+                // Ab Beginn der zuletzt (evtl. unvollständig) geladenen Kerze neu laden
+                networkCalls += fetchAndStore(series, step, floor(coveredTo, step), end, true, errors,
+                        windowEnd -> updateCoverage(series, series.getCoveredFrom(), windowEnd, now));
+            }
+        }
+        return networkCalls;
+    }
+
+    /**
+     * Lädt einen Zeitraum in provider-gerechten Abschnitten und speichert die Kerzen.
+     * Nach jedem gespeicherten Abschnitt erhält onStored die neue Grenze des lückenlos geladenen
+     * Bereichs (vorwärts: Ende des Abschnitts, rückwärts: Beginn). Beim ersten Fehler wird abgebrochen.
+     *
+     * @return Anzahl der Provider-Aufrufe
+     */
+    private int fetchAndStore(PriceSeries series, Duration step, Instant from, Instant to, boolean forward,
+                              List<String> errors, Consumer<Instant> onStored) {
+        Duration window = maxWindow(series.getAssetType(), step);
+        int calls = 0;
+
+        Instant windowStart = forward ? from : max(from, to.minus(window));
+        Instant windowEnd = forward ? min(to, from.plus(window)) : to;
+        while (windowStart.isBefore(windowEnd)) {
+            try {
+                calls++;
+                List<PriceCandle> candles = "crypto".equals(series.getAssetType())
+                        ? toCandles(externalApiService.getCryptoPriceRange(
+                                series.getSymbol(), series.getVsCurrency(), windowStart, windowEnd), step)
+                        : toCandles(externalApiService.getStockTimeSeries(
+                                series.getSymbol(), series.getCandleInterval(), windowStart, windowEnd));
+                storeCandles(series, candles);
+                onStored.accept(forward ? windowEnd : windowStart);
+            } catch (Exception e) {
+                errors.add(e.getMessage());
+                System.err.println("History fetch failed for " + series.getSymbol() + " (" +
+                        series.getCandleInterval() + "): " + e.getMessage());
+                break;
+            }
+            if (forward) {
+                windowStart = windowEnd;
+                windowEnd = min(to, windowEnd.plus(window));
+            } else {
+                windowEnd = windowStart;
+                windowStart = max(from, windowStart.minus(window));
+            }
+        }
+        return calls;
+    }
+
+    /**
+     * Speichert Kerzen; bereits vorhandene Kerzen (z.B. die zuvor offene letzte Kerze) werden überschrieben.
+     */
+    private void storeCandles(PriceSeries series, List<PriceCandle> candles) {
+        transactionTemplate.executeWithoutResult(status -> {
+            PriceSeries saved = series.getId() == null ? priceSeriesRepository.save(series) : series;
+            if (series.getId() == null) {
+                series.setId(saved.getId());
+            }
+            if (candles.isEmpty()) {
+                return;
+            }
+
+            Instant first = candles.get(0).getOpenTime();
+            Instant last = candles.get(candles.size() - 1).getOpenTime();
+            Map<Instant, PriceCandle> existing = new HashMap<>();
+            for (PriceCandle candle : priceCandleRepository.findBySeriesAndOpenTimeBetweenOrderByOpenTimeAsc(saved, first, last)) {
+                existing.put(candle.getOpenTime(), candle);
+            }
+
+            List<PriceCandle> toSave = new ArrayList<>(candles.size());
+            for (PriceCandle candle : candles) {
+                PriceCandle target = existing.getOrDefault(candle.getOpenTime(), candle);
+                target.setSeries(saved);
+                target.setOpen(candle.getOpen());
+                target.setHigh(candle.getHigh());
+                target.setLow(candle.getLow());
+                target.setClose(candle.getClose());
+                toSave.add(target);
+            }
+            priceCandleRepository.saveAll(toSave);
+        });
+    }
+
+    private void updateCoverage(PriceSeries series, Instant coveredFrom, Instant coveredTo, Instant lastFetchedAt) {
+        series.setCoveredFrom(coveredFrom);
+        series.setCoveredTo(coveredTo);
+        series.setLastFetchedAt(lastFetchedAt);
+        PriceSeries saved = priceSeriesRepository.save(series);
+        series.setId(saved.getId());
+    }
+
+    /**
+     * Fasst CoinGecko-Preispunkte zu Kerzen des gewünschten Intervalls zusammen.
+     */
+    private List<PriceCandle> toCandles(List<List<Double>> points, Duration step) {
+        TreeMap<Instant, PriceCandle> buckets = new TreeMap<>();
+        long stepMs = step.toMillis();
+
+        for (List<Double> point : points) {
+            if (point.size() < 2 || point.get(0) == null || point.get(1) == null) {
+                continue;
+            }
+            long timestamp = point.get(0).longValue();
+            double price = point.get(1);
+            Instant openTime = Instant.ofEpochMilli(Math.floorDiv(timestamp, stepMs) * stepMs);
+
+            PriceCandle candle = buckets.get(openTime);
+            if (candle == null) {
+                buckets.put(openTime, new PriceCandle(openTime, price, price, price, price));
+            } else {
+                // Punkte kommen aufsteigend: der letzte Punkt ist der Schlusskurs
+                candle.setHigh(Math.max(candle.getHigh(), price));
+                candle.setLow(Math.min(candle.getLow(), price));
+                candle.setClose(price);
+            }
+        }
+        return new ArrayList<>(buckets.values());
+    }
+
+    /**
+     * Wandelt eine TwelveData-Zeitreihe (neueste zuerst) in aufsteigende Kerzen um.
+     */
+    private List<PriceCandle> toCandles(TwelveDataTimeSeries series) {
+        TreeMap<Instant, PriceCandle> candles = new TreeMap<>();
+        for (TwelveDataTimeSeries.Value value : series.valuesOrEmpty()) {
+            if (value.datetime() == null || value.close() == null) {
+                continue;
+            }
+            Instant openTime = value.datetime().length() <= 10
+                    ? LocalDate.parse(value.datetime()).atStartOfDay().toInstant(ZoneOffset.UTC)
+                    : LocalDateTime.parse(value.datetime(), DATE_TIME_FORMAT).toInstant(ZoneOffset.UTC);
+            double close = value.close();
+            candles.put(openTime, new PriceCandle(openTime,
+                    value.open() != null ? value.open() : close,
+                    value.high() != null ? value.high() : close,
+                    value.low() != null ? value.low() : close,
+                    close));
+        }
+        return new ArrayList<>(candles.values());
+    }
+
+    /**
+     * Erstellt die Antwort mit einheitlichen Kerzen und dem bisherigen Provider-Format.
+     */
+    private Map<String, Object> createHistoryResponse(PriceSeries series, List<PriceCandle> candles, Instant from, Instant to) {
+        List<Map<String, Object>> candleList = new ArrayList<>(candles.size());
+        for (PriceCandle candle : candles) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("time", candle.getOpenTime().toEpochMilli());
+            entry.put("open", candle.getOpen());
+            entry.put("high", candle.getHigh());
+            entry.put("low", candle.getLow());
+            entry.put("close", candle.getClose());
+            candleList.add(entry);
+        }
+
+        Map<String, Object> history = new HashMap<>();
+        history.put("symbol", series.getSymbol());
+        history.put("type", series.getAssetType());
+        history.put("vsCurrency", series.getVsCurrency());
+        history.put("interval", series.getCandleInterval());
+        history.put("from", from.toString());
+        history.put("to", to.toString());
+        history.put("count", candles.size());
+        history.put("candles", candleList);
+
+        if ("crypto".equals(series.getAssetType())) {
+            // Format von CoinGecko market_chart: [[Zeitstempel in ms, Preis], ...]
+            List<List<Object>> prices = new ArrayList<>(candles.size());
+            for (PriceCandle candle : candles) {
+                prices.add(List.of(candle.getOpenTime().toEpochMilli(), candle.getClose()));
+            }
+            history.put("prices", prices);
+        } else {
+            // Format von TwelveData time_series: neueste Werte zuerst
+            boolean daily = series.getCandleInterval().endsWith("day");
+            List<Map<String, Object>> values = new ArrayList<>(candles.size());
+            for (int i = candles.size() - 1; i >= 0; i--) {
+                PriceCandle candle = candles.get(i);
+                Map<String, Object> value = new HashMap<>();
+                value.put("datetime", (daily ? DAY_FORMAT : DATE_TIME_FORMAT).format(candle.getOpenTime()));
+                value.put("open", String.format(Locale.ROOT, "%.5f", candle.getOpen()));
+                value.put("high", String.format(Locale.ROOT, "%.5f", candle.getHigh()));
+                value.put("low", String.format(Locale.ROOT, "%.5f", candle.getLow()));
+                value.put("close", String.format(Locale.ROOT, "%.5f", candle.getClose()));
+                values.add(value);
+            }
+            history.put("values", values);
+            history.put("status", "ok");
+        }
+        return history;
+    }
+
+    /**
+     * Dauer eines Kerzen-Intervalls im TwelveData-Format.
+     *
+     * @throws IllegalArgumentException bei nicht unterstütztem Intervall
+     */
+    static Duration intervalDuration(String interval) {
+        return switch (interval) {
+            case "1min" -> Duration.ofMinutes(1);
+            case "5min" -> Duration.ofMinutes(5);
+            case "15min" -> Duration.ofMinutes(15);
+            case "30min" -> Duration.ofMinutes(30);
+            case "45min" -> Duration.ofMinutes(45);
+            case "1h" -> Duration.ofHours(1);
+            case "2h" -> Duration.ofHours(2);
+            case "4h" -> Duration.ofHours(4);
+            case "1day" -> Duration.ofDays(1);
+            default -> throw new IllegalArgumentException("Nicht unterstütztes Intervall: '" + interval +
+                    "' (erlaubt: 1min, 5min, 15min, 30min, 45min, 1h, 2h, 4h, 1day)");
+        };
+    }
+
+    /**
+     * Größter Zeitraum pro Provider-Aufruf, bei dem die Auflösung noch zum Intervall passt.
+     */
+    private Duration maxWindow(String assetType, Duration step) {
+        if ("crypto".equals(assetType)) {
+            // CoinGecko: bis 1 Tag 5-Minuten-Punkte, bis 90 Tage stündlich, darüber täglich
+            if (step.compareTo(Duration.ofHours(1)) < 0) {
+                return Duration.ofDays(1);
+            }
+            return step.compareTo(Duration.ofDays(1)) < 0 ? Duration.ofDays(90) : Duration.ofDays(365);
+        }
+        return step.multipliedBy(TWELVEDATA_MAX_OUTPUT);
+    }
+
+    private static Instant min(Instant a, Instant b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static Instant max(Instant a, Instant b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static Instant floor(Instant time, Duration step) {
+        long stepMs = step.toMillis();
+        return Instant.ofEpochMilli(Math.floorDiv(time.toEpochMilli(), stepMs) * stepMs);
+    }
+}
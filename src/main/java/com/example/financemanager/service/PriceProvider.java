@@ -0,0 +1,37 @@
+package com.example.financemanager.service;
+
+import java.util.Map;
+
+/**
+ * Austauschbare Quelle für aktuelle Aktienkurse.
+ * Jede Implementierung liefert Quotes im einheitlichen Format
+ * (close, previous_close, change, change_percent). Der {@link HedgedPriceFetcher}
+ * fragt die verfügbaren Provider in der Reihenfolge von {@link #getOrder()} an
+ * und führt für jeden eine eigene Latenzstatistik.
+ */
+public interface PriceProvider {
+
+    /**
+     * Eindeutiger Name des Providers (entspricht dem Namen in {@link ProviderGuards}).
+     */
+    String getName();
+
+    /**
+     * Priorität des Providers; kleinere Werte werden zuerst angefragt.
+     */
+    int getOrder();
+
+    /**
+     * Ob der Provider verwendet werden kann (z.B. API-Schlüssel konfiguriert).
+     */
+    boolean isAvailable();
+
+    /**
+     * Ruft den aktuellen Kurs eines Symbols ab.
+     *
+     * @param symbol Das Aktien-Symbol
+     * @return Map mit close, previous_close, change und change_percent
+     * @throws RuntimeException bei API-Fehlern oder ungültiger Antwort
+     */
+    Map<String, Object> fetchQuote(String symbol);
+}
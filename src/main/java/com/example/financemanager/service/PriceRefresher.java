@@ -0,0 +1,183 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.repository.CryptoWatchlistRepository;
+import com.example.financemanager.repository.CryptoWatchlistRepository.SymbolView;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Lädt die Preise aller Watchlist-Symbole periodisch im Hintergrund in den Preis-Cache,
+ * damit Watchlist- und Portfolio-Ansichten ohne Provider-Roundtrip aus dem Speicher bedient werden.
+ * Die Symbole werden nach Typ gruppiert und über die Batch-APIs geladen.
+ * Zwischen den Läufen liegt ein Intervall plus zufälligem Jitter; meldet ein Provider
+ * Fehler, verlängert sich das Intervall exponentiell bis zu einem Maximum.
+ * Aktien werden seltener geladen (stock-interval-ms), da TwelveData einen Credit pro Symbol berechnet.
+ */
+@Component
+public class PriceRefresher {
+
+    @Autowired
+    private CryptoWatchlistRepository cryptoWatchlistRepository;
+
+    @Autowired
+    private ExternalApiService externalApiService;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    // Refresher ein-/ausschalten
+    @Value("${prices.refresh.enabled:true}")
+    private boolean enabled;
+
+    // Abstand zwischen zwei Läufen (sollte unter der Cache-TTL liegen)
+    @Value("${prices.refresh.interval-ms:25000}")
+    private long intervalMs;
+
+    // Mindestabstand zwischen zwei Aktien-Refreshes: ein voller TwelveData-Batch (8 Symbole = 8 Credits)
+    // alle 90 s braucht 5,3 der 8 Credits pro Minute, der Rest bleibt für direkte Abfragen
+    @Value("${prices.refresh.stock-interval-ms:90000}")
+    private long stockIntervalMs;
+
+    // Maximaler zufälliger Zuschlag auf das Intervall
+    @Value("${prices.refresh.jitter-ms:3000}")
+    private long jitterMs;
+
+    // Obergrenze für das Intervall bei wiederholten Provider-Fehlern
+    @Value("${prices.refresh.max-backoff-ms:300000}")
+    private long maxBackoffMs;
+
+    // Verzögerung des ersten Laufs nach dem Start
+    @Value("${prices.refresh.initial-delay-ms:10000}")
+    private long initialDelayMs;
+
+    // Zustand des letzten Laufs (nur vom Scheduler-Thread geschrieben)
+    private volatile Instant lastRunAt;
+    private volatile long lastRunDurationMs;
+    private volatile Instant lastSuccessAt;
+    private volatile Instant lastStockRefreshAt;
+    private volatile int lastRefreshedCount;
+    private volatile int lastFailedCount;
+    private volatile String lastError;
+    private volatile int consecutiveFailures;
+    private volatile long currentDelayMs;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            currentDelayMs = intervalMs;
+            scheduleNextRun(initialDelayMs);
+        }
+    }
+
+    /**
+     * Führt einen Refresh-Lauf aus und plant den nächsten.
+     */
+    void refresh() {
+        long start = System.nanoTime();
+        lastRunAt = Instant.now();
+
+        try {
+            Map<String, List<String>> symbolsByType = new HashMap<>();
+            for (SymbolView item : cryptoWatchlistRepository.findAllProjectedBy()) {
+                if (item.getSymbol() != null && item.getType() != null) {
+                    symbolsByType.computeIfAbsent(item.getType().toLowerCase(), t -> new ArrayList<>())
+                            .add(item.getSymbol());
+                }
+            }
+
+            Instant now = Instant.now();
+            boolean stocksDue = lastStockRefreshAt == null ||
+                    !now.isBefore(lastStockRefreshAt.plusMillis(stockIntervalMs));
+
+            int refreshed = 0;
+            int failed = 0;
+            for (Map.Entry<String, List<String>> entry : symbolsByType.entrySet()) {
+                if ("stock".equals(entry.getKey())) {
+                    if (!stocksDue) {
+                        continue;
+                    }
+                    lastStockRefreshAt = now;
+                }
+                List<String> symbols = entry.getValue();
+                Map<String, Map<String, Object>> prices = switch (entry.getKey()) {
+                    case "crypto" -> externalApiService.refreshCryptoCurrentPrices(symbols, "usd");
+                    case "stock" -> externalApiService.refreshStockQuotes(symbols);
+                    default -> Map.of();
+                };
+                refreshed += prices.size();
+                failed += symbols.size() - prices.size();
+            }
+
+            lastRefreshedCount = refreshed;
+            lastFailedCount = failed;
+
+            if (failed > 0) {
+                onFailure(failed + " Symbole konnten nicht aktualisiert werden");
+            } else {
+                onSuccess();
+            }
+        } catch (Exception e) {
+            onFailure(e.getMessage());
+        } finally {
+            lastRunDurationMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+            scheduleNextRun(currentDelayMs);
+        }
+    }
+
+    /**
+     * Liefert den Status des Refreshers (letzte Laufzeit, Aktualität der Daten, Backoff).
+     *
+     * @return Map mit Statusinformationen
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("lastRunAt", lastRunAt);
+        status.put("lastRunDurationMs", lastRunDurationMs);
+        status.put("lastSuccessAt", lastSuccessAt);
+        status.put("lastStockRefreshAt", lastStockRefreshAt);
+        status.put("stockIntervalMs", stockIntervalMs);
+        status.put("stalenessMs", lastSuccessAt != null
+                ? Duration.between(lastSuccessAt, Instant.now()).toMillis() : null);
+        status.put("lastRefreshedCount", lastRefreshedCount);
+        status.put("lastFailedCount", lastFailedCount);
+        status.put("lastError", lastError);
+        status.put("consecutiveFailures", consecutiveFailures);
+        status.put("currentIntervalMs", currentDelayMs);
+        return status;
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    private void onSuccess() {
+        lastSuccessAt = Instant.now();
+        lastError = null;
+        consecutiveFailures = 0;
+        currentDelayMs = intervalMs;
+    }
+
+    private void onFailure(String message) {
+        lastError = message;
+        consecutiveFailures++;
+        // Exponentielles Backoff: Intervall verdoppeln bis zum Maximum
+        currentDelayMs = Math.min(maxBackoffMs, Math.max(intervalMs, currentDelayMs) * 2);
+        System.err.println("Price refresh failed (" + consecutiveFailures + "x): " + message);
+    }
+
+    private void scheduleNextRun(long delayMs) {
+        long jitter = jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0;
+        taskScheduler.schedule(this::refresh, Instant.now().plusMillis(delayMs + jitter));
+    }
+}
@@ -0,0 +1,378 @@
+package com.example.financemanager.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Verteilt Preis-Updates per Server-Sent Events an alle offenen Dashboards.
+ * Bietet:
+ * - Ein Provider-Abruf pro Tick für die Vereinigung aller abonnierten Symbole (über den Preis-Cache)
+ * - Versand nur geänderter Preise an die jeweils interessierten Abonnenten
+ * - Zusammenfassen von Updates für langsame Clients: pro Symbol zählt nur der neueste Stand
+ */
+@Service
+public class PriceStreamService {
+
+    @Autowired
+    private AssetService assetService;
+
+    // Abstand zwischen zwei Preis-Abfragen für die Abonnenten
+    @Value("${prices.stream.interval-ms:5000}")
+    private long intervalMs;
+
+    // Lebensdauer einer SSE-Verbindung (EventSource verbindet sich danach selbst neu)
+    @Value("${prices.stream.timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    // Maximale Anzahl gleichzeitiger Abonnenten
+    @Value("${prices.stream.max-subscribers:100}")
+    private int maxSubscribers;
+
+    // Maximale Anzahl Symbole pro Abonnement
+    @Value("${prices.stream.max-symbols:100}")
+    private int maxSymbolsPerSubscriber;
+
+    // Nach so vielen Ticks ohne Änderung wird ein Keep-Alive gesendet
+    @Value("${prices.stream.heartbeat-ticks:3}")
+    private int heartbeatTicks;
+
+    private final Map<Long, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong subscriberIds = new AtomicLong();
+
+    // Zuletzt veröffentlichter Stand pro Symbol (nur vom Tick-Thread geschrieben)
+    private final Map<StreamKey, Map<String, Object>> lastPublished = new ConcurrentHashMap<>();
+
+    // Versand an die Clients, damit ein langsamer Client den Tick nicht blockiert
+    private final ExecutorService sendExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final LongAdder ticks = new LongAdder();
+    private final LongAdder eventsSent = new LongAdder();
+    private final LongAdder updatesCoalesced = new LongAdder();
+    private volatile long lastTickDurationMs;
+    private volatile String lastError;
+
+    // Eigener virtueller Thread für die Ticks: die blockierenden Provider-Abrufe belegen so
+    // keinen Thread des gemeinsamen Scheduler-Pools (spring.task.scheduling.pool.size)
+    private volatile Thread tickThread;
+
+    /**
+     * Symbol und Asset-Typ eines abonnierten Preises (normalisiert).
+     */
+    public record StreamKey(String symbol, String type) {
+        public static StreamKey of(String symbol, String type) {
+            return new StreamKey(symbol.trim().toUpperCase(Locale.ROOT), type.trim().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        tickThread = Thread.ofVirtual().name("price-stream-tick").start(this::runTicks);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (tickThread != null) {
+            tickThread.interrupt();
+        }
+        subscribers.values().forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+        sendExecutor.shutdownNow();
+    }
+
+    /**
+     * Registriert einen Abonnenten anhand einer kommaseparierten Symbolliste.
+     * Einträge können den Typ mitbringen ("BTC:crypto,AAPL:stock"); sonst gilt
+     * der angegebene Typ bzw. die automatische Typ-Erkennung.
+     *
+     * @param symbols Kommaseparierte Symbole, optional mit ":typ"
+     * @param type Standard-Typ für Einträge ohne eigenen Typ (optional)
+     * @return Der SSE-Emitter für die Verbindung
+     */
+    public SseEmitter subscribe(String symbols, String type) {
+        Set<StreamKey> keys = new HashSet<>();
+        for (String token : symbols.split(",")) {
+            if (token.isBlank()) {
+                continue;
+            }
+            String[] parts = token.split(":", 2);
+            String symbol = parts[0].trim();
+            String symbolType = parts.length > 1 && !parts[1].isBlank() ? parts[1]
+                    : type != null && !type.isBlank() ? type
+                    : assetService.detectAssetType(symbol);
+            keys.add(StreamKey.of(symbol, symbolType));
+        }
+        return subscribe(keys);
+    }
+
+    /**
+     * Registriert einen neuen Abonnenten für die angegebenen Symbole.
+     * Bereits bekannte Preise werden sofort gesendet, der Rest folgt mit dem nächsten Tick.
+     *
+     * @param keys Die abonnierten Symbole mit Asset-Typ
+     * @return Der SSE-Emitter für die Verbindung
+     */
+    public SseEmitter subscribe(Collection<StreamKey> keys) {
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("Mindestens ein Symbol ist erforderlich");
+        }
+        if (keys.size() > maxSymbolsPerSubscriber) {
+            throw new IllegalArgumentException("Maximal " + maxSymbolsPerSubscriber + " Symbole pro Abonnement erlaubt");
+        }
+        if (subscribers.size() >= maxSubscribers) {
+            throw new IllegalStateException("Maximale Anzahl an Preis-Streams erreicht (" + maxSubscribers + ")");
+        }
+
+        long id = subscriberIds.incrementAndGet();
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(id, Set.copyOf(keys), emitter);
+
+        emitter.onCompletion(() -> subscribers.remove(id));
+        emitter.onTimeout(() -> {
+            subscribers.remove(id);
+            emitter.complete();
+        });
+        emitter.onError(e -> subscribers.remove(id));
+        subscribers.put(id, subscriber);
+
+        // Initialer Stand aus dem letzten Tick, damit der Client nicht auf das Intervall warten muss
+        for (StreamKey key : subscriber.keys) {
+            Map<String, Object> known = lastPublished.get(key);
+            if (known != null) {
+                subscriber.offer(key, known);
+            }
+        }
+        subscriber.heartbeatDue = true;
+        subscriber.scheduleDrain();
+        return emitter;
+    }
+
+    /**
+     * Liefert den Status des Preis-Streams (Abonnenten, Symbole, gesendete Events).
+     *
+     * @return Map mit Statusinformationen
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("subscriberCount", subscribers.size());
+        status.put("maxSubscribers", maxSubscribers);
+        status.put("subscribedSymbolCount", collectSubscribedKeys().size());
+        status.put("intervalMs", intervalMs);
+        status.put("tickCount", ticks.sum());
+        status.put("lastTickDurationMs", lastTickDurationMs);
+        status.put("eventsSent", eventsSent.sum());
+        status.put("updatesCoalesced", updatesCoalesced.sum());
+        status.put("lastError", lastError);
+        return status;
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    /**
+     * Tick-Schleife mit festem Abstand zwischen zwei Ticks (wie scheduleWithFixedDelay),
+     * bis der Thread beim Herunterfahren unterbrochen wird.
+     */
+    private void runTicks() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                tick();
+                Thread.sleep(intervalMs);
+            }
+        } catch (InterruptedException e) {
+            // Beendet durch shutdown()
+        }
+    }
+
+    /**
+     * Ein Tick: lädt alle abonnierten Preise einmal und verteilt die Änderungen.
+     */
+    void tick() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        ticks.increment();
+
+        try {
+            Set<StreamKey> subscribed = collectSubscribedKeys();
+
+            Map<String, List<String>> symbolsByType = new HashMap<>();
+            for (StreamKey key : subscribed) {
+                symbolsByType.computeIfAbsent(key.type(), t -> new ArrayList<>()).add(key.symbol());
+            }
+
+            // Ein (gecachter) Batch-Abruf pro Typ für alle Abonnenten gemeinsam
+            Map<StreamKey, Map<String, Object>> changed = new HashMap<>();
+            for (Map.Entry<String, List<String>> entry : symbolsByType.entrySet()) {
+                String type = entry.getKey();
+                Map<String, Map<String, Object>> results =
+                        assetService.getAssetsWithCurrentPrices(entry.getValue(), type, "usd");
+
+                for (Map.Entry<String, Map<String, Object>> result : results.entrySet()) {
+                    StreamKey key = StreamKey.of(result.getKey(), type);
+                    Map<String, Object> update = createUpdate(key, result.getValue());
+                    Map<String, Object> previous = lastPublished.put(key, update);
+                    if (previous == null || !Objects.equals(fingerprint(previous), fingerprint(update))) {
+                        changed.put(key, update);
+                    }
+                }
+            }
+
+            // Nicht mehr abonnierte Symbole vergessen
+            lastPublished.keySet().retainAll(subscribed);
+
+            for (Subscriber subscriber : subscribers.values()) {
+                boolean offered = false;
+                for (StreamKey key : subscriber.keys) {
+                    Map<String, Object> update = changed.get(key);
+                    if (update != null) {
+                        subscriber.offer(key, update);
+                        offered = true;
+                    }
+                }
+                if (!offered && ++subscriber.idleTicks >= heartbeatTicks) {
+                    subscriber.heartbeatDue = true;
+                    subscriber.idleTicks = 0;
+                }
+                subscriber.scheduleDrain();
+            }
+            lastError = null;
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            System.err.println("Price stream tick failed: " + e.getMessage());
+        } finally {
+            lastTickDurationMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        }
+    }
+
+    private Set<StreamKey> collectSubscribedKeys() {
+        Set<StreamKey> keys = new HashSet<>();
+        for (Subscriber subscriber : subscribers.values()) {
+            keys.addAll(subscriber.keys);
+        }
+        return keys;
+    }
+
+    /**
+     * Reduziert ein Preis-Ergebnis auf die Felder, die der Client anzeigt.
+     */
+    private Map<String, Object> createUpdate(StreamKey key, Map<String, Object> result) {
+        Map<String, Object> update = new HashMap<>();
+        update.put("symbol", key.symbol());
+        update.put("type", key.type());
+        boolean success = Boolean.TRUE.equals(result.get("success"));
+        update.put("success", success);
+
+        if (success && result.get("priceData") instanceof Map<?, ?> priceData) {
+            update.put("price", priceData.get("price"));
+            if (priceData.get("change_percent") != null) {
+                update.put("change_percent", priceData.get("change_percent"));
+            }
+        } else {
+            update.put("error", result.get("error"));
+        }
+        update.put("timestamp", System.currentTimeMillis());
+        return update;
+    }
+
+    /**
+     * Vergleichswert für die Änderungserkennung (Preis bzw. Fehlermeldung, ohne Zeitstempel).
+     */
+    private Object fingerprint(Map<String, Object> update) {
+        return Boolean.TRUE.equals(update.get("success"))
+                ? List.of(String.valueOf(update.get("price")), String.valueOf(update.get("change_percent")))
+                : update.get("error");
+    }
+
+    /**
+     * Ein verbundener Client. Ausstehende Updates werden pro Symbol überschrieben,
+     * sodass ein langsamer Client nach dem Aufholen nur den jeweils neuesten Preis erhält.
+     */
+    private final class Subscriber {
+
+        private final long id;
+        private final Set<StreamKey> keys;
+        private final SseEmitter emitter;
+        private final Map<StreamKey, Map<String, Object>> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean heartbeatDue;
+        private int idleTicks; // Ticks ohne Update seit dem letzten Preis
+
+        Subscriber(long id, Set<StreamKey> keys, SseEmitter emitter) {
+            this.id = id;
+            this.keys = keys;
+            this.emitter = emitter;
+        }
+
+        void offer(StreamKey key, Map<String, Object> update) {
+            if (pending.put(key, update) != null) {
+                updatesCoalesced.increment();
+            }
+            idleTicks = 0;
+        }
+
+        void scheduleDrain() {
+            if ((pending.isEmpty() && !heartbeatDue) || !draining.compareAndSet(false, true)) {
+                return; // Ein laufender Versand übernimmt die neuen Updates mit
+            }
+            try {
+                sendExecutor.execute(this::drain);
+            } catch (RuntimeException e) {
+                draining.set(false);
+            }
+        }
+
+        private void drain() {
+            try {
+                do {
+                    Map<String, Object> batch = new LinkedHashMap<>();
+                    for (StreamKey key : new ArrayList<>(pending.keySet())) {
+                        Map<String, Object> update = pending.remove(key);
+                        if (update != null) {
+                            batch.put(key.symbol(), update);
+                        }
+                    }
+
+                    if (!batch.isEmpty()) {
+                        emitter.send(SseEmitter.event().name("prices").data(batch));
+                        eventsSent.increment();
+                    } else if (heartbeatDue) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                    }
+                    heartbeatDue = false;
+                    draining.set(false);
+                    // Während des Sendens eingetroffene Updates erneut beanspruchen
+                } while (!pending.isEmpty() && draining.compareAndSet(false, true));
+            } catch (IOException | IllegalStateException e) {
+                // Client hat die Verbindung geschlossen
+                subscribers.remove(id);
+                pending.clear();
+                draining.set(false);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.financemanager.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Schützt die Aufrufe an externe Provider mit je einem Circuit Breaker, einem Rate Limiter
+ * und einem Bulkhead.
+ * Ein ausgefallener Provider wird dadurch sofort übersprungen, ein langsamer belegt
+ * höchstens seine eigenen Plätze, und die Quote pro Minute wird nie überschritten.
+ * Die Grenzwerte gelten für alle Provider (providers.default.*) und können pro Provider
+ * überschrieben werden (z.B. providers.yahoo.bulkhead.max-concurrent=4).
+ */
+@Component
+public class ProviderGuards {
+
+    public static final String COINGECKO = "coingecko";
+    public static final String TWELVEDATA = "twelvedata";
+    public static final String YAHOO = "yahoo";
+    public static final String EXCHANGERATE_API = "exchangerate-api";
+    public static final String EXCHANGERATE_HOST = "exchangerate-host";
+
+    @Autowired
+    private Environment environment;
+
+    // Anzahl der letzten Aufrufe, über die die Fehlerquote berechnet wird
+    @Value("${providers.default.breaker.window-size:20}")
+    private int defaultWindowSize;
+
+    // Mindestanzahl Aufrufe, bevor der Breaker öffnen kann
+    @Value("${providers.default.breaker.minimum-calls:5}")
+    private int defaultMinimumCalls;
+
+    // Fehlerquote in Prozent, ab der der Breaker öffnet
+    @Value("${providers.default.breaker.failure-rate-threshold:50}")
+    private double defaultFailureRateThreshold;
+
+    // Wartezeit im offenen Zustand bis zu den Probeaufrufen
+    @Value("${providers.default.breaker.open-duration-ms:30000}")
+    private long defaultOpenDurationMs;
+
+    // Anzahl der Probeaufrufe im halboffenen Zustand
+    @Value("${providers.default.breaker.half-open-calls:2}")
+    private int defaultHalfOpenCalls;
+
+    // Maximale Anzahl gleichzeitiger Aufrufe pro Provider
+    @Value("${providers.default.bulkhead.max-concurrent:10}")
+    private int defaultMaxConcurrent;
+
+    // Maximale Wartezeit auf einen freien Platz
+    @Value("${providers.default.bulkhead.max-wait-ms:100}")
+    private long defaultMaxWaitMs;
+
+    // Erlaubte Aufrufe pro Minute (0 = unbegrenzt)
+    @Value("${providers.default.rate-limit.per-minute:0}")
+    private int defaultPermitsPerMinute;
+
+    // Maximale Anzahl sofort verfügbarer Tokens (0 = eine Minute Quote)
+    @Value("${providers.default.rate-limit.burst:0}")
+    private int defaultBurst;
+
+    // Maximale Wartezeit auf freie Tokens, danach wird der Aufruf abgelehnt
+    @Value("${providers.default.rate-limit.max-wait-ms:2000}")
+    private long defaultRateLimitMaxWaitMs;
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final Map<String, Optional<RateLimiter>> rateLimiters = new ConcurrentHashMap<>();
+
+    /**
+     * Führt einen Provider-Aufruf geschützt aus.
+     *
+     * @param provider Name des Providers (siehe Konstanten)
+     * @param request Der eigentliche HTTP-Aufruf
+     * @return Das Ergebnis des Aufrufs
+     * @throws ProviderUnavailableException wenn der Breaker offen oder der Bulkhead voll ist
+     * @throws RateLimitExceededException wenn die Quote des Providers ausgeschöpft ist
+     */
+    public <T> T call(String provider, Supplier<T> request) {
+        return call(provider, 1, request);
+    }
+
+    /**
+     * Führt einen Provider-Aufruf geschützt aus, der mehrere Quote-Einheiten kostet
+     * (z.B. TwelveData: ein Credit pro Symbol eines Batch-Aufrufs).
+     *
+     * @param provider Name des Providers (siehe Konstanten)
+     * @param permits Anzahl der verbrauchten Quote-Einheiten
+     * @param request Der eigentliche HTTP-Aufruf
+     * @return Das Ergebnis des Aufrufs
+     * @throws ProviderUnavailableException wenn der Breaker offen oder der Bulkhead voll ist
+     * @throws RateLimitExceededException wenn die Quote des Providers ausgeschöpft ist
+     */
+    public <T> T call(String provider, int permits, Supplier<T> request) {
+        CircuitBreaker breaker = breaker(provider);
+        if (!breaker.tryAcquirePermission()) {
+            throw new ProviderUnavailableException(provider, "Provider " + provider + " temporarily disabled (circuit open)");
+        }
+
+        // Erst der Platz im Bulkhead, dann die Tokens: ein abgewiesener Aufruf verbraucht so keine Quote
+        Bulkhead bulkhead = bulkhead(provider);
+        boolean admitted = false;
+        try {
+            if (!bulkhead.tryAcquire()) {
+                // Abgelehnt ohne Aufruf: zählt nicht gegen den Provider
+                breaker.releasePermission();
+                throw new ProviderUnavailableException(provider, "Provider " + provider + " busy (bulkhead full)");
+            }
+            try {
+                RateLimiter rateLimiter = rateLimiter(provider).orElse(null);
+                if (rateLimiter != null && !rateLimiter.tryAcquire(permits)) {
+                    // Quote ausgeschöpft: verworfen, bevor der Provider ein 429 liefern kann
+                    breaker.releasePermission();
+                    throw new RateLimitExceededException(provider, rateLimiter.estimateWaitMs(permits));
+                }
+                admitted = true;
+            } finally {
+                if (!admitted) {
+                    bulkhead.release();
+                }
+            }
+        } catch (InterruptedException e) {
+            breaker.releasePermission();
+            Thread.currentThread().interrupt();
+            throw new ProviderUnavailableException(provider, "Interrupted while waiting for provider " + provider);
+        }
+
+        try {
+            T result = request.get();
+            breaker.onSuccess();
+            return result;
+        } catch (RuntimeException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                // Vom Aufrufer abgebrochen (z.B. verlorener Hedge): sagt nichts über den Provider aus
+                breaker.releasePermission();
+            } else if (isProviderFailure(e)) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess();
+            }
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Liefert Breaker- und Bulkhead-Status aller Provider.
+     *
+     * @return Map Provider → Status
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        for (String provider : new String[]{COINGECKO, TWELVEDATA, YAHOO, EXCHANGERATE_API, EXCHANGERATE_HOST}) {
+            Map<String, Object> providerStatus = new LinkedHashMap<>();
+            providerStatus.put("circuitBreaker", breaker(provider).getStatus());
+            providerStatus.put("bulkhead", bulkhead(provider).getStatus());
+            rateLimiter(provider).ifPresent(limiter -> providerStatus.put("rateLimit", limiter.getStatus()));
+            status.put(provider, providerStatus);
+        }
+        return status;
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    /**
+     * Fehler des Providers (Timeout, Verbindungsfehler, 5xx, 429) öffnen den Breaker;
+     * Client-Fehler wie 404 für ein unbekanntes Symbol nicht.
+     */
+    private boolean isProviderFailure(RuntimeException e) {
+        if (e instanceof RestClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return status >= 500 || status == 429;
+        }
+        return true;
+    }
+
+    private CircuitBreaker breaker(String provider) {
+        return breakers.computeIfAbsent(provider, name -> new CircuitBreaker(name,
+                property(name, "breaker.window-size", Integer.class, defaultWindowSize),
+                property(name, "breaker.minimum-calls", Integer.class, defaultMinimumCalls),
+                property(name, "breaker.failure-rate-threshold", Double.class, defaultFailureRateThreshold),
+                property(name, "breaker.open-duration-ms", Long.class, defaultOpenDurationMs),
+                property(name, "breaker.half-open-calls", Integer.class, defaultHalfOpenCalls)));
+    }
+
+    private Bulkhead bulkhead(String provider) {
+        return bulkheads.computeIfAbsent(provider, name -> new Bulkhead(name,
+                property(name, "bulkhead.max-concurrent", Integer.class, defaultMaxConcurrent),
+                property(name, "bulkhead.max-wait-ms", Long.class, defaultMaxWaitMs)));
+    }
+
+    private Optional<RateLimiter> rateLimiter(String provider) {
+        return rateLimiters.computeIfAbsent(provider, name -> {
+            int permitsPerMinute = property(name, "rate-limit.per-minute", Integer.class, defaultPermitsPerMinute);
+            if (permitsPerMinute <= 0) {
+                return Optional.empty();
+            }
+            return Optional.of(new RateLimiter(name, permitsPerMinute,
+                    property(name, "rate-limit.burst", Integer.class, defaultBurst),
+                    property(name, "rate-limit.max-wait-ms", Long.class, defaultRateLimitMaxWaitMs)));
+        });
+    }
+
+    private <T> T property(String provider, String key, Class<T> type, T defaultValue) {
+        return environment.getProperty("providers." + provider + "." + key, type, defaultValue);
+    }
+}
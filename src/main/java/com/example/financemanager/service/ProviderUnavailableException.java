@@ -0,0 +1,21 @@
+package com.example.financemanager.service;
+
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Ein Provider-Aufruf wurde ohne Netzwerkzugriff abgelehnt (Circuit Breaker offen, Bulkhead voll).
+ * Erbt von RestClientException, damit bestehende Fallbacks greifen wie bei einem Verbindungsfehler.
+ */
+public class ProviderUnavailableException extends RestClientException {
+
+    private final String provider;
+
+    public ProviderUnavailableException(String provider, String message) {
+        super(message);
+        this.provider = provider;
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+}
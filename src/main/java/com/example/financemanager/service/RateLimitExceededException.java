@@ -0,0 +1,26 @@
+package com.example.financemanager.service;
+
+/**
+ * Ein Provider-Aufruf wurde abgelehnt, weil die Quote des Providers ausgeschöpft ist.
+ * Erbt bewusst nicht von RestClientException: der Aufrufer soll einen klaren Fehler
+ * erhalten statt stillschweigend auf Mock-Daten zurückzufallen.
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    private final String provider;
+    private final long retryAfterMs;
+
+    public RateLimitExceededException(String provider, long retryAfterMs) {
+        super("Rate limit for provider " + provider + " exceeded, retry in " + retryAfterMs + " ms");
+        this.provider = provider;
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+}
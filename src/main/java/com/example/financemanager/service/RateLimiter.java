@@ -0,0 +1,173 @@
+package com.example.financemanager.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token-Bucket für die Aufrufe an einen externen Provider.
+ * Der Bucket füllt sich gleichmäßig mit der erlaubten Rate pro Minute bis zur Burst-Größe auf.
+ * Ein Aufruf, für den gerade keine Tokens frei sind, reserviert sie und wartet, solange die
+ * Wartezeit unter max-wait liegt (Warteschlange). Alles darüber hinaus wird abgelehnt.
+ * Wird ein wartender Aufruf unterbrochen, gibt er seine reservierten Tokens zurück.
+ */
+public class RateLimiter {
+
+    private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final String name;
+    private final int permitsPerMinute;
+    private final int burst;
+    private final long maxWaitMs;
+    private final double permitsPerNano;
+
+    // Verfügbare Tokens; negativ, wenn wartende Aufrufe bereits Tokens reserviert haben
+    private double tokens;
+    private long lastRefillNanos;
+
+    // Vergebene Tokens der letzten Minute: [Zeitpunkt, Anzahl, Wartezeit in ns]
+    private final Deque<long[]> grants = new ArrayDeque<>();
+    private long usedInWindow;
+
+    private final LongAdder grantedCount = new LongAdder();
+    private final LongAdder queuedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder totalWaitMs = new LongAdder();
+
+    /**
+     * @param name Name des Providers
+     * @param permitsPerMinute Erlaubte Aufrufe bzw. Credits pro Minute
+     * @param burst Maximale Anzahl sofort verfügbarer Tokens
+     * @param maxWaitMs Maximale Wartezeit auf freie Tokens, danach wird der Aufruf abgelehnt
+     */
+    public RateLimiter(String name, int permitsPerMinute, int burst, long maxWaitMs) {
+        this.name = name;
+        this.permitsPerMinute = Math.max(1, permitsPerMinute);
+        this.burst = burst > 0 ? burst : this.permitsPerMinute;
+        this.maxWaitMs = Math.max(0, maxWaitMs);
+        this.permitsPerNano = (double) this.permitsPerMinute / WINDOW_NANOS;
+        this.tokens = this.burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Versucht, Tokens zu erhalten, und wartet dafür höchstens max-wait.
+     *
+     * @param permits Anzahl benötigter Tokens (z.B. ein Credit pro Symbol eines Batch-Aufrufs)
+     * @return true, wenn der Aufruf ausgeführt werden darf
+     * @throws InterruptedException wenn der Thread während des Wartens unterbrochen wird (Tokens werden zurückgegeben)
+     */
+    public boolean tryAcquire(int permits) throws InterruptedException {
+        long[] grant = reserve(permits);
+        if (grant == null) {
+            rejectedCount.increment();
+            return false;
+        }
+        long waitNanos = grant[2];
+        if (waitNanos > 0) {
+            queuedCount.increment();
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                refund(grant);
+                throw e;
+            }
+            totalWaitMs.add(TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        }
+        grantedCount.increment();
+        return true;
+    }
+
+    /**
+     * Geschätzte Wartezeit, bis die angegebenen Tokens wieder frei sind.
+     *
+     * @param permits Anzahl benötigter Tokens
+     * @return Wartezeit in Millisekunden
+     */
+    public synchronized long estimateWaitMs(int permits) {
+        refill(System.nanoTime());
+        double missing = permits - tokens;
+        return missing <= 0 ? 0 : (long) Math.ceil(missing / permitsPerNano / 1_000_000);
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Liefert die Quote-Auslastung und die Zähler des Limiters.
+     *
+     * @return Map mit Statusinformationen
+     */
+    public synchronized Map<String, Object> getStatus() {
+        long now = System.nanoTime();
+        refill(now);
+        trimWindow(now);
+
+        Map<String, Object> status = new HashMap<>();
+        status.put("name", name);
+        status.put("permitsPerMinute", permitsPerMinute);
+        status.put("burst", burst);
+        status.put("maxWaitMs", maxWaitMs);
+        status.put("availableTokens", Math.max(0, (int) Math.floor(tokens)));
+        status.put("usedLastMinute", usedInWindow);
+        status.put("quotaUsedPercent", Math.round(usedInWindow * 1000.0 / permitsPerMinute) / 10.0);
+        status.put("grantedCount", grantedCount.sum());
+        status.put("queuedCount", queuedCount.sum());
+        status.put("rejectedCount", rejectedCount.sum());
+        status.put("totalWaitMs", totalWaitMs.sum());
+        return status;
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    /**
+     * Reserviert Tokens und liefert den Eintrag [Zeitpunkt, Anzahl, Wartezeit in ns],
+     * oder null, wenn die Wartezeit max-wait überschreitet.
+     */
+    private synchronized long[] reserve(int permits) {
+        if (permits > burst) {
+            return null;
+        }
+        long now = System.nanoTime();
+        refill(now);
+
+        double missing = permits - tokens;
+        long waitNanos = missing <= 0 ? 0 : (long) Math.ceil(missing / permitsPerNano);
+        if (waitNanos > TimeUnit.MILLISECONDS.toNanos(maxWaitMs)) {
+            return null;
+        }
+
+        tokens -= permits;
+        trimWindow(now);
+        long[] grant = {now + waitNanos, permits, waitNanos};
+        grants.addLast(grant);
+        usedInWindow += permits;
+        return grant;
+    }
+
+    /**
+     * Gibt die Tokens einer nicht genutzten Reservierung zurück.
+     */
+    private synchronized void refund(long[] grant) {
+        refill(System.nanoTime());
+        tokens = Math.min(burst, tokens + grant[1]);
+        if (grants.remove(grant)) {
+            usedInWindow -= grant[1];
+        }
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+    }
+
+    private void trimWindow(long now) {
+        while (!grants.isEmpty() && now - grants.peekFirst()[0] > WINDOW_NANOS) {
+            usedInWindow -= grants.pollFirst()[1];
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package com.example.financemanager.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Risikokennzahlen der gehaltenen Assets aus den gespeicherten Tagesschlusskursen
+ * (Kerzen "1day" aus {@link PriceHistoryService}, keine Provider-Aufrufe):
+ * - Volatilität pro Asset und für das Portfolio (gewichtet mit dem aktuellen Marktwert)
+ * - historischer und parametrischer Value at Risk / Conditional VaR (1 Tag)
+ * - Beta gegenüber dem Portfolio oder einem Vergleichssymbol
+ * - Korrelationsmatrix aller Assets
+ * Alle Reihen werden auf die Tage ausgerichtet, an denen jedes Asset einen Schlusskurs hat;
+ * gerechnet wird in {@link RiskEngine} auf double[].
+ */
+@Service
+public class RiskAnalyticsService {
+
+    private static final String CLOSE_CURRENCY = "usd";
+    private static final String CLOSE_INTERVAL = "1day";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Zeitraum in Tagen, wenn kein Beginn angegeben ist
+    @Value("${risk.default-days:365}")
+    private int defaultDays;
+
+    // Maximaler Zeitraum in Tagen
+    @Value("${risk.max-days:1830}")
+    private int maxDays;
+
+    // Mindestanzahl gemeinsamer Schlusskurse
+    @Value("${risk.min-observations:30}")
+    private int minObservations;
+
+    /**
+     * Berechnet die Risikokennzahlen aller Assets mit positivem Bestand.
+     *
+     * @param from Erster Tag (null = to minus Standardzeitraum)
+     * @param to Letzter Tag (null = heute)
+     * @param confidence Konfidenzniveau für VaR/CVaR (z.B. 0.95)
+     * @param benchmark Symbol für das Beta (null = Portfolio)
+     * @return Map mit Portfolio- und Asset-Kennzahlen sowie der Korrelationsmatrix
+     */
+    public Map<String, Object> analyze(LocalDate from, LocalDate to, double confidence, String benchmark) {
+        long start = System.nanoTime();
+        if (confidence <= 0.5 || confidence >= 1.0) {
+            throw new IllegalArgumentException("confidence muss zwischen 0.5 und 1 liegen");
+        }
+        ReturnWindow window = loadWindow(from, to, benchmark);
+        if (window.error != null) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", false);
+            result.put("error", window.error);
+            result.put("excluded", window.excluded);
+            return result;
+        }
+
+        List<Asset> included = window.assets;
+        double[][] returns = window.returns;
+        double portfolioValue = window.portfolioValue;
+        double periodsPerYear = window.periodsPerYear;
+        int n = included.size();
+
+        double[] benchmarkReturns = window.benchmarkReturns != null ? window.benchmarkReturns : window.portfolioReturns;
+        double benchmarkMean = RiskEngine.mean(benchmarkReturns);
+        double benchmarkVariance = Math.pow(RiskEngine.stdDev(benchmarkReturns, benchmarkMean), 2);
+
+        List<Map<String, Object>> assetResults = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Asset asset = included.get(i);
+            Map<String, Object> entry = riskFigures(returns[i], confidence, periodsPerYear, asset.marketValue);
+            double mean = RiskEngine.mean(returns[i]);
+            entry.put("watchlistId", asset.id);
+            entry.put("symbol", asset.symbol);
+            entry.put("weight", round(asset.marketValue / portfolioValue));
+            entry.put("beta", benchmarkVariance > 0
+                    ? round(RiskEngine.covariance(returns[i], mean, benchmarkReturns, benchmarkMean) / benchmarkVariance) : 0.0);
+            assetResults.add(entry);
+        }
+
+        long correlationStart = System.nanoTime();
+        double[][] correlation = RiskEngine.correlationMatrix(returns);
+        long correlationMs = (System.nanoTime() - correlationStart) / 1_000_000;
+        for (double[] row : correlation) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] = round(row[j]);
+            }
+        }
+
+        Map<String, Object> correlationResult = new HashMap<>();
+        correlationResult.put("symbols", included.stream().map(asset -> asset.symbol).toList());
+        correlationResult.put("matrix", correlation);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("from", window.from);
+        result.put("to", window.to);
+        result.put("observations", window.portfolioReturns.length);
+        result.put("periodsPerYear", round(periodsPerYear));
+        result.put("confidence", confidence);
+        result.put("benchmark", window.benchmarkSymbol != null ? window.benchmarkSymbol : "PORTFOLIO");
+        result.put("portfolio", riskFigures(window.portfolioReturns, confidence, periodsPerYear, portfolioValue));
+        result.put("assets", assetResults);
+        result.put("correlation", correlationResult);
+        result.put("excluded", window.excluded);
+        result.put("correlationMs", correlationMs);
+        result.put("durationMs", (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * Lädt die Renditereihen aller gehaltenen Assets, ausgerichtet auf die gemeinsamen Tage des Zeitraums
+     * (auch Grundlage der Simulation in {@link PortfolioSimulationService}).
+     *
+     * @param from Erster Tag (null = to minus Standardzeitraum)
+     * @param to Letzter Tag (null = heute)
+     * @param benchmark Vergleichssymbol, das ebenfalls einen Kurs haben muss (null = keines)
+     * @return Renditefenster; bei zu wenig gemeinsamen Kursen ist {@link ReturnWindow#error} gesetzt
+     */
+    ReturnWindow loadWindow(LocalDate from, LocalDate to, String benchmark) {
+        LocalDate end = to != null ? to : LocalDate.now(ZoneOffset.UTC);
+        LocalDate begin = from != null ? from : end.minusDays(defaultDays);
+        if (!begin.isBefore(end)) {
+            throw new IllegalArgumentException("Ungültiger Zeitraum: 'from' muss vor 'to' liegen");
+        }
+        if (begin.plusDays(maxDays).isBefore(end)) {
+            throw new IllegalArgumentException("Zeitraum darf höchstens " + maxDays + " Tage umfassen");
+        }
+
+        // Gehaltene Assets und ihre Kursreihen
+        List<Asset> assets = jdbcTemplate.query(
+                "SELECT w.id, w.symbol, w.type, p.quantity FROM watchlist_position p " +
+                        "JOIN crypto_watchlist w ON w.id = p.watchlist_id WHERE p.quantity > 0 ORDER BY w.id",
+                (rs, rowNum) -> new Asset(rs.getLong("id"), rs.getString("symbol"),
+                        rs.getString("type"), rs.getBigDecimal("quantity")));
+        Map<String, Long> seriesIds = new HashMap<>();
+        jdbcTemplate.query("SELECT id, symbol, asset_type FROM price_series WHERE vs_currency = ? AND candle_interval = ?",
+                rs -> {
+                    seriesIds.put(seriesKey(rs.getString("symbol"), rs.getString("asset_type")), rs.getLong("id"));
+                }, CLOSE_CURRENCY, CLOSE_INTERVAL);
+
+        ReturnWindow window = new ReturnWindow();
+        window.benchmarkSymbol = benchmark != null && !benchmark.isBlank() ? benchmark.trim().toUpperCase(Locale.ROOT) : null;
+        Long benchmarkSeries = null;
+        if (window.benchmarkSymbol != null) {
+            String prefix = window.benchmarkSymbol + "|";
+            benchmarkSeries = seriesIds.entrySet().stream()
+                    .filter(entry -> entry.getKey().startsWith(prefix))
+                    .map(Map.Entry::getValue).findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Keine gespeicherten Tageskurse für " + window.benchmarkSymbol));
+        }
+
+        int days = (int) (end.toEpochDay() - begin.toEpochDay()) + 1;
+        Map<Long, double[]> closes = loadCloses(assets, seriesIds, benchmarkSeries, begin, days);
+
+        // Assets ohne ausreichende Historie ausschließen
+        List<Asset> included = new ArrayList<>();
+        for (Asset asset : assets) {
+            Long seriesId = seriesIds.get(seriesKey(asset.symbol, asset.type));
+            double[] prices = seriesId != null ? closes.get(seriesId) : null;
+            int count = prices != null ? countPresent(prices) : 0;
+            if (count < minObservations) {
+                window.excluded.add(Map.of("watchlistId", asset.id, "symbol", asset.symbol,
+                        "reason", "Nur " + count + " gespeicherte Tageskurse im Zeitraum"));
+            } else {
+                asset.prices = prices;
+                included.add(asset);
+            }
+        }
+        double[] benchmarkPrices = benchmarkSeries != null ? closes.get(benchmarkSeries) : null;
+
+        // Gemeinsame Tage: jedes berücksichtigte Asset (und das Vergleichssymbol) hat einen Schlusskurs
+        int[] commonDays = commonDays(included, benchmarkPrices, days);
+        if (included.isEmpty() || commonDays.length < minObservations + 1) {
+            window.error = "Zu wenige gemeinsame Tageskurse für eine Risikoanalyse (mindestens " +
+                    minObservations + " benötigt, vorhanden: " + commonDays.length + ")";
+            return window;
+        }
+
+        int n = included.size();
+        window.assets = included;
+        window.returns = new double[n][];
+        for (int i = 0; i < n; i++) {
+            Asset asset = included.get(i);
+            double[] aligned = align(asset.prices, commonDays);
+            window.returns[i] = RiskEngine.simpleReturns(aligned);
+            asset.marketValue = asset.quantity.doubleValue() * aligned[aligned.length - 1];
+            window.portfolioValue += asset.marketValue;
+        }
+
+        // Portfolio-Renditen mit den aktuellen Marktwert-Gewichten
+        int observations = window.returns[0].length;
+        window.portfolioReturns = new double[observations];
+        for (int i = 0; i < n; i++) {
+            double weight = included.get(i).marketValue / window.portfolioValue;
+            double[] series = window.returns[i];
+            for (int t = 0; t < observations; t++) {
+                window.portfolioReturns[t] += weight * series[t];
+            }
+        }
+        if (benchmarkPrices != null) {
+            window.benchmarkReturns = RiskEngine.simpleReturns(align(benchmarkPrices, commonDays));
+        }
+
+        // Annualisierung mit der tatsächlichen Anzahl Handelstage pro Jahr (Aktien ~252, Krypto 365)
+        long spanDays = commonDays[commonDays.length - 1] - commonDays[0];
+        window.periodsPerYear = spanDays > 0 ? observations / (spanDays / 365.25) : 252.0;
+        window.from = LocalDate.ofEpochDay(begin.toEpochDay() + commonDays[0]);
+        window.to = LocalDate.ofEpochDay(begin.toEpochDay() + commonDays[commonDays.length - 1]);
+        return window;
+    }
+
+    /**
+     * Renditereihen der gehaltenen Assets auf gemeinsamen Tagen.
+     */
+    static final class ReturnWindow {
+        // Berücksichtigte Assets, gleiche Reihenfolge wie returns
+        List<Asset> assets = List.of();
+        double[][] returns;
+        // Summe der Marktwerte zum letzten gemeinsamen Schlusskurs
+        double portfolioValue;
+        double[] portfolioReturns;
+        // Renditen des Vergleichssymbols (null = keines angegeben)
+        double[] benchmarkReturns;
+        String benchmarkSymbol;
+        // Beobachtungen pro Jahr (Aktien ~252, Krypto 365)
+        double periodsPerYear;
+        LocalDate from;
+        LocalDate to;
+        final List<Map<String, Object>> excluded = new ArrayList<>();
+        // Gesetzt, wenn die gemeinsame Historie nicht ausreicht
+        String error;
+    }
+
+    static final class Asset {
+        final long id;
+        final String symbol;
+        final String type;
+        final BigDecimal quantity;
+        double[] prices;
+        // Bestand * letzter gemeinsamer Schlusskurs
+        double marketValue;
+
+        Asset(long id, String symbol, String type, BigDecimal quantity) {
+            this.id = id;
+            this.symbol = symbol;
+            this.type = type;
+            this.quantity = quantity;
+        }
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    private static String seriesKey(String symbol, String type) {
+        return (symbol != null ? symbol.toUpperCase(Locale.ROOT) : "") + "|" +
+                (type != null ? type.toLowerCase(Locale.ROOT) : "");
+    }
+
+    /**
+     * Lädt die Schlusskurse der benötigten Reihen in Arrays pro Kalendertag (NaN = kein Kurs).
+     */
+    private Map<Long, double[]> loadCloses(List<Asset> assets, Map<String, Long> seriesIds, Long benchmarkSeries,
+                                           LocalDate begin, int days) {
+        Set<Long> wanted = new LinkedHashSet<>();
+        for (Asset asset : assets) {
+            Long seriesId = seriesIds.get(seriesKey(asset.symbol, asset.type));
+            if (seriesId != null) {
+                wanted.add(seriesId);
+            }
+        }
+        if (benchmarkSeries != null) {
+            wanted.add(benchmarkSeries);
+        }
+
+        Map<Long, double[]> closes = new HashMap<>();
+        if (wanted.isEmpty()) {
+            return closes;
+        }
+        for (Long seriesId : wanted) {
+            double[] prices = new double[days];
+            Arrays.fill(prices, Double.NaN);
+            closes.put(seriesId, prices);
+        }
+
+        String placeholders = String.join(",", Collections.nCopies(wanted.size(), "?"));
+        List<Object> params = new ArrayList<>(wanted);
+        params.add(Timestamp.from(begin.atStartOfDay(ZoneOffset.UTC).toInstant()));
+        params.add(Timestamp.from(begin.plusDays(days).atStartOfDay(ZoneOffset.UTC).toInstant()));
+        long firstDay = begin.toEpochDay();
+        jdbcTemplate.query("SELECT series_id, open_time, close FROM price_candle WHERE series_id IN (" + placeholders +
+                        ") AND open_time >= ? AND open_time < ?",
+                rs -> {
+                    double close = rs.getDouble("close");
+                    if (close <= 0.0) {
+                        return;
+                    }
+                    long day = Math.floorDiv(rs.getTimestamp("open_time").getTime(), 86_400_000L) - firstDay;
+                    if (day >= 0 && day < days) {
+                        closes.get(rs.getLong("series_id"))[(int) day] = close;
+                    }
+                }, params.toArray());
+        return closes;
+    }
+
+    private static int countPresent(double[] prices) {
+        int count = 0;
+        for (double price : prices) {
+            if (!Double.isNaN(price)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int[] commonDays(List<Asset> assets, double[] benchmarkPrices, int days) {
+        int[] common = new int[days];
+        int count = 0;
+        for (int day = 0; day < days; day++) {
+            boolean present = benchmarkPrices == null || !Double.isNaN(benchmarkPrices[day]);
+            for (int i = 0; present && i < assets.size(); i++) {
+                present = !Double.isNaN(assets.get(i).prices[day]);
+            }
+            if (present) {
+                common[count++] = day;
+            }
+        }
+        return Arrays.copyOf(common, count);
+    }
+
+    private static double[] align(double[] prices, int[] days) {
+        double[] aligned = new double[days.length];
+        for (int t = 0; t < days.length; t++) {
+            aligned[t] = prices[days[t]];
+        }
+        return aligned;
+    }
+
+    /**
+     * Volatilität und VaR/CVaR einer Renditereihe, als Quote und als Betrag bezogen auf den Marktwert.
+     */
+    private static Map<String, Object> riskFigures(double[] returns, double confidence, double periodsPerYear,
+                                                   double marketValue) {
+        double mean = RiskEngine.mean(returns);
+        double stdDev = RiskEngine.stdDev(returns, mean);
+        double[] sorted = RiskEngine.sorted(returns);
+
+        double historicalVar = RiskEngine.historicalVar(sorted, confidence);
+        double historicalCvar = RiskEngine.historicalCvar(sorted, confidence);
+        double parametricVar = RiskEngine.parametricVar(mean, stdDev, confidence);
+        double parametricCvar = RiskEngine.parametricCvar(mean, stdDev, confidence);
+
+        Map<String, Object> figures = new LinkedHashMap<>();
+        figures.put("marketValue", round(marketValue));
+        figures.put("dailyVolatility", round(stdDev));
+        figures.put("volatility", round(stdDev * Math.sqrt(periodsPerYear)));
+        figures.put("historicalVar", round(historicalVar));
+        figures.put("historicalCvar", round(historicalCvar));
+        figures.put("parametricVar", round(parametricVar));
+        figures.put("parametricCvar", round(parametricCvar));
+        figures.put("historicalVarAmount", round(historicalVar * marketValue));
+        figures.put("historicalCvarAmount", round(historicalCvar * marketValue));
+        figures.put("parametricVarAmount", round(parametricVar * marketValue));
+        figures.put("parametricCvarAmount", round(parametricCvar * marketValue));
+        return figures;
+    }
+
+    // Auf 6 Nachkommastellen (hält die JSON-Antwort der Matrix klein)
+    private static double round(double value) {
+        return Math.round(value * 1_000_000.0) / 1_000_000.0;
+    }
+}
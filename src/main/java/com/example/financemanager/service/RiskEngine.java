@@ -0,0 +1,257 @@
+package com.example.financemanager.service;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Rechenkern der Risikoanalyse auf primitiven Renditereihen (double[]).
+ * Alle Renditen sind einfache Tagesrenditen (p[t] / p[t-1] - 1); VaR und CVaR werden als positive
+ * Verlustquote geliefert. Die Korrelationsmatrix wird über Zeilenblöcke im Fork-Join-Pool berechnet.
+ */
+final class RiskEngine {
+
+    // Mindestanzahl Skalarprodukte pro Fork-Join-Task (darunter lohnt sich das Aufteilen nicht)
+    private static final long MIN_PAIRS_PER_TASK = 256;
+
+    private RiskEngine() {
+    }
+
+    /**
+     * Einfache Renditen einer Kursreihe (Länge n - 1).
+     */
+    static double[] simpleReturns(double[] prices) {
+        double[] returns = new double[Math.max(prices.length - 1, 0)];
+        for (int t = 0; t < returns.length; t++) {
+            returns[t] = prices[t + 1] / prices[t] - 1.0;
+        }
+        return returns;
+    }
+
+    static double mean(double[] values) {
+        double sum = 0.0;
+        for (double value : values) {
+            sum += value;
+        }
+        return values.length > 0 ? sum / values.length : 0.0;
+    }
+
+    /**
+     * Stichproben-Standardabweichung.
+     */
+    static double stdDev(double[] values, double mean) {
+        if (values.length < 2) {
+            return 0.0;
+        }
+        double sum = 0.0;
+        for (double value : values) {
+            double d = value - mean;
+            sum += d * d;
+        }
+        return Math.sqrt(sum / (values.length - 1));
+    }
+
+    /**
+     * Stichproben-Kovarianz zweier gleich langer Reihen.
+     */
+    static double covariance(double[] a, double meanA, double[] b, double meanB) {
+        if (a.length < 2) {
+            return 0.0;
+        }
+        double sum = 0.0;
+        for (int t = 0; t < a.length; t++) {
+            sum += (a[t] - meanA) * (b[t] - meanB);
+        }
+        return sum / (a.length - 1);
+    }
+
+    /**
+     * Historischer Value at Risk: Verlust, der an (1 - confidence) der Tage erreicht oder überschritten wurde.
+     *
+     * @param sortedReturns aufsteigend sortierte Renditen
+     */
+    static double historicalVar(double[] sortedReturns, double confidence) {
+        return -sortedReturns[tailIndex(sortedReturns.length, confidence)];
+    }
+
+    /**
+     * Historischer Conditional VaR (Expected Shortfall): mittlerer Verlust der Tage im Verlustende.
+     *
+     * @param sortedReturns aufsteigend sortierte Renditen
+     */
+    static double historicalCvar(double[] sortedReturns, double confidence) {
+        int last = tailIndex(sortedReturns.length, confidence);
+        double sum = 0.0;
+        for (int t = 0; t <= last; t++) {
+            sum += sortedReturns[t];
+        }
+        return -sum / (last + 1);
+    }
+
+    /**
+     * Parametrischer VaR unter Normalverteilung.
+     */
+    static double parametricVar(double mean, double stdDev, double confidence) {
+        return -(mean + inverseNormal(1.0 - confidence) * stdDev);
+    }
+
+    /**
+     * Parametrischer CVaR unter Normalverteilung: -(μ - σ · φ(z) / (1 - c)).
+     */
+    static double parametricCvar(double mean, double stdDev, double confidence) {
+        double z = inverseNormal(1.0 - confidence);
+        double density = Math.exp(-0.5 * z * z) / Math.sqrt(2.0 * Math.PI);
+        return -(mean - stdDev * density / (1.0 - confidence));
+    }
+
+    static double[] sorted(double[] values) {
+        double[] copy = values.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    /**
+     * Korrelationsmatrix aller Reihen (Pearson). Jede Reihe wird einmal zentriert und auf Länge 1
+     * normiert, danach ist jede Korrelation ein Skalarprodukt. Konstante Reihen haben Korrelation 0
+     * zu allen anderen.
+     *
+     * @param returns Renditereihen gleicher Länge (eine Zeile pro Asset)
+     * @return symmetrische n x n Matrix
+     */
+    static double[][] correlationMatrix(double[][] returns) {
+        int n = returns.length;
+        double[][] normalized = new double[n][];
+        for (int i = 0; i < n; i++) {
+            double[] series = returns[i];
+            double mean = mean(series);
+            double sum = 0.0;
+            for (double value : series) {
+                sum += (value - mean) * (value - mean);
+            }
+            double scale = sum > 0.0 ? 1.0 / Math.sqrt(sum) : 0.0;
+            double[] z = new double[series.length];
+            for (int t = 0; t < series.length; t++) {
+                z[t] = (series[t] - mean) * scale;
+            }
+            normalized[i] = z;
+        }
+
+        double[][] matrix = new double[n][n];
+        if (n > 0) {
+            ForkJoinPool.commonPool().invoke(new CorrelationTask(normalized, matrix, 0, n));
+        }
+        return matrix;
+    }
+
+    /**
+     * Inverse der Standardnormalverteilung (rationale Näherung nach Acklam, relativer Fehler < 1.2e-9).
+     */
+    static double inverseNormal(double p) {
+        if (p <= 0.0 || p >= 1.0) {
+            throw new IllegalArgumentException("Wahrscheinlichkeit muss zwischen 0 und 1 liegen");
+        }
+        final double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+                1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        final double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+                6.680131188771972e+01, -1.328068155288572e+01};
+        final double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+                -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        final double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+                3.754408661907416e+00};
+        final double low = 0.02425;
+
+        if (p < low) {
+            double q = Math.sqrt(-2.0 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1.0);
+        }
+        if (p <= 1.0 - low) {
+            double q = p - 0.5;
+            double r = q * q;
+            return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+                    / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1.0);
+        }
+        double q = Math.sqrt(-2.0 * Math.log(1.0 - p));
+        return -(((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1.0);
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    private static int tailIndex(int length, double confidence) {
+        int index = (int) Math.ceil((1.0 - confidence) * length) - 1;
+        return Math.max(0, Math.min(index, length - 1));
+    }
+
+    // Skalarprodukt mit vier unabhängigen Summen (kürzere Abhängigkeitskette pro Schleifendurchlauf)
+    private static double dot(double[] a, double[] b) {
+        double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+        int t = 0;
+        int limit = a.length - 3;
+        for (; t < limit; t += 4) {
+            s0 += a[t] * b[t];
+            s1 += a[t + 1] * b[t + 1];
+            s2 += a[t + 2] * b[t + 2];
+            s3 += a[t + 3] * b[t + 3];
+        }
+        for (; t < a.length; t++) {
+            s0 += a[t] * b[t];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Berechnet die Zeilen [from, to) des oberen Dreiecks und spiegelt sie. Geteilt wird so,
+     * dass beide Hälften etwa gleich viele Paare enthalten (obere Zeilen haben mehr Paare).
+     */
+    private static final class CorrelationTask extends RecursiveAction {
+
+        private final double[][] normalized;
+        private final double[][] matrix;
+        private final int from;
+        private final int to;
+
+        CorrelationTask(double[][] normalized, double[][] matrix, int from, int to) {
+            this.normalized = normalized;
+            this.matrix = matrix;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            int n = normalized.length;
+            long pairs = pairs(from, to, n);
+            if (to - from <= 1 || pairs <= MIN_PAIRS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    double[] row = normalized[i];
+                    matrix[i][i] = 1.0;
+                    for (int j = i + 1; j < n; j++) {
+                        double value = dot(row, normalized[j]);
+                        matrix[i][j] = value;
+                        matrix[j][i] = value;
+                    }
+                }
+                return;
+            }
+
+            int split = from + 1;
+            long half = pairs / 2;
+            long upper = n - 1 - from;
+            while (split < to - 1 && upper < half) {
+                upper += n - 1 - split;
+                split++;
+            }
+            invokeAll(new CorrelationTask(normalized, matrix, from, split),
+                    new CorrelationTask(normalized, matrix, split, to));
+        }
+
+        private static long pairs(int from, int to, int n) {
+            long count = 0;
+            for (int i = from; i < to; i++) {
+                count += n - 1 - i;
+            }
+            return count;
+        }
+    }
+}
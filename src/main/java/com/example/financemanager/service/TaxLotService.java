@@ -0,0 +1,295 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.model.CryptoTransaction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ordnet Verkäufe den Kauf-Lots zu (FIFO, LIFO oder Durchschnittskosten) und liefert
+ * realisierte Gewinne pro Jahr sowie unrealisierte Gewinne zu einem Preis.
+ * Die Lots jedes Eintrags werden einmal aus der Transaktionstabelle aufgebaut, im Speicher gehalten
+ * und bei neuen Transaktionen fortgeschrieben. Löschungen, Importe und Transaktionen,
+ * die vor der letzten eingerechneten liegen, verwerfen die Lots des Eintrags; sie werden
+ * bei der nächsten Abfrage neu aufgebaut.
+ */
+@Service
+public class TaxLotService {
+
+    private static final String TRANSACTION_COLUMNS = "SELECT id, watchlist_id, transaction_type, amount, total_value, " +
+            "transaction_date, created_at FROM crypto_transaction";
+    private static final String TRANSACTION_ORDER = " ORDER BY watchlist_id, transaction_date, id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Methode -> (Watchlist-ID -> Lots)
+    private final Map<Method, Map<Long, LotBook>> books = new ConcurrentHashMap<>();
+
+    // Methoden, deren Lots bereits für alle Einträge geladen wurden
+    private final Set<Method> fullyLoaded = ConcurrentHashMap.newKeySet();
+
+    // Zählt Änderungen; ein Ladevorgang, während dessen sich etwas geändert hat, wird nicht gecacht
+    private final AtomicLong modifications = new AtomicLong();
+
+    /**
+     * Zuordnungsmethode für Verkäufe.
+     */
+    public enum Method {
+        FIFO, LIFO, AVERAGE;
+
+        public static Method parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unbekannte Methode: " + value + " (fifo, lifo oder average)");
+            }
+        }
+    }
+
+    /**
+     * Liefert offene Lots, realisierte Gewinne pro Jahr und optional den unrealisierten Gewinn eines Eintrags.
+     *
+     * @param watchlistId ID des Watchlist-Eintrags
+     * @param method Zuordnungsmethode
+     * @param price Preis pro Einheit für die Bewertung des Bestands (null = keine Bewertung)
+     * @return Map mit den Kennzahlen
+     */
+    public Map<String, Object> getLotReport(Long watchlistId, Method method, BigDecimal price) {
+        LotBook book = book(watchlistId, method);
+
+        Map<String, Object> result = new HashMap<>();
+        synchronized (book) {
+            result.put("success", true);
+            result.put("watchlistId", watchlistId);
+            result.put("method", method.name());
+            result.put("transactionCount", book.getTransactionCount());
+            result.put("openQuantity", book.getOpenQuantity());
+            result.put("openCostBasis", book.getOpenCost());
+            result.put("averageCost", book.getOpenQuantity().signum() > 0
+                    ? book.getOpenCost().divide(book.getOpenQuantity(), 8, RoundingMode.HALF_UP) : BigDecimal.ZERO);
+            result.put("unmatchedSellQuantity", book.getUnmatchedQuantity());
+            result.put("realizedPnl", book.getRealizedPnl());
+            result.put("realizedByYear", book.getRealizedByYear());
+            result.put("openLots", book.getOpenLots());
+
+            if (price != null) {
+                BigDecimal marketValue = book.getOpenQuantity().multiply(price).setScale(8, RoundingMode.HALF_UP);
+                result.put("price", price);
+                result.put("marketValue", marketValue);
+                result.put("unrealizedPnl", marketValue.subtract(book.getOpenCost()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Realisierte Gewinne eines Kalenderjahres über alle Einträge.
+     *
+     * @param year Jahr der Verkäufe
+     * @param method Zuordnungsmethode
+     * @return Map mit Summen und einer Zeile pro Eintrag mit Verkäufen im Jahr
+     */
+    public Map<String, Object> getGainReport(int year, Method method) {
+        long start = System.nanoTime();
+        Map<Long, LotBook> allBooks = allBooks(method);
+        Map<Long, String> symbols = new HashMap<>();
+        jdbcTemplate.query("SELECT id, symbol FROM crypto_watchlist", rs -> {
+            symbols.put(rs.getLong("id"), rs.getString("symbol"));
+        });
+
+        List<Map<String, Object>> assets = new ArrayList<>();
+        BigDecimal proceeds = BigDecimal.ZERO;
+        BigDecimal costBasis = BigDecimal.ZERO;
+        BigDecimal realizedPnl = BigDecimal.ZERO;
+
+        for (Map.Entry<Long, LotBook> entry : allBooks.entrySet()) {
+            Map<String, Object> realized;
+            synchronized (entry.getValue()) {
+                realized = entry.getValue().getRealized(year);
+            }
+            if (realized == null) {
+                continue;
+            }
+            realized.remove("year");
+            realized.put("watchlistId", entry.getKey());
+            realized.put("symbol", symbols.get(entry.getKey()));
+            assets.add(realized);
+
+            proceeds = proceeds.add((BigDecimal) realized.get("proceeds"));
+            costBasis = costBasis.add((BigDecimal) realized.get("costBasis"));
+            realizedPnl = realizedPnl.add((BigDecimal) realized.get("realizedPnl"));
+        }
+        assets.sort(Comparator.comparing(asset -> (Long) asset.get("watchlistId")));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("year", year);
+        result.put("method", method.name());
+        result.put("proceeds", proceeds);
+        result.put("costBasis", costBasis);
+        result.put("realizedPnl", realizedPnl);
+        result.put("assets", assets);
+        result.put("durationMs", (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * Schreibt eine neue Transaktion in die gecachten Lots ihres Eintrags fort.
+     * Läuft eine Datenbank-Transaktion, geschieht das erst nach dem Commit.
+     *
+     * @param transaction Gespeicherte Transaktion
+     */
+    public void onTransactionRecorded(CryptoTransaction transaction) {
+        Long watchlistId = transaction.getWatchlist().getId();
+        afterCommit(() -> {
+            modifications.incrementAndGet();
+            for (Map<Long, LotBook> methodBooks : books.values()) {
+                LotBook book = methodBooks.get(watchlistId);
+                if (book == null) {
+                    continue;
+                }
+                synchronized (book) {
+                    int order = book.compareToLast(transaction.getTransactionDate(), transaction.getId());
+                    if (order > 0) {
+                        LocalDateTime date = transaction.getTransactionDate() != null
+                                ? transaction.getTransactionDate() : transaction.getCreatedAt();
+                        book.apply(transaction.getId(), transaction.getTransactionType() == CryptoTransaction.TransactionType.BUY,
+                                transaction.getAmount(), transaction.getTotalValue(), transaction.getTransactionDate(),
+                                date != null ? date.getYear() : null);
+                    } else if (order < 0) {
+                        // Rückdatierte Transaktion: spätere Zuordnungen ändern sich, Lots neu aufbauen
+                        methodBooks.remove(watchlistId, book);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Verwirft die Lots eines Eintrags (nach Löschungen, Importen oder Korrekturen).
+     * Läuft eine Datenbank-Transaktion, geschieht das erst nach dem Commit.
+     *
+     * @param watchlistId ID des Watchlist-Eintrags
+     */
+    public void invalidate(Long watchlistId) {
+        afterCommit(() -> {
+            modifications.incrementAndGet();
+            for (Map<Long, LotBook> methodBooks : books.values()) {
+                methodBooks.remove(watchlistId);
+            }
+        });
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    private LotBook book(Long watchlistId, Method method) {
+        Map<Long, LotBook> methodBooks = books.computeIfAbsent(method, m -> new ConcurrentHashMap<>());
+        LotBook cached = methodBooks.get(watchlistId);
+        if (cached != null) {
+            return cached;
+        }
+
+        Integer exists = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM crypto_watchlist WHERE id = ?",
+                Integer.class, watchlistId);
+        if (exists == null || exists == 0) {
+            throw new IllegalArgumentException("Watchlist-Item nicht gefunden: " + watchlistId);
+        }
+
+        long version = modifications.get();
+        LotBook loaded = new LotBook(method);
+        jdbcTemplate.query(TRANSACTION_COLUMNS + " WHERE watchlist_id = ?" + TRANSACTION_ORDER,
+                rs -> {
+                    apply(loaded, rs);
+                }, watchlistId);
+        return cacheIfUnchanged(methodBooks, watchlistId, loaded, version);
+    }
+
+    /**
+     * Lots aller Einträge; beim ersten Aufruf in einem Durchlauf über die Transaktionstabelle geladen,
+     * danach fehlen nur verworfene Einträge, die einzeln nachgeladen werden.
+     */
+    private Map<Long, LotBook> allBooks(Method method) {
+        Map<Long, LotBook> methodBooks = books.computeIfAbsent(method, m -> new ConcurrentHashMap<>());
+        List<Long> watchlistIds = jdbcTemplate.queryForList("SELECT id FROM crypto_watchlist", Long.class);
+
+        Map<Long, LotBook> result = new HashMap<>();
+        if (!fullyLoaded.contains(method)) {
+            long version = modifications.get();
+            for (Long watchlistId : watchlistIds) {
+                result.put(watchlistId, new LotBook(method));
+            }
+            jdbcTemplate.query(TRANSACTION_COLUMNS + TRANSACTION_ORDER, rs -> {
+                LotBook book = result.get(rs.getLong("watchlist_id"));
+                if (book != null) {
+                    apply(book, rs);
+                }
+            });
+            if (modifications.get() == version) {
+                result.forEach(methodBooks::putIfAbsent);
+                if (modifications.get() == version) {
+                    fullyLoaded.add(method);
+                } else {
+                    result.forEach(methodBooks::remove);
+                }
+            }
+            return result;
+        }
+
+        for (Long watchlistId : watchlistIds) {
+            LotBook book = methodBooks.get(watchlistId);
+            result.put(watchlistId, book != null ? book : book(watchlistId, method));
+        }
+        return result;
+    }
+
+    private LotBook cacheIfUnchanged(Map<Long, LotBook> methodBooks, Long watchlistId, LotBook loaded, long version) {
+        if (modifications.get() != version) {
+            // Während des Ladens geändert: Ergebnis verwenden, aber nicht cachen
+            return loaded;
+        }
+        LotBook existing = methodBooks.putIfAbsent(watchlistId, loaded);
+        if (existing != null) {
+            return existing;
+        }
+        // Änderung zwischen Prüfung und Einfügen: wieder entfernen
+        if (modifications.get() != version) {
+            methodBooks.remove(watchlistId, loaded);
+        }
+        return loaded;
+    }
+
+    private static void apply(LotBook book, ResultSet rs) throws SQLException {
+        Timestamp date = rs.getTimestamp("transaction_date");
+        Timestamp yearDate = date != null ? date : rs.getTimestamp("created_at");
+        book.apply(rs.getLong("id"), "BUY".equals(rs.getString("transaction_type")),
+                rs.getBigDecimal("amount"), rs.getBigDecimal("total_value"),
+                date != null ? date.toLocalDateTime() : null,
+                yearDate != null ? yearDate.toLocalDateTime().getYear() : null);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.dto.TwelveDataQuote;
+import com.example.financemanager.dto.TwelveDataQuoteBatch;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aktienkurse über die TwelveData-Quote-API (primärer Provider, benötigt API-Schlüssel).
+ */
+@Component
+public class TwelveDataPriceProvider implements PriceProvider {
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private ProviderGuards providerGuards;
+
+    // API-Schlüssel für TwelveData (Aktien-API) - aus application.properties
+    @Value("${twelvedata.api.key:}")
+    private String twelveDataApiKey;
+
+    @Override
+    public String getName() {
+        return ProviderGuards.TWELVEDATA;
+    }
+
+    @Override
+    public int getOrder() {
+        return 0;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return twelveDataApiKey != null && !twelveDataApiKey.trim().isEmpty();
+    }
+
+    /**
+     * Ruft Aktiendaten von der TwelveData-API ab.
+     *
+     * @param symbol Das Aktien-Symbol
+     * @return Map mit Aktiendaten von TwelveData
+     * @throws RuntimeException bei API-Fehlern
+     */
+    @Override
+    public Map<String, Object> fetchQuote(String symbol) {
+        String url = "https://api.twelvedata.com/quote?symbol=" + symbol.toUpperCase() +
+                "&apikey=" + twelveDataApiKey;
+
+        try {
+            TwelveDataQuote quote = providerGuards.call(ProviderGuards.TWELVEDATA,
+                    () -> restTemplate.getForObject(url, TwelveDataQuote.class));
+
+            if (quote == null) {
+                throw new RuntimeException("Empty response from Twelve Data for symbol: " + symbol);
+            }
+
+            // Prüfung auf API-Fehler-Antworten (code- oder status-Feld)
+            if (quote.isError()) {
+                throw new RuntimeException("Twelve Data API Error: " + quote.errorMessage());
+            }
+
+            return quote.toPriceMap();
+        } catch (RestClientException e) {
+            throw new RuntimeException("Twelve Data network error for " + symbol + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ruft mehrere Quotes mit einem TwelveData-Aufruf ab.
+     * Bei mehreren Symbolen antwortet TwelveData mit einer Map Symbol → Quote,
+     * bei einem einzelnen Symbol direkt mit dem Quote-Objekt.
+     *
+     * @param symbols Die Aktien-Symbole eines Chunks
+     * @return Map Symbol → gültiges Quote; fehlerhafte Symbole fehlen
+     */
+    public Map<String, Map<String, Object>> fetchQuotes(List<String> symbols) {
+        if (symbols.size() == 1) {
+            String symbol = symbols.get(0);
+            return Map.of(symbol, fetchQuote(symbol));
+        }
+
+        List<String> upperSymbols = symbols.stream().map(String::toUpperCase).toList();
+        String url = "https://api.twelvedata.com/quote?symbol=" + String.join(",", upperSymbols) +
+                "&apikey=" + twelveDataApiKey;
+
+        try {
+            // Jedes Symbol kostet einen API-Credit
+            TwelveDataQuoteBatch response = providerGuards.call(ProviderGuards.TWELVEDATA, symbols.size(),
+                    () -> restTemplate.getForObject(url, TwelveDataQuoteBatch.class));
+
+            if (response == null) {
+                throw new RuntimeException("Empty response from Twelve Data for symbols: " + symbols);
+            }
+
+            // Fehler für den gesamten Request (z.B. ungültiger Key, Limit erreicht)
+            if (response.isError()) {
+                String message = response.getMessage() != null ? response.getMessage() : "Unknown error";
+                throw new RuntimeException("Twelve Data API Error: " + message);
+            }
+
+            Map<String, Map<String, Object>> quotes = new HashMap<>();
+            for (String symbol : symbols) {
+                TwelveDataQuote quote = response.getQuotes().get(symbol.toUpperCase());
+                if (quote != null && !quote.isError() && quote.close() != null) {
+                    quotes.put(symbol, quote.toPriceMap());
+                }
+            }
+            return quotes;
+        } catch (RestClientException e) {
+            throw new RuntimeException("Twelve Data network error for " + symbols + ": " + e.getMessage());
+        }
+    }
+}
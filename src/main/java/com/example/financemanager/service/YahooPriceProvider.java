@@ -0,0 +1,77 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.dto.YahooChartResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aktienkurse über die Chart-API von Yahoo Finance (kostenlos, ohne API-Schlüssel).
+ */
+@Component
+public class YahooPriceProvider implements PriceProvider {
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private ProviderGuards providerGuards;
+
+    @Override
+    public String getName() {
+        return ProviderGuards.YAHOO;
+    }
+
+    @Override
+    public int getOrder() {
+        return 1;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * Ruft Aktiendaten von Yahoo Finance ab.
+     *
+     * @param symbol Das Aktien-Symbol
+     * @return Map mit formatierten Aktiendaten
+     * @throws RuntimeException bei API-Fehlern oder ungültiger Antwortstruktur
+     */
+    @Override
+    public Map<String, Object> fetchQuote(String symbol) {
+        String url = "https://query1.finance.yahoo.com/v8/finance/chart/" + symbol.toUpperCase();
+
+        try {
+            // Nur chart.result[0].meta wird gelesen, die Zeitreihen werden beim Parsen übersprungen
+            YahooChartResponse response = providerGuards.call(ProviderGuards.YAHOO,
+                    () -> restTemplate.getForObject(url, YahooChartResponse.class));
+            YahooChartResponse.Meta meta = response != null ? response.firstMeta() : null;
+
+            if (meta != null && meta.regularMarketPrice() != null) {
+                double currentPrice = meta.regularMarketPrice();
+                double prevClose = meta.previousClose() != null ? meta.previousClose()
+                        : meta.chartPreviousClose() != null ? meta.chartPreviousClose() : currentPrice;
+
+                // Formatierung der Daten in einheitliches Format
+                Map<String, Object> formattedResponse = new HashMap<>();
+                formattedResponse.put("close", currentPrice);
+                formattedResponse.put("previous_close", prevClose);
+                formattedResponse.put("change", currentPrice - prevClose);
+                formattedResponse.put("change_percent",
+                        prevClose != 0 ? ((currentPrice - prevClose) / prevClose) * 100 : 0);
+
+                return formattedResponse;
+            }
+            throw new RuntimeException("Invalid Yahoo Finance response structure");
+        } catch (RateLimitExceededException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Yahoo Finance API error: " + e.getMessage());
+        }
+    }
+}
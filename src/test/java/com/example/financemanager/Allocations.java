@@ -0,0 +1,43 @@
+package com.example.financemanager;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Misst die Allokation des aktuellen Threads für Tests, die "erzeugt keine Objekte" bzw.
+ * "erzeugt weniger als" zusichern.
+ */
+public final class Allocations {
+
+    private static final int WARMUP_RUNS = 200;
+    private static final int MEASURED_RUNS = 20;
+
+    @FunctionalInterface
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    private Allocations() {
+    }
+
+    /**
+     * Kleinste Allokation des aktuellen Threads über mehrere Läufe (nach Aufwärmen), 0 wenn die JVM nicht misst.
+     */
+    public static long allocatedBytes(Task task) throws Exception {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported()) {
+            return 0;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().threadId();
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            task.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            task.run();
+            best = Math.min(best, threads.getThreadAllocatedBytes(threadId) - before);
+        }
+        return best;
+    }
+}
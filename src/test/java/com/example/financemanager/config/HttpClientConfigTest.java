@@ -0,0 +1,93 @@
+package com.example.financemanager.config;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HttpClientConfigTest {
+
+    private HttpServer server;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private RestTemplate restTemplate;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        // Header und ein Teil des Bodys kommen sofort, der Rest bleibt aus
+        server.createContext("/stall", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream body = exchange.getResponseBody();
+            body.write("{\"price\":".getBytes(StandardCharsets.UTF_8));
+            body.flush();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        server.createContext("/gzip", exchange -> {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = new GZIPOutputStream(exchange.getResponseBody())) {
+                body.write("{\"price\":42}".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.start();
+
+        HttpClientConfig config = new HttpClientConfig();
+        ReflectionTestUtils.setField(config, "connectTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(config, "readTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(config, "totalTimeoutMs", 500L);
+        ReflectionTestUtils.setField(config, "http2Enabled", false);
+        restTemplate = config.providerRestTemplate(config.providerHttpClient());
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+
+    @Test
+    void stalledBodyIsAbortedAtTotalDeadline() {
+        long start = System.nanoTime();
+
+        // Lesefehler im Body meldet RestTemplate als RestClientException mit der Ursache
+
+        assertThatThrownBy(() -> restTemplate.getForObject(url("/stall"), String.class))
+                .isInstanceOf(RestClientException.class)
+                .hasCauseInstanceOf(SocketTimeoutException.class);
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        assertThat(elapsedMs).isBetween(400L, 3000L);
+        // Das Interrupt-Flag des Timers darf nicht beim Aufrufer hängen bleiben
+        assertThat(Thread.currentThread().isInterrupted()).isFalse();
+    }
+
+    @Test
+    void gzipResponseIsDecoded() {
+        assertThat(restTemplate.getForObject(url("/gzip"), String.class)).isEqualTo("{\"price\":42}");
+    }
+}
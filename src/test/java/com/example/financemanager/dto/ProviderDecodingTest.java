@@ -0,0 +1,91 @@
+package com.example.financemanager.dto;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static com.example.financemanager.Allocations.allocatedBytes;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assumptions.assumeThat;
+
+/**
+ * Prüft die typisierte Bindung der Provider-Antworten und dass sie beim Parsen weniger Speicher
+ * belegt als das Lesen in generische Maps (gemessen mit dem Allokationszähler des Threads).
+ */
+class ProviderDecodingTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    void coinGeckoPriceReadsRequestedCurrency() throws Exception {
+        Map<String, CoinGeckoPrice> response = MAPPER.readValue(
+                "{\"bitcoin\":{\"eur\":60000.5,\"eur_24h_change\":-1.25,\"last_updated_at\":1700000000}}",
+                new TypeReference<>() {
+                });
+
+        CoinGeckoPrice price = response.get("bitcoin");
+        assertThat(price.currency()).isEqualTo("eur");
+        assertThat(price.price()).isEqualTo(60000.5);
+        assertThat(price.change24h()).isEqualTo(-1.25);
+        assertThat(price.toPriceMap()).containsEntry("price", 60000.5).containsEntry("change_percent", -1.25)
+                .containsEntry("currency", "eur");
+    }
+
+    @Test
+    void coinGeckoPriceWithoutChange() throws Exception {
+        CoinGeckoPrice price = MAPPER.readValue("{\"usd\":1.0}", CoinGeckoPrice.class);
+
+        assertThat(price.price()).isEqualTo(1.0);
+        assertThat(price.toPriceMap()).doesNotContainKey("change_percent");
+    }
+
+    @Test
+    void yahooChartSkipsSeriesAndAllocatesLess() throws Exception {
+        byte[] payload = yahooChart(5000);
+
+        YahooChartResponse typed = MAPPER.readValue(payload, YahooChartResponse.class);
+        assertThat(typed.firstMeta().regularMarketPrice()).isEqualTo(190.5);
+
+        long typedBytes = allocatedBytes(() -> MAPPER.readValue(payload, YahooChartResponse.class));
+        long mapBytes = allocatedBytes(() -> MAPPER.readValue(payload, new TypeReference<Map<String, Object>>() {
+        }));
+        assumeThat(typedBytes).isPositive();
+        // Die Zeitreihen werden übersprungen statt als Listen von Double/Long angelegt
+        assertThat(typedBytes).isLessThan(mapBytes / 4);
+    }
+
+    @Test
+    void coinGeckoBatchAllocatesLessThanNestedMaps() throws Exception {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < 250; i++) {
+            json.append(i > 0 ? "," : "").append("\"coin-").append(i).append("\":{\"usd\":")
+                    .append(1000.5 + i).append(",\"usd_24h_change\":").append(-1.5 + i * 0.01).append('}');
+        }
+        byte[] payload = json.append('}').toString().getBytes();
+
+        long typedBytes = allocatedBytes(() -> MAPPER.readValue(payload, new TypeReference<Map<String, CoinGeckoPrice>>() {
+        }));
+        long mapBytes = allocatedBytes(() -> MAPPER.readValue(payload, new TypeReference<Map<String, Map<String, Object>>>() {
+        }));
+        assumeThat(typedBytes).isPositive();
+        assertThat(typedBytes).isLessThan(mapBytes);
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    private static byte[] yahooChart(int points) {
+        StringBuilder timestamps = new StringBuilder();
+        StringBuilder closes = new StringBuilder();
+        for (int i = 0; i < points; i++) {
+            timestamps.append(i > 0 ? "," : "").append(1_600_000_000L + i * 86_400L);
+            closes.append(i > 0 ? "," : "").append(100.25 + i % 97);
+        }
+        return ("{\"chart\":{\"result\":[{\"meta\":{\"currency\":\"USD\",\"symbol\":\"AAPL\"," +
+                "\"regularMarketPrice\":190.5,\"previousClose\":189.0,\"chartPreviousClose\":150.0}," +
+                "\"timestamp\":[" + timestamps + "],\"indicators\":{\"quote\":[{\"close\":[" + closes + "]," +
+                "\"open\":[" + closes + "],\"high\":[" + closes + "],\"low\":[" + closes + "]," +
+                "\"volume\":[" + timestamps + "]}]}}],\"error\":null}}").getBytes();
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.financemanager.repository;
+
+import com.example.financemanager.model.CryptoTransaction;
+import com.example.financemanager.model.CryptoWatchlist;
+import com.example.financemanager.model.Expense;
+import com.example.financemanager.model.Income;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Summen per SQL-Aggregat gegen das frühere Laden aller Entities mit Summierung in Java.
+ * Der Vergleichstest läuft immer; die Messung auf großen Datenmengen nur auf Anfrage:
+ * <pre>
+ * mvn test -Dtest=AggregateQueryBenchmarkTest -Dbenchmark.rows=1000000 "-DargLine=--enable-preview -Xmx6g"
+ * </pre>
+ * Ohne Query-Cache, da H2 sonst das Ergebnis einer unveränderten Abfrage wiederverwendet.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:aggregates;QUERY_CACHE_SIZE=0",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class AggregateQueryBenchmarkTest {
+
+    private static final String[] CATEGORIES = {"Miete", "Lebensmittel", "Transport", "Freizeit", "Versicherung", "Sonstiges"};
+    private static final int BATCH_SIZE = 10_000;
+    private static final int RUNS = 5;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private IncomeRepository incomeRepository;
+
+    @Autowired
+    private CryptoTransactionRepository cryptoTransactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void aggregatesMatchEntityReduction() {
+        seed(5_000);
+
+        assertThat(expenseRepository.sumAmount()).isEqualByComparingTo(sumExpensesFromEntities());
+        assertThat(incomeRepository.sumAmount()).isEqualByComparingTo(sumIncomeFromEntities());
+        assertThat(cryptoTransactionRepository.sumTotalValueByType(CryptoTransaction.TransactionType.BUY))
+                .isEqualByComparingTo(sumBuysFromEntities());
+
+        Map<String, BigDecimal> expected = expensesByCategoryFromEntities();
+        List<ExpenseRepository.CategoryTotal> totals = expenseRepository.sumAmountByCategory();
+        assertThat(totals).hasSize(expected.size());
+        for (ExpenseRepository.CategoryTotal total : totals) {
+            assertThat(total.getTotal()).as(total.getCategory()).isEqualByComparingTo(expected.get(total.getCategory()));
+        }
+    }
+
+    @Test
+    void emptyTablesSumToZero() {
+        assertThat(expenseRepository.sumAmount()).isEqualByComparingTo("0");
+        assertThat(incomeRepository.sumAmount()).isEqualByComparingTo("0");
+        assertThat(cryptoTransactionRepository.sumTotalValueByType(CryptoTransaction.TransactionType.BUY)).isEqualByComparingTo("0");
+        assertThat(expenseRepository.sumAmountByCategory()).isEmpty();
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark.rows", matches = "[0-9]+")
+    void benchmarkAggregatesAgainstEntityLoading() {
+        int rows = Integer.parseInt(System.getProperty("benchmark.rows"));
+        long seedStart = System.nanoTime();
+        seed(rows);
+        System.err.printf("Benchmark: %,d Ausgaben, %,d Einnahmen, %,d Transaktionen in %d ms angelegt%n",
+                rows, rows / 2, rows / 4, (System.nanoTime() - seedStart) / 1_000_000);
+
+        report("calculateBalance",
+                () -> sumIncomeFromEntities().subtract(sumExpensesFromEntities()),
+                () -> incomeRepository.sumAmount().subtract(expenseRepository.sumAmount()));
+        report("getExpensesByCategory",
+                this::expensesByCategoryFromEntities,
+                expenseRepository::sumAmountByCategory);
+        report("getTotalPortfolioValue",
+                this::sumBuysFromEntities,
+                () -> cryptoTransactionRepository.sumTotalValueByType(CryptoTransaction.TransactionType.BUY));
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    /**
+     * Legt die Testdaten per JDBC-Batch an: rows Ausgaben, rows/2 Einnahmen und rows/4 Transaktionen (2/3 Käufe).
+     */
+    private void seed(int rows) {
+        CryptoWatchlist watchlist = new CryptoWatchlist("BTC", "Bitcoin", "crypto");
+        entityManager.persist(watchlist);
+        entityManager.flush();
+        LocalDate firstDay = LocalDate.of(2020, 1, 1);
+
+        insert(rows, "INSERT INTO expense (description, amount, category, date) VALUES (?, ?, ?, ?)",
+                i -> new Object[]{"Ausgabe " + i, BigDecimal.valueOf(100 + i % 50_000, 2),
+                        CATEGORIES[i % CATEGORIES.length], Date.valueOf(firstDay.plusDays(i % 2000))});
+        insert(rows / 2, "INSERT INTO income (source, amount, date) VALUES (?, ?, ?)",
+                i -> new Object[]{"Einnahme " + i, BigDecimal.valueOf(1000 + i % 300_000, 2),
+                        Date.valueOf(firstDay.plusDays(i % 2000))});
+        insert(rows / 4, "INSERT INTO crypto_transaction (watchlist_id, transaction_type, amount, price_per_unit, "
+                        + "total_value, transaction_date, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                i -> {
+                    Timestamp date = Timestamp.valueOf(LocalDateTime.of(2020, 1, 1, 0, 0).plusHours(i));
+                    return new Object[]{watchlist.getId(), i % 3 == 2 ? "SELL" : "BUY",
+                            BigDecimal.valueOf(1 + i % 100, 2), BigDecimal.valueOf(2_000_000 + i % 5_000_000, 2),
+                            BigDecimal.valueOf(20_000 + i % 50_000, 2), date, date};
+                });
+    }
+
+    private void insert(int count, String sql, IntFunction<Object[]> row) {
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < count; i++) {
+            batch.add(row.apply(i));
+            if (batch.size() == BATCH_SIZE || i == count - 1) {
+                jdbcTemplate.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+    }
+
+    // Frühere Implementierungen: alle Entities laden und in Java summieren
+
+    private BigDecimal sumExpensesFromEntities() {
+        return loaded(() -> expenseRepository.findAll().stream()
+                .map(Expense::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add));
+    }
+
+    private BigDecimal sumIncomeFromEntities() {
+        return loaded(() -> incomeRepository.findAll().stream()
+                .map(Income::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add));
+    }
+
+    private BigDecimal sumBuysFromEntities() {
+        return loaded(() -> cryptoTransactionRepository.findAll().stream()
+                .filter(tx -> tx.getTransactionType() == CryptoTransaction.TransactionType.BUY)
+                .map(CryptoTransaction::getTotalValue)
+                .reduce(BigDecimal.ZERO, BigDecimal::add));
+    }
+
+    private Map<String, BigDecimal> expensesByCategoryFromEntities() {
+        return loaded(() -> {
+            Map<String, BigDecimal> categoryTotals = new HashMap<>();
+            for (Expense expense : expenseRepository.findAll()) {
+                categoryTotals.merge(expense.getCategory(), expense.getAmount(), BigDecimal::add);
+            }
+            return categoryTotals;
+        });
+    }
+
+    /**
+     * Leert den Persistenzkontext danach, damit jeder Lauf die Entities neu aus der Datenbank lädt.
+     */
+    private <T> T loaded(Supplier<T> query) {
+        try {
+            return query.get();
+        } finally {
+            entityManager.clear();
+        }
+    }
+
+    /**
+     * Misst beide Varianten (ein Aufwärmlauf, dann Median aus RUNS Läufen) und gibt das Ergebnis aus.
+     */
+    private void report(String name, Supplier<?> entityVariant, Supplier<?> aggregateVariant) {
+        long entityMs = medianMs(entityVariant);
+        long aggregateMs = medianMs(aggregateVariant);
+        System.err.printf("Benchmark %-22s Entities: %6d ms   SQL-Aggregat: %6d ms%n", name, entityMs, aggregateMs);
+        assertThat(aggregateMs).as(name).isLessThanOrEqualTo(entityMs);
+    }
+
+    private static long medianMs(Supplier<?> variant) {
+        variant.get();
+        long[] durations = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            variant.get();
+            durations[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        Arrays.sort(durations);
+        return durations[RUNS / 2];
+    }
+}
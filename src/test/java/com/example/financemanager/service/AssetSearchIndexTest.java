@@ -0,0 +1,69 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.dto.CoinGeckoCoin;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AssetSearchIndexTest {
+
+    private AssetSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        CoinGeckoSymbolIndex.Snapshot snapshot = CoinGeckoSymbolIndex.build(List.of(
+                new CoinGeckoCoin("bitcoin", "btc", "Bitcoin"),
+                new CoinGeckoCoin("cash-network", "cash", "Cash Network"),
+                new CoinGeckoCoin("bitcoin-cash", "bch", "Bitcoin Cash"),
+                new CoinGeckoCoin("aave", "aave", "Aave"),
+                new CoinGeckoCoin("apple-coin", "appc", "Apple Coin")
+        ), Map.of("bitcoin", 1, "cash-network", 5, "bitcoin-cash", 15, "aave", 40, "apple-coin", 500), Instant.EPOCH);
+
+        CoinGeckoSymbolIndex symbolIndex = mock(CoinGeckoSymbolIndex.class);
+        when(symbolIndex.getSnapshot()).thenReturn(snapshot);
+
+        index = new AssetSearchIndex();
+        ReflectionTestUtils.setField(index, "coinGeckoSymbolIndex", symbolIndex);
+        ReflectionTestUtils.setField(index, "cryptoLeadingRank", 20);
+        index.init();
+    }
+
+    private List<String> symbols(String query, String type, int limit) {
+        return index.search(query, type, limit).stream().map(asset -> asset.symbol().toUpperCase()).toList();
+    }
+
+    @Test
+    void leadingCoinsComeBeforeStocksAndOtherCoinsAfter() {
+        // BTC (Rang 1) vor allen Aktien, APPC (Rang 500) erst nach den Aktien
+        assertThat(symbols("b", null, 1)).containsExactly("BTC");
+        assertThat(symbols("a", null, 3)).containsExactly("AAPL", "GOOGL", "AMZN");
+        assertThat(symbols("aave", null, 5)).first().isEqualTo("AAVE");
+        assertThat(symbols("apple", null, 2)).containsExactly("AAPL", "APPC");
+    }
+
+    @Test
+    void allQueryWordsMustMatchTheName() {
+        // Ohne Trigramm-Stufe (limit 1) bleibt nur der Namens-Präfix-Treffer; CASH passt nur zum zweiten Wort
+        assertThat(symbols("bitcoin cash", null, 1)).containsExactly("BCH");
+        assertThat(symbols("cash bit", null, 1)).containsExactly("BCH");
+        assertThat(symbols("bitcoin cash", null, 5)).first().isEqualTo("BCH");
+        assertThat(symbols("bitcoin cash", null, 5)).doesNotContain("CASH");
+        assertThat(symbols("cash", null, 2)).containsExactly("CASH", "BCH");
+    }
+
+    @Test
+    void trigramsRankBySimilarityThenRankAndRespectLimit() {
+        // "itcoin" trifft kein Wort am Anfang, nur über Trigramme
+        assertThat(symbols("itcoin", null, 10)).startsWith("BTC", "BCH");
+        assertThat(symbols("itcoin", null, 1)).containsExactly("BTC");
+        assertThat(symbols("itcoin", "stock", 10)).contains("COIN").doesNotContain("BTC", "BCH");
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.model.CryptoTransaction;
+import com.example.financemanager.model.CryptoWatchlist;
+import com.example.financemanager.model.MonthlyRollup;
+import com.example.financemanager.model.Position;
+import com.example.financemanager.repository.CryptoWatchlistRepository;
+import com.example.financemanager.repository.MonthlyRollupRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ohne Test-Transaktion, damit jeder Chunk wirklich committet bzw. zurückgerollt wird.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "finance.import.chunk-size=2",
+        "finance.import.batch-size=2"
+})
+@Import({BulkImportService.class, MonthlyRollupService.class, PositionService.class, TaxLotService.class,
+        JacksonAutoConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BulkImportServiceTest {
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @Autowired
+    private MonthlyRollupService monthlyRollupService;
+
+    @Autowired
+    private PositionService positionService;
+
+    @Autowired
+    private MonthlyRollupRepository monthlyRollupRepository;
+
+    @Autowired
+    private CryptoWatchlistRepository cryptoWatchlistRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        for (String table : List.of("watchlist_position", "crypto_transaction", "crypto_watchlist",
+                "expense", "income", "monthly_rollup")) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+    }
+
+    private Map<String, Object> importData(BulkImportService.ImportType type, String format, String data) {
+        return bulkImportService.importData(type, format, new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> errors(Map<String, Object> result) {
+        return (List<Map<String, Object>>) result.get("errors");
+    }
+
+    // Rollups als "Art|Monat|Kategorie" -> "Summe x Anzahl", unabhängig von der Skalierung
+    private Map<String, String> rollups() {
+        Map<String, String> rollups = new TreeMap<>();
+        for (MonthlyRollup rollup : monthlyRollupRepository.findAll()) {
+            rollups.put(rollup.getKind() + "|" + rollup.getMonth() + "|" + rollup.getCategory(),
+                    rollup.getTotal().stripTrailingZeros().toPlainString() + " x " + rollup.getEntryCount());
+        }
+        return rollups;
+    }
+
+    @Test
+    void csvWithBomSemicolonsAndMultiLineFieldsReportsPhysicalLines() {
+        Map<String, Object> result = importData(BulkImportService.ImportType.EXPENSES, "csv",
+                "\uFEFFDescription;Amount;Category;Date\r\n"
+                        + "\"Einkauf\r\nWochenmarkt; Obst\";45.50;Lebensmittel;2025-03-03\r\n"
+                        + "Kino;12.00;;2025-03-15\r\n"
+                        + "Kaputt;abc;Freizeit;2025-03-20\r\n"
+                        + "\"Miete \"\"April\"\"\";800.00;Wohnen;2025-04-01\r\n");
+
+        assertThat(result.get("success")).isEqualTo(true);
+        assertThat(result.get("state")).isEqualTo("completed");
+        assertThat(result.get("rowsRead")).isEqualTo(4L);
+        assertThat(result.get("rowsImported")).isEqualTo(3L);
+        assertThat(result.get("rowsFailed")).isEqualTo(1L);
+        // Der mehrzeilige Datensatz belegt die Zeilen 2 und 3
+        assertThat(errors(result)).hasSize(1);
+        assertThat(errors(result).get(0).get("line")).isEqualTo(5L);
+        assertThat((String) errors(result).get(0).get("error")).contains("amount");
+
+        assertThat(jdbcTemplate.queryForList("SELECT description FROM expense ORDER BY date", String.class))
+                .containsExactly("Einkauf\r\nWochenmarkt; Obst", "Kino", "Miete \"April\"");
+        assertThat(rollups()).containsExactlyInAnyOrderEntriesOf(Map.of(
+                "EXPENSE|2025-03-01|Lebensmittel", "45.5 x 1",
+                "EXPENSE|2025-03-01|" + MonthlyRollupService.UNCATEGORIZED, "12 x 1",
+                "EXPENSE|2025-04-01|Wohnen", "800 x 1"));
+    }
+
+    @Test
+    void csvWithCommasMatchesRollupRebuild() {
+        Map<String, Object> result = importData(BulkImportService.ImportType.INCOMES, "csv",
+                "source,amount,date\n"
+                        + "\"Gehalt, März\",3000.00,2025-03-31\n"
+                        + "\n"
+                        + "Zinsen,1.25,2025-03-31\n"
+                        + "Zinsen,0.75,2025-03-01\n"
+                        + ",20,2025-04-02\n");
+
+        assertThat(result.get("rowsImported")).isEqualTo(4L);
+        assertThat(errors(result)).isEmpty();
+
+        Map<String, String> imported = rollups();
+        assertThat(imported).containsEntry("INCOME|2025-03-01|Zinsen", "2 x 2")
+                .containsEntry("INCOME|2025-03-01|Gehalt, März", "3000 x 1")
+                .containsEntry("INCOME|2025-04-01|" + MonthlyRollupService.UNCATEGORIZED, "20 x 1");
+        monthlyRollupService.rebuild();
+        assertThat(rollups()).isEqualTo(imported);
+    }
+
+    @Test
+    void ndjsonReportsInvalidLinesAndIgnoresFieldCase() {
+        Map<String, Object> result = importData(BulkImportService.ImportType.INCOMES, "ndjson",
+                "\uFEFF{\"source\":\"Gehalt\",\"amount\":3000,\"date\":\"2025-01-31\"}\n"
+                        + "\n"
+                        + "{\"source\":\"Bonus\",\"amount\":\"x\",\"date\":\"2025-01-31\"}\n"
+                        + "[1,2]\n"
+                        + "{kaputt\n"
+                        + "{\"Source\":\"Zinsen\",\"Amount\":\"1.25\",\"Date\":\"2025-02-01\"}\n");
+
+        assertThat(result.get("rowsRead")).isEqualTo(5L);
+        assertThat(result.get("rowsImported")).isEqualTo(2L);
+        assertThat(result.get("rowsFailed")).isEqualTo(3L);
+        assertThat(errors(result)).extracting(error -> error.get("line")).containsExactly(3L, 4L, 5L);
+        assertThat((String) errors(result).get(1).get("error")).isEqualTo("Kein JSON-Objekt");
+        assertThat((String) errors(result).get(2).get("error")).startsWith("Ungültiges JSON");
+        assertThat(jdbcTemplate.queryForList("SELECT source FROM income ORDER BY date", String.class))
+                .containsExactly("Gehalt", "Zinsen");
+    }
+
+    @Test
+    void failedChunkIsRolledBackWithItsRollups() {
+        Map<String, Object> result = importData(BulkImportService.ImportType.EXPENSES, "csv",
+                "description,amount,category,date\n"
+                        + "A,10,Haushalt,2025-05-01\n"
+                        + "B,20,Haushalt,2025-05-02\n"
+                        + "C,30,Haushalt,2025-05-03\n"
+                        + "x".repeat(300) + ",40,Haushalt,2025-05-04\n"
+                        + "E,50,Haushalt,2025-05-05\n");
+
+        // Chunk 2 (Zeilen 4 und 5) scheitert an der zu langen Beschreibung
+        assertThat(result.get("success")).isEqualTo(true);
+        assertThat(result.get("rowsImported")).isEqualTo(3L);
+        assertThat(result.get("rowsFailed")).isEqualTo(2L);
+        assertThat(errors(result)).hasSize(1);
+        assertThat(errors(result).get(0).get("line")).isEqualTo(5L);
+        assertThat((String) errors(result).get(0).get("error")).startsWith("Chunk mit 2 Zeilen (bis Zeile 5)");
+
+        assertThat(jdbcTemplate.queryForList("SELECT description FROM expense ORDER BY date", String.class))
+                .containsExactly("A", "B", "E");
+        assertThat(rollups()).containsExactlyEntriesOf(Map.of("EXPENSE|2025-05-01|Haushalt", "80 x 3"));
+    }
+
+    @Test
+    void transactionsRebuildTouchedPositions() {
+        CryptoWatchlist bitcoin = cryptoWatchlistRepository.save(new CryptoWatchlist("BTC", "Bitcoin", "crypto"));
+        CryptoTransaction existing = new CryptoTransaction(bitcoin, CryptoTransaction.TransactionType.BUY,
+                new BigDecimal("1"), new BigDecimal("100"));
+        ReflectionTestUtils.setField(existing, "transactionDate", LocalDateTime.of(2025, 3, 10, 12, 0));
+        positionService.recordTransaction(existing);
+
+        // Importierte Transaktionen liegen vor der bestehenden
+        Map<String, Object> result = importData(BulkImportService.ImportType.TRANSACTIONS, "csv",
+                "symbol,transactionType,amount,price,date,assetType\n"
+                        + "btc,BUY,1,200,2025-03-01T10:00:00,\n"
+                        + "BTC,SELL,0.5,300,2025-03-05,\n"
+                        + "ETH,BUY,2,50,2025-03-02,Crypto\n");
+
+        assertThat(result.get("rowsImported")).isEqualTo(3L);
+        assertThat(errors(result)).isEmpty();
+
+        // Kauf 1 zu 200, Verkauf 0,5 gibt 100 frei (Gewinn 50), dann Kauf 1 zu 100
+        Position btc = positionService.getPosition(bitcoin.getId()).orElseThrow();
+        assertThat(btc.getQuantity()).isEqualByComparingTo("1.5");
+        assertThat(btc.getCostBasis()).isEqualByComparingTo("200");
+        assertThat(btc.getRealizedPnl()).isEqualByComparingTo("50");
+        assertThat(btc.getTransactionCount()).isEqualTo(3);
+        assertThat(btc.getNavDirtyFrom()).isEqualTo(PortfolioNavService.utcDay(LocalDateTime.of(2025, 3, 1, 10, 0)));
+        assertThat(positionService.rebuild(bitcoin.getId())).isFalse();
+
+        CryptoWatchlist ethereum = cryptoWatchlistRepository.findBySymbolIgnoreCase("ETH").orElseThrow();
+        assertThat(ethereum.getType()).isEqualTo("crypto");
+        Position eth = positionService.getPosition(ethereum.getId()).orElseThrow();
+        assertThat(eth.getQuantity()).isEqualByComparingTo("2");
+        assertThat(eth.getCostBasis()).isEqualByComparingTo("100");
+        assertThat(eth.getTransactionCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.financemanager.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvRecordReaderTest {
+
+    @Test
+    void readsCommaAndSemicolonDelimitedRecords() throws IOException {
+        CsvRecordReader comma = new CsvRecordReader(new StringReader("a,b,c\n1,,3\n"), ',');
+        assertThat(comma.next()).containsExactly("a", "b", "c");
+        assertThat(comma.next()).containsExactly("1", "", "3");
+        assertThat(comma.next()).isNull();
+
+        // Bei ';' ist ',' ein normales Zeichen (Dezimalkomma)
+        CsvRecordReader semicolon = new CsvRecordReader(new StringReader("a;b\n12,50;x"), ';');
+        assertThat(semicolon.next()).containsExactly("a", "b");
+        assertThat(semicolon.next()).containsExactly("12,50", "x");
+        assertThat(semicolon.next()).isNull();
+    }
+
+    @Test
+    void quotedFieldsKeepDelimitersQuotesAndLineBreaks() throws IOException {
+        CsvRecordReader csv = new CsvRecordReader(new StringReader(
+                "\"Miete, Mai\";\"Er sagte \"\"Hallo\"\"\";\"Zeile 1\r\nZeile 2\";\"\"\n"), ';');
+
+        assertThat(csv.next()).containsExactly("Miete, Mai", "Er sagte \"Hallo\"", "Zeile 1\r\nZeile 2", "");
+        assertThat(csv.next()).isNull();
+    }
+
+    @Test
+    void recordLineIsPhysicalStartLine() throws IOException {
+        CsvRecordReader csv = new CsvRecordReader(new StringReader(
+                "kopf\r\n\"mehr\nzeilig\nes Feld\",x\r\n\r\n\nletzte\rzeile\n"), ',');
+
+        assertThat(csv.next()).containsExactly("kopf");
+        assertThat(csv.recordLine()).isEqualTo(1);
+        assertThat(csv.next()).containsExactly("mehr\nzeilig\nes Feld", "x");
+        assertThat(csv.recordLine()).isEqualTo(2);
+        // Leere Zeilen (auch "\r\n") werden übersprungen, zählen aber mit
+        assertThat(csv.next()).containsExactly("letzte");
+        assertThat(csv.recordLine()).isEqualTo(7);
+        assertThat(csv.next()).containsExactly("zeile");
+        assertThat(csv.recordLine()).isEqualTo(8);
+        assertThat(csv.next()).isNull();
+    }
+
+    @Test
+    void unterminatedQuoteFails() throws IOException {
+        CsvRecordReader csv = new CsvRecordReader(new StringReader("a,b\n\"offen,1\n"), ',');
+
+        assertThat(csv.next()).isEqualTo(List.of("a", "b"));
+        assertThatThrownBy(csv::next).isInstanceOf(IOException.class);
+    }
+}
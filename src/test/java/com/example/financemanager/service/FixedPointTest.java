@@ -0,0 +1,206 @@
+package com.example.financemanager.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static com.example.financemanager.Allocations.allocatedBytes;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assumptions.assumeThat;
+
+/**
+ * Vergleicht die Festkomma-Rechnung mit BigDecimal (HALF_UP) auf Zufallswerten, einschließlich der
+ * Sonderpfade (geteilte Multiplikation, Skalenwechsel um 19 und mehr Stellen, schnelles Parsen),
+ * und prüft, dass die Rechenmethoden keine Objekte erzeugen.
+ */
+class FixedPointTest {
+
+    private static final int CASES = 200_000;
+
+    private static long sink;
+
+    @Test
+    void multiplyMatchesBigDecimal() {
+        Random random = new Random(1);
+        int split = 0;
+        int fallback = 0;
+        for (int i = 0; i < CASES; i++) {
+            // Menge bis 10^7 und Preis bis 10^5 mit je 8 Stellen: das Produkt braucht meist mehr als 64 Bit
+            long a = randomSigned(random, i % 3 == 0 ? 1_000_000L : 1_000_000_000_000_000L);
+            long b = randomSigned(random, i % 5 == 0 ? 100_000L : 10_000_000_000_000L);
+            int scaleA = 8;
+            int scaleB = random.nextInt(9);
+            int resultScale = random.nextInt(9);
+
+            if (Math.multiplyHigh(a, b) != (a * b) >> 63) {
+                long remainder = Math.abs(a) <= Math.abs(b) ? b % 100_000_000L : a % 100_000_000L;
+                long small = Math.abs(a) <= Math.abs(b) ? a : b;
+                boolean fits = Math.multiplyHigh(small, remainder) == (small * remainder) >> 63;
+                if (scaleA + scaleB - resultScale == 8 && fits) {
+                    split++;
+                } else {
+                    fallback++;
+                }
+            }
+            assertSame(() -> BigDecimal.valueOf(a, scaleA).multiply(BigDecimal.valueOf(b, scaleB)), resultScale,
+                    () -> FixedPoint.multiply(a, scaleA, b, scaleB, resultScale), a + "e-" + scaleA + " * " + b + "e-" + scaleB);
+        }
+        assertThat(split).isGreaterThan(1000);
+        assertThat(fallback).isGreaterThan(1000);
+    }
+
+    @Test
+    void divideMatchesBigDecimal() {
+        Random random = new Random(2);
+        for (int i = 0; i < CASES; i++) {
+            long a = randomSigned(random, 1_000_000_000_000_000L);
+            long b = randomSigned(random, i % 2 == 0 ? 1000L : 1_000_000_000_000L);
+            if (b == 0) {
+                continue;
+            }
+            int scaleA = random.nextInt(9);
+            int scaleB = random.nextInt(9);
+            int resultScale = random.nextInt(9);
+            assertSame(() -> BigDecimal.valueOf(a, scaleA).divide(BigDecimal.valueOf(b, scaleB), resultScale, RoundingMode.HALF_UP),
+                    resultScale, () -> FixedPoint.divide(a, scaleA, b, scaleB, resultScale), a + " / " + b);
+        }
+    }
+
+    @Test
+    void rescaleMatchesBigDecimalIncludingLargeShifts() {
+        Random random = new Random(3);
+        long[] edges = {0, 1, -1, 4_999_999_999_999_999_999L, 5_000_000_000_000_000_000L,
+                -4_999_999_999_999_999_999L, -5_000_000_000_000_000_000L, Long.MAX_VALUE, Long.MIN_VALUE + 1};
+        for (int i = 0; i < CASES; i++) {
+            long value = i < edges.length * 8 ? edges[i % edges.length] : random.nextLong() >> random.nextInt(63);
+            int fromScale = random.nextInt(30);
+            // Verkleinern um 19 und mehr Stellen deckt den Sonderfall ohne Zehnerpotenz ab
+            int toScale = i % 2 == 0 ? Math.max(0, fromScale - 19 - random.nextInt(3)) : random.nextInt(30);
+            assertSame(() -> BigDecimal.valueOf(value, fromScale), toScale,
+                    () -> FixedPoint.rescale(value, fromScale, toScale), value + "e-" + fromScale + " -> " + toScale);
+        }
+    }
+
+    @Test
+    void parseMatchesBigDecimal() {
+        Random random = new Random(4);
+        for (int i = 0; i < CASES; i++) {
+            String text = randomDecimal(random);
+            int scale = random.nextInt(9);
+            Long expected;
+            try {
+                expected = reference(new BigDecimal(text), scale);
+            } catch (NumberFormatException e) {
+                expected = -1L;
+            }
+            Long actual;
+            try {
+                actual = FixedPoint.parse(text, scale);
+            } catch (NumberFormatException e) {
+                actual = -1L;
+            } catch (ArithmeticException e) {
+                actual = null;
+            }
+            assertThat(actual).as(text + " @ " + scale).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void arithmeticDoesNotAllocate() throws Exception {
+        String[] prices = {"65000.5", "-1.25", "0.00001234", "1.0E-5", "42"};
+        long bytes = allocatedBytes(() -> {
+            long total = 0;
+            for (int i = 0; i < 10_000; i++) {
+                long quantity = 1_000_000_000L + i;
+                long price = FixedPoint.parse(prices[i % prices.length], FixedPoint.QUANTITY_SCALE);
+                // Produkt > 64 Bit: geteilte Multiplikation
+                long value = FixedPoint.multiply(quantity * 1000, FixedPoint.QUANTITY_SCALE,
+                        6_500_000_000_000L, FixedPoint.QUANTITY_SCALE, FixedPoint.QUANTITY_SCALE);
+                total = FixedPoint.add(total, FixedPoint.multiply(quantity, FixedPoint.QUANTITY_SCALE, price,
+                        FixedPoint.QUANTITY_SCALE, FixedPoint.QUANTITY_SCALE));
+                total = FixedPoint.subtract(total, FixedPoint.divide(value, FixedPoint.QUANTITY_SCALE, quantity,
+                        FixedPoint.QUANTITY_SCALE, FixedPoint.MONEY_SCALE));
+                total += FixedPoint.rescale(value, 27, 0);
+            }
+            sink = total;
+        });
+        long bigDecimalBytes = allocatedBytes(() -> {
+            BigDecimal total = BigDecimal.ZERO;
+            for (int i = 0; i < 10_000; i++) {
+                BigDecimal quantity = BigDecimal.valueOf(1_000_000_000L + i, FixedPoint.QUANTITY_SCALE);
+                total = total.add(quantity.multiply(new BigDecimal(prices[i % prices.length]))
+                        .setScale(FixedPoint.QUANTITY_SCALE, RoundingMode.HALF_UP));
+            }
+            sink = total.signum();
+        });
+
+        assumeThat(bigDecimalBytes).isPositive();
+        assertThat(bytes).isZero();
+    }
+
+    // ========== INTERNE HILFSMETHODEN ==========
+
+    private static long randomSigned(Random random, long bound) {
+        long value = Math.floorMod(random.nextLong(), bound);
+        return random.nextBoolean() ? value : -value;
+    }
+
+    /**
+     * Zufällige Dezimalzahl im Format der Provider: Vorzeichen, bis zu 17 Ziffern (schneller Pfad),
+     * gelegentlich mehr Ziffern (Rückfall auf BigDecimal), Exponent oder ungültige Zeichen.
+     */
+    private static String randomDecimal(Random random) {
+        StringBuilder text = new StringBuilder();
+        int sign = random.nextInt(4);
+        if (sign == 0) {
+            text.append('-');
+        } else if (sign == 1) {
+            text.append('+');
+        }
+        int integerDigits = random.nextInt(random.nextInt(10) == 0 ? 22 : 10);
+        int fractionDigits = random.nextInt(random.nextInt(10) == 0 ? 22 : 10);
+        for (int i = 0; i < integerDigits; i++) {
+            text.append((char) ('0' + random.nextInt(10)));
+        }
+        if (fractionDigits > 0 || random.nextInt(8) == 0) {
+            text.append('.');
+        }
+        for (int i = 0; i < fractionDigits; i++) {
+            text.append((char) ('0' + random.nextInt(10)));
+        }
+        switch (random.nextInt(12)) {
+            case 0 -> text.append('E').append(random.nextInt(30) - 15);
+            case 1 -> text.append("e+").append(random.nextInt(5));
+            case 2 -> text.append('e');
+            case 3 -> text.append('x');
+            default -> {
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Erwarteter Wert laut BigDecimal, null wenn er nicht in ein long passt.
+     */
+    private static Long reference(BigDecimal value, int scale) {
+        try {
+            return value.setScale(scale, RoundingMode.HALF_UP).scaleByPowerOfTen(scale).longValueExact();
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    private static void assertSame(Supplier<BigDecimal> reference, int scale, Supplier<Long> fixedPoint, String description) {
+        Long expected = reference(reference.get(), scale);
+        Long actual;
+        try {
+            actual = fixedPoint.get();
+        } catch (ArithmeticException e) {
+            actual = null;
+        }
+        assertThat(actual).as(description + " @ " + scale).isEqualTo(expected);
+    }
+}
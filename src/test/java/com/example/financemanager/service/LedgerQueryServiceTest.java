@@ -0,0 +1,142 @@
+package com.example.financemanager.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import({LedgerQueryService.class, JacksonAutoConfiguration.class})
+class LedgerQueryServiceTest {
+
+    private static final LedgerQueryService.Filter ALL = new LedgerQueryService.Filter(null, null, null);
+
+    @Autowired
+    private LedgerQueryService ledgerQueryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Erwartete Reihenfolge: Datum absteigend, bei gleichem Datum ID absteigend, ohne Datum am Ende
+    private final List<Long> expectedIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // 23 Ausgaben auf sechs Tage verteilt (mehrere pro Tag), dazwischen fünf ohne Datum
+        LocalDate firstDay = LocalDate.of(2025, 1, 1);
+        for (int i = 0; i < 23; i++) {
+            LocalDate date = i % 5 == 2 ? null : firstDay.plusDays(i % 6);
+            jdbcTemplate.update("INSERT INTO expense (description, amount, category, date) VALUES (?, ?, ?, ?)",
+                    "Ausgabe " + i, BigDecimal.ONE, i % 2 == 0 ? "Miete" : "Freizeit",
+                    date != null ? Date.valueOf(date) : null);
+        }
+        List<Object[]> rows = jdbcTemplate.query("SELECT date, id FROM expense", (rs, rowNum) -> {
+            Date date = rs.getDate("date");
+            return new Object[]{date != null ? date.toLocalDate() : null, rs.getLong("id")};
+        });
+        rows.sort(Comparator.<Object[], LocalDate>comparing(row -> (LocalDate) row[0],
+                        Comparator.nullsFirst(Comparator.<LocalDate>naturalOrder()))
+                .thenComparing(row -> (Long) row[1]).reversed());
+        rows.forEach(row -> expectedIds.add((Long) row[1]));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> items(Map<String, Object> page) {
+        return (List<Map<String, Object>>) page.get("items");
+    }
+
+    private List<Long> walk(LedgerQueryService.Filter filter, int limit) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            Map<String, Object> page = ledgerQueryService.getPage(LedgerQueryService.Ledger.EXPENSE, filter, cursor, limit);
+            items(page).forEach(item -> ids.add((Long) item.get("id")));
+            cursor = (String) page.get("nextCursor");
+            assertThat(page.get("hasMore")).isEqualTo(cursor != null);
+        } while (cursor != null);
+        return ids;
+    }
+
+    @Test
+    void pagingVisitsEveryRowOnceInOrder() {
+        // Seitengrenzen fallen mal zwischen, mal mitten in Tage mit mehreren Buchungen und in die Zeilen ohne Datum
+        for (int limit : new int[]{1, 2, 3, 4, 5, 7, 22, 23, 24}) {
+            assertThat(walk(ALL, limit)).as("limit " + limit).isEqualTo(expectedIds);
+        }
+    }
+
+    @Test
+    void pagingWithLabelFilterMatchesFilteredOrder() {
+        List<Long> miete = jdbcTemplate.queryForList("SELECT id FROM expense WHERE category = 'Miete'", Long.class);
+        List<Long> expected = expectedIds.stream().filter(miete::contains).toList();
+
+        assertThat(walk(new LedgerQueryService.Filter(null, null, "Miete"), 3)).isEqualTo(expected);
+    }
+
+    @Test
+    void cursorContinuesWithinTiesAndIntoRowsWithoutDate() {
+        Map<String, Object> first = ledgerQueryService.getPage(LedgerQueryService.Ledger.EXPENSE, ALL, null, 2);
+        Map<String, Object> second = items(first).get(1);
+        assertThat(first.get("nextCursor")).isEqualTo(second.get("date") + "_" + second.get("id"));
+
+        // Cursor mitten in einem Tag: die restlichen Buchungen dieses Tages folgen zuerst
+        Map<String, Object> next = ledgerQueryService.getPage(LedgerQueryService.Ledger.EXPENSE, ALL,
+                (String) first.get("nextCursor"), 2);
+        assertThat(items(next)).extracting(item -> item.get("id")).containsExactly(expectedIds.get(2), expectedIds.get(3));
+
+        // Letzte datierte Buchung: danach kommen alle Buchungen ohne Datum
+        int firstUndated = expectedIds.size() - 5;
+        Map<String, Object> lastDated = ledgerQueryService.getPage(LedgerQueryService.Ledger.EXPENSE, ALL, null,
+                firstUndated);
+        assertThat((String) lastDated.get("nextCursor")).doesNotStartWith("null_");
+        Map<String, Object> undated = ledgerQueryService.getPage(LedgerQueryService.Ledger.EXPENSE, ALL,
+                (String) lastDated.get("nextCursor"), 3);
+        assertThat(items(undated)).allSatisfy(item -> assertThat(item.get("date")).isNull());
+        assertThat((String) undated.get("nextCursor")).startsWith("null_");
+
+        // Cursor "null_<id>" bleibt bei den Buchungen ohne Datum, die letzte Seite hat keinen Cursor mehr
+        Map<String, Object> last = ledgerQueryService.getPage(LedgerQueryService.Ledger.EXPENSE, ALL,
+                (String) undated.get("nextCursor"), 3);
+        assertThat(items(last)).extracting(item -> item.get("id"))
+                .containsExactly(expectedIds.get(firstUndated + 3), expectedIds.get(firstUndated + 4));
+        assertThat(last.get("hasMore")).isEqualTo(false);
+        assertThat(last.get("nextCursor")).isNull();
+    }
+
+    @Test
+    void exactlyFullLastPageHasNoCursor() {
+        Map<String, Object> page = ledgerQueryService.getPage(LedgerQueryService.Ledger.EXPENSE, ALL, null,
+                expectedIds.size());
+
+        assertThat(items(page)).hasSize(expectedIds.size());
+        assertThat(page.get("hasMore")).isEqualTo(false);
+        assertThat(page.get("nextCursor")).isNull();
+    }
+
+    @Test
+    void invalidCursorAndLimitAreRejected() {
+        for (String cursor : new String[]{"42", "2025-13-01_1", "null_x", "_"}) {
+            assertThatThrownBy(() -> ledgerQueryService.getPage(LedgerQueryService.Ledger.EXPENSE, ALL, cursor, 5))
+                    .as(cursor).isInstanceOf(IllegalArgumentException.class);
+        }
+        assertThatThrownBy(() -> ledgerQueryService.getPage(LedgerQueryService.Ledger.EXPENSE, ALL, null, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
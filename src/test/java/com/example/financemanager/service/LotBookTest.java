@@ -0,0 +1,135 @@
+package com.example.financemanager.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LotBookTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private static void buy(LotBook book, long id, String amount, String value) {
+        book.apply(id, true, new BigDecimal(amount), new BigDecimal(value), START.plusDays(id), null);
+    }
+
+    private static void sell(LotBook book, long id, String amount, String value) {
+        LocalDateTime date = START.plusDays(id);
+        book.apply(id, false, new BigDecimal(amount), new BigDecimal(value), date, date.getYear());
+    }
+
+    /**
+     * Zwei Käufe (1 zu 100, 1 zu 200), dann Verkauf von 1,5 für 450.
+     */
+    private static LotBook partialSale(TaxLotService.Method method) {
+        LotBook book = new LotBook(method);
+        buy(book, 1, "1", "100");
+        buy(book, 2, "1", "200");
+        sell(book, 3, "1.5", "450");
+        return book;
+    }
+
+    @Test
+    void fifoConsumesOldestLotAndPartOfTheNext() {
+        LotBook book = partialSale(TaxLotService.Method.FIFO);
+
+        assertThat(book.getRealizedPnl()).isEqualByComparingTo("250");
+        assertThat(book.getOpenQuantity()).isEqualByComparingTo("0.5");
+        assertThat(book.getOpenCost()).isEqualByComparingTo("100");
+        List<Map<String, Object>> lots = book.getOpenLots();
+        assertThat(lots).hasSize(1);
+        assertThat(lots.get(0).get("acquiredAt")).isEqualTo(START.plusDays(2));
+        assertThat((BigDecimal) lots.get(0).get("unitCost")).isEqualByComparingTo("200");
+    }
+
+    @Test
+    void lifoConsumesNewestLotAndPartOfThePrevious() {
+        LotBook book = partialSale(TaxLotService.Method.LIFO);
+
+        assertThat(book.getRealizedPnl()).isEqualByComparingTo("200");
+        assertThat(book.getOpenQuantity()).isEqualByComparingTo("0.5");
+        assertThat(book.getOpenCost()).isEqualByComparingTo("50");
+        assertThat(book.getOpenLots()).singleElement()
+                .satisfies(lot -> assertThat(lot.get("acquiredAt")).isEqualTo(START.plusDays(1)));
+    }
+
+    @Test
+    void averageReleasesCostAtAveragePrice() {
+        LotBook book = partialSale(TaxLotService.Method.AVERAGE);
+
+        assertThat(book.getRealizedPnl()).isEqualByComparingTo("225");
+        assertThat(book.getOpenQuantity()).isEqualByComparingTo("0.5");
+        assertThat(book.getOpenCost()).isEqualByComparingTo("75");
+        assertThat(book.getOpenLots()).hasSize(1);
+    }
+
+    @Test
+    void oversellIsRecordedAsUnmatchedWithZeroCost() {
+        for (TaxLotService.Method method : TaxLotService.Method.values()) {
+            LotBook book = new LotBook(method);
+            buy(book, 1, "1", "100");
+            sell(book, 2, "3", "330");
+
+            assertThat(book.getRealizedPnl()).as(method.name()).isEqualByComparingTo("230");
+            assertThat(book.getUnmatchedQuantity()).as(method.name()).isEqualByComparingTo("2");
+            assertThat(book.getOpenQuantity()).as(method.name()).isZero();
+            assertThat(book.getOpenLots()).as(method.name()).isEmpty();
+
+            // Ein späterer Kauf beginnt ein neues Lot, der Fehlbestand wird nicht verrechnet
+            buy(book, 3, "2", "60");
+            sell(book, 4, "1", "40");
+            assertThat(book.getRealizedPnl()).as(method.name()).isEqualByComparingTo("240");
+            assertThat(book.getOpenQuantity()).as(method.name()).isEqualByComparingTo("1");
+            assertThat(book.getUnmatchedQuantity()).as(method.name()).isEqualByComparingTo("2");
+        }
+    }
+
+    @Test
+    void ringBufferKeepsOrderAcrossWrapAndGrowth() {
+        LotBook book = new LotBook(TaxLotService.Method.FIFO);
+        for (int i = 1; i <= 3; i++) {
+            buy(book, i, "1", String.valueOf(i * 10));
+        }
+        sell(book, 4, "2", "100");
+        // Kopf steht jetzt mitten im Puffer; die nächsten Käufe laufen über das Ende und vergrößern ihn
+        for (int i = 5; i <= 10; i++) {
+            buy(book, i, "1", String.valueOf(i * 10));
+        }
+
+        assertThat(book.getOpenLots()).extracting(lot -> ((BigDecimal) lot.get("costBasis")).intValue())
+                .containsExactly(30, 50, 60, 70, 80, 90, 100);
+        sell(book, 11, "3", "0");
+        assertThat(book.getOpenCost()).isEqualByComparingTo("340");
+    }
+
+    @Test
+    void realizedGainsAreSplitByYearOfSale() {
+        LotBook book = new LotBook(TaxLotService.Method.FIFO);
+        book.apply(1, true, new BigDecimal("2"), new BigDecimal("100"), LocalDateTime.of(2024, 3, 1, 0, 0), null);
+        book.apply(2, false, BigDecimal.ONE, new BigDecimal("80"), LocalDateTime.of(2024, 12, 31, 23, 0), 2024);
+        book.apply(3, false, BigDecimal.ONE, new BigDecimal("40"), LocalDateTime.of(2025, 1, 2, 0, 0), 2025);
+
+        assertThat((BigDecimal) book.getRealized(2024).get("realizedPnl")).isEqualByComparingTo("30");
+        assertThat((BigDecimal) book.getRealized(2025).get("realizedPnl")).isEqualByComparingTo("-10");
+        assertThat(book.getRealized(2023)).isNull();
+        assertThat(book.getRealizedByYear()).extracting(year -> year.get("year")).containsExactly(2024, 2025);
+    }
+
+    @Test
+    void compareToLastOrdersByDateThenId() {
+        LotBook book = new LotBook(TaxLotService.Method.FIFO);
+        assertThat(book.compareToLast(null, 1)).isPositive();
+
+        buy(book, 5, "1", "10");
+        LocalDateTime last = START.plusDays(5);
+        assertThat(book.compareToLast(last, 5)).isZero();
+        assertThat(book.compareToLast(last, 6)).isPositive();
+        assertThat(book.compareToLast(last, 4)).isNegative();
+        assertThat(book.compareToLast(last.minusSeconds(1), 9)).isNegative();
+        assertThat(book.compareToLast(null, 9)).isNegative();
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.financemanager.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class MonteCarloEngineTest {
+
+    // Mehrere Blöcke plus ein angebrochener, damit die Aufteilung auf Threads eine Rolle spielt
+    private static final int PATHS = 5 * MonteCarloEngine.PATHS_PER_CHUNK + 123;
+
+    private static double[][] run(ForkJoinPool pool, MonteCarloEngine.Model model, double drift, double volatility,
+                                  double[] logReturns, long seed, int paths, int steps) {
+        double[] terminal = new double[paths];
+        double[] drawdowns = new double[paths];
+        MonteCarloEngine.simulate(pool, model, drift, volatility, logReturns, seed, steps, terminal, drawdowns, null, null);
+        return new double[][]{terminal, drawdowns};
+    }
+
+    private static double mean(double[] values) {
+        return Arrays.stream(values).average().orElseThrow();
+    }
+
+    @Test
+    void sameSeedGivesSameResultOnAnyNumberOfThreads() {
+        double[] history = {-0.02, -0.005, 0.0, 0.01, 0.025};
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool parallel = new ForkJoinPool(4);
+        try {
+            for (MonteCarloEngine.Model model : MonteCarloEngine.Model.values()) {
+                double[][] serial = run(single, model, 0.0005, 0.02, history, 42, PATHS, 30);
+                double[][] forked = run(parallel, model, 0.0005, 0.02, history, 42, PATHS, 30);
+                double[][] other = run(parallel, model, 0.0005, 0.02, history, 43, PATHS, 30);
+
+                assertThat(forked[0]).containsExactly(serial[0]);
+                assertThat(forked[1]).containsExactly(serial[1]);
+                assertThat(other[0]).isNotEqualTo(serial[0]);
+            }
+        } finally {
+            single.shutdown();
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    void percentileInterpolatesLinearly() {
+        double[] sorted = {1.0, 2.0, 3.0, 4.0};
+
+        assertThat(MonteCarloEngine.percentile(sorted, 0)).isEqualTo(1.0);
+        assertThat(MonteCarloEngine.percentile(sorted, 100)).isEqualTo(4.0);
+        assertThat(MonteCarloEngine.percentile(sorted, 50)).isCloseTo(2.5, within(1e-12));
+        assertThat(MonteCarloEngine.percentile(sorted, 25)).isCloseTo(1.75, within(1e-12));
+        assertThat(MonteCarloEngine.percentile(sorted, 95)).isCloseTo(3.85, within(1e-12));
+        assertThat(MonteCarloEngine.percentile(new double[]{7.0}, 5)).isEqualTo(7.0);
+        assertThat(MonteCarloEngine.percentile(new double[0], 50)).isNaN();
+    }
+
+    @Test
+    void gbmMedianFollowsDrift() {
+        // Log-Rendite am Ende ~ N(steps * drift, steps * volatility^2), Median = Mittelwert
+        int steps = 50;
+        double[][] result = run(ForkJoinPool.commonPool(), MonteCarloEngine.Model.GBM, 0.001, 0.01, new double[0], 7, PATHS, steps);
+        double[] sorted = result[0].clone();
+        Arrays.sort(sorted);
+
+        assertThat(MonteCarloEngine.percentile(sorted, 50)).isCloseTo(steps * 0.001, within(0.003));
+        assertThat(mean(result[0])).isCloseTo(steps * 0.001, within(0.003));
+        assertThat(Arrays.stream(result[1]).min().orElseThrow()).isGreaterThanOrEqualTo(0.0);
+        assertThat(Arrays.stream(result[1]).max().orElseThrow()).isLessThan(1.0);
+    }
+
+    @Test
+    void bootstrapMeanFollowsHistoricalReturns() {
+        // Ziehen mit Zurücklegen: Erwartung der Summe = steps * Mittel der Historie
+        int steps = 40;
+        double[] history = {-0.01, 0.03};
+        double[][] result = run(ForkJoinPool.commonPool(), MonteCarloEngine.Model.BOOTSTRAP, 0.0, 0.0, history, 11, PATHS, steps);
+
+        assertThat(mean(result[0])).isCloseTo(steps * 0.01, within(0.005));
+        // Jeder Pfad besteht nur aus Werten der Historie
+        for (double value : result[0]) {
+            double losses = (steps * 0.03 - value) / 0.04;
+            assertThat(losses).isCloseTo(Math.rint(losses), within(1e-6));
+        }
+    }
+
+    @Test
+    void bootstrapWithoutLossesHasNoDrawdown() {
+        double[][] result = run(ForkJoinPool.commonPool(), MonteCarloEngine.Model.BOOTSTRAP, 0.0, 0.0, new double[]{0.01}, 3, 100, 20);
+
+        for (double value : result[0]) {
+            assertThat(value).isCloseTo(0.2, within(1e-12));
+        }
+        assertThat(result[1]).containsOnly(0.0);
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.model.MonthlyRollup;
+import com.example.financemanager.repository.MonthlyRollupRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ohne Test-Transaktion: neue Rollup-Zeilen werden in einer eigenen Transaktion angelegt und committet.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import(MonthlyRollupService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MonthlyRollupServiceTest {
+
+    @Autowired
+    private MonthlyRollupService monthlyRollupService;
+
+    @Autowired
+    private MonthlyRollupRepository monthlyRollupRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        for (String table : List.of("expense", "income", "monthly_rollup")) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+    }
+
+    // Ausgabe speichern und in derselben Transaktion einrechnen, wie FinanceService es tut
+    private void expense(String category, String amount, LocalDate date) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO expense (description, amount, category, date) VALUES (?, ?, ?, ?)",
+                    "Ausgabe", amount != null ? new BigDecimal(amount) : null, category,
+                    date != null ? Date.valueOf(date) : null);
+            monthlyRollupService.record(MonthlyRollup.Kind.EXPENSE, date, category,
+                    amount != null ? new BigDecimal(amount) : null);
+        });
+    }
+
+    private void income(String source, String amount, LocalDate date) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO income (source, amount, date) VALUES (?, ?, ?)",
+                    source, new BigDecimal(amount), Date.valueOf(date));
+            monthlyRollupService.record(MonthlyRollup.Kind.INCOME, date, source, new BigDecimal(amount));
+        });
+    }
+
+    // Rollups als "Art|Monat|Kategorie" -> "Summe x Anzahl", unabhängig von der Skalierung
+    private Map<String, String> rollups() {
+        Map<String, String> rollups = new TreeMap<>();
+        for (MonthlyRollup rollup : monthlyRollupRepository.findAll()) {
+            rollups.put(rollup.getKind() + "|" + rollup.getMonth() + "|" + rollup.getCategory(),
+                    rollup.getTotal().stripTrailingZeros().toPlainString() + " x " + rollup.getEntryCount());
+        }
+        return rollups;
+    }
+
+    @Test
+    void incrementalRecordingMatchesRebuild() {
+        LocalDate march = LocalDate.of(2025, 3, 1);
+        expense("Miete", "800.00", march.plusDays(2));
+        expense(" Miete ", "20.50", march.plusDays(20));
+        expense("Lebensmittel", "45.10", march.plusDays(5));
+        expense("Lebensmittel", "12.35", march.plusMonths(1));
+        expense(null, "9.99", march.plusDays(7));
+        expense("  ", "5.01", march.plusDays(8));
+        expense(MonthlyRollupService.UNCATEGORIZED, "3.00", march.plusDays(9));
+        // Ohne Datum bzw. Betrag in keinem Monat
+        expense("Miete", "100.00", null);
+        expense("Miete", null, march);
+        income("Gehalt", "3000.00", march.plusDays(27));
+        income("Gehalt", "3000.00", march.plusMonths(1).plusDays(27));
+        income(null, "1.25", march.plusMonths(1));
+
+        Map<String, String> incremental = rollups();
+        assertThat(incremental).containsExactlyInAnyOrderEntriesOf(Map.of(
+                "EXPENSE|2025-03-01|Miete", "820.5 x 2",
+                "EXPENSE|2025-03-01|Lebensmittel", "45.1 x 1",
+                "EXPENSE|2025-03-01|" + MonthlyRollupService.UNCATEGORIZED, "18 x 3",
+                "EXPENSE|2025-04-01|Lebensmittel", "12.35 x 1",
+                "INCOME|2025-03-01|Gehalt", "3000 x 1",
+                "INCOME|2025-04-01|Gehalt", "3000 x 1",
+                "INCOME|2025-04-01|" + MonthlyRollupService.UNCATEGORIZED, "1.25 x 1"));
+
+        assertThat(monthlyRollupService.rebuild().get("rollupCount")).isEqualTo(incremental.size());
+        assertThat(rollups()).isEqualTo(incremental);
+    }
+
+    @Test
+    void uncategorizedRowsAppearInBreakdown() {
+        expense(null, "10.00", LocalDate.of(2025, 6, 3));
+        expense("Freizeit", "30.00", LocalDate.of(2025, 6, 4));
+
+        Map<String, Object> breakdown = monthlyRollupService.getCategoryBreakdown(MonthlyRollup.Kind.EXPENSE,
+                YearMonth.of(2025, 6), YearMonth.of(2025, 6));
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> categories = (List<Map<String, Object>>) breakdown.get("categories");
+        assertThat(categories).extracting(category -> category.get("category"))
+                .containsExactly("Freizeit", MonthlyRollupService.UNCATEGORIZED);
+        assertThat((BigDecimal) categories.get(1).get("percentage")).isEqualByComparingTo("25");
+    }
+
+    @Test
+    void parallelRecordingIntoNewMonthCountsEveryBooking() throws Exception {
+        // Alle Threads finden die Zeile nicht vor und legen sie gleichzeitig an
+        LocalDate day = LocalDate.of(2025, 7, 15);
+        int threads = 4;
+        int perThread = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        expense("Urlaub", "1.10", day);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Map<String, String> incremental = rollups();
+        assertThat(incremental).containsExactlyEntriesOf(Map.of("EXPENSE|2025-07-01|Urlaub", "110 x 100"));
+        monthlyRollupService.rebuild();
+        assertThat(rollups()).isEqualTo(incremental);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.financemanager.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class PortfolioNavServiceTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 1, 1);
+
+    private static Object[] day(int offset, String nav, String netFlow, String outflow) {
+        return new Object[]{START.plusDays(offset), new BigDecimal(nav), new BigDecimal(netFlow), new BigDecimal(outflow)};
+    }
+
+    @Test
+    void fullExitKeepsReturnUntilSale() {
+        // 1 Stück zu 100 gekauft, am Folgetag komplett zu 95 verkauft
+        Map<String, Object> result = PortfolioNavService.analyze(List.of(
+                day(0, "100", "100", "0"),
+                day(1, "0", "-95", "95"),
+                day(2, "0", "0", "0")));
+
+        assertThat((double) result.get("timeWeightedReturn")).isCloseTo(-0.05, within(1e-12));
+        assertThat((double) result.get("maxDrawdown")).isCloseTo(0.05, within(1e-12));
+        assertThat((BigDecimal) result.get("gain")).isEqualByComparingTo("-5");
+    }
+
+    @Test
+    void partialExitCountsProceedsAtEndOfDay() {
+        // 1 Stück zu 100, halbe Menge zu 95 verkauft, Rest bleibt bei 95
+        Map<String, Object> result = PortfolioNavService.analyze(List.of(
+                day(0, "100", "100", "0"),
+                day(1, "47.5", "-47.5", "47.5")));
+
+        assertThat((double) result.get("timeWeightedReturn")).isCloseTo(-0.05, within(1e-12));
+        assertThat((BigDecimal) result.get("gain")).isEqualByComparingTo("-5");
+    }
+
+    @Test
+    void buyCountsAtStartOfDay() {
+        // Nachkauf von 100 am zweiten Tag, Kurs steigt danach um 10 %
+        Map<String, Object> result = PortfolioNavService.analyze(List.of(
+                day(0, "100", "100", "0"),
+                day(1, "200", "100", "0"),
+                day(2, "220", "0", "0")));
+
+        assertThat((double) result.get("timeWeightedReturn")).isCloseTo(0.10, within(1e-12));
+        assertThat((double) result.get("maxDrawdown")).isZero();
+    }
+
+    @Test
+    void transactionTimesAreBucketedByUtcDay() {
+        TimeZone original = TimeZone.getDefault();
+        try {
+            // Gespeichert wird Systemzeit: 01:30 in Berlin ist 00:30 UTC (Winter) bzw. 23:30 UTC am Vortag (Sommer)
+            TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+            assertThat(PortfolioNavService.utcDay(LocalDateTime.of(2025, 1, 15, 1, 30))).isEqualTo(LocalDate.of(2025, 1, 15));
+            assertThat(PortfolioNavService.utcDay(LocalDateTime.of(2025, 7, 15, 1, 30))).isEqualTo(LocalDate.of(2025, 7, 14));
+            assertThat(PortfolioNavService.utcDay(LocalDateTime.of(2025, 1, 15, 0, 30))).isEqualTo(LocalDate.of(2025, 1, 14));
+        } finally {
+            TimeZone.setDefault(original);
+        }
+    }
+}
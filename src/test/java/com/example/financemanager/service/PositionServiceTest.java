@@ -0,0 +1,151 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.model.CryptoTransaction;
+import com.example.financemanager.model.CryptoWatchlist;
+import com.example.financemanager.model.Position;
+import com.example.financemanager.repository.CryptoTransactionRepository;
+import com.example.financemanager.repository.CryptoWatchlistRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import({PositionService.class, TaxLotService.class})
+class PositionServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+    @Autowired
+    private PositionService positionService;
+
+    @Autowired
+    private CryptoWatchlistRepository cryptoWatchlistRepository;
+
+    @Autowired
+    private CryptoTransactionRepository cryptoTransactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private CryptoWatchlist watchlist;
+
+    @BeforeEach
+    void setUp() {
+        watchlist = cryptoWatchlistRepository.save(new CryptoWatchlist("BTC", "Bitcoin", "crypto"));
+    }
+
+    private static CryptoTransaction transaction(CryptoWatchlist watchlist, CryptoTransaction.TransactionType type,
+                                                 String amount, String price, int day) {
+        CryptoTransaction transaction = new CryptoTransaction(watchlist, type, new BigDecimal(amount), new BigDecimal(price));
+        ReflectionTestUtils.setField(transaction, "transactionDate", START.plusDays(day));
+        return transaction;
+    }
+
+    private CryptoTransaction record(CryptoTransaction.TransactionType type, String amount, String price, int day) {
+        return positionService.recordTransaction(transaction(watchlist, type, amount, price, day));
+    }
+
+    private Position position() {
+        return positionService.getPosition(watchlist.getId()).orElseThrow();
+    }
+
+    @Test
+    void incrementalUpdatesMatchRebuild() {
+        record(CryptoTransaction.TransactionType.BUY, "1", "100", 0);
+        CryptoTransaction second = record(CryptoTransaction.TransactionType.BUY, "1", "200", 1);
+        record(CryptoTransaction.TransactionType.SELL, "0.5", "300", 2);
+        record(CryptoTransaction.TransactionType.BUY, "0.25", "400", 3);
+
+        // Durchschnittskosten: 300 / 2 = 150 pro Stück, Verkauf gibt 75 frei
+        assertThat(position().getQuantity()).isEqualByComparingTo("1.75");
+        assertThat(position().getCostBasis()).isEqualByComparingTo("325");
+        assertThat(position().getRealizedPnl()).isEqualByComparingTo("75");
+        assertThat(position().getTransactionCount()).isEqualTo(4);
+        assertThat(positionService.rebuild(watchlist.getId())).isFalse();
+
+        assertThat(positionService.deleteTransaction(second.getId())).isTrue();
+        // Ohne den zweiten Kauf: 1 zu 100, Verkauf 0,5 gibt 50 frei, dann 0,25 zu 400
+        assertThat(position().getQuantity()).isEqualByComparingTo("0.75");
+        assertThat(position().getCostBasis()).isEqualByComparingTo("150");
+        assertThat(position().getRealizedPnl()).isEqualByComparingTo("100");
+        assertThat(position().getTransactionCount()).isEqualTo(3);
+        assertThat(positionService.rebuild(watchlist.getId())).isFalse();
+        assertThat(positionService.deleteTransaction(second.getId())).isFalse();
+    }
+
+    @Test
+    void changesMarkNavDirtyFromEarliestUtcDay() {
+        record(CryptoTransaction.TransactionType.BUY, "1", "100", 5);
+        record(CryptoTransaction.TransactionType.BUY, "1", "100", 2);
+        record(CryptoTransaction.TransactionType.BUY, "1", "100", 7);
+
+        assertThat(position().getNavDirtyFrom()).isEqualTo(PortfolioNavService.utcDay(START.plusDays(2)));
+    }
+
+    @Test
+    void sellBeyondHoldingsReleasesFullCostAndGoesNegative() {
+        record(CryptoTransaction.TransactionType.BUY, "1", "100", 0);
+        record(CryptoTransaction.TransactionType.SELL, "3", "110", 1);
+
+        assertThat(position().getQuantity()).isEqualByComparingTo("-2");
+        assertThat(position().getCostBasis()).isEqualByComparingTo("0");
+        assertThat(position().getRealizedPnl()).isEqualByComparingTo("230");
+        assertThat(position().getAveragePrice()).isEqualByComparingTo("0");
+        assertThat(positionService.rebuild(watchlist.getId())).isFalse();
+    }
+
+    @Test
+    void startupBackfillsMissingPositions() {
+        // Transaktionen aus der Zeit vor den Positionen: direkt gespeichert, ohne PositionService
+        CryptoWatchlist legacy = cryptoWatchlistRepository.save(new CryptoWatchlist("ETH", "Ethereum", "crypto"));
+        cryptoTransactionRepository.save(transaction(legacy, CryptoTransaction.TransactionType.BUY, "2", "50", 4));
+        cryptoTransactionRepository.save(transaction(legacy, CryptoTransaction.TransactionType.SELL, "1", "80", 6));
+        cryptoTransactionRepository.flush();
+        entityManager.clear();
+        assertThat(cryptoWatchlistRepository.findIdsWithoutPosition()).containsExactly(legacy.getId());
+
+        positionService.initialize();
+
+        Position backfilled = positionService.getPosition(legacy.getId()).orElseThrow();
+        assertThat(backfilled.getQuantity()).isEqualByComparingTo("1");
+        assertThat(backfilled.getCostBasis()).isEqualByComparingTo("50");
+        assertThat(backfilled.getRealizedPnl()).isEqualByComparingTo("30");
+        assertThat(backfilled.getTransactionCount()).isEqualTo(2);
+        assertThat(backfilled.getNavDirtyFrom()).isEqualTo(PortfolioNavService.utcDay(START.plusDays(4)));
+        assertThat(cryptoWatchlistRepository.findIdsWithoutPosition()).isEmpty();
+        // Einträge ohne Transaktionen bekommen keine Position
+        assertThat(positionService.getPosition(watchlist.getId())).isEmpty();
+    }
+
+    @Test
+    void rebuildCorrectsDivergedPosition() {
+        record(CryptoTransaction.TransactionType.BUY, "2", "100", 0);
+        entityManager.flush();
+        jdbcTemplate.update("UPDATE watchlist_position SET quantity = 99 WHERE watchlist_id = ?", watchlist.getId());
+        entityManager.clear();
+
+        Map<String, Object> result = positionService.rebuild();
+
+        assertThat(result.get("checkedCount")).isEqualTo(1);
+        assertThat(result.get("correctedWatchlistIds")).isEqualTo(List.of(watchlist.getId()));
+        assertThat(position().getQuantity()).isEqualByComparingTo("2");
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.financemanager.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PriceStreamServiceTest {
+
+    private AssetService assetService;
+    private PriceStreamService service;
+
+    @BeforeEach
+    void setUp() {
+        assetService = mock(AssetService.class);
+        service = new PriceStreamService();
+        ReflectionTestUtils.setField(service, "assetService", assetService);
+        ReflectionTestUtils.setField(service, "intervalMs", 10L);
+        ReflectionTestUtils.setField(service, "emitterTimeoutMs", 60_000L);
+        ReflectionTestUtils.setField(service, "maxSubscribers", 10);
+        ReflectionTestUtils.setField(service, "maxSymbolsPerSubscriber", 10);
+        ReflectionTestUtils.setField(service, "heartbeatTicks", 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void providerFetchRunsOnOwnVirtualThreadUntilShutdown() throws Exception {
+        AtomicReference<Thread> fetchThread = new AtomicReference<>();
+        CountDownLatch fetched = new CountDownLatch(2);
+        when(assetService.getAssetsWithCurrentPrices(anyList(), eq("crypto"), eq("usd"))).thenAnswer(invocation -> {
+            fetchThread.set(Thread.currentThread());
+            fetched.countDown();
+            return Map.of("BTC", Map.of("success", true, "priceData", Map.of("price", 65000)));
+        });
+        service.subscribe(List.of(PriceStreamService.StreamKey.of("btc", "Crypto")));
+
+        service.start();
+
+        // Mehrere Ticks, alle auf dem eigenen Thread statt im Scheduler-Pool
+        assertThat(fetched.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread thread = fetchThread.get();
+        assertThat(thread.isVirtual()).isTrue();
+        assertThat(thread.getName()).isEqualTo("price-stream-tick");
+        assertThat(service.getStatus().get("lastError")).isNull();
+
+        service.shutdown();
+        thread.join(5000);
+        assertThat(thread.isAlive()).isFalse();
+    }
+}
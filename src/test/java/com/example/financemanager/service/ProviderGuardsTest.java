@@ -0,0 +1,90 @@
+package com.example.financemanager.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProviderGuardsTest {
+
+    private ProviderGuards guards;
+
+    @BeforeEach
+    void setUp() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("providers.twelvedata.bulkhead.max-concurrent", "1")
+                .withProperty("providers.twelvedata.bulkhead.max-wait-ms", "0")
+                .withProperty("providers.twelvedata.rate-limit.per-minute", "8")
+                .withProperty("providers.twelvedata.rate-limit.burst", "8")
+                .withProperty("providers.twelvedata.rate-limit.max-wait-ms", "0");
+        guards = new ProviderGuards();
+        ReflectionTestUtils.setField(guards, "environment", environment);
+        ReflectionTestUtils.setField(guards, "defaultWindowSize", 20);
+        ReflectionTestUtils.setField(guards, "defaultMinimumCalls", 5);
+        ReflectionTestUtils.setField(guards, "defaultFailureRateThreshold", 50.0);
+        ReflectionTestUtils.setField(guards, "defaultOpenDurationMs", 30000L);
+        ReflectionTestUtils.setField(guards, "defaultHalfOpenCalls", 2);
+        ReflectionTestUtils.setField(guards, "defaultMaxConcurrent", 10);
+        ReflectionTestUtils.setField(guards, "defaultMaxWaitMs", 100L);
+        ReflectionTestUtils.setField(guards, "defaultPermitsPerMinute", 0);
+        ReflectionTestUtils.setField(guards, "defaultBurst", 0);
+        ReflectionTestUtils.setField(guards, "defaultRateLimitMaxWaitMs", 2000L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int availableTokens() {
+        Map<String, Object> twelveData = (Map<String, Object>) guards.getStatus().get(ProviderGuards.TWELVEDATA);
+        return (int) ((Map<String, Object>) twelveData.get("rateLimit")).get("availableTokens");
+    }
+
+    @Test
+    void fullBulkheadDoesNotConsumeTokens() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread blocker = Thread.ofVirtual().start(() -> {
+            try {
+                guards.call(ProviderGuards.TWELVEDATA, 2, () -> {
+                    started.countDown();
+                    try {
+                        finish.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "ok";
+                });
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(availableTokens()).isEqualTo(6);
+
+        assertThatThrownBy(() -> guards.call(ProviderGuards.TWELVEDATA, 4, () -> "never"))
+                .isInstanceOf(ProviderUnavailableException.class);
+        assertThat(availableTokens()).isEqualTo(6);
+
+        finish.countDown();
+        blocker.join(5000);
+        assertThat(failure.get()).isNull();
+    }
+
+    @Test
+    void exhaustedQuoteReleasesBulkheadSlot() {
+        assertThat(guards.call(ProviderGuards.TWELVEDATA, 8, () -> "ok")).isEqualTo("ok");
+
+        assertThatThrownBy(() -> guards.call(ProviderGuards.TWELVEDATA, 1, () -> "never"))
+                .isInstanceOf(RateLimitExceededException.class);
+        // Der einzige Platz ist wieder frei: der nächste Aufruf scheitert an der Quote, nicht am Bulkhead
+        assertThatThrownBy(() -> guards.call(ProviderGuards.TWELVEDATA, 1, () -> "never"))
+                .isInstanceOf(RateLimitExceededException.class);
+    }
+}
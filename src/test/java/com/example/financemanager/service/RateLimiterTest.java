@@ -0,0 +1,49 @@
+package com.example.financemanager.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimiterTest {
+
+    @Test
+    void rejectsWhenWaitExceedsMaxWait() throws Exception {
+        RateLimiter limiter = new RateLimiter("test", 60, 2, 0);
+
+        assertThat(limiter.tryAcquire(2)).isTrue();
+        assertThat(limiter.tryAcquire(1)).isFalse();
+        assertThat(limiter.tryAcquire(3)).isFalse();
+        assertThat(limiter.getStatus().get("rejectedCount")).isEqualTo(2L);
+    }
+
+    @Test
+    void interruptedWaitReturnsReservedTokens() throws Exception {
+        // 6 pro Minute = ein Token alle 10 s; der zweite Aufruf wartet und wird unterbrochen
+        RateLimiter limiter = new RateLimiter("test", 6, 1, 60_000);
+        assertThat(limiter.tryAcquire(1)).isTrue();
+
+        AtomicReference<Throwable> outcome = new AtomicReference<>();
+        Thread waiter = Thread.ofPlatform().start(() -> {
+            try {
+                limiter.tryAcquire(1);
+            } catch (Throwable e) {
+                outcome.set(e);
+            }
+        });
+        while (waiter.getState() != Thread.State.TIMED_WAITING && waiter.isAlive()) {
+            Thread.onSpinWait();
+        }
+        assertThat(limiter.getStatus().get("usedLastMinute")).isEqualTo(2L);
+
+        waiter.interrupt();
+        waiter.join(5000);
+
+        assertThat(outcome.get()).isInstanceOf(InterruptedException.class);
+        assertThat(limiter.getStatus().get("usedLastMinute")).isEqualTo(1L);
+        assertThat(limiter.getStatus().get("grantedCount")).isEqualTo(1L);
+        // Ohne Rückgabe läge der Bucket bei -1 und der nächste Aufruf müsste 20 s warten
+        assertThat(limiter.estimateWaitMs(1)).isLessThanOrEqualTo(10_000L);
+    }
+}
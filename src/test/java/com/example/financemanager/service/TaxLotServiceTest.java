@@ -0,0 +1,121 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.model.CryptoTransaction;
+import com.example.financemanager.model.CryptoWatchlist;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TaxLotServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TaxLotService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:taxlots;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE crypto_watchlist (id BIGINT PRIMARY KEY, symbol VARCHAR(20))");
+        jdbcTemplate.execute("CREATE TABLE crypto_transaction (id BIGINT PRIMARY KEY, watchlist_id BIGINT, " +
+                "transaction_type VARCHAR(10), amount DECIMAL(38, 8), total_value DECIMAL(38, 8), " +
+                "transaction_date TIMESTAMP, created_at TIMESTAMP)");
+        jdbcTemplate.update("INSERT INTO crypto_watchlist VALUES (1, 'BTC'), (2, 'ETH')");
+        insert(1, 1, "BUY", "1", "100", "2024-01-10T00:00");
+        insert(2, 1, "BUY", "1", "200", "2024-02-10T00:00");
+        insert(3, 1, "SELL", "1.5", "450", "2024-03-10T00:00");
+        insert(4, 2, "BUY", "2", "100", "2024-01-10T00:00");
+        insert(5, 2, "SELL", "3", "120", "2025-01-10T00:00");
+
+        service = new TaxLotService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    private void insert(long id, long watchlistId, String type, String amount, String value, String date) {
+        LocalDateTime timestamp = LocalDateTime.parse(date);
+        jdbcTemplate.update("INSERT INTO crypto_transaction VALUES (?, ?, ?, ?, ?, ?, ?)",
+                id, watchlistId, type, new BigDecimal(amount), new BigDecimal(value), timestamp, timestamp);
+    }
+
+    private static BigDecimal decimal(Map<String, Object> report, String key) {
+        return (BigDecimal) report.get(key);
+    }
+
+    @Test
+    void sameTransactionsGiveMethodSpecificResults() {
+        Map<String, Object> fifo = service.getLotReport(1L, TaxLotService.Method.FIFO, null);
+        Map<String, Object> lifo = service.getLotReport(1L, TaxLotService.Method.LIFO, null);
+        Map<String, Object> average = service.getLotReport(1L, TaxLotService.Method.AVERAGE, new BigDecimal("300"));
+
+        assertThat(decimal(fifo, "realizedPnl")).isEqualByComparingTo("250");
+        assertThat(decimal(fifo, "openCostBasis")).isEqualByComparingTo("100");
+        assertThat(decimal(lifo, "realizedPnl")).isEqualByComparingTo("200");
+        assertThat(decimal(lifo, "openCostBasis")).isEqualByComparingTo("50");
+        assertThat(decimal(average, "realizedPnl")).isEqualByComparingTo("225");
+        assertThat(decimal(average, "unrealizedPnl")).isEqualByComparingTo("75");
+
+        // Wechsel zurück liefert den gecachten Stand der ersten Methode unverändert
+        assertThat(decimal(service.getLotReport(1L, TaxLotService.Method.FIFO, null), "realizedPnl"))
+                .isEqualByComparingTo("250");
+    }
+
+    @Test
+    void newTransactionUpdatesEveryCachedMethod() {
+        service.getLotReport(1L, TaxLotService.Method.FIFO, null);
+        service.getLotReport(1L, TaxLotService.Method.LIFO, null);
+
+        CryptoWatchlist watchlist = new CryptoWatchlist("BTC", "Bitcoin", "crypto");
+        watchlist.setId(1L);
+        CryptoTransaction sale = new CryptoTransaction(watchlist, CryptoTransaction.TransactionType.SELL,
+                new BigDecimal("0.25"), new BigDecimal("400"));
+        sale.setId(6L);
+        service.onTransactionRecorded(sale);
+
+        // Erlös 100; FIFO verbraucht den Rest des zweiten Lots (Einstand 200), LIFO den des ersten (100)
+        assertThat(decimal(service.getLotReport(1L, TaxLotService.Method.FIFO, null), "realizedPnl"))
+                .isEqualByComparingTo("300");
+        assertThat(decimal(service.getLotReport(1L, TaxLotService.Method.LIFO, null), "realizedPnl"))
+                .isEqualByComparingTo("275");
+        // Nicht gecachte Methoden laden aus der Datenbank, in der die Transaktion hier fehlt
+        assertThat(service.getLotReport(1L, TaxLotService.Method.AVERAGE, null).get("transactionCount")).isEqualTo(3L);
+        assertThat(service.getLotReport(1L, TaxLotService.Method.LIFO, null).get("transactionCount")).isEqualTo(4L);
+    }
+
+    @Test
+    void gainReportUsesYearOfSaleAndCountsOversell() {
+        Map<String, Object> report2025 = service.getGainReport(2025, TaxLotService.Method.FIFO);
+
+        assertThat(decimal(report2025, "proceeds")).isEqualByComparingTo("120");
+        assertThat(decimal(report2025, "costBasis")).isEqualByComparingTo("100");
+        assertThat(decimal(report2025, "realizedPnl")).isEqualByComparingTo("20");
+        assertThat((List<?>) report2025.get("assets")).hasSize(1);
+        assertThat(decimal(service.getLotReport(2L, TaxLotService.Method.FIFO, null), "unmatchedSellQuantity"))
+                .isEqualByComparingTo("1");
+
+        assertThat(decimal(service.getGainReport(2024, TaxLotService.Method.LIFO), "realizedPnl"))
+                .isEqualByComparingTo("200");
+    }
+
+    @Test
+    void unknownWatchlistAndMethodAreRejected() {
+        assertThatThrownBy(() -> service.getLotReport(99L, TaxLotService.Method.FIFO, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TaxLotService.Method.parse("hifo"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(TaxLotService.Method.parse(" Lifo ")).isEqualTo(TaxLotService.Method.LIFO);
+    }
+}